@@ -0,0 +1,114 @@
+package io.github.zensu357.camswap;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.media.MediaMetadataRetriever;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+
+import io.github.zensu357.camswap.utils.ImageToVideoConverter;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 随机时间点取帧：按帧索引解码 vs MediaMetadataRetriever（OPTION_CLOSEST / OPTION_CLOSEST_SYNC）。
+ * 只打印耗时，不做断言；需在真机上运行。
+ */
+@RunWith(AndroidJUnit4.class)
+public class FrameFetcherBenchmark {
+
+    private static final int SAMPLES = 40;
+
+    @Test
+    public void randomAccess() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File dir = new File(context.getCacheDir(), "frame-bench");
+        dir.mkdirs();
+        File video = makeVideo(dir);
+        assertNotNull(video);
+        new File(video.getPath() + FrameFetcher.INDEX_SUFFIX).delete();
+
+        long durationUs;
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        retriever.setDataSource(video.getPath());
+        durationUs = Long.parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION)) * 1000L;
+
+        long start = System.nanoTime();
+        FrameFetcher fetcher = FrameFetcher.open(video.getPath(), null);
+        long coldOpenUs = (System.nanoTime() - start) / 1000;
+        fetcher.release();
+        start = System.nanoTime();
+        fetcher = FrameFetcher.open(video.getPath(), null);
+        long warmOpenUs = (System.nanoTime() - start) / 1000;
+
+        long[] times = new long[SAMPLES];
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            times[i] = (long) (random.nextDouble() * durationUs);
+        }
+
+        long indexedUs = 0;
+        for (long t : times) {
+            start = System.nanoTime();
+            Bitmap frame = fetcher.fetch(t, 0, 0);
+            indexedUs += (System.nanoTime() - start) / 1000;
+            if (frame != null) {
+                frame.recycle();
+            }
+        }
+        long decoded = fetcher.getDecodedFrameCount();
+        long seeks = fetcher.getSeekCount();
+        fetcher.release();
+
+        long closestUs = timeRetriever(retriever, times, MediaMetadataRetriever.OPTION_CLOSEST);
+        long syncUs = timeRetriever(retriever, times, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+        retriever.release();
+
+        System.out.println("FrameFetcherBenchmark " + SAMPLES + " random fetches, "
+                + "open cold=" + coldOpenUs / 1000 + "ms warm=" + warmOpenUs / 1000 + "ms");
+        System.out.println("  indexed          avg=" + indexedUs / SAMPLES / 1000 + "ms decoded=" + decoded
+                + " seeks=" + seeks);
+        System.out.println("  retriever exact  avg=" + closestUs / SAMPLES / 1000 + "ms");
+        System.out.println("  retriever sync   avg=" + syncUs / SAMPLES / 1000 + "ms");
+    }
+
+    private static long timeRetriever(MediaMetadataRetriever retriever, long[] times, int option) {
+        long totalUs = 0;
+        for (long t : times) {
+            long start = System.nanoTime();
+            Bitmap frame = retriever.getFrameAtTime(t, option);
+            totalUs += (System.nanoTime() - start) / 1000;
+            if (frame != null) {
+                frame.recycle();
+            }
+        }
+        return totalUs;
+    }
+
+    /** 用图片转视频生成一段 25fps、每秒一个关键帧的测试片段 */
+    private static File makeVideo(File dir) throws Exception {
+        Bitmap image = Bitmap.createBitmap(1280, 720, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(image);
+        canvas.drawColor(Color.DKGRAY);
+        Paint paint = new Paint();
+        paint.setColor(Color.YELLOW);
+        canvas.drawCircle(640, 360, 200, paint);
+        File png = new File(dir, "bench.png");
+        try (FileOutputStream out = new FileOutputStream(png)) {
+            image.compress(Bitmap.CompressFormat.PNG, 100, out);
+        }
+        image.recycle();
+        return ImageToVideoConverter.convert(png.getPath(), dir);
+    }
+}
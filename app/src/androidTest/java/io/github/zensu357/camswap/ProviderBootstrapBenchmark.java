@@ -0,0 +1,96 @@
+package io.github.zensu357.camswap;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+/**
+ * Hook 冷启动到首帧前的 Provider 往返：原来的逐项加载（配置游标、视频可用性探测、打开视频、打开音频）
+ * 对比一次 call("bootstrap")。只打印耗时，不做断言；需在真机上运行，且管理端已选好视频。
+ * 测试与 Provider 同进程，不含跨进程 Binder 开销，实际差距按 IPC 次数（4 次对 1 次）还要更大。
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProviderBootstrapBenchmark {
+
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 50;
+
+    @Test
+    public void legacySequenceVersusBootstrap() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ContentResolver resolver = context.getContentResolver();
+
+        long legacyUs = 0;
+        long bootstrapUs = 0;
+        int bootstrapFds = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long start = System.nanoTime();
+            try (Cursor cursor = resolver.query(IpcContract.URI_CONFIG, null, null, null, null)) {
+                while (cursor != null && cursor.moveToNext()) {
+                    cursor.getString(1);
+                }
+            }
+            closeQuietly(resolver.openFileDescriptor(IpcContract.URI_VIDEO, "r"));
+            closeQuietly(resolver.openFileDescriptor(IpcContract.URI_VIDEO, "r"));
+            closeQuietly(openOrNull(resolver, IpcContract.URI_AUDIO));
+            long legacy = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Bundle result = resolver.call(IpcContract.CONTENT_URI, IpcContract.METHOD_BOOTSTRAP, null, null);
+            Bootstrap bootstrap = Bootstrap.fromBundle(result, 0, 0);
+            long single = System.nanoTime() - start;
+            if (bootstrap != null) {
+                bootstrapFds = countFds(result);
+                bootstrap.close();
+            }
+
+            if (i >= WARMUP) {
+                legacyUs += legacy / 1000;
+                bootstrapUs += single / 1000;
+            }
+        }
+
+        System.out.println("ProviderBootstrapBenchmark " + ITERATIONS + " iterations");
+        System.out.println("  legacy (config query + 2x video open + audio open) avg=" + legacyUs / ITERATIONS + "us");
+        System.out.println("  bootstrap (1 call, " + bootstrapFds + " fds)           avg="
+                + bootstrapUs / ITERATIONS + "us");
+    }
+
+    private static ParcelFileDescriptor openOrNull(ContentResolver resolver, android.net.Uri uri) {
+        try {
+            return resolver.openFileDescriptor(uri, "r");
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int countFds(Bundle result) {
+        int count = 0;
+        for (String key : new String[] { IpcContract.EXTRA_VIDEO_PFD, IpcContract.EXTRA_AUDIO_PFD,
+                IpcContract.EXTRA_IMAGE_PFD, IpcContract.EXTRA_CONFIG_SEGMENT_PFD }) {
+            if (result.containsKey(key)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor pfd) {
+        if (pfd != null) {
+            try {
+                pfd.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package io.github.zensu357.camswap;
+
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 冷启动引导包：{@code VideoProvider.call("bootstrap")} 一次返回首帧所需的全部内容——配置、
+ * 解析后的媒体源、预打开的视频/音频/图片 fd、配置共享段 fd 和视频元数据，
+ * 代替配置查询、可用性探测和多次 openFileDescriptor。
+ * <p>
+ * 预打开的 fd 各只交出一次。持有方在媒体源变化时、以及采用引导包 {@link #PFD_TTL_MS} 后
+ * {@link #close()} 未被取用的 fd（从不打开相机的进程不会一直占着它们）；take 时也按 TTL 检查。
+ * 之后调用方回退到常规的 Provider 打开。
+ */
+public final class Bootstrap {
+
+    /** 预打开的 fd 超过这个时间未被取用就不再交出（选中的视频可能已在管理端被替换） */
+    public static final long PFD_TTL_MS = 60_000L;
+
+    /** 视频元数据，管理端按文件缓存，Hook 端据此跳过首次解码前的 MediaMetadataRetriever 探测 */
+    public static final class Metadata {
+        public final int width;
+        public final int height;
+        public final int rotation;
+        /** 0 表示未知 */
+        public final int fps;
+        public final long durationMs;
+
+        public Metadata(int width, int height, int rotation, int fps, long durationMs) {
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+            this.fps = fps;
+            this.durationMs = durationMs;
+        }
+
+        /** 探测视频文件；失败或不是视频时返回 null */
+        public static Metadata probe(File file) {
+            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+            try {
+                retriever.setDataSource(file.getAbsolutePath());
+                int width = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+                int height = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+                if (width <= 0 || height <= 0) {
+                    return null;
+                }
+                int rotation = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+                long durationMs = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+                int fps = 0;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && durationMs > 0) {
+                    int frames = parseInt(
+                            retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_FRAME_COUNT));
+                    fps = Math.round(frames * 1000f / durationMs);
+                }
+                return new Metadata(width, height, rotation, fps, durationMs);
+            } catch (RuntimeException e) {
+                return null;
+            } finally {
+                try {
+                    retriever.release();
+                } catch (IOException | RuntimeException ignored) {
+                }
+            }
+        }
+
+        public void writeTo(Bundle out) {
+            out.putInt(IpcContract.EXTRA_VIDEO_WIDTH, width);
+            out.putInt(IpcContract.EXTRA_VIDEO_HEIGHT, height);
+            out.putInt(IpcContract.EXTRA_VIDEO_ROTATION, rotation);
+            out.putInt(IpcContract.EXTRA_VIDEO_FPS, fps);
+            out.putLong(IpcContract.EXTRA_VIDEO_DURATION_MS, durationMs);
+        }
+
+        /** 包里没有元数据时返回 null */
+        public static Metadata readFrom(Bundle in) {
+            int width = in.getInt(IpcContract.EXTRA_VIDEO_WIDTH, 0);
+            int height = in.getInt(IpcContract.EXTRA_VIDEO_HEIGHT, 0);
+            if (width <= 0 || height <= 0) {
+                return null;
+            }
+            return new Metadata(width, height, in.getInt(IpcContract.EXTRA_VIDEO_ROTATION, 0),
+                    in.getInt(IpcContract.EXTRA_VIDEO_FPS, 0), in.getLong(IpcContract.EXTRA_VIDEO_DURATION_MS, 0));
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + " rot=" + rotation + " fps=" + fps + " " + durationMs + "ms";
+        }
+    }
+
+    public final String configJson;
+    /** 管理端解析出的媒体源；本地/图片源的 localPath 是管理端路径，内容经预打开的 fd 读取 */
+    public final MediaSourceDescriptor source;
+    /** 本地视频源的元数据；流、图片源、管理端尚未探测完或探测失败时为 null */
+    public final Metadata metadata;
+    /** call("bootstrap") 的往返耗时 */
+    public final long roundTripMs;
+
+    private final long createdAtMs;
+    private ParcelFileDescriptor videoPfd;
+    private ParcelFileDescriptor audioPfd;
+    private ParcelFileDescriptor imagePfd;
+    private ParcelFileDescriptor segmentPfd;
+    /** 已交出的视频 fd，用来把元数据对应到解码器拿到的那个 fd */
+    private ParcelFileDescriptor servedVideoPfd;
+
+    private Bootstrap(Bundle result, long roundTripMs, long nowMs) {
+        this.configJson = result.getString(IpcContract.EXTRA_CONFIG_JSON);
+        this.source = readSource(result);
+        this.metadata = source.type == MediaSourceDescriptor.Type.LOCAL_FILE ? Metadata.readFrom(result) : null;
+        this.roundTripMs = roundTripMs;
+        this.createdAtMs = nowMs;
+        this.videoPfd = getPfd(result, IpcContract.EXTRA_VIDEO_PFD);
+        this.audioPfd = getPfd(result, IpcContract.EXTRA_AUDIO_PFD);
+        this.imagePfd = getPfd(result, IpcContract.EXTRA_IMAGE_PFD);
+        this.segmentPfd = getPfd(result, IpcContract.EXTRA_CONFIG_SEGMENT_PFD);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static ParcelFileDescriptor getPfd(Bundle result, String key) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return result.getParcelable(key, ParcelFileDescriptor.class);
+        }
+        return result.getParcelable(key);
+    }
+
+    /**
+     * 解析 call("bootstrap") 的结果。
+     *
+     * @return null 表示对端不支持引导（旧版本管理端对未知方法只返回 changed=false）
+     */
+    public static Bootstrap fromBundle(Bundle result, long roundTripMs, long nowMs) {
+        if (result == null || result.getString(IpcContract.EXTRA_CONFIG_JSON) == null) {
+            return null;
+        }
+        return new Bootstrap(result, roundTripMs, nowMs);
+    }
+
+    private static MediaSourceDescriptor readSource(Bundle result) {
+        String type = result.getString(IpcContract.EXTRA_SOURCE_TYPE, MediaSourceDescriptor.Type.LOCAL_FILE.name());
+        String path = result.getString(IpcContract.EXTRA_SOURCE_PATH, "");
+        if (MediaSourceDescriptor.Type.STREAM_URL.name().equals(type)) {
+            return MediaSourceDescriptor.stream(result.getString(IpcContract.EXTRA_SOURCE_URL, "")).build();
+        }
+        if (MediaSourceDescriptor.Type.STILL_IMAGE.name().equals(type)) {
+            return MediaSourceDescriptor.stillImage(path).useProviderPfd(true).build();
+        }
+        return MediaSourceDescriptor.localFile(path).useProviderPfd(true).build();
+    }
+
+    /** 写入媒体源；管理端使用 */
+    public static void writeSource(Bundle out, MediaSourceDescriptor source) {
+        out.putString(IpcContract.EXTRA_SOURCE_TYPE, source.type.name());
+        if (source.localPath != null) {
+            out.putString(IpcContract.EXTRA_SOURCE_PATH, source.localPath);
+        }
+        if (source.streamUrl != null) {
+            out.putString(IpcContract.EXTRA_SOURCE_URL, source.streamUrl);
+        }
+    }
+
+    public synchronized boolean hasVideoPfd() {
+        return videoPfd != null;
+    }
+
+    /** 交出预打开的视频 fd（只交出一次）；已过期时关闭并返回 null */
+    public synchronized ParcelFileDescriptor takeVideoPfd(long nowMs) {
+        ParcelFileDescriptor pfd = take(videoPfd, nowMs);
+        videoPfd = null;
+        if (pfd != null) {
+            servedVideoPfd = pfd;
+        }
+        return pfd;
+    }
+
+    public synchronized ParcelFileDescriptor takeAudioPfd(long nowMs) {
+        ParcelFileDescriptor pfd = take(audioPfd, nowMs);
+        audioPfd = null;
+        return pfd;
+    }
+
+    public synchronized ParcelFileDescriptor takeImagePfd(long nowMs) {
+        ParcelFileDescriptor pfd = take(imagePfd, nowMs);
+        imagePfd = null;
+        return pfd;
+    }
+
+    /** 配置共享段不会过期：段文件本身随配置更新 */
+    public synchronized ParcelFileDescriptor takeSegmentPfd() {
+        ParcelFileDescriptor pfd = segmentPfd;
+        segmentPfd = null;
+        return pfd;
+    }
+
+    /** pfd 是引导交出的视频 fd 时返回其元数据，否则 null（之后重新打开的可能是转码变体或别的视频） */
+    public synchronized Metadata metadataFor(ParcelFileDescriptor pfd) {
+        return pfd != null && pfd == servedVideoPfd ? metadata : null;
+    }
+
+    private ParcelFileDescriptor take(ParcelFileDescriptor pfd, long nowMs) {
+        if (pfd != null && nowMs - createdAtMs > PFD_TTL_MS) {
+            closeQuietly(pfd);
+            return null;
+        }
+        return pfd;
+    }
+
+    /** 关闭所有尚未交出的 fd */
+    public synchronized void close() {
+        closeQuietly(videoPfd);
+        closeQuietly(audioPfd);
+        closeQuietly(imagePfd);
+        closeQuietly(segmentPfd);
+        videoPfd = null;
+        audioPfd = null;
+        imagePfd = null;
+        segmentPfd = null;
+        servedVideoPfd = null;
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor pfd) {
+        if (pfd != null) {
+            try {
+                pfd.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "bootstrap{" + source.type + ", video=" + (videoPfd != null) + ", audio=" + (audioPfd != null)
+                + ", image=" + (imagePfd != null) + ", segment=" + (segmentPfd != null)
+                + (metadata != null ? ", " + metadata : "") + ", " + roundTripMs + "ms}";
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.zensu357.camswap;
+
+import java.util.IdentityHashMap;
+
+/**
+ * 单个 Camera 的回调 buffer 替身池。
+ * <p>
+ * {@code addCallbackBuffer} 时把应用的 buffer 换成替身交给相机，真实画面只会写进替身；
+ * {@code onPreviewFrame} 时再换回应用自己的 buffer 并写入伪造帧，应用看到的始终是它自己的数组。
+ * 替身在回调后回到按长度匹配的空闲列表，应用循环复用 buffer 时稳态下不再分配。
+ */
+final class CallbackBufferPool {
+
+    static final int MAX_FREE = 8;
+
+    /** 在相机队列中的替身 → 应用的原 buffer */
+    private final IdentityHashMap<byte[], byte[]> queued = new IdentityHashMap<>();
+    private final byte[][] free = new byte[MAX_FREE][];
+    private int freeCount;
+    private long allocations;
+    private long reuses;
+
+    /** 为应用 buffer 取一个同长度的替身，记录映射后交给相机 */
+    synchronized byte[] substitute(byte[] appBuffer) {
+        byte[] ours = takeFree(appBuffer.length);
+        if (ours == null) {
+            ours = new byte[appBuffer.length];
+            allocations++;
+        } else {
+            reuses++;
+        }
+        queued.put(ours, appBuffer);
+        return ours;
+    }
+
+    /**
+     * 相机回调交回替身时换回应用的 buffer，替身进入空闲列表。
+     *
+     * @return 对应的应用 buffer；不是本池的替身（如无 buffer 模式的回调）时原样返回
+     */
+    synchronized byte[] restore(byte[] ours) {
+        byte[] appBuffer = queued.remove(ours);
+        if (appBuffer == null) {
+            return ours;
+        }
+        if (freeCount < MAX_FREE) {
+            free[freeCount++] = ours;
+        }
+        return appBuffer;
+    }
+
+    /** 丢弃所有映射与空闲替身 */
+    synchronized void clear() {
+        queued.clear();
+        for (int i = 0; i < freeCount; i++) {
+            free[i] = null;
+        }
+        freeCount = 0;
+    }
+
+    synchronized int getQueuedCount() {
+        return queued.size();
+    }
+
+    synchronized long getAllocationCount() {
+        return allocations;
+    }
+
+    synchronized long getReuseCount() {
+        return reuses;
+    }
+
+    private byte[] takeFree(int length) {
+        for (int i = freeCount - 1; i >= 0; i--) {
+            byte[] candidate = free[i];
+            if (candidate.length == length) {
+                free[i] = free[--freeCount];
+                free[freeCount] = null;
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -6,11 +6,13 @@ import android.media.MediaPlayer;
 import android.view.Surface;
 import android.view.SurfaceHolder;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -20,12 +22,23 @@ import io.github.zensu357.camswap.api101.Api101Runtime;
 
 import io.github.zensu357.camswap.utils.VideoManager;
 import io.github.zensu357.camswap.utils.LogUtil;
+import io.github.zensu357.camswap.yuv.YuvRotate;
 
 public class Camera1Handler implements ICameraHandler {
     private static final Set<String> hookedPreviewCallbackClasses = Collections
             .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
-    private static final Object previewFrameLock = new Object();
-    private static final long PREVIEW_FRAME_WAIT_MS = 100L;
+    private static volatile int lastPreviewBufferLength = -1;
+    /** 图片模式下已发布到 previewFrames 的图片代数、尺寸与旋转；都不变时不再重新发布 */
+    private static long publishedStillGeneration;
+    private static int publishedStillWidth;
+    private static int publishedStillHeight;
+    private static int publishedStillRotation;
+    private static final Map<Camera, CallbackBufferPool> callbackBufferPools = new ConcurrentHashMap<>();
+    // FrameFetcher 取不到帧时的兜底 retriever，按视频路径复用，release 时关闭
+    private static final Object fallbackRetrieverLock = new Object();
+    private static android.media.MediaMetadataRetriever fallbackRetriever;
+    private static String fallbackRetrieverPath;
+    private final StillCaptureService stillCapture = new StillCaptureService(new StillSource(), "CS-Still1");
 
     @Override
     public void init(final Api101PackageContext packageContext) {
@@ -126,6 +139,11 @@ public class Camera1Handler implements ICameraHandler {
                     if (HookMain.mSurfacetexture != null) {
                         prepareTexturePreviewPlayer();
                     }
+
+                    if (VideoManager.getConfig().getBoolean(ConfigManager.KEY_ENABLE_PHOTO_FAKE, false)) {
+                        ensureCameraSize(HookMain.start_preview_camera);
+                        stillCapture.start(HookMain.mwidth, HookMain.mhight, 0);
+                    }
                 }
             } catch (Throwable t) {
                 LogUtil.log("【CS】startPreview before 异常: " + t);
@@ -212,11 +230,17 @@ public class Camera1Handler implements ICameraHandler {
         HookMain.playerManager.c1_renderer_holder = renderer;
         if (renderer != null && renderer.isInitialized()) {
             HookMain.playerManager.mplayer1.setSurface(renderer.getInputSurface());
-            int rotation = VideoManager.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
+            int rotation = VideoManager.getConfig().snapshot().videoRotationOffset;
             renderer.setRotation(rotation);
         } else {
             HookMain.playerManager.mplayer1.setSurface(HookMain.ori_holder.getSurface());
         }
+        if (attachPreviewToStillImage("c1_holder", renderer, HookMain.ori_holder.getSurface())) {
+            return;
+        }
+        if (attachPreviewToCallbackDecoder()) {
+            return;
+        }
         boolean playSound = VideoManager.getConfig().getBoolean(ConfigManager.KEY_PLAY_VIDEO_SOUND, false);
         if (!(playSound && (!HookMain.is_someone_playing))) {
             HookMain.playerManager.mplayer1.setVolume(0, 0);
@@ -266,11 +290,17 @@ public class Camera1Handler implements ICameraHandler {
         HookMain.playerManager.c1_renderer_texture = renderer;
         if (renderer != null && renderer.isInitialized()) {
             HookMain.playerManager.mMediaPlayer.setSurface(renderer.getInputSurface());
-            int rotation = VideoManager.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
+            int rotation = VideoManager.getConfig().snapshot().videoRotationOffset;
             renderer.setRotation(rotation);
         } else {
             HookMain.playerManager.mMediaPlayer.setSurface(HookMain.mSurface);
         }
+        if (attachPreviewToStillImage("c1_texture", renderer, HookMain.mSurface)) {
+            return;
+        }
+        if (attachPreviewToCallbackDecoder()) {
+            return;
+        }
 
         boolean playSound = VideoManager.getConfig().getBoolean(ConfigManager.KEY_PLAY_VIDEO_SOUND, false);
         if (!(playSound && (!HookMain.is_someone_playing))) {
@@ -306,6 +336,7 @@ public class Camera1Handler implements ICameraHandler {
             return false;
         }
         LogUtil.log("【CS】Camera1 takePicture 触发，启动动态防御机制");
+        stillCapture.markShutter();
 
         Camera.PictureCallback jpegCallback = null;
         if (args.length == 3) {
@@ -317,6 +348,8 @@ public class Camera1Handler implements ICameraHandler {
         if (jpegCallback != null) {
             byte[] jpegData = buildPhotoFakeJpeg(camera);
             if (jpegData != null) {
+                stillCapture.markDelivered();
+                LogUtil.log("【CS】Camera1 拍照: " + stillCapture);
                 try {
                     jpegCallback.onPictureTaken(jpegData, camera);
                 } catch (Exception e) {
@@ -327,23 +360,19 @@ public class Camera1Handler implements ICameraHandler {
         return true;
     }
 
-    private byte[] buildPhotoFakeJpeg(Camera camera) {
+    private synchronized byte[] buildPhotoFakeJpeg(Camera camera) {
         ensureCameraSize(camera);
 
-        byte[] nv21 = HookMain.data_buffer;
+        // 图片模式：同一尺寸的照片只编码一次
         byte[] jpegData = null;
+        StillImageSource still = StillImageSource.current();
+        if (still != null) {
+            jpegData = still.jpeg(HookMain.mwidth, HookMain.mhight, stillRotation());
+        }
 
-        if (nv21 != null && nv21.length >= 1) {
-            try {
-                android.graphics.YuvImage yuvImage = new android.graphics.YuvImage(nv21,
-                        android.graphics.ImageFormat.NV21, HookMain.mwidth, HookMain.mhight, null);
-                java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
-                yuvImage.compressToJpeg(new android.graphics.Rect(0, 0, HookMain.mwidth, HookMain.mhight), 90, out);
-                jpegData = out.toByteArray();
-                LogUtil.log("【CS】Camera1 Photo Fake: 从 NV21 帧回调数据生成 JPEG");
-            } catch (Exception e) {
-                LogUtil.log("【CS】Camera1 截帧 JPEG 转换失败: " + e);
-            }
+        // 预览期间已在后台按预览尺寸预编码；环中没有足够新的照片时同步编码一次
+        if (jpegData == null || jpegData.length == 0) {
+            jpegData = stillCapture.take(HookMain.mwidth, HookMain.mhight, 0);
         }
 
         if (jpegData == null || jpegData.length == 0) {
@@ -357,6 +386,47 @@ public class Camera1Handler implements ICameraHandler {
         return jpegData;
     }
 
+    /** 拍照预编码的帧来源：优先用解码器发布的 NV21 回调帧，否则从预览渲染器截帧 */
+    private final class StillSource implements StillCaptureService.Source {
+        @Override
+        public long currentGeneration() {
+            long generation = HookMain.previewFrames.getGeneration();
+            if (generation != 0) {
+                return generation;
+            }
+            if (findPreviewRenderer() != null) {
+                // 渲染器没有帧序号，按预编码间隔分桶，每个间隔重新截一次
+                return android.os.SystemClock.elapsedRealtime() / StillCaptureService.ENCODE_INTERVAL_MS + 1;
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean encode(int width, int height, int quality, java.io.ByteArrayOutputStream out) {
+            FrameExchange.Frame frame = HookMain.previewFrames.acquire();
+            if (frame != null) {
+                try {
+                    int w = frame.getWidth();
+                    int h = frame.getHeight();
+                    android.graphics.YuvImage yuvImage = new android.graphics.YuvImage(frame.getData(),
+                            android.graphics.ImageFormat.NV21, w, h, null);
+                    return yuvImage.compressToJpeg(new android.graphics.Rect(0, 0, w, h), quality, out);
+                } finally {
+                    HookMain.previewFrames.release(frame);
+                }
+            }
+            android.graphics.Bitmap glFrame = captureFrameFromGlRenderer();
+            if (glFrame == null) {
+                return false;
+            }
+            try {
+                return glFrame.compress(android.graphics.Bitmap.CompressFormat.JPEG, quality, out);
+            } finally {
+                glFrame.recycle();
+            }
+        }
+    }
+
     private void ensureCameraSize(Camera camera) {
         if (HookMain.mwidth > 0 && HookMain.mhight > 0) {
             return;
@@ -404,14 +474,16 @@ public class Camera1Handler implements ICameraHandler {
                 currentPosMs = HookMain.playerManager.mplayer1.getCurrentPosition() * 1000L;
             } else if (HookMain.playerManager.mMediaPlayer != null && HookMain.playerManager.mMediaPlayer.isPlaying()) {
                 currentPosMs = HookMain.playerManager.mMediaPlayer.getCurrentPosition() * 1000L;
+            } else if (HookMain.hw_decode_obj != null && HookMain.hw_decode_obj.isDecoding()) {
+                currentPosMs = HookMain.hw_decode_obj.getLastDeliveredPtsUs();
             }
 
-            android.media.MediaMetadataRetriever retriever = new android.media.MediaMetadataRetriever();
-            String videoPath = VideoManager.getCurrentVideoPath();
-            retriever.setDataSource(videoPath);
-            android.graphics.Bitmap frame = retriever.getFrameAtTime(currentPosMs,
-                    android.media.MediaMetadataRetriever.OPTION_CLOSEST);
-            retriever.release();
+            // 只在预编码服务拿不到帧时走到这里；先按帧索引精确取帧，失败再退回 retriever 的关键帧截取
+            android.graphics.Bitmap frame = FrameFetcher.fetchCurrent(currentPosMs,
+                    HookMain.mwidth, HookMain.mhight);
+            if (frame == null) {
+                frame = retrieveFallbackFrame(VideoManager.getCurrentVideoPath(), currentPosMs);
+            }
 
             if (frame != null) {
                 if (frame.getWidth() != HookMain.mwidth || frame.getHeight() != HookMain.mhight) {
@@ -434,6 +506,46 @@ public class Camera1Handler implements ICameraHandler {
         return null;
     }
 
+    /** 用缓存的 retriever 精确取帧（OPTION_CLOSEST）；视频路径变化时才重新打开 */
+    private static android.graphics.Bitmap retrieveFallbackFrame(String videoPath, long timeUs) {
+        if (videoPath == null) {
+            return null;
+        }
+        synchronized (fallbackRetrieverLock) {
+            if (fallbackRetriever == null || !videoPath.equals(fallbackRetrieverPath)) {
+                releaseFallbackRetriever();
+                android.media.MediaMetadataRetriever retriever = new android.media.MediaMetadataRetriever();
+                try {
+                    retriever.setDataSource(videoPath);
+                } catch (RuntimeException e) {
+                    releaseQuietly(retriever);
+                    throw e;
+                }
+                fallbackRetriever = retriever;
+                fallbackRetrieverPath = videoPath;
+            }
+            return fallbackRetriever.getFrameAtTime(timeUs,
+                    android.media.MediaMetadataRetriever.OPTION_CLOSEST);
+        }
+    }
+
+    private static void releaseFallbackRetriever() {
+        synchronized (fallbackRetrieverLock) {
+            if (fallbackRetriever != null) {
+                releaseQuietly(fallbackRetriever);
+                fallbackRetriever = null;
+                fallbackRetrieverPath = null;
+            }
+        }
+    }
+
+    private static void releaseQuietly(android.media.MediaMetadataRetriever retriever) {
+        try {
+            retriever.release();
+        } catch (Exception ignored) {
+        }
+    }
+
     private byte[] buildBlackFallbackJpeg() {
         try {
             android.graphics.Bitmap fallback = android.graphics.Bitmap.createBitmap(HookMain.mwidth,
@@ -450,11 +562,8 @@ public class Camera1Handler implements ICameraHandler {
     }
 
     private android.graphics.Bitmap captureFrameFromGlRenderer() {
-        GLVideoRenderer renderer = HookMain.playerManager.c1_renderer_holder;
-        if (renderer == null || !renderer.isInitialized()) {
-            renderer = HookMain.playerManager.c1_renderer_texture;
-        }
-        if (renderer != null && renderer.isInitialized()) {
+        GLVideoRenderer renderer = findPreviewRenderer();
+        if (renderer != null) {
             int w = HookMain.mwidth > 0 ? HookMain.mwidth : 640;
             int h = HookMain.mhight > 0 ? HookMain.mhight : 480;
             return renderer.captureFrameWithRotation(w, h, -1);
@@ -462,6 +571,14 @@ public class Camera1Handler implements ICameraHandler {
         return null;
     }
 
+    private static GLVideoRenderer findPreviewRenderer() {
+        GLVideoRenderer renderer = HookMain.playerManager.c1_renderer_holder;
+        if (renderer == null || !renderer.isInitialized()) {
+            renderer = HookMain.playerManager.c1_renderer_texture;
+        }
+        return renderer != null && renderer.isInitialized() ? renderer : null;
+    }
+
     private void hookSetDisplayOrientation(ClassLoader classLoader) {
         hookCameraMethod(classLoader, "setDisplayOrientation", new Class<?>[] { int.class }, chain -> {
             Object[] args = toArgs(chain.getArgs());
@@ -491,7 +608,8 @@ public class Camera1Handler implements ICameraHandler {
         hookCameraMethod(classLoader, "addCallbackBuffer", new Class<?>[] { byte[].class }, chain -> {
             Object[] args = toArgs(chain.getArgs());
             if (args[0] != null) {
-                args[0] = new byte[((byte[]) args[0]).length];
+                // 相机只写替身，应用的 buffer 在 onPreviewFrame 时换回
+                args[0] = callbackBufferPool((Camera) chain.getThisObject()).substitute((byte[]) args[0]);
             }
             return chain.proceed(args);
         });
@@ -522,6 +640,8 @@ public class Camera1Handler implements ICameraHandler {
         hookCameraMethod(classLoader, "stopPreview", new Class<?>[0], chain -> {
             LogUtil.log("【CS】Camera1 stopPreview，释放播放器资源");
             HookMain.playerManager.releaseCamera1Resources();
+            stillCapture.stop();
+            releaseCallbackBufferPool((Camera) chain.getThisObject());
             return chain.proceed(toArgs(chain.getArgs()));
         });
     }
@@ -530,6 +650,12 @@ public class Camera1Handler implements ICameraHandler {
         hookCameraMethod(classLoader, "release", new Class<?>[0], chain -> {
             LogUtil.log("【CS】Camera1 release，释放播放器资源");
             HookMain.playerManager.releaseCamera1Resources();
+            stillCapture.stop();
+            FrameFetcher.releaseShared();
+            releaseFallbackRetriever();
+            StillImageSource.release();
+            publishedStillGeneration = 0;
+            releaseCallbackBufferPool((Camera) chain.getThisObject());
             HookMain.origin_preview_camera = null;
             HookMain.start_preview_camera = null;
             HookMain.camera_onPreviewFrame = null;
@@ -584,12 +710,13 @@ public class Camera1Handler implements ICameraHandler {
                 Object[] args = toArgs(chain.getArgs());
                 try {
                     Camera localcam = (Camera) args[1];
+                    CallbackBufferPool bufferPool = callbackBufferPools.get(localcam);
+                    if (bufferPool != null && args[0] != null) {
+                        args[0] = bufferPool.restore((byte[]) args[0]);
+                    }
                     if (localcam.equals(HookMain.camera_onPreviewFrame)) {
-                        awaitPreviewFrameBuffer();
-                        if (HookMain.data_buffer != null) {
-                            System.arraycopy(HookMain.data_buffer, 0, args[0], 0,
-                                    Math.min(HookMain.data_buffer.length, ((byte[]) args[0]).length));
-                        }
+                        syncPreviewTargetSize(localcam, (byte[]) args[0]);
+                        fillPreviewFrame((byte[]) args[0]);
                     } else {
                         HookMain.camera_onPreviewFrame = localcam;
                         Camera.Parameters params = HookMain.camera_onPreviewFrame.getParameters();
@@ -601,30 +728,39 @@ public class Camera1Handler implements ICameraHandler {
                                 + " 帧率：" + frameRate);
                         HookMain.need_to_show_toast = !VideoManager.getConfig()
                                 .getBoolean(ConfigManager.KEY_DISABLE_TOAST, false);
+                        VideoManager.reportCameraTarget(HookMain.mwidth, HookMain.mhight, frameRate);
                         if (HookMain.toast_content != null && HookMain.need_to_show_toast) {
                             try {
                                 HookMain.showToast("发现预览\n宽：" + HookMain.mwidth + "\n高："
-                                        + HookMain.mhight + "\n" + "需要视频分辨率与其完全相同");
+                                        + HookMain.mhight + "\n" + "将自动生成匹配分辨率的视频");
                             } catch (Exception ee) {
                                 LogUtil.log("【CS】[toast]" + ee.toString());
                             }
                         }
-                        if (!needStop) {
+                        if (!needStop && publishStillFrame()) {
+                            LogUtil.log("【CS】图片模式：预览回调直接使用内存中的图片帧");
+                            fillPreviewFrame((byte[]) args[0]);
+                        } else if (!needStop) {
                             if (HookMain.hw_decode_obj == null) {
                                 HookMain.hw_decode_obj = new VideoToFrames();
                             }
                             HookMain.hw_decode_obj.setTargetSize(HookMain.mwidth, HookMain.mhight);
                             HookMain.hw_decode_obj.setSaveFrames("", OutputImageFormat.NV21);
                             try {
-                                HookMain.hw_decode_obj.reset(VideoManager.getCurrentVideoPath());
+                                String videoPath = VideoManager.getCurrentVideoPath();
+                                android.os.ParcelFileDescriptor pfd = videoPath == null
+                                        ? VideoManager.getVideoPFD() : null;
+                                // Provider 模式下没有直接路径；经 Provider 打开才能拿到匹配的转码变体
+                                if (pfd != null) {
+                                    HookMain.hw_decode_obj.reset(pfd);
+                                } else {
+                                    HookMain.hw_decode_obj.reset(videoPath);
+                                }
                             } catch (Throwable t) {
                                 LogUtil.log("【CS】" + t);
                             }
-                            awaitPreviewFrameBuffer();
-                            if (HookMain.data_buffer != null) {
-                                System.arraycopy(HookMain.data_buffer, 0, args[0], 0,
-                                        Math.min(HookMain.data_buffer.length, ((byte[]) args[0]).length));
-                            }
+                            attachPreviewToCallbackDecoder();
+                            fillPreviewFrame((byte[]) args[0]);
                         }
                     }
                 } catch (Throwable t) {
@@ -637,25 +773,156 @@ public class Camera1Handler implements ICameraHandler {
         }
     }
 
-    private static void awaitPreviewFrameBuffer() {
-        if (HookMain.data_buffer != null) {
+    /**
+     * 回调解码器运行时由它同时驱动预览：预览与 onPreviewFrame 取自同一解码帧，
+     * 停掉预览 MediaPlayer，整个相机会话只保留一个解码器。
+     * 帧已按旋转偏移变换，预览渲染器保持 0°。
+     *
+     * @return true 表示预览已交给回调解码器
+     */
+    private static boolean attachPreviewToCallbackDecoder() {
+        VideoToFrames decoder = HookMain.hw_decode_obj;
+        if (decoder == null || !decoder.isDecoding() || VideoManager.isStreamMode()) {
+            return false;
+        }
+        MediaPlayerManager pm = HookMain.playerManager;
+        GLVideoRenderer renderer = pm.c1_renderer_holder;
+        Surface fallback = HookMain.ori_holder != null ? HookMain.ori_holder.getSurface() : null;
+        if (renderer == null || !renderer.isInitialized()) {
+            renderer = pm.c1_renderer_texture;
+            fallback = HookMain.mSurface;
+        }
+        Surface target;
+        if (renderer != null && renderer.isInitialized()) {
+            renderer.setRotation(0);
+            renderer.setInputBufferSize(HookMain.mwidth, HookMain.mhight);
+            target = renderer.getInputSurface();
+        } else {
+            target = fallback;
+        }
+        if (target == null || !target.isValid()) {
+            return false;
+        }
+        // 一个 Surface 只能有一个生产者：先断开播放器再交给解码器
+        pm.releaseCamera1Players();
+        decoder.setPreviewSurface(target);
+        LogUtil.log("【CS】预览改由回调解码器驱动（单解码器）");
+        return true;
+    }
+
+    /**
+     * 图片模式：预览由内存中的图片驱动，不创建解码器；刚准备的 MediaPlayer 不会再用到。
+     *
+     * @return true 表示预览已交给图片输出
+     */
+    private static boolean attachPreviewToStillImage(String tag, GLVideoRenderer renderer, Surface fallback) {
+        if (!VideoManager.isStillMode()) {
+            return false;
+        }
+        MediaPlayerManager pm = HookMain.playerManager;
+        if (!pm.startCamera1Still(tag, renderer, fallback)) {
+            return false;
+        }
+        pm.releaseCamera1Players();
+        return true;
+    }
+
+    /** 回调帧与拍照使用的旋转：与回调解码器一致，按用户旋转偏移 */
+    private static int stillRotation() {
+        return YuvRotate.normalize(VideoManager.getConfig().snapshot().videoRotationOffset);
+    }
+
+    /**
+     * 图片模式：把当前预览尺寸的 NV21 图片帧发布到 previewFrames。
+     * 图片、尺寸和旋转都没变化时直接返回，回调线程每帧只做一次整帧拷贝（copyTo）。
+     *
+     * @return false 表示当前没有可用的图片
+     */
+    private static boolean publishStillFrame() {
+        StillImageSource still = StillImageSource.current();
+        if (still == null || HookMain.mwidth <= 0 || HookMain.mhight <= 0) {
+            return false;
+        }
+        int width = HookMain.mwidth;
+        int height = HookMain.mhight;
+        int rotation = stillRotation();
+        if (still.generation == publishedStillGeneration && width == publishedStillWidth
+                && height == publishedStillHeight && rotation == publishedStillRotation) {
+            return true;
+        }
+        byte[] nv21 = still.nv21(width, height, rotation);
+        byte[] dst = HookMain.previewFrames.beginWrite(nv21.length);
+        if (dst == null) {
+            return true; // 槽位都被读者占用，下一帧再发布
+        }
+        System.arraycopy(nv21, 0, dst, 0, nv21.length);
+        HookMain.previewFrames.publish(width, height);
+        publishedStillGeneration = still.generation;
+        publishedStillWidth = width;
+        publishedStillHeight = height;
+        publishedStillRotation = rotation;
+        return true;
+    }
+
+    private static CallbackBufferPool callbackBufferPool(Camera camera) {
+        return callbackBufferPools.computeIfAbsent(camera, c -> new CallbackBufferPool());
+    }
+
+    private static void releaseCallbackBufferPool(Camera camera) {
+        CallbackBufferPool pool = callbackBufferPools.remove(camera);
+        if (pool != null) {
+            LogUtil.log("【CS】回调 buffer 替身池释放：分配 " + pool.getAllocationCount()
+                    + " 次，复用 " + pool.getReuseCount() + " 次");
+            pool.clear();
+        }
+    }
+
+    /**
+     * 同一相机重新 setPreviewSize 后回调 buffer 长度会变化：此时只更新解码目标尺寸，
+     * 解码线程下一帧即按新尺寸输出，不重启解码器；图片模式下按新尺寸重新发布图片帧。
+     * 仅在 buffer 长度变化时才查询参数。
+     */
+    private static void syncPreviewTargetSize(Camera camera, byte[] frame) {
+        if (frame == null || frame.length == lastPreviewBufferLength) {
             return;
         }
-        synchronized (previewFrameLock) {
-            if (HookMain.data_buffer != null) {
-                return;
-            }
-            try {
-                previewFrameLock.wait(PREVIEW_FRAME_WAIT_MS);
-            } catch (InterruptedException ignored) {
-                Thread.currentThread().interrupt();
-            }
+        lastPreviewBufferLength = frame.length;
+        VideoToFrames decoder = HookMain.hw_decode_obj;
+        if (decoder == null && !VideoManager.isStillMode()) {
+            return;
+        }
+        Camera.Parameters params = camera.getParameters();
+        Camera.Size previewSize = params != null ? params.getPreviewSize() : null;
+        if (previewSize == null
+                || (previewSize.width == HookMain.mwidth && previewSize.height == HookMain.mhight)) {
+            return;
+        }
+        LogUtil.log("【CS】预览尺寸变化：" + HookMain.mwidth + "x" + HookMain.mhight
+                + " -> " + previewSize.width + "x" + previewSize.height);
+        HookMain.mwidth = previewSize.width;
+        HookMain.mhight = previewSize.height;
+        if (decoder != null) {
+            decoder.setTargetSize(previewSize.width, previewSize.height);
         }
+        VideoManager.reportCameraTarget(previewSize.width, previewSize.height, params.getPreviewFrameRate());
     }
 
-    static void notifyPreviewFrameBufferReady() {
-        synchronized (previewFrameLock) {
-            previewFrameLock.notifyAll();
+    /**
+     * 用最新解码帧覆盖回调 buffer，不阻塞回调线程。
+     * 回调 buffer 每次都已被真实相机写入，因此不能按 generation 跳过拷贝；
+     * 解码器还没有产出帧时填充黑帧，避免泄露真实画面。
+     */
+    private static void fillPreviewFrame(byte[] frame) {
+        if (frame == null) {
+            return;
+        }
+        if (VideoManager.isStillMode()) {
+            publishStillFrame();
+        }
+        if (HookMain.previewFrames.copyTo(frame, -1) == 0) {
+            int ySize = Math.min(frame.length, frame.length * 2 / 3);
+            Arrays.fill(frame, 0, ySize, (byte) 16);
+            Arrays.fill(frame, ySize, frame.length, (byte) 128);
         }
     }
 }
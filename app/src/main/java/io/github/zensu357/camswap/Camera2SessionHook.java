@@ -38,6 +38,10 @@ import java.nio.ByteBuffer;
 
 import io.github.zensu357.camswap.utils.LogUtil;
 import io.github.zensu357.camswap.utils.VideoManager;
+import io.github.zensu357.camswap.yuv.RgbToYuv;
+import io.github.zensu357.camswap.yuv.TiledExecutor;
+import io.github.zensu357.camswap.yuv.YuvConvert;
+import io.github.zensu357.camswap.yuv.YuvRotate;
 
 import io.github.zensu357.camswap.api101.Api101Runtime;
 
@@ -99,6 +103,9 @@ public final class Camera2SessionHook {
     private volatile boolean lastYuvFrameWasFallback = true;
     /** 上一次 YUV 帧是否通过 MediaCodec 直出路径生成 */
     private volatile boolean lastYuvFrameWasCodec = false;
+    /** 上一次 GL 回退路径构建 YUV 缓存帧的耗时，初始按慢路径处理 */
+    private volatile long lastYuvGlBuildMs = Long.MAX_VALUE;
+    private final TiledExecutor yuvTiles = new TiledExecutor();
     /** YUV 帧率统计 */
     private volatile int yuvFrameCount = 0;
     private volatile long yuvFpsWindowStartMs = 0L;
@@ -121,6 +128,8 @@ public final class Camera2SessionHook {
     private volatile boolean yuvBridgeSessionReady = false;
     /** MediaCodec 直出 YUV 解码器，绕过 GL→Bitmap→RGB→YUV 转换链 */
     private volatile MediaCodecYuvDecoder yuvDecoder;
+    private final YuvVariantCache yuvVariants = new YuvVariantCache(FrameArena.shared());
+    private final StillCaptureService stillCapture = new StillCaptureService(new StillSource(), "CS-Still2");
 
     // Surface-change tracking: skip redundant initCamera2Players when surfaces unchanged
     private Surface lastInitReader, lastInitReader1, lastInitPreview, lastInitPreview1;
@@ -402,6 +411,11 @@ public final class Camera2SessionHook {
         trackedReaderSurfaces.add(surface);
         surfaceFormatMap.put(surface, format);
         surfaceSizeMap.put(surface, new int[] { width, height });
+        if (format == ImageFormat.JPEG && width > 0 && height > 0
+                && VideoManager.getConfig().getBoolean(ConfigManager.KEY_ENABLE_PHOTO_FAKE, false)) {
+            // 拍照尺寸已知，后台开始预编码；字节预算在第一次替换时从 Image buffer 得知
+            stillCapture.start(width, height, 0);
+        }
     }
 
     public boolean isTrackedReaderSurface(Surface surface) {
@@ -618,6 +632,7 @@ public final class Camera2SessionHook {
         if (shouldKeepRealReaderSurface(surface)) {
             pendingJpegSurfaces.add(surface);
             pendingPhotoSurface = surface;
+            stillCapture.markShutter();
         }
     }
 
@@ -1063,6 +1078,7 @@ public final class Camera2SessionHook {
         if (clearTrackedReaders) {
             isReleasing = true;
             stopAllWhatsAppYuvPumps();
+            stillCapture.stop();
         } else {
             stopAllWhatsAppYuvPumps();
         }
@@ -1080,8 +1096,10 @@ public final class Camera2SessionHook {
         closeFakeYuvBridges();
         internalFakeYuvReaderSurfaces.clear();
         sessionKeptYuvSurfaces.clear();
-        cachedYuvFrameMap.clear();
+        clearCachedYuvFrames();
         releaseCachedRetriever();
+        FrameFetcher.releaseShared();
+        StillImageSource.release();
         lastYuvFrameWasFallback = true;
         lastYuvFrameWasCodec = false;
         if (clearTrackedReaders) {
@@ -1174,6 +1192,7 @@ public final class Camera2SessionHook {
             dec.stop();
             yuvDecoder = null;
         }
+        yuvVariants.clear();
         Handler handler = whatsappYuvPumpHandler;
         if (handler != null) {
             for (YuvCallbackPump pump : whatsappYuvPumpMap.values()) {
@@ -1229,14 +1248,15 @@ public final class Camera2SessionHook {
             boolean needRefresh = false;
             if (cached == null || cached.width != width || cached.height != height) {
                 cached = buildPlaceholderYuvFrame(width, height, now);
-                cachedYuvFrameMap.put(targetSurface, cached);
+                putCachedYuvFrame(targetSurface, cached);
                 needRefresh = true;
             }
             long refreshInterval = computeYuvRefreshInterval(width, height);
-            if (cached.isPlaceholder || now - cached.generatedAtMs >= refreshInterval || needRefresh) {
+            if (cached.isPlaceholder || needRefresh
+                    || (now - cached.generatedAtMs >= refreshInterval && !isStillFrameCurrent(cached))) {
                 CachedYuvFrame refreshed = buildCachedYuvFrame(targetSurface, width, height, now);
                 if (refreshed != null) {
-                    cachedYuvFrameMap.put(targetSurface, refreshed);
+                    putCachedYuvFrame(targetSurface, refreshed);
                 }
             }
         } catch (Throwable t) {
@@ -1309,17 +1329,17 @@ public final class Camera2SessionHook {
                 || cached.width != width
                 || cached.height != height
                 || cached.isPlaceholder
-                || now - cached.generatedAtMs >= refreshInterval;
+                || (now - cached.generatedAtMs >= refreshInterval && !isStillFrameCurrent(cached));
         if (needRefresh) {
             CachedYuvFrame refreshed = buildCachedYuvFrame(targetSurface, width, height, now);
             if (refreshed != null) {
-                cached = refreshed;
-                cachedYuvFrameMap.put(targetSurface, refreshed);
+                putCachedYuvFrame(targetSurface, refreshed);
             } else if (cached == null || cached.width != width || cached.height != height) {
-                cached = buildPlaceholderYuvFrame(width, height, now);
-                cachedYuvFrameMap.put(targetSurface, cached);
+                putCachedYuvFrame(targetSurface, buildPlaceholderYuvFrame(width, height, now));
             }
         }
+        // 钉住缓存帧，拷贝期间泵线程替换缓存也不会回收它的 slab
+        cached = retainCachedYuvFrame(targetSurface);
         if (cached == null) {
             return null;
         }
@@ -1337,7 +1357,7 @@ public final class Camera2SessionHook {
                 }
                 boolean queued = false;
                 try {
-                    copyCachedYuvFrameToImage(cached, inputImage);
+                    copyCachedYuvFrameToImage(cached, inputImage, bridge.row);
                     inputImage.setCropRect(new Rect(0, 0, width, height));
                     inputImage.setTimestamp(System.nanoTime());
                     bridge.writer.queueInputImage(inputImage);
@@ -1366,6 +1386,44 @@ public final class Camera2SessionHook {
         } catch (Exception e) {
             LogUtil.log("【CS】YUV 伪帧获取失败: " + e);
             return null;
+        } finally {
+            cached.release();
+        }
+    }
+
+    /** 替换缓存帧并释放被替换帧的引用 */
+    private void putCachedYuvFrame(Surface targetSurface, CachedYuvFrame frame) {
+        CachedYuvFrame old = cachedYuvFrameMap.put(targetSurface, frame);
+        if (old != null && old != frame) {
+            old.release();
+        }
+    }
+
+    /** 取出并钉住缓存帧，调用方用完需 release；缓存为空时返回 null */
+    private CachedYuvFrame retainCachedYuvFrame(Surface targetSurface) {
+        while (true) {
+            CachedYuvFrame frame = cachedYuvFrameMap.get(targetSurface);
+            if (frame == null) {
+                return null;
+            }
+            if (frame.slab.tryRetain()) {
+                // 读到 frame 后它可能已被替换、slab 被回收并重新分配给别的帧（tryRetain 仍会成功）：
+                // 确认缓存里仍是这一帧才交给调用方
+                if (cachedYuvFrameMap.get(targetSurface) == frame) {
+                    return frame;
+                }
+                frame.slab.release();
+            }
+            // 已被替换，重新读取最新的缓存帧
+        }
+    }
+
+    private void clearCachedYuvFrames() {
+        for (Surface surface : new ArrayList<>(cachedYuvFrameMap.keySet())) {
+            CachedYuvFrame old = cachedYuvFrameMap.remove(surface);
+            if (old != null) {
+                old.release();
+            }
         }
     }
 
@@ -1399,8 +1457,6 @@ public final class Camera2SessionHook {
     private byte[] reusableYPlane;
     private byte[] reusableUPlane;
     private byte[] reusableVPlane;
-    private int reusablePlaneW;
-    private int reusablePlaneH;
 
     /** 根据当前解码路径计算 YUV 缓存刷新间隔 */
     private long computeYuvRefreshInterval(int width, int height) {
@@ -1410,28 +1466,44 @@ public final class Camera2SessionHook {
         if (lastYuvFrameWasFallback) {
             return YUV_CACHE_REFRESH_FALLBACK_MS;
         }
-        if (width * height > YUV_HIRES_PIXEL_THRESHOLD) {
+        if (useHiresYuvInterval(width * height)) {
             return YUV_CACHE_REFRESH_GL_HIRES_MS;
         }
         return YUV_CACHE_REFRESH_GL_MS;
     }
 
+    /**
+     * 高分辨率帧才需要降频；若上一帧 GL 路径（截帧 + 并行 RGB→YUV）耗时不到普通刷新间隔的一半，
+     * 说明多核转换已经跟得上，继续使用普通间隔。
+     */
+    private boolean useHiresYuvInterval(int pixels) {
+        return pixels > YUV_HIRES_PIXEL_THRESHOLD && lastYuvGlBuildMs > YUV_CACHE_REFRESH_GL_MS / 2;
+    }
+
     private void ensureReusableBuffers(int width, int height) {
         int pixelCount = width * height;
         if (reusablePixelBuf == null || reusablePixelBufSize < pixelCount) {
             reusablePixelBuf = new int[pixelCount];
             reusablePixelBufSize = pixelCount;
         }
-        if (reusableYPlane == null || reusablePlaneW != width || reusablePlaneH != height) {
+        int chromaCount = YuvConvert.chromaSize(width, height);
+        if (reusableYPlane == null || reusableYPlane.length != pixelCount
+                || reusableUPlane.length != chromaCount) {
             reusableYPlane = new byte[pixelCount];
-            reusableUPlane = new byte[(width / 2) * (height / 2)];
-            reusableVPlane = new byte[(width / 2) * (height / 2)];
-            reusablePlaneW = width;
-            reusablePlaneH = height;
+            reusableUPlane = new byte[chromaCount];
+            reusableVPlane = new byte[chromaCount];
         }
     }
 
     private CachedYuvFrame buildCachedYuvFrame(Surface targetSurface, int width, int height, long nowMs) {
+        // 图片模式：直接取内存中的图片变体，不经过任何解码器
+        CachedYuvFrame stillFrame = tryBuildFromStillImage(width, height, nowMs);
+        if (stillFrame != null) {
+            lastYuvFrameWasFallback = false;
+            lastYuvFrameWasCodec = false;
+            return stillFrame;
+        }
+
         // 优先使用 MediaCodec 直出 YUV，绕过 GL→Bitmap→RGB→YUV
         CachedYuvFrame codecFrame = tryBuildFromCodecDecoder(width, height, nowMs);
         if (codecFrame != null) {
@@ -1442,6 +1514,7 @@ public final class Camera2SessionHook {
         lastYuvFrameWasCodec = false;
 
         // 回退到 GL 截帧 + RGB→YUV 转换
+        long buildStartMs = SystemClock.elapsedRealtime();
         Bitmap frame = captureFrameForYuv(width, height);
         if (frame == null) {
             return null;
@@ -1457,125 +1530,105 @@ public final class Camera2SessionHook {
             ensureReusableBuffers(width, height);
             frame.getPixels(reusablePixelBuf, 0, width, 0, 0, width, height);
 
-            int chromaWidth = width / 2;
-            int chromaHeight = height / 2;
-
-            for (int row = 0; row < height; row++) {
-                int rowOffset = row * width;
-                boolean isEvenRow = (row & 1) == 0;
-                int chromaRowBase = isEvenRow ? (row >> 1) * chromaWidth : -1;
-
-                for (int col = 0; col < width; col++) {
-                    int pixel = reusablePixelBuf[rowOffset + col];
-                    int r = (pixel >> 16) & 0xff;
-                    int g = (pixel >> 8) & 0xff;
-                    int b = pixel & 0xff;
-
-                    int yVal = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
-                    reusableYPlane[rowOffset + col] = (byte) (yVal < 0 ? 0 : (yVal > 255 ? 255 : yVal));
-
-                    if (isEvenRow && (col & 1) == 0) {
-                        int uVal = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
-                        int vVal = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
-                        int chromaIdx = chromaRowBase + (col >> 1);
-                        reusableUPlane[chromaIdx] = (byte) (uVal < 0 ? 0 : (uVal > 255 ? 255 : uVal));
-                        reusableVPlane[chromaIdx] = (byte) (vVal < 0 ? 0 : (vVal > 255 ? 255 : vVal));
-                    }
-                }
-            }
-
-            // Copy to new arrays for the cached frame (buffer reuse across builds, not across cache reads)
+            // 在复用的堆上平面中转换，再整块拷入缓存帧自己的 slab（缓存帧会被多个线程读取）
             int yLen = width * height;
-            int cLen = chromaWidth * chromaHeight;
-            byte[] yOut = new byte[yLen];
-            byte[] uOut = new byte[cLen];
-            byte[] vOut = new byte[cLen];
-            System.arraycopy(reusableYPlane, 0, yOut, 0, yLen);
-            System.arraycopy(reusableUPlane, 0, uOut, 0, cLen);
-            System.arraycopy(reusableVPlane, 0, vOut, 0, cLen);
-
-            return new CachedYuvFrame(width, height, yOut, uOut, vOut, nowMs, System.nanoTime(), false);
+            int cLen = YuvConvert.chromaSize(width, height);
+            final int[] pixels = reusablePixelBuf;
+            final byte[] yOut = reusableYPlane;
+            final byte[] uOut = reusableUPlane;
+            final byte[] vOut = reusableVPlane;
+            final int w = width;
+            yuvTiles.run(height, 2, (long) yLen, (rowStart, rowEnd) -> RgbToYuv.argbToI420Rows(
+                    pixels, 0, w, w, rowStart, rowEnd, yOut, uOut, vOut));
+            FrameArena.Slab slab = FrameArena.shared().acquire(yLen + 2 * cLen);
+            ByteBuffer out = slab.buffer();
+            out.put(yOut, 0, yLen).put(uOut, 0, cLen).put(vOut, 0, cLen);
+            out.rewind();
+            lastYuvGlBuildMs = SystemClock.elapsedRealtime() - buildStartMs;
+
+            return new CachedYuvFrame(width, height, slab, nowMs, System.nanoTime(), false);
         } finally {
             frame.recycle();
         }
     }
 
+    /** 图片模式：取图片的 I420 变体（同一图片、尺寸和旋转只生成一次）；非图片模式返回 null */
+    private CachedYuvFrame tryBuildFromStillImage(int width, int height, long nowMs) {
+        StillImageSource still = StillImageSource.current();
+        if (still == null) {
+            return null;
+        }
+        int rotation = YuvRotate.normalize(
+                VideoManager.getConfig().snapshot().videoRotationOffset);
+        FrameArena.Slab slab = still.acquireI420(width, height, rotation);
+        return new CachedYuvFrame(width, height, slab, nowMs, System.nanoTime(), false,
+                still.generation, rotation);
+    }
+
+    /** 缓存帧来自图片且图片与旋转都未变化时，到了刷新间隔也无需重新生成 */
+    private boolean isStillFrameCurrent(CachedYuvFrame cached) {
+        if (cached.stillGeneration == 0) {
+            return false;
+        }
+        StillImageSource still = StillImageSource.current();
+        return still != null && still.generation == cached.stillGeneration
+                && cached.rotation == YuvRotate.normalize(
+                        VideoManager.getConfig().snapshot().videoRotationOffset);
+    }
+
     /**
-     * 从 MediaCodec YUV 解码器获取帧并缩放到目标尺寸。
-     * 如果解码器未运行、尚无帧可用、或有旋转偏移，返回 null（回退到 GL 路径）。
+     * 从 MediaCodec YUV 解码器获取帧，按旋转偏移旋转并缩放到目标尺寸（一遍完成，不经 GPU 回读）。
+     * 如果解码器未运行或尚无帧可用，返回 null（回退到 GL 路径）。
      */
     private CachedYuvFrame tryBuildFromCodecDecoder(int width, int height, long nowMs) {
-        // 有用户旋转偏移时回退到 GL 路径（GL 渲染器原生支持旋转）
-        int rotation = VideoManager.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
-        if (rotation != 0) {
-            return null;
-        }
         MediaCodecYuvDecoder dec = yuvDecoder;
         if (dec == null || !dec.isRunning()) {
             return null;
         }
+        // 解码器输出未带视频自身的旋转（GL 路径由 SurfaceTexture 变换矩阵处理），这里与用户偏移合并
+        int rotation = YuvRotate.normalize(dec.getVideoRotation()
+                + VideoManager.getConfig().snapshot().videoRotationOffset);
         MediaCodecYuvDecoder.YuvFrame decoded = dec.acquireLatestFrame();
         if (decoded == null) {
             return null;
         }
-
-        // 尺寸匹配：直接使用
-        if (decoded.width == width && decoded.height == height) {
-            return new CachedYuvFrame(width, height,
-                    decoded.yPlane, decoded.uPlane, decoded.vPlane,
-                    nowMs, decoded.timestampNs, false);
-        }
-
-        // 尺寸不匹配：缩放 YUV 平面
-        int srcW = decoded.width;
-        int srcH = decoded.height;
-        int dstW = width;
-        int dstH = height;
-
-        byte[] yOut = new byte[dstW * dstH];
-        int cDstW = dstW / 2;
-        int cDstH = dstH / 2;
-        byte[] uOut = new byte[cDstW * cDstH];
-        byte[] vOut = new byte[cDstW * cDstH];
-
-        // 最近邻缩放 Y 平面
-        for (int y = 0; y < dstH; y++) {
-            int srcY = y * srcH / dstH;
-            int srcRowOff = srcY * srcW;
-            int dstRowOff = y * dstW;
-            for (int x = 0; x < dstW; x++) {
-                yOut[dstRowOff + x] = decoded.yPlane[srcRowOff + x * srcW / dstW];
+        try {
+            // 无旋转且尺寸匹配：直接共享解码帧的 slab
+            if (rotation == 0 && decoded.width == width && decoded.height == height) {
+                decoded.slab.retain();
+                return new CachedYuvFrame(width, height, decoded.slab, nowMs, decoded.timestampNs, false);
             }
-        }
 
-        // 最近邻缩放 U/V 平面
-        int cSrcW = srcW / 2;
-        int cSrcH = srcH / 2;
-        for (int y = 0; y < cDstH; y++) {
-            int srcY = y * cSrcH / cDstH;
-            int srcRowOff = srcY * cSrcW;
-            int dstRowOff = y * cDstW;
-            for (int x = 0; x < cDstW; x++) {
-                int srcX = x * cSrcW / cDstW;
-                uOut[dstRowOff + x] = decoded.uPlane[srcRowOff + srcX];
-                vOut[dstRowOff + x] = decoded.vPlane[srcRowOff + srcX];
-            }
+            // 其余情况：同一解码帧的同尺寸/同旋转变体只生成一次，多个 reader 共享
+            final MediaCodecYuvDecoder.YuvFrame src = decoded;
+            FrameArena.Slab slab = yuvVariants.acquire(decoded.generation, width, height, rotation,
+                    (dst, scratch) -> YuvRotate.rotateScaleI420(src.slab.buffer(), src.width, src.height,
+                            rotation, dst, width, height, scratch));
+            return new CachedYuvFrame(width, height, slab, nowMs, decoded.timestampNs, false);
+        } finally {
+            decoded.release();
         }
-
-        return new CachedYuvFrame(dstW, dstH, yOut, uOut, vOut, nowMs, decoded.timestampNs, false);
     }
 
     private CachedYuvFrame buildPlaceholderYuvFrame(int width, int height, long nowMs) {
-        byte[] yPlane = new byte[width * height];
-        byte[] uPlane = new byte[(width / 2) * (height / 2)];
-        byte[] vPlane = new byte[(width / 2) * (height / 2)];
-        Arrays.fill(yPlane, (byte) 16);
-        Arrays.fill(uPlane, (byte) 128);
-        Arrays.fill(vPlane, (byte) 128);
-        return new CachedYuvFrame(width, height, yPlane, uPlane, vPlane, nowMs, System.nanoTime(), true);
+        int yLen = width * height;
+        int frameLen = YuvConvert.frameSize(width, height);
+        FrameArena.Slab slab = FrameArena.shared().acquire(frameLen);
+        byte[] row = new byte[Math.max(width, 1)];
+        ByteBuffer out = slab.buffer();
+        Arrays.fill(row, (byte) 16);
+        for (int offset = 0; offset < yLen; offset += row.length) {
+            out.put(row, 0, Math.min(row.length, yLen - offset));
+        }
+        Arrays.fill(row, (byte) 128);
+        for (int offset = yLen; offset < frameLen; offset += row.length) {
+            out.put(row, 0, Math.min(row.length, frameLen - offset));
+        }
+        out.rewind();
+        return new CachedYuvFrame(width, height, slab, nowMs, System.nanoTime(), true);
     }
 
-    private void copyCachedYuvFrameToImage(CachedYuvFrame cached, Image image) {
+    private void copyCachedYuvFrameToImage(CachedYuvFrame cached, Image image, byte[] row) {
         if (image == null || image.getPlanes() == null || image.getPlanes().length < 3) {
             throw new IllegalStateException("YUV Image plane 不可用");
         }
@@ -1605,46 +1658,52 @@ public final class Camera2SessionHook {
         int vRowStride = planes[2].getRowStride();
         int vPixelStride = planes[2].getPixelStride();
 
-        // Fast path: bulk copy when row stride matches width and pixel stride is 1
-        // (common case for our internally-created ImageReader bridge)
+        // 源数据是紧排 I420 slab：Y、U、V 依次存放，按平面取独立视图
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        int ySize = width * height;
+        int chromaSize = chromaWidth * chromaHeight;
+        ByteBuffer ySrc = cached.slab.view(0, ySize);
+        ByteBuffer uSrc = cached.slab.view(ySize, chromaSize);
+        ByteBuffer vSrc = cached.slab.view(ySize + chromaSize, chromaSize);
+
+        // 常见情况：Y 像素跨度为 1、U/V 跨度一致，按行整块写入；交错色度按行交错后写入同一块内存
+        if (yPixelStride == 1 && uRowStride == vRowStride && uPixelStride == vPixelStride) {
+            int chromaLayout = uPixelStride == 2
+                    ? YuvConvert.probeChromaLayout(uBuffer, vBuffer) : YuvConvert.CHROMA_PLANAR;
+            YuvConvert.unpackI420(ySrc, uSrc, vSrc, width, height, yBuffer, yRowStride,
+                    uBuffer, vBuffer, uRowStride, uPixelStride, chromaLayout, row);
+            return;
+        }
+
         if (yPixelStride == 1 && yRowStride == width) {
-            yBuffer.put(cached.yPlane, 0, width * height);
+            yBuffer.put(ySrc);
         } else {
-            for (int y = 0; y < height; y++) {
-                int yRowOffset = y * yRowStride;
-                int sourceRowOffset = y * width;
-                if (yPixelStride == 1) {
-                    yBuffer.position(yRowOffset);
-                    yBuffer.put(cached.yPlane, sourceRowOffset, width);
-                } else {
-                    for (int x = 0; x < width; x++) {
-                        yBuffer.put(yRowOffset + x * yPixelStride, cached.yPlane[sourceRowOffset + x]);
-                    }
-                }
-            }
+            copyPlaneToImage(ySrc, width, height, yBuffer, yRowStride, yPixelStride);
         }
 
-        int chromaWidth = width / 2;
-        int chromaHeight = height / 2;
         if (uPixelStride == 1 && uRowStride == chromaWidth
                 && vPixelStride == 1 && vRowStride == chromaWidth) {
-            uBuffer.put(cached.uPlane, 0, chromaWidth * chromaHeight);
-            vBuffer.put(cached.vPlane, 0, chromaWidth * chromaHeight);
+            uBuffer.put(uSrc);
+            vBuffer.put(vSrc);
         } else {
-            for (int y = 0; y < chromaHeight; y++) {
-                int uRowOffset = y * uRowStride;
-                int vRowOffset = y * vRowStride;
-                int sourceRowOffset = y * chromaWidth;
-                if (uPixelStride == 1 && vPixelStride == 1) {
-                    uBuffer.position(uRowOffset);
-                    uBuffer.put(cached.uPlane, sourceRowOffset, chromaWidth);
-                    vBuffer.position(vRowOffset);
-                    vBuffer.put(cached.vPlane, sourceRowOffset, chromaWidth);
-                } else {
-                    for (int x = 0; x < chromaWidth; x++) {
-                        uBuffer.put(uRowOffset + x * uPixelStride, cached.uPlane[sourceRowOffset + x]);
-                        vBuffer.put(vRowOffset + x * vPixelStride, cached.vPlane[sourceRowOffset + x]);
-                    }
+            copyPlaneToImage(uSrc, chromaWidth, chromaHeight, uBuffer, uRowStride, uPixelStride);
+            copyPlaneToImage(vSrc, chromaWidth, chromaHeight, vBuffer, vRowStride, vPixelStride);
+        }
+    }
+
+    private static void copyPlaneToImage(ByteBuffer src, int width, int height,
+            ByteBuffer dst, int rowStride, int pixelStride) {
+        for (int y = 0; y < height; y++) {
+            int dstRowOffset = y * rowStride;
+            int sourceRowOffset = y * width;
+            if (pixelStride == 1) {
+                src.limit(sourceRowOffset + width).position(sourceRowOffset);
+                dst.position(dstRowOffset);
+                dst.put(src);
+            } else {
+                for (int x = 0; x < width; x++) {
+                    dst.put(dstRowOffset + x * pixelStride, src.get(sourceRowOffset + x));
                 }
             }
         }
@@ -1673,6 +1732,7 @@ public final class Camera2SessionHook {
             internalFakeYuvReaderSurfaces.add(reader.getSurface());
             bridge = new FakeYuvBridge(reader, writer, width, height);
             fakeYuvBridgeMap.put(targetSurface, bridge);
+            reportLargestYuvTarget();
             return bridge;
         } catch (Exception e) {
             LogUtil.log("【CS】创建 YUV 桥失败: " + e);
@@ -1680,6 +1740,19 @@ public final class Camera2SessionHook {
         }
     }
 
+    /** 较小的读取尺寸从最大尺寸的帧缩放得到，因此只为最大的那个请求转码变体 */
+    private void reportLargestYuvTarget() {
+        int bestWidth = 0;
+        int bestHeight = 0;
+        for (FakeYuvBridge bridge : fakeYuvBridgeMap.values()) {
+            if (bridge.width * bridge.height > bestWidth * bestHeight) {
+                bestWidth = bridge.width;
+                bestHeight = bridge.height;
+            }
+        }
+        VideoManager.reportCameraTarget(bestWidth, bestHeight, 0);
+    }
+
     private void closeFakeYuvBridges() {
         for (FakeYuvBridge bridge : fakeYuvBridgeMap.values()) {
             closeFakeYuvBridge(bridge);
@@ -1731,7 +1804,8 @@ public final class Camera2SessionHook {
             float fps = yuvFrameCount * 1000f / (now - yuvFpsWindowStartMs);
             LogUtil.log("【CS】YUV " + width + "x" + height
                     + " " + String.format(Locale.US, "%.1f", fps) + "fps"
-                    + (lastYuvFrameWasCodec ? " [Codec]" : lastYuvFrameWasFallback ? " [fallback]" : " [GL]"));
+                    + (lastYuvFrameWasCodec ? " [Codec]" : lastYuvFrameWasFallback ? " [fallback]" : " [GL]")
+                    + " " + FrameArena.shared() + " " + yuvVariants);
             yuvFrameCount = 0;
             yuvFpsWindowStartMs = now;
         }
@@ -1773,26 +1847,37 @@ public final class Camera2SessionHook {
         LogUtil.log("【CS】YUV fallback: GL 截帧过黑");
     }
 
+    /** 缓存的 YUV 帧：紧排 I420 存放在 {@link FrameArena} slab 中，map 本身持有一个引用 */
     private static final class CachedYuvFrame {
         final int width;
         final int height;
-        final byte[] yPlane;
-        final byte[] uPlane;
-        final byte[] vPlane;
+        final FrameArena.Slab slab;
         final long generatedAtMs;
         final long timestampNs;
         final boolean isPlaceholder;
+        /** 来自静态图片时为图片的 generation，否则为 0 */
+        final long stillGeneration;
+        final int rotation;
 
-        CachedYuvFrame(int width, int height, byte[] yPlane, byte[] uPlane, byte[] vPlane,
+        CachedYuvFrame(int width, int height, FrameArena.Slab slab,
                 long generatedAtMs, long timestampNs, boolean isPlaceholder) {
+            this(width, height, slab, generatedAtMs, timestampNs, isPlaceholder, 0, 0);
+        }
+
+        CachedYuvFrame(int width, int height, FrameArena.Slab slab, long generatedAtMs, long timestampNs,
+                boolean isPlaceholder, long stillGeneration, int rotation) {
             this.width = width;
             this.height = height;
-            this.yPlane = yPlane;
-            this.uPlane = uPlane;
-            this.vPlane = vPlane;
+            this.slab = slab;
             this.generatedAtMs = generatedAtMs;
             this.timestampNs = timestampNs;
             this.isPlaceholder = isPlaceholder;
+            this.stillGeneration = stillGeneration;
+            this.rotation = rotation;
+        }
+
+        void release() {
+            slab.release();
         }
     }
 
@@ -1801,12 +1886,15 @@ public final class Camera2SessionHook {
         final ImageWriter writer;
         final int width;
         final int height;
+        // 写入 ImageWriter 时的逐行暂存
+        final byte[] row;
 
         FakeYuvBridge(ImageReader reader, ImageWriter writer, int width, int height) {
             this.reader = reader;
             this.writer = writer;
             this.width = width;
             this.height = height;
+            this.row = new byte[2 * width];
         }
     }
 
@@ -1828,7 +1916,7 @@ public final class Camera2SessionHook {
                 long elapsed = SystemClock.elapsedRealtime() - startMs;
                 int pixels = imageReader.getWidth() * imageReader.getHeight();
                 long targetMs = lastYuvFrameWasCodec ? 33L
-                        : (pixels > YUV_HIRES_PIXEL_THRESHOLD ? 133L : 66L);
+                        : (useHiresYuvInterval(pixels) ? 133L : 66L);
                 long delay = Math.max(16L, targetMs - elapsed);
                 whatsappYuvPumpHandler.postDelayed(this, delay);
             }
@@ -1889,7 +1977,8 @@ public final class Camera2SessionHook {
 
     /** 启动或重启 MediaCodec YUV 解码器 */
     private void startOrRestartYuvDecoder() {
-        if (!VideoManager.hasUsableMediaSource()) {
+        // 图片模式下 YUV 帧直接取自内存中的图片，不需要解码器
+        if (!VideoManager.hasUsableMediaSource() || VideoManager.isStillMode()) {
             return;
         }
         MediaCodecYuvDecoder dec = yuvDecoder;
@@ -1912,6 +2001,7 @@ public final class Camera2SessionHook {
             dec.stop();
             yuvDecoder = null;
         }
+        yuvVariants.clear();
         lastYuvFrameWasCodec = false;
         if (yuvBridgeSessionReady) {
             startOrRestartYuvDecoder();
@@ -1931,13 +2021,51 @@ public final class Camera2SessionHook {
             targetHeight = 720;
         }
 
-        Bitmap frame = captureFrameForStill(targetWidth, targetHeight);
-        if (frame == null) {
+        // 图片模式：同一尺寸的照片只编码一次
+        StillImageSource still = StillImageSource.current();
+        if (still != null) {
+            byte[] jpeg = still.jpeg(targetWidth, targetHeight, 0);
+            if (jpeg != null && (maxBytes <= 0 || jpeg.length <= maxBytes)) {
+                return jpeg;
+            }
+        }
+
+        // 优先取后台预编码好的照片，连拍不重复编码
+        byte[] jpeg = stillCapture.take(targetWidth, targetHeight, maxBytes);
+        if (jpeg == null) {
             LogUtil.log("【CS】无法获取可用静态帧");
-            return null;
+        }
+        return jpeg;
+    }
+
+    /** 拍照预编码的帧来源：按当前拍照尺寸截取渲染帧（失败时从视频文件截帧） */
+    private final class StillSource implements StillCaptureService.Source {
+        @Override
+        public long currentGeneration() {
+            if (isReleasing || !VideoManager.hasUsableMediaSource()) {
+                return 0;
+            }
+            StillImageSource still = StillImageSource.current();
+            if (still != null) {
+                return still.generation; // 图片不变时只编码一次
+            }
+            // 渲染器没有帧序号，按预编码间隔分桶，每个间隔重新截一次
+            return SystemClock.elapsedRealtime() / StillCaptureService.ENCODE_INTERVAL_MS + 1;
         }
 
-        return compressBitmapToJpeg(frame, maxBytes);
+        @Override
+        public boolean encode(int width, int height, int quality, ByteArrayOutputStream out) {
+            StillImageSource still = StillImageSource.current();
+            Bitmap frame = still != null ? still.render(width, height, 0) : captureFrameForStill(width, height);
+            if (frame == null) {
+                return false;
+            }
+            try {
+                return frame.compress(Bitmap.CompressFormat.JPEG, quality, out);
+            } finally {
+                frame.recycle();
+            }
+        }
     }
 
     /**
@@ -1953,7 +2081,7 @@ public final class Camera2SessionHook {
      * 但 YUV 帧需要 video_rotation_offset 旋转才能让对方看到正确方向。
      */
     private Bitmap captureFrameForYuv(int targetWidth, int targetHeight) {
-        int rotation = VideoManager.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
+        int rotation = VideoManager.getConfig().snapshot().videoRotationOffset;
         return captureFrameInternal(targetWidth, targetHeight, rotation);
     }
 
@@ -2003,13 +2131,23 @@ public final class Camera2SessionHook {
     private MediaMetadataRetriever cachedRetriever;
     private String cachedRetrieverPath;
 
-    private Bitmap captureFrameFromVideoFile(int targetWidth, int targetHeight) {
+    // 拍照预编码线程与 YUV 泵线程都可能走到这里，共用的 retriever 需要串行访问
+    private synchronized Bitmap captureFrameFromVideoFile(int targetWidth, int targetHeight) {
         // Stream mode: MediaMetadataRetriever cannot work with network URLs.
         // Return null to let caller use GL capture or last-frame cache.
         if (VideoManager.isStreamMode()) {
             LogUtil.log("【CS】流模式下跳过 MediaMetadataRetriever 截帧");
             return null;
         }
+        long positionUs = HookMain.playerManager.getCamera2PlaybackPositionMs() * 1000L;
+        if (positionUs <= 0) {
+            positionUs = 33_000L;
+        }
+        // 按帧索引直接 seek 到关键帧并解码到当前播放位置的那一帧，比 retriever 精确且更快
+        Bitmap indexed = FrameFetcher.fetchCurrent(positionUs, 0, 0);
+        if (indexed != null) {
+            return fitBitmapToTargetAspect(indexed, targetWidth, targetHeight);
+        }
         try {
             String currentPath = VideoManager.getCurrentVideoPath();
             // 复用已有 retriever，只在路径变化时重新创建
@@ -2034,10 +2172,6 @@ public final class Camera2SessionHook {
                 cachedRetrieverPath = currentPath;
             }
 
-            long positionUs = HookMain.playerManager.getCamera2PlaybackPositionMs() * 1000L;
-            if (positionUs <= 0) {
-                positionUs = 33_000L;
-            }
             // 使用 OPTION_CLOSEST_SYNC 而非 OPTION_CLOSEST：
             // OPTION_CLOSEST 需要精确 seek 到指定时间戳并解码到该帧，非常慢（~500-800ms）；
             // OPTION_CLOSEST_SYNC 只 seek 到最近的关键帧，通常 <100ms，
@@ -2060,7 +2194,7 @@ public final class Camera2SessionHook {
         }
     }
 
-    private void releaseCachedRetriever() {
+    private synchronized void releaseCachedRetriever() {
         if (cachedRetriever != null) {
             try {
                 cachedRetriever.release();
@@ -2119,34 +2253,6 @@ public final class Camera2SessionHook {
         return scaled;
     }
 
-    private byte[] compressBitmapToJpeg(Bitmap frame, int maxBytes) {
-        if (frame == null) {
-            return null;
-        }
-
-        int[] qualities = { 92, 80, 65, 50 };
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] jpegBytes = null;
-        try {
-            for (int quality : qualities) {
-                baos.reset();
-                frame.compress(Bitmap.CompressFormat.JPEG, quality, baos);
-                byte[] candidate = baos.toByteArray();
-                if (maxBytes <= 0 || candidate.length <= maxBytes) {
-                    jpegBytes = candidate;
-                    break;
-                }
-            }
-        } finally {
-            frame.recycle();
-        }
-
-        if (jpegBytes == null) {
-            LogUtil.log("【CS】照片压缩后依然大于 Buffer 容量: " + maxBytes);
-        }
-        return jpegBytes;
-    }
-
     private boolean isBitmapMostlyBlack(Bitmap bitmap) {
         if (bitmap == null) {
             return true;
@@ -2209,7 +2315,9 @@ public final class Camera2SessionHook {
             buffer.flip();
             pendingJpegSurfaces.remove(surface);
             pendingPhotoSurface = null;
-            LogUtil.log("【CS】已替换 JPEG ImageReader 输出: " + surface + " 大小=" + jpegBytes.length);
+            stillCapture.markDelivered();
+            LogUtil.log("【CS】已替换 JPEG ImageReader 输出: " + surface + " 大小=" + jpegBytes.length
+                    + " " + stillCapture);
             return true;
         } catch (Exception e) {
             LogUtil.log("【CS】替换 JPEG Image 失败: " + e);
@@ -8,12 +8,16 @@ import org.json.JSONObject;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -52,6 +56,8 @@ public class ConfigManager {
     public static final String REPLACE_MODE_VIDEO = "video";
     public static final String REPLACE_MODE_IMAGE = "image";
     public static final String KEY_VIDEO_ROTATION_OFFSET = "video_rotation_offset"; // 视频旋转偏移角度
+    public static final String KEY_LOOP_CACHE_MB = "loop_cache_mb"; // 短视频循环缓存预算(MB)，0 为禁用
+    public static final String KEY_TRANSCODE_CACHE_MB = "transcode_cache_mb"; // 转码变体缓存预算(MB)，0 为禁用
     public static final String KEY_ENABLE_PHOTO_FAKE = "enable_photo_fake"; // 启用拍照替换 (动态防御)
     public static final String KEY_ENABLE_WHATSAPP_CAMERA2_COMPAT = "enable_whatsapp_camera2_compat";
 
@@ -74,9 +80,20 @@ public class ConfigManager {
     public static boolean ENABLE_LEGACY_FILE_ACCESS = true;
 
     private final AtomicReference<JSONObject> configData = new AtomicReference<>(new JSONObject());
+    /** 与 configData 对应的类型化快照，内容变化时才替换 */
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+    private final Object snapshotLock = new Object();
+    private final CopyOnWriteArrayList<ConfigSnapshot.Listener> listeners = new CopyOnWriteArrayList<>();
+    /** 已发布、尚未回调的变化；在 snapshotLock 内按版本顺序入队，锁外回调 */
+    private final ConcurrentLinkedQueue<ConfigEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
     private volatile long lastLoadedTime = 0;
     private volatile android.content.Context context; // Context for remote loading
     private volatile boolean skipProviderReload = false;
+    /** Hook 进程映射的配置共享段；null 表示尚未映射或不可用 */
+    private volatile ConfigSegment.Reader segment;
+    private volatile long segmentVersion = -1;
+    private volatile long lastSegmentAttempt;
     private final Object configWriteLock = new Object();
 
     public ConfigManager() {
@@ -114,6 +131,20 @@ public class ConfigManager {
         return snapshot != null ? snapshot : new JSONObject();
     }
 
+    /**
+     * 浅拷贝：值（基本类型、字符串、每次整体替换的 JSONArray）在各快照间共享，
+     * 不再经 toString() 再解析整份配置。
+     */
+    private static JSONObject shallowCopy(JSONObject source) throws JSONException {
+        JSONObject copy = new JSONObject();
+        Iterator<String> keys = source.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            copy.put(key, source.opt(key));
+        }
+        return copy;
+    }
+
     private static JSONObject copyConfig(JSONObject source) {
         if (source == null) {
             return new JSONObject();
@@ -125,24 +156,100 @@ public class ConfigManager {
         }
     }
 
-    private void setConfigSnapshot(JSONObject snapshot) {
-        configData.set(snapshot != null ? snapshot : new JSONObject());
+    /** @return 配置内容是否有变化 */
+    private boolean setConfigSnapshot(JSONObject snapshot) {
+        JSONObject updated = snapshot != null ? snapshot : new JSONObject();
+        synchronized (snapshotLock) {
+            JSONObject previous = configData.getAndSet(updated);
+            Set<String> changed = ConfigSnapshot.changedKeys(previous, updated);
+            if (changed.isEmpty()) {
+                return false;
+            }
+            ConfigSnapshot old = this.snapshot;
+            ConfigSnapshot current = new ConfigSnapshot(updated, old.version + 1);
+            this.snapshot = current;
+            pendingEvents.add(new ConfigEvent(old, current, Collections.unmodifiableSet(changed)));
+        }
+        // 监听方可能做 IPC（如上报相机目标），不能在配置锁内回调；持有写锁时由写方法出锁后分发
+        if (!Thread.holdsLock(configWriteLock)) {
+            dispatchEvents();
+        }
+        return true;
+    }
+
+    private static final class ConfigEvent {
+        final ConfigSnapshot previous;
+        final ConfigSnapshot current;
+        final Set<String> changedKeys;
+
+        ConfigEvent(ConfigSnapshot previous, ConfigSnapshot current, Set<String> changedKeys) {
+            this.previous = previous;
+            this.current = current;
+            this.changedKeys = changedKeys;
+        }
+    }
+
+    /**
+     * 依次回调排队的变化。同一时刻只有一个线程在分发，事件因此按版本顺序送达；
+     * 其他线程入队后直接返回，由正在分发的线程代为回调（监听方在回调里改配置也不会重入）。
+     */
+    private void dispatchEvents() {
+        while (!pendingEvents.isEmpty() && dispatching.compareAndSet(false, true)) {
+            try {
+                ConfigEvent event;
+                while ((event = pendingEvents.poll()) != null) {
+                    for (ConfigSnapshot.Listener listener : listeners) {
+                        try {
+                            listener.onConfigChanged(event.previous, event.current, event.changedKeys);
+                        } catch (RuntimeException e) {
+                            io.github.zensu357.camswap.utils.LogUtil.log("【CS】配置监听回调异常: " + e);
+                        }
+                    }
+                }
+            } finally {
+                dispatching.set(false);
+            }
+        }
+    }
+
+    /**
+     * 当前配置的类型化快照：一次 volatile 读取，热路径（每帧、每次音频读取）应使用它代替 getXxx。
+     */
+    public ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /** 注册配置变化监听，只在配置内容实际变化时回调 */
+    public void addListener(ConfigSnapshot.Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(ConfigSnapshot.Listener listener) {
+        listeners.remove(listener);
     }
 
     private void updateConfigAndSave(ConfigMutation mutation) {
         synchronized (configWriteLock) {
             try {
-                JSONObject updated = copyConfig(getConfigSnapshot());
+                JSONObject updated = shallowCopy(getConfigSnapshot());
                 mutation.apply(updated);
-                setConfigSnapshot(updated);
-                save(updated);
+                // 值未变化时不写文件、不通知
+                if (setConfigSnapshot(updated)) {
+                    save(updated);
+                }
             } catch (JSONException e) {
                 e.printStackTrace();
             }
         }
+        dispatchEvents();
     }
 
     public void reload() {
+        // 先落盘本进程尚未写出的修改，避免读回旧文件覆盖内存
+        ConfigWriter.flushPending();
+        if (reloadFromSegment()) {
+            return;
+        }
         long now = System.currentTimeMillis();
         while (true) {
             long last = lastReloadTime.get();
@@ -174,6 +281,100 @@ public class ConfigManager {
         reload();
     }
 
+    /**
+     * 从共享段读取：版本号未变时直接返回（无锁、无 IPC，也不受防抖限制），变化时解码并替换内存配置。
+     *
+     * @return 共享段可用且内存配置已是最新；false 时回退到 Provider 查询或文件
+     */
+    private boolean reloadFromSegment() {
+        ConfigSegment.Reader reader = segment;
+        if (reader == null) {
+            reader = mapSegment();
+            if (reader == null) {
+                return false;
+            }
+        }
+        long version = reader.version();
+        if (version < 0) {
+            return false;
+        }
+        if (version == segmentVersion) {
+            return true;
+        }
+        ConfigSegment.Record record = reader.read();
+        if (record == null) {
+            return false;
+        }
+        setConfigSnapshot(record.config);
+        segmentVersion = record.version;
+        return true;
+    }
+
+    /** 经 Provider 取一次只读 fd 并映射；失败后按防抖间隔重试（管理端可能尚未启动） */
+    private ConfigSegment.Reader mapSegment() {
+        android.content.Context ctx = context;
+        if (ctx == null || skipProviderReload) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSegmentAttempt < MIN_RELOAD_INTERVAL_MS) {
+            return null;
+        }
+        lastSegmentAttempt = now;
+        try (android.os.ParcelFileDescriptor pfd = ctx.getContentResolver()
+                .openFileDescriptor(IpcContract.URI_CONFIG_SEGMENT, "r")) {
+            if (pfd == null) {
+                return null;
+            }
+            ConfigSegment.Reader reader = ConfigSegment.Reader.map(pfd.getFileDescriptor());
+            segment = reader;
+            io.github.zensu357.camswap.utils.LogUtil.log("【CS】已映射配置共享段");
+            return reader;
+        } catch (Exception e) {
+            io.github.zensu357.camswap.utils.LogUtil.log("【CS】映射配置共享段失败，回退到 Provider 查询: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * 采用冷启动引导包里的配置：共享段 fd 可用时映射并以段内版本为准，否则直接用引导包的 JSON。
+     * 之后的 reload() 只做版本号检查，不再经 Provider 映射共享段。
+     *
+     * @param segmentPfd 可为 null；调用后由这里关闭
+     */
+    public void adoptBootstrap(String json, android.os.ParcelFileDescriptor segmentPfd) {
+        boolean adopted = false;
+        if (segmentPfd != null) {
+            try {
+                ConfigSegment.Reader reader = ConfigSegment.Reader.map(segmentPfd.getFileDescriptor());
+                segment = reader;
+                ConfigSegment.Record record = reader.read();
+                if (record != null) {
+                    setConfigSnapshot(record.config);
+                    segmentVersion = record.version;
+                    adopted = true;
+                }
+            } catch (Exception e) {
+                io.github.zensu357.camswap.utils.LogUtil.log("【CS】映射引导包配置共享段失败: " + e);
+            } finally {
+                try {
+                    segmentPfd.close();
+                } catch (java.io.IOException ignored) {
+                }
+            }
+        }
+        if (!adopted && json != null) {
+            try {
+                setConfigSnapshot(new JSONObject(json));
+                long now = System.currentTimeMillis();
+                lastLoadedTime = now;
+                lastReloadTime.set(now);
+            } catch (JSONException e) {
+                io.github.zensu357.camswap.utils.LogUtil.log("【CS】解析引导包配置失败: " + e);
+            }
+        }
+    }
+
     private boolean reloadFromProvider() {
         android.net.Uri uri = IpcContract.URI_CONFIG;
         try (android.database.Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
@@ -431,43 +632,30 @@ public class ConfigManager {
         updateConfigAndSave(config -> config.put(key, value));
     }
 
-    private void save() {
-        save(getConfigSnapshot());
+    /**
+     * 交给 {@link ConfigWriter} 后写：连续修改合并为一次文件写入和一次变更通知。
+     */
+    private void save(JSONObject snapshot) {
+        ConfigWriter.shared().submit(snapshot, this::notifyConfigChanged);
     }
 
-    private void save(JSONObject snapshot) {
-        File dir = new File(DEFAULT_CONFIG_DIR);
-        if (!dir.exists()) {
-            dir.mkdirs();
-        }
-        File configFile = new File(dir, CONFIG_FILE_NAME);
-        try {
-            try (FileOutputStream fos = new FileOutputStream(configFile)) {
-                fos.write(snapshot.toString(4).getBytes(StandardCharsets.UTF_8));
-            }
+    /**
+     * 立即写出尚未落盘的修改并发出通知。进程可能随即结束的调用方（通知栏操作、广播接收器）
+     * 在修改后调用。
+     */
+    public void flush() {
+        ConfigWriter.flushPending();
+    }
 
-            // Set world-readable so hook processes (inside target apps) can read
-            // the config file via direct path when ContentProvider is unavailable.
+    private void notifyConfigChanged() {
+        // Notify ContentObserver and broadcast changes
+        android.content.Context ctx = context;
+        if (ctx != null) {
             try {
-                configFile.setReadable(true, false);
-                configFile.setWritable(true, true); // Keep write restricted to owner
-                // Also chmod parents so directory is traversable
-                dir.setExecutable(true, false);
-                dir.setReadable(true, false);
+                ctx.getContentResolver().notifyChange(IpcContract.URI_CONFIG, null);
             } catch (Exception ignored) {
-                // Best-effort
             }
-
-            // Notify ContentObserver and broadcast changes
-            if (context != null) {
-                try {
-                    context.getContentResolver().notifyChange(IpcContract.URI_CONFIG, null);
-                } catch (Exception ignored) {
-                }
-                sendConfigBroadcast(context);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+            sendConfigBroadcast(ctx);
         }
     }
 
@@ -502,6 +690,7 @@ public class ConfigManager {
             setConfigSnapshot(updated);
             save(updated);
         }
+        dispatchEvents();
     }
 
     public String exportConfig() {
@@ -514,6 +703,7 @@ public class ConfigManager {
             setConfigSnapshot(updated);
             save(updated);
         }
+        dispatchEvents();
     }
 
     /**
@@ -0,0 +1,405 @@
+package io.github.zensu357.camswap;
+
+import android.os.Build;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+import io.github.zensu357.camswap.utils.LogUtil;
+
+/**
+ * 内存映射的共享配置段：管理端把配置编码为紧凑的二进制记录写入映射文件，
+ * Hook 进程经 Provider 拿到一次只读 fd 并映射后，读取配置不再需要任何 IPC 或 JSON 解析。
+ * <p>
+ * 并发用 seqlock：写入前后各把序号加一（写入期间为奇数），读取方在序号为偶数且前后一致时
+ * 才接受读到的内容；记录另带 CRC32（覆盖版本号、长度和内容），即使映射内存的读写顺序不受保证，
+ * 也能识别撕裂的读取，包括新版本号配旧内容这种情况。
+ * 版本号在每次内容变化时加一，读取方比较版本号即可判断是否需要重新解码。
+ * <p>
+ * 段内容无效（未发布、超出容量、映射失败）时读取方返回 null，调用方回退到 Provider 查询和广播。
+ */
+final class ConfigSegment {
+
+    static final String FILE_NAME = "cs_config.seg";
+    /** 映射大小；配置编码后超出时标记为无效，读取方回退 */
+    static final int SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x43534346; // "CSCF"
+    /** 2：CRC 覆盖版本号与长度 */
+    private static final int LAYOUT_VERSION = 2;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_LAYOUT = 4;
+    private static final int OFFSET_SEQ = 8;
+    private static final int OFFSET_VERSION = 16;
+    private static final int OFFSET_LENGTH = 24;
+    private static final int OFFSET_CRC = 28;
+    static final int HEADER_SIZE = 32;
+    static final int CAPACITY = SIZE - HEADER_SIZE;
+
+    /** 读取方遇到正在写入时的最大重试次数；写入只有几十微秒，超出说明写入方中途退出 */
+    private static final int MAX_READ_ATTEMPTS = 64;
+
+    private static final byte TYPE_BOOLEAN = 'Z';
+    private static final byte TYPE_INT = 'I';
+    private static final byte TYPE_LONG = 'J';
+    private static final byte TYPE_DOUBLE = 'D';
+    private static final byte TYPE_STRING = 'S';
+    private static final byte TYPE_ARRAY = 'A';
+
+    /**
+     * API 33 以下没有 VarHandle 的显式屏障，借 volatile 字段的读写近似；
+     * 这时顺序不可靠，由覆盖整条记录的 CRC 兜底。
+     */
+    private static volatile int barrier;
+
+    private static final Object sharedLock = new Object();
+    private static File sharedFile;
+    private static Writer sharedWriter;
+
+    private ConfigSegment() {
+    }
+
+    /** 一次成功读取的结果 */
+    static final class Record {
+        final long version;
+        final JSONObject config;
+
+        Record(long version, JSONObject config) {
+            this.version = version;
+            this.config = config;
+        }
+    }
+
+    // ---- 管理端：进程内共享的写入方 ----
+
+    /** 管理端进程启动时（Provider.onCreate）指定段文件并发布当前配置 */
+    static void initShared(File file, JSONObject config) {
+        synchronized (sharedLock) {
+            if (sharedWriter == null) {
+                try {
+                    sharedWriter = Writer.open(file);
+                    sharedFile = file;
+                } catch (IOException e) {
+                    LogUtil.log("【CS】配置共享段创建失败: " + e);
+                    return;
+                }
+            }
+            sharedWriter.publish(config);
+        }
+    }
+
+    /** 配置落盘后发布到共享段；本进程未初始化写入方（Hook 进程）时什么也不做 */
+    static void publishShared(JSONObject config) {
+        synchronized (sharedLock) {
+            if (sharedWriter != null) {
+                sharedWriter.publish(config);
+            }
+        }
+    }
+
+    /** Provider 交给 Hook 进程映射的段文件；未初始化时为 null */
+    static File sharedFile() {
+        synchronized (sharedLock) {
+            return sharedFile;
+        }
+    }
+
+    // ---- 写入方 ----
+
+    static final class Writer {
+        private final ByteBuffer buffer;
+        private boolean published;
+        private int lastCrc;
+        private int lastLength;
+
+        Writer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /** 映射段文件（不存在时创建）；已有内容和版本号保留，已映射的读取方继续有效 */
+        static Writer open(File file) throws IOException {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // 只扩不缩、不替换文件：读取方映射的是同一个 inode
+                if (raf.length() < SIZE) {
+                    raf.setLength(SIZE);
+                }
+                return new Writer(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE));
+            }
+        }
+
+        /**
+         * 发布配置；内容与上次发布相同时不改变版本号。
+         *
+         * @return 读取方是否能读到这份配置（编码失败或超出容量时为 false，读取方回退）
+         */
+        synchronized boolean publish(JSONObject config) {
+            byte[] payload;
+            try {
+                payload = encode(config);
+            } catch (IOException | JSONException e) {
+                LogUtil.log("【CS】配置共享段编码失败: " + e);
+                payload = null;
+            }
+            int length = payload != null && payload.length <= CAPACITY ? payload.length : -1;
+            // 去重只看内容；写进段里的 CRC 还要带上新的版本号
+            int contentCrc = length >= 0 ? crc(0, length, payload) : 0;
+            if (published && length == lastLength && contentCrc == lastCrc) {
+                return length >= 0;
+            }
+            long version = buffer.getLong(OFFSET_VERSION) + 1;
+
+            long seq = buffer.getLong(OFFSET_SEQ);
+            // 上次写入中途退出时序号停在奇数，从下一个奇数开始
+            long begin = (seq | 1L) + (seq & 1L) * 2;
+            buffer.putLong(OFFSET_SEQ, begin);
+            storeFence();
+            if (length >= 0) {
+                ByteBuffer dst = buffer.duplicate();
+                dst.position(HEADER_SIZE);
+                dst.put(payload, 0, length);
+            }
+            buffer.putInt(OFFSET_LENGTH, length);
+            buffer.putInt(OFFSET_CRC, crc(version, length, payload));
+            buffer.putLong(OFFSET_VERSION, version);
+            buffer.putInt(OFFSET_LAYOUT, LAYOUT_VERSION);
+            buffer.putInt(OFFSET_MAGIC, MAGIC);
+            storeFence();
+            buffer.putLong(OFFSET_SEQ, begin + 1);
+            storeFence();
+
+            published = true;
+            lastLength = length;
+            lastCrc = contentCrc;
+            if (length < 0) {
+                LogUtil.log("【CS】配置超出共享段容量，Hook 进程回退到 Provider 读取");
+            }
+            return length >= 0;
+        }
+    }
+
+    // ---- 读取方 ----
+
+    static final class Reader {
+        private final ByteBuffer buffer;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /** 只读映射 Provider 交来的 fd；fd 由调用方关闭，映射在关闭后仍然有效 */
+        static Reader map(FileDescriptor fd) throws IOException {
+            // 不关闭这个流：关闭会连带关闭调用方持有的 fd
+            FileChannel channel = new FileInputStream(fd).getChannel();
+            if (channel.size() < SIZE) {
+                throw new IOException("segment too small: " + channel.size());
+            }
+            return new Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, SIZE));
+        }
+
+        /**
+         * 当前发布的版本号，无锁、不分配；段无效或一直在写入时返回 -1。
+         */
+        long version() {
+            for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+                long seq = buffer.getLong(OFFSET_SEQ);
+                if ((seq & 1L) != 0) {
+                    Thread.yield();
+                    continue;
+                }
+                loadFence();
+                if (buffer.getInt(OFFSET_MAGIC) != MAGIC || buffer.getInt(OFFSET_LAYOUT) != LAYOUT_VERSION) {
+                    return -1;
+                }
+                long version = buffer.getLong(OFFSET_VERSION);
+                boolean valid = buffer.getInt(OFFSET_LENGTH) >= 0;
+                loadFence();
+                if (buffer.getLong(OFFSET_SEQ) == seq) {
+                    return valid ? version : -1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 读取一份一致的配置；段无效、超出容量或一直在写入时返回 null。
+         */
+        Record read() {
+            for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+                long seq = buffer.getLong(OFFSET_SEQ);
+                if ((seq & 1L) != 0) {
+                    Thread.yield();
+                    continue;
+                }
+                loadFence();
+                if (buffer.getInt(OFFSET_MAGIC) != MAGIC || buffer.getInt(OFFSET_LAYOUT) != LAYOUT_VERSION) {
+                    return null;
+                }
+                long version = buffer.getLong(OFFSET_VERSION);
+                int length = buffer.getInt(OFFSET_LENGTH);
+                int crc = buffer.getInt(OFFSET_CRC);
+                byte[] payload = null;
+                if (length >= 0 && length <= CAPACITY) {
+                    payload = new byte[length];
+                    ByteBuffer src = buffer.duplicate();
+                    src.position(HEADER_SIZE);
+                    src.get(payload, 0, length);
+                }
+                loadFence();
+                if (buffer.getLong(OFFSET_SEQ) != seq) {
+                    continue;
+                }
+                if (payload == null) {
+                    return null;
+                }
+                if (crc(version, length, payload) != crc) {
+                    // 读到了撕裂的记录（内容、长度与版本号不属于同一次写入），重读
+                    continue;
+                }
+                try {
+                    return new Record(version, decode(payload));
+                } catch (IOException | JSONException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    // ---- 编码 ----
+
+    /** 紧凑二进制编码：键数，随后每项为 键(UTF) + 类型 + 值；未知类型按字符串保存 */
+    static byte[] encode(JSONObject config) throws IOException, JSONException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(config.length());
+        Iterator<String> keys = config.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = config.get(key);
+            out.writeUTF(key);
+            if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double || value instanceof Float) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof JSONArray) {
+                out.writeByte(TYPE_ARRAY);
+                writeLongUtf(out, value.toString());
+            } else {
+                out.writeByte(TYPE_STRING);
+                writeLongUtf(out, String.valueOf(value));
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static JSONObject decode(byte[] payload) throws IOException, JSONException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int count = in.readInt();
+        JSONObject config = new JSONObject();
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_BOOLEAN:
+                    config.put(key, in.readBoolean());
+                    break;
+                case TYPE_INT:
+                    config.put(key, in.readInt());
+                    break;
+                case TYPE_LONG:
+                    config.put(key, in.readLong());
+                    break;
+                case TYPE_DOUBLE:
+                    config.put(key, in.readDouble());
+                    break;
+                case TYPE_ARRAY:
+                    config.put(key, new JSONArray(readLongUtf(in)));
+                    break;
+                case TYPE_STRING:
+                    config.put(key, readLongUtf(in));
+                    break;
+                default:
+                    throw new IOException("unknown type " + type + " for " + key);
+            }
+        }
+        return config;
+    }
+
+    /** writeUTF 限 64KB，字符串值（如包名数组）用带 int 长度的 UTF-8 */
+    private static void writeLongUtf(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readLongUtf(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > CAPACITY) {
+            throw new IOException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /** 版本号（8 字节）+ 长度（4 字节）+ 内容的 CRC32；length < 0 时不含内容 */
+    private static int crc(long version, int length, byte[] payload) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (version >>> shift));
+        }
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            crc.update(length >>> shift);
+        }
+        if (length > 0) {
+            crc.update(payload, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static void storeFence() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            VarHandle.storeStoreFence();
+        } else {
+            barrier = 0;
+        }
+    }
+
+    private static void loadFence() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            VarHandle.loadLoadFence();
+        } else {
+            int ignored = barrier;
+        }
+    }
+}
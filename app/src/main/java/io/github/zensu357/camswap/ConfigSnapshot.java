@@ -0,0 +1,125 @@
+package io.github.zensu357.camswap;
+
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 配置的不可变类型化快照，供每帧 / 每次音频读取的热路径使用。
+ * <p>
+ * {@link ConfigManager} 每次配置内容变化时生成一个新快照，经一个 volatile 引用发布；
+ * 热路径直接读字段，不再对 JSONObject 做哈希查找和拆箱。{@link #version} 单调递增，
+ * 可用来判断两次读取之间配置是否变化。
+ */
+public final class ConfigSnapshot {
+
+    /** 尚未加载任何配置时的快照（全部取默认值） */
+    public static final ConfigSnapshot EMPTY = new ConfigSnapshot(new JSONObject(), 0);
+
+    public final long version;
+
+    public final boolean disableModule;
+    public final boolean disableToast;
+    public final boolean playVideoSound;
+    public final boolean forcePrivateDir;
+    public final boolean enablePhotoFake;
+    public final boolean enableWhatsAppCamera2Compat;
+    /** 用户设置的视频旋转偏移（原值，未归一化） */
+    public final int videoRotationOffset;
+
+    public final boolean enableMicHook;
+    /** {@link ConfigManager#MIC_MODE_MUTE} / REPLACE / VIDEO_SYNC */
+    public final String micHookMode;
+    public final boolean micReplaceMode;
+    public final boolean micVideoSyncMode;
+
+    public final String selectedVideo;
+    public final String selectedImage;
+    public final String replaceMode;
+    public final String mediaSourceType;
+    public final String streamUrl;
+    /** 媒体源为网络流 */
+    public final boolean streamMode;
+    /** 本地源 + 图片替换模式 + 已选中图片 */
+    public final boolean stillMode;
+
+    ConfigSnapshot(JSONObject config, long version) {
+        this.version = version;
+        disableModule = config.optBoolean(ConfigManager.KEY_DISABLE_MODULE, false);
+        disableToast = config.optBoolean(ConfigManager.KEY_DISABLE_TOAST, false);
+        playVideoSound = config.optBoolean(ConfigManager.KEY_PLAY_VIDEO_SOUND, false);
+        forcePrivateDir = config.optBoolean(ConfigManager.KEY_FORCE_PRIVATE_DIR, false);
+        enablePhotoFake = config.optBoolean(ConfigManager.KEY_ENABLE_PHOTO_FAKE, false);
+        enableWhatsAppCamera2Compat = config.optBoolean(ConfigManager.KEY_ENABLE_WHATSAPP_CAMERA2_COMPAT, false);
+        videoRotationOffset = config.optInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
+
+        enableMicHook = config.optBoolean(ConfigManager.KEY_ENABLE_MIC_HOOK, false);
+        micHookMode = config.optString(ConfigManager.KEY_MIC_HOOK_MODE, ConfigManager.MIC_MODE_MUTE);
+        micReplaceMode = ConfigManager.MIC_MODE_REPLACE.equals(micHookMode);
+        micVideoSyncMode = ConfigManager.MIC_MODE_VIDEO_SYNC.equals(micHookMode);
+
+        selectedVideo = config.optString(ConfigManager.KEY_SELECTED_VIDEO, "");
+        selectedImage = config.optString(ConfigManager.KEY_SELECTED_IMAGE, "");
+        replaceMode = config.optString(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_VIDEO);
+        mediaSourceType = config.optString(ConfigManager.KEY_MEDIA_SOURCE_TYPE, ConfigManager.MEDIA_SOURCE_LOCAL);
+        streamUrl = config.optString(ConfigManager.KEY_STREAM_URL, "");
+        streamMode = ConfigManager.MEDIA_SOURCE_STREAM.equals(mediaSourceType);
+        stillMode = !streamMode && ConfigManager.REPLACE_MODE_IMAGE.equals(replaceMode) && !selectedImage.isEmpty();
+    }
+
+    /** 与 other 选用的是同一媒体源（视频/图片/替换模式/私有目录/流地址均相同），否则需要重启播放器 */
+    public boolean sameMediaSource(ConfigSnapshot other) {
+        return selectedVideo.equals(other.selectedVideo)
+                && selectedImage.equals(other.selectedImage)
+                && replaceMode.equals(other.replaceMode)
+                && forcePrivateDir == other.forcePrivateDir
+                && mediaSourceType.equals(other.mediaSourceType)
+                && streamUrl.equals(other.streamUrl);
+    }
+
+    /**
+     * 两份配置之间取值不同的键（新增、删除或值变化），按字典序排列。
+     * 值按字符串形式比较，1 与 1L、同内容的 JSONArray 视为相同。
+     */
+    static Set<String> changedKeys(JSONObject previous, JSONObject current) {
+        if (previous == current) {
+            return Collections.emptySet();
+        }
+        Set<String> changed = new TreeSet<>();
+        Iterator<String> keys = current.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!previous.has(key) || !String.valueOf(previous.opt(key)).equals(String.valueOf(current.opt(key)))) {
+                changed.add(key);
+            }
+        }
+        keys = previous.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!current.has(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 配置变化监听；回调不持有配置锁，按版本顺序执行，通常在发布新快照的线程上
+     * （多个线程同时发布时由正在分发的线程代为回调），应尽快返回。
+     */
+    public interface Listener {
+        /**
+         * @param changedKeys 取值发生变化的配置键（不可修改）
+         */
+        void onConfigChanged(ConfigSnapshot previous, ConfigSnapshot current, Set<String> changedKeys);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSnapshot{v" + version + ", rotation=" + videoRotationOffset + ", source=" + mediaSourceType
+                + ", replace=" + replaceMode + ", mic=" + (enableMicHook ? micHookMode : "off") + "}";
+    }
+}
@@ -46,9 +46,7 @@ public final class ConfigWatcher {
             public void onChange(boolean selfChange) {
                 super.onChange(selfChange);
                 LogUtil.log("【CS】Provider 配置变更");
-                VideoManager.getConfig().forceReload();
-                VideoManager.updateVideoPath(false);
-                callback.onMediaSourceChanged();
+                reloadAndDispatch();
             }
         };
 
@@ -71,11 +69,7 @@ public final class ConfigWatcher {
                     public void onEvent(int event, String path) {
                         if (path != null && path.endsWith(".json")) {
                             LogUtil.log("【CS】文件变更: " + path);
-                            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                                VideoManager.getConfig().forceReload();
-                                VideoManager.updateVideoPath(false);
-                                callback.onMediaSourceChanged();
-                            }, 200);
+                            new Handler(Looper.getMainLooper()).postDelayed(() -> reloadAndDispatch(), 200);
                         }
                     }
                 };
@@ -127,48 +121,39 @@ public final class ConfigWatcher {
         if (configJson == null)
             return;
 
-        // Snapshot old values
-        String oldVideo = config.getString(ConfigManager.KEY_SELECTED_VIDEO, "");
-        String oldImage = config.getString(ConfigManager.KEY_SELECTED_IMAGE, "");
-        String oldMode = config.getString(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_VIDEO);
-        boolean oldFpd = config.getBoolean(ConfigManager.KEY_FORCE_PRIVATE_DIR, false);
-        int oldRotation = config.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
-        // Stream config snapshots
-        String oldSourceType = config.getString(ConfigManager.KEY_MEDIA_SOURCE_TYPE, ConfigManager.MEDIA_SOURCE_LOCAL);
-        String oldStreamUrl = config.getString(ConfigManager.KEY_STREAM_URL, "");
-
+        ConfigSnapshot previous = config.snapshot();
         config.updateConfigFromJSON(configJson);
+        dispatch(previous, config.snapshot(), intent);
+    }
+
+    /** Provider / 文件变更：重新读取配置，按前后快照的差异分发 */
+    private void reloadAndDispatch() {
+        ConfigManager config = VideoManager.getConfig();
+        ConfigSnapshot previous = config.snapshot();
+        config.forceReload();
+        dispatch(previous, config.snapshot(), null);
+    }
 
-        // Snapshot new values
-        String newVideo = config.getString(ConfigManager.KEY_SELECTED_VIDEO, "");
-        String newImage = config.getString(ConfigManager.KEY_SELECTED_IMAGE, "");
-        String newMode = config.getString(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_VIDEO);
-        boolean newFpd = config.getBoolean(ConfigManager.KEY_FORCE_PRIVATE_DIR, false);
-        int newRotation = config.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
-        // Stream config new values
-        String newSourceType = config.getString(ConfigManager.KEY_MEDIA_SOURCE_TYPE, ConfigManager.MEDIA_SOURCE_LOCAL);
-        String newStreamUrl = config.getString(ConfigManager.KEY_STREAM_URL, "");
-
-        boolean mediaChanged = !oldVideo.equals(newVideo) ||
-                !oldImage.equals(newImage) ||
-                !oldMode.equals(newMode) ||
-                (oldFpd != newFpd) ||
-                !oldSourceType.equals(newSourceType) ||
-                !oldStreamUrl.equals(newStreamUrl);
-
-        if (mediaChanged) {
+    /**
+     * 只有媒体源相关的配置变化才重启播放器；仅旋转变化走轻量回调，其余变化（提示、麦克风等）
+     * 由热路径从快照直接读到，不需要通知。
+     */
+    private void dispatch(ConfigSnapshot previous, ConfigSnapshot current, Intent intent) {
+        if (previous.version == current.version) {
+            LogUtil.log("【CS】配置更新: 无变化");
+        } else if (!previous.sameMediaSource(current)) {
             // Handle Binder-based video file transfer
-            if (config.getBoolean(ConfigManager.KEY_FORCE_PRIVATE_DIR, false)) {
+            if (intent != null && current.forcePrivateDir) {
                 extractVideoFromBinder(intent);
             }
             VideoManager.updateVideoPath(false);
             callback.onMediaSourceChanged();
             LogUtil.log("【CS】配置更新: 媒体源变化，重启播放器");
-        } else if (oldRotation != newRotation) {
-            LogUtil.log("【CS】配置更新: 旋转 " + newRotation + "°");
-            callback.onRotationChanged(newRotation);
+        } else if (previous.videoRotationOffset != current.videoRotationOffset) {
+            LogUtil.log("【CS】配置更新: 旋转 " + current.videoRotationOffset + "°");
+            callback.onRotationChanged(current.videoRotationOffset);
         } else {
-            LogUtil.log("【CS】配置更新: 无变化");
+            LogUtil.log("【CS】配置更新: " + current);
         }
     }
 
@@ -0,0 +1,174 @@
+package io.github.zensu357.camswap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.github.zensu357.camswap.utils.LogUtil;
+
+/**
+ * 配置文件的后写（write-behind）存储。
+ * <p>
+ * ConfigManager 的 set 系列调用只更新内存并把最新快照交给这里；合并窗口内的多次修改由后台线程
+ * 一次写出（先写临时文件再 rename，读取方不会看到写了一半的文件），每批只触发一次变更通知。
+ * 进程内所有 ConfigManager 共用 {@link #shared()}，reload 前调用 {@link #flushPending()} 先落盘，
+ * 同进程的读取方（Provider、其他界面）因此总能读到最新内容。
+ */
+final class ConfigWriter {
+
+    /** 合并窗口：从第一次修改到写出的最长延迟 */
+    static final long COALESCE_WINDOW_MS = 50;
+
+    private static volatile ConfigWriter shared;
+
+    private final File file;
+    private final long windowMs;
+    private final Object lock = new Object();
+    /** 串行化写文件，保证后提交的快照不会被先提交的覆盖 */
+    private final Object fileLock = new Object();
+    private ScheduledExecutorService scheduler;
+    private JSONObject pending;
+    private Runnable pendingCallback;
+    private boolean scheduled;
+    private long flushCount;
+
+    ConfigWriter(File file, long windowMs) {
+        this.file = file;
+        this.windowMs = windowMs;
+    }
+
+    /** 默认配置文件的写入器，首次写入时创建 */
+    static ConfigWriter shared() {
+        ConfigWriter writer = shared;
+        if (writer == null) {
+            synchronized (ConfigWriter.class) {
+                writer = shared;
+                if (writer == null) {
+                    writer = new ConfigWriter(new File(ConfigManager.DEFAULT_CONFIG_DIR, ConfigManager.CONFIG_FILE_NAME),
+                            COALESCE_WINDOW_MS);
+                    shared = writer;
+                }
+            }
+        }
+        return writer;
+    }
+
+    /** 同步写出本进程尚未落盘的修改；本进程从未写过配置时（如 Hook 进程）什么也不做 */
+    static void flushPending() {
+        ConfigWriter writer = shared;
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 登记待写入的配置。窗口内再次提交时只替换待写内容，写出后执行最后一次提交的 onWritten。
+     *
+     * @param config 不可再修改的配置快照
+     */
+    void submit(JSONObject config, Runnable onWritten) {
+        ScheduledExecutorService executor;
+        synchronized (lock) {
+            pending = config;
+            pendingCallback = onWritten;
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "CS-ConfigWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            executor = scheduler;
+        }
+        executor.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即写出待写内容。
+     *
+     * @return 是否写出了文件；没有待写内容或写入失败时返回 false
+     */
+    boolean flush() {
+        synchronized (fileLock) {
+            JSONObject config;
+            Runnable callback;
+            synchronized (lock) {
+                config = pending;
+                callback = pendingCallback;
+                pending = null;
+                pendingCallback = null;
+                scheduled = false;
+            }
+            if (config == null) {
+                return false;
+            }
+            try {
+                writeAtomically(file, config);
+                flushCount++;
+                // 先发布到共享段再通知，收到通知的 Hook 进程读到的就是新版本
+                ConfigSegment.publishShared(config);
+            } catch (IOException | JSONException e) {
+                LogUtil.log("【CS】配置写入失败: " + e);
+                return false;
+            }
+            if (callback != null) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    LogUtil.log("【CS】配置变更通知失败: " + e);
+                }
+            }
+            return true;
+        }
+    }
+
+    /** 已写出的批次数 */
+    long getFlushCount() {
+        synchronized (fileLock) {
+            return flushCount;
+        }
+    }
+
+    /** 写临时文件后 rename 替换；临时文件名不以 .json 结尾，不会触发读取方的 FileObserver */
+    static void writeAtomically(File file, JSONObject config) throws IOException, JSONException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        File temp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp)) {
+            fos.write(config.toString(4).getBytes(StandardCharsets.UTF_8));
+            fos.getFD().sync();
+        }
+
+        // Set world-readable so hook processes (inside target apps) can read
+        // the config file via direct path when ContentProvider is unavailable.
+        try {
+            temp.setReadable(true, false);
+            temp.setWritable(true, true); // Keep write restricted to owner
+            if (dir != null) {
+                // Also chmod parents so directory is traversable
+                dir.setExecutable(true, false);
+                dir.setReadable(true, false);
+            }
+        } catch (Exception ignored) {
+            // Best-effort
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("rename failed: " + temp + " -> " + file);
+        }
+    }
+}
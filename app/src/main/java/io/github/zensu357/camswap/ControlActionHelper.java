@@ -31,6 +31,7 @@ public final class ControlActionHelper {
         configManager.forceReload();
         int rotation = (configManager.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0) + 90) % 360;
         configManager.setInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, rotation);
+        configManager.flush();
         return rotation;
     }
 
@@ -38,6 +39,7 @@ public final class ControlActionHelper {
         ConfigManager configManager = new ConfigManager();
         configManager.setContext(context);
         configManager.setBoolean(ConfigManager.KEY_OVERLAY_CONTROL_ENABLED, enabled);
+        configManager.flush();
     }
 
     private static boolean fallbackSwitchVideo(Context context, boolean next) {
@@ -62,6 +64,7 @@ public final class ControlActionHelper {
         int newIndex = currentIndex == -1 ? 0
                 : (next ? (currentIndex + 1) % files.length : (currentIndex - 1 + files.length) % files.length);
         configManager.setString(ConfigManager.KEY_SELECTED_VIDEO, files[newIndex].getName());
+        configManager.flush();
         return true;
     }
 }
@@ -0,0 +1,299 @@
+package io.github.zensu357.camswap;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 帧内存池：以 direct {@link ByteBuffer} slab 存放帧数据，不占用目标 App 的 Java 堆。
+ * <p>
+ * slab 按尺寸分级（每个 2 的幂区间再分 4 档），每级一个定长空闲槽数组，
+ * 获取与归还都只做 CAS，无锁。slab 带引用计数，最后一个持有者 {@link Slab#release()} 时回到池中。
+ * 池内总字节数（使用中 + 空闲）受预算限制；超出预算时先淘汰其他级别的空闲 slab，
+ * 仍不够则分配不入池的临时 slab。
+ */
+public final class FrameArena {
+
+    /** 默认预算：约 10 帧 1080p I420 */
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+    /** 每个尺寸级别最多缓存的空闲 slab 数 */
+    static final int SLOTS_PER_CLASS = 6;
+    private static final int MIN_CLASS_SHIFT = 12;
+    private static final int MAX_CLASS_SHIFT = 30;
+    private static final int STEPS_PER_POWER = 4;
+
+    private static final FrameArena shared = new FrameArena(DEFAULT_BUDGET_BYTES);
+
+    private final long budgetBytes;
+    private final AtomicReferenceArray<Slab>[] freeSlots;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+
+    /** 引用计数的帧内存；{@link #buffer()} 的 position/limit 归调用方管理，跨线程读写请用绝对下标或 {@link #view} */
+    public static final class Slab {
+        private final FrameArena arena;
+        private final ByteBuffer buffer;
+        private final int sizeClass;
+        private final AtomicInteger refs = new AtomicInteger();
+
+        Slab(FrameArena arena, int capacity, int sizeClass) {
+            this.arena = arena;
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+            this.sizeClass = sizeClass;
+        }
+
+        /** 整块 buffer，limit 为本次申请的大小 */
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        public int size() {
+            return buffer.limit();
+        }
+
+        public int capacity() {
+            return buffer.capacity();
+        }
+
+        /** [offset, offset + length) 区间的独立视图，position 为 0 */
+        public ByteBuffer view(int offset, int length) {
+            ByteBuffer view = buffer.duplicate();
+            view.limit(offset + length).position(offset);
+            return view.slice();
+        }
+
+        /** 增加一个持有者；slab 已归还时返回 false */
+        public boolean tryRetain() {
+            while (true) {
+                int current = refs.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /** 仅当只有一个持有者时增加引用，用于独占认领由调用方长期持有的 slab */
+        boolean tryRetainExclusive() {
+            return refs.compareAndSet(1, 2);
+        }
+
+        public void retain() {
+            if (!tryRetain()) {
+                throw new IllegalStateException("slab already released");
+            }
+        }
+
+        public void release() {
+            int left = refs.decrementAndGet();
+            if (left == 0) {
+                arena.recycle(this);
+            } else if (left < 0) {
+                throw new IllegalStateException("slab released twice");
+            }
+        }
+
+        boolean isPooled() {
+            return sizeClass >= 0;
+        }
+    }
+
+    public static FrameArena shared() {
+        return shared;
+    }
+
+    public FrameArena(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        int classes = 1 + (MAX_CLASS_SHIFT - MIN_CLASS_SHIFT) * STEPS_PER_POWER;
+        freeSlots = newSlotTable(classes);
+        for (int i = 0; i < classes; i++) {
+            freeSlots[i] = new AtomicReferenceArray<>(SLOTS_PER_CLASS);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static AtomicReferenceArray<Slab>[] newSlotTable(int classes) {
+        return new AtomicReferenceArray[classes];
+    }
+
+    /**
+     * 获取至少 size 字节的 slab，引用计数为 1，limit 为 size。内容未清零。
+     */
+    public Slab acquire(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size=" + size);
+        }
+        int sizeClass = classOf(size);
+        Slab slab = sizeClass >= 0 ? takeFree(sizeClass) : null;
+        if (slab != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            slab = allocate(size, sizeClass);
+        }
+        slab.buffer.clear().limit(size);
+        slab.refs.set(1);
+        return slab;
+    }
+
+    private Slab allocate(int size, int sizeClass) {
+        if (sizeClass < 0) {
+            overBudget.incrementAndGet();
+            return new Slab(this, size, -1);
+        }
+        int capacity = classCapacity(sizeClass);
+        if (!reserve(capacity)) {
+            evictFree(capacity, sizeClass);
+            if (!reserve(capacity)) {
+                overBudget.incrementAndGet();
+                return new Slab(this, size, -1);
+            }
+        }
+        return new Slab(this, capacity, sizeClass);
+    }
+
+    private boolean reserve(int bytes) {
+        while (true) {
+            long current = reservedBytes.get();
+            if (current + bytes > budgetBytes) {
+                return false;
+            }
+            if (reservedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 从大到小淘汰其他级别的空闲 slab，仍不够时才淘汰 sizeClass 本级别的（它们本可被复用），
+     * 直到腾出 bytes 的预算或没有可淘汰的。
+     */
+    private void evictFree(int bytes, int sizeClass) {
+        for (int c = freeSlots.length - 1; c >= 0; c--) {
+            if (c != sizeClass && evictClass(c, bytes)) {
+                return;
+            }
+        }
+        evictClass(sizeClass, bytes);
+    }
+
+    /** @return 预算是否已腾出 bytes */
+    private boolean evictClass(int sizeClass, int bytes) {
+        AtomicReferenceArray<Slab> slots = freeSlots[sizeClass];
+        for (int i = 0; i < SLOTS_PER_CLASS; i++) {
+            if (budgetBytes - reservedBytes.get() >= bytes) {
+                return true;
+            }
+            Slab slab = slots.getAndSet(i, null);
+            if (slab != null) {
+                drop(slab);
+            }
+        }
+        return budgetBytes - reservedBytes.get() >= bytes;
+    }
+
+    private Slab takeFree(int sizeClass) {
+        AtomicReferenceArray<Slab> slots = freeSlots[sizeClass];
+        for (int i = 0; i < SLOTS_PER_CLASS; i++) {
+            if (slots.get(i) != null) {
+                Slab slab = slots.getAndSet(i, null);
+                if (slab != null) {
+                    return slab;
+                }
+            }
+        }
+        return null;
+    }
+
+    void recycle(Slab slab) {
+        if (!slab.isPooled()) {
+            return;
+        }
+        AtomicReferenceArray<Slab> slots = freeSlots[slab.sizeClass];
+        for (int i = 0; i < SLOTS_PER_CLASS; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, slab)) {
+                return;
+            }
+        }
+        drop(slab);
+    }
+
+    private void drop(Slab slab) {
+        evictions.incrementAndGet();
+        reservedBytes.addAndGet(-slab.capacity());
+    }
+
+    /** 丢弃全部空闲 slab（不影响使用中的） */
+    public void trim() {
+        for (AtomicReferenceArray<Slab> slots : freeSlots) {
+            for (int i = 0; i < SLOTS_PER_CLASS; i++) {
+                Slab slab = slots.getAndSet(i, null);
+                if (slab != null) {
+                    drop(slab);
+                }
+            }
+        }
+    }
+
+    static int classOf(int size) {
+        int minSize = 1 << MIN_CLASS_SHIFT;
+        if (size <= minSize) {
+            return 0;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(size - 1);
+        if (shift >= MAX_CLASS_SHIFT) {
+            return -1;
+        }
+        // size 落在 (2^shift, 2^(shift+1)]，该区间按 2^(shift-2) 再分 4 档
+        int step = (size - 1 - (1 << shift)) >> (shift - 2);
+        return 1 + (shift - MIN_CLASS_SHIFT) * STEPS_PER_POWER + step;
+    }
+
+    static int classCapacity(int sizeClass) {
+        if (sizeClass == 0) {
+            return 1 << MIN_CLASS_SHIFT;
+        }
+        int shift = (sizeClass - 1) / STEPS_PER_POWER + MIN_CLASS_SHIFT;
+        int step = (sizeClass - 1) % STEPS_PER_POWER;
+        return (1 << shift) + ((step + 1) << (shift - 2));
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /** 超出预算、以不入池方式分配的次数 */
+    public long getOverBudgetCount() {
+        return overBudget.get();
+    }
+
+    /** 池内 slab 占用的字节数（使用中 + 空闲） */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameArena{hit=" + hits.get() + ", miss=" + misses.get() + ", evict=" + evictions.get()
+                + ", overBudget=" + overBudget.get() + ", reserved=" + (reservedBytes.get() >> 10) + "KB/"
+                + (budgetBytes >> 10) + "KB}";
+    }
+}
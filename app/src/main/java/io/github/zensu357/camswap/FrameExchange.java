@@ -0,0 +1,181 @@
+package io.github.zensu357.camswap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 解码线程 → 预览回调线程的单生产者 / 多消费者三缓冲帧交换。
+ * <p>
+ * 三个槽位轮转：一个是当前已发布帧，其余供生产者写入或仍被读者持有。
+ * 读者通过引用计数钉住已发布槽位，生产者只会写入引用计数为 0 且未发布的槽位，
+ * 因此读者永远不会读到正在被改写的 buffer；读者从不阻塞，生产者在两个空闲槽位都被
+ * 读者占住时丢弃本帧的发布（计入 {@link #getDroppedCount()}）。
+ * <p>
+ * 每次发布的帧带有单调递增的 generation，读者可据此跳过未变化帧的重复处理。
+ */
+public final class FrameExchange {
+
+    private static final int SLOTS = 3;
+
+    /** 已发布的一帧；通过 {@link #acquire()} 获得，用完必须 {@link #release(Frame)} */
+    public static final class Frame {
+        private final AtomicInteger refs = new AtomicInteger();
+        private byte[] data;
+        private int width;
+        private int height;
+        private long generation;
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+    }
+
+    private final Frame[] slots = new Frame[SLOTS];
+    private volatile Frame published;
+    /** 生产者当前写入的槽位，仅生产者线程访问 */
+    private Frame writing;
+    private long nextGeneration = 1;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public FrameExchange() {
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Frame();
+        }
+    }
+
+    /**
+     * 生产者：取一个可写 buffer（长度不足时重新分配）。
+     *
+     * @return 可写 buffer；所有空闲槽位都被读者占用时返回 null，本帧不发布
+     */
+    public byte[] beginWrite(int size) {
+        Frame current = published;
+        for (Frame slot : slots) {
+            if (slot != current && slot.refs.get() == 0) {
+                if (slot.data == null || slot.data.length != size) {
+                    slot.data = new byte[size];
+                }
+                writing = slot;
+                return slot.data;
+            }
+        }
+        writing = null;
+        dropped.incrementAndGet();
+        return null;
+    }
+
+    /** 生产者：发布 {@link #beginWrite} 返回的 buffer */
+    public void publish(int width, int height) {
+        Frame slot = writing;
+        if (slot == null) {
+            return;
+        }
+        writing = null;
+        slot.width = width;
+        slot.height = height;
+        slot.generation = nextGeneration++;
+        // volatile 写保证读者看到完整的数据与元信息
+        published = slot;
+    }
+
+    /**
+     * 生产者：把调用方填好的数组换进一个可写槽位并发布，省去一次整帧拷贝。
+     * 调用方交出 data 后不得再改写它。
+     *
+     * @return 换下来的旧 buffer（可能为 null），可作为下一帧的写入目标；
+     *         所有空闲槽位都被读者占用时不发布，原样返回 data
+     */
+    public byte[] publishSwap(byte[] data, int width, int height) {
+        Frame current = published;
+        for (Frame slot : slots) {
+            if (slot != current && slot.refs.get() == 0) {
+                byte[] old = slot.data;
+                slot.data = data;
+                writing = slot;
+                publish(width, height);
+                return old;
+            }
+        }
+        dropped.incrementAndGet();
+        return data;
+    }
+
+    /** 最近发布帧的 generation，没有帧时为 0 */
+    public long getGeneration() {
+        Frame current = published;
+        return current != null ? current.generation : 0;
+    }
+
+    public boolean hasFrame() {
+        return published != null;
+    }
+
+    /**
+     * 读者：钉住当前帧，不阻塞。
+     *
+     * @return 当前帧；尚无帧时返回 null
+     */
+    public Frame acquire() {
+        while (true) {
+            Frame current = published;
+            if (current == null) {
+                return null;
+            }
+            current.refs.incrementAndGet();
+            // 计数之后再确认仍是已发布槽位，否则生产者可能已经开始改写它
+            if (current == published) {
+                return current;
+            }
+            current.refs.decrementAndGet();
+        }
+    }
+
+    public void release(Frame frame) {
+        if (frame != null) {
+            frame.refs.decrementAndGet();
+        }
+    }
+
+    /**
+     * 读者：把当前帧拷贝到 dst。
+     *
+     * @param knownGeneration dst 中已有内容对应的 generation；与当前帧相同则跳过拷贝，传 -1 强制拷贝
+     * @return 当前帧的 generation；尚无帧时返回 0 且不写 dst
+     */
+    public long copyTo(byte[] dst, long knownGeneration) {
+        Frame frame = acquire();
+        if (frame == null) {
+            return 0;
+        }
+        try {
+            if (frame.generation != knownGeneration) {
+                System.arraycopy(frame.data, 0, dst, 0, Math.min(frame.data.length, dst.length));
+            }
+            return frame.generation;
+        } finally {
+            release(frame);
+        }
+    }
+
+    /** 因读者占用槽位而未能发布的帧数 */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** 已发布的帧数 */
+    public long getPublishedCount() {
+        return getGeneration();
+    }
+}
@@ -0,0 +1,376 @@
+package io.github.zensu357.camswap;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.ParcelFileDescriptor;
+import android.system.Os;
+import android.system.StructStat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import io.github.zensu357.camswap.utils.LogUtil;
+import io.github.zensu357.camswap.utils.VideoManager;
+import io.github.zensu357.camswap.yuv.Nv21FrameTransform;
+import io.github.zensu357.camswap.yuv.YuvPlanes;
+import io.github.zensu357.camswap.yuv.YuvToRgb;
+
+/**
+ * 按时间取视频帧：用 {@link FrameIndex} 直接 seek 到目标帧之前最近的关键帧，解码到目标帧的 PTS 即停。
+ * <p>
+ * 解复用器与解码器在多次取帧之间保持打开；目标帧与上次解码位置在同一个 GOP 且更靠后时不 seek，
+ * 顺着继续解码。索引持久化在视频旁（目录不可写或只有 PFD 时放宿主缓存目录），同一视频只扫描一次。
+ * 实例不是线程安全的；{@link #fetchCurrent} 在类锁下使用共享实例。
+ */
+final class FrameFetcher {
+
+    static final String INDEX_SUFFIX = ".csidx";
+    private static final long DEQUEUE_TIMEOUT_US = 10_000L;
+    private static final long FETCH_TIMEOUT_MS = 1500L;
+
+    private static FrameFetcher shared;
+
+    private final String path;
+    private final ParcelFileDescriptor pfd;
+    private final MediaExtractor extractor;
+    private final MediaCodec decoder;
+    private final FrameIndex index;
+    private final int rotation;
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+    private final YuvPlanes planes = new YuvPlanes();
+    private final Nv21FrameTransform transform = new Nv21FrameTransform();
+    private byte[] nv21;
+    private int[] argb;
+
+    private boolean inputDone;
+    /** 当前解码位置所在 GOP 的关键帧 PTS，-1 表示下次取帧必须 seek */
+    private long gopSyncUs = -1;
+    private long lastOutputUs = -1;
+    private long decodedFrames;
+    private long seeks;
+
+    private FrameFetcher(String path, ParcelFileDescriptor pfd, MediaExtractor extractor, MediaCodec decoder,
+            FrameIndex index, int rotation) {
+        this.path = path;
+        this.pfd = pfd;
+        this.extractor = extractor;
+        this.decoder = decoder;
+        this.index = index;
+        this.rotation = rotation;
+    }
+
+    /**
+     * 打开视频并加载（或建立）索引。pfd 非空时优先使用，所有权转交给返回的实例。
+     */
+    static FrameFetcher open(String path, ParcelFileDescriptor pfd) throws IOException {
+        FileDescriptor fd = pfd != null ? pfd.getFileDescriptor() : null;
+        long[] key = fileKey(path, fd);
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec decoder = null;
+        try {
+            if (fd != null) {
+                extractor.setDataSource(fd);
+            } else {
+                extractor.setDataSource(path);
+            }
+            int track = selectVideoTrack(extractor);
+            if (track < 0) {
+                throw new IOException("no video track");
+            }
+            extractor.selectTrack(track);
+            MediaFormat format = extractor.getTrackFormat(track);
+            int rotation = format.containsKey(MediaFormat.KEY_ROTATION)
+                    ? format.getInteger(MediaFormat.KEY_ROTATION) : 0;
+
+            File indexFile = indexFile(path, key[0], key[1]);
+            FrameIndex index = loadIndex(indexFile, key[0], key[1]);
+            if (index == null) {
+                long start = System.currentTimeMillis();
+                index = scan(extractor, key[0], key[1]);
+                saveIndex(indexFile, index);
+                LogUtil.log("【CS】帧索引建立: " + index.getFrameCount() + " 帧 / " + index.getSyncCount()
+                        + " 关键帧, " + (System.currentTimeMillis() - start) + "ms -> " + indexFile);
+            }
+
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                    MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+            decoder = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            decoder.configure(format, null, null, 0);
+            decoder.start();
+            return new FrameFetcher(path, pfd, extractor, decoder, index, rotation);
+        } catch (IOException | RuntimeException e) {
+            if (decoder != null) {
+                decoder.release();
+            }
+            extractor.release();
+            if (pfd != null) {
+                try {
+                    pfd.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 取 timeUs 时刻正在显示的那一帧，带视频自身旋转，居中裁剪并缩放到 targetW x targetH（≤ 0 表示原尺寸）。
+     *
+     * @return 解码超时或到达文件末尾仍未得到目标帧时返回 null
+     */
+    Bitmap fetch(long timeUs, int targetW, int targetH) {
+        long frameUs = index.frameTimeAt(timeUs);
+        if (frameUs < 0) {
+            return null;
+        }
+        if (frameUs == lastOutputUs) {
+            // 同一帧的平面仍暂存在 planes 中
+            return render(targetW, targetH);
+        }
+        long syncUs = index.syncTimeFor(frameUs);
+        if (syncUs != gopSyncUs || frameUs < lastOutputUs) {
+            decoder.flush();
+            extractor.seekTo(syncUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            inputDone = false;
+            gopSyncUs = syncUs;
+            lastOutputUs = -1;
+            seeks++;
+        }
+        long deadline = System.currentTimeMillis() + FETCH_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!inputDone) {
+                feedInput();
+            }
+            int out = decoder.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_US);
+            if (out < 0) {
+                continue;
+            }
+            boolean eos = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            if (info.size > 0) {
+                decodedFrames++;
+                lastOutputUs = info.presentationTimeUs;
+                if (info.presentationTimeUs >= frameUs) {
+                    Image image = decoder.getOutputImage(out);
+                    if (image != null) {
+                        try {
+                            planes.copyFrom(image);
+                        } finally {
+                            image.close();
+                        }
+                    }
+                    decoder.releaseOutputBuffer(out, false);
+                    return image != null ? render(targetW, targetH) : null;
+                }
+            }
+            decoder.releaseOutputBuffer(out, false);
+            if (eos) {
+                break;
+            }
+        }
+        // 超时或提前结束：下次从关键帧重新开始
+        gopSyncUs = -1;
+        lastOutputUs = -1;
+        return null;
+    }
+
+    private void feedInput() {
+        int in = decoder.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+        if (in < 0) {
+            return;
+        }
+        ByteBuffer buffer = decoder.getInputBuffer(in);
+        int size = buffer != null ? extractor.readSampleData(buffer, 0) : -1;
+        if (size < 0) {
+            decoder.queueInputBuffer(in, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            inputDone = true;
+        } else {
+            decoder.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+            extractor.advance();
+        }
+    }
+
+    private Bitmap render(int targetW, int targetH) {
+        transform.configure(planes, rotation, targetW, targetH);
+        int w = transform.getOutputWidth();
+        int h = transform.getOutputHeight();
+        if (nv21 == null || nv21.length != transform.getOutputSize()) {
+            nv21 = new byte[transform.getOutputSize()];
+        }
+        if (argb == null || argb.length != w * h) {
+            argb = new int[w * h];
+        }
+        transform.apply(planes, nv21);
+        YuvToRgb.nv21ToArgb(nv21, w, h, argb);
+        return Bitmap.createBitmap(argb, w, h, Bitmap.Config.ARGB_8888);
+    }
+
+    FrameIndex getIndex() {
+        return index;
+    }
+
+    /** 累计解码（含丢弃）的帧数 */
+    long getDecodedFrameCount() {
+        return decodedFrames;
+    }
+
+    long getSeekCount() {
+        return seeks;
+    }
+
+    void release() {
+        try {
+            decoder.stop();
+        } catch (IllegalStateException ignored) {
+        }
+        decoder.release();
+        extractor.release();
+        if (pfd != null) {
+            try {
+                pfd.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // 当前视频的共享实例
+
+    /**
+     * 取当前本地视频 timeUs 时刻的帧；视频切换后自动重新打开。流模式或打开失败时返回 null。
+     */
+    static synchronized Bitmap fetchCurrent(long timeUs, int targetW, int targetH) {
+        if (VideoManager.isStreamMode()) {
+            return null;
+        }
+        try {
+            String path = VideoManager.getCurrentVideoPath();
+            ParcelFileDescriptor pfd = path == null ? VideoManager.getVideoPFD() : null;
+            if (path == null && pfd == null) {
+                return null;
+            }
+            if (shared != null && shared.isSameVideo(path, pfd)) {
+                if (pfd != null) {
+                    pfd.close();
+                }
+            } else {
+                releaseShared();
+                shared = open(path, pfd);
+            }
+            return shared.fetch(timeUs, targetW, targetH);
+        } catch (Exception e) {
+            LogUtil.log("【CS】按索引取帧失败: " + e);
+            releaseShared();
+            return null;
+        }
+    }
+
+    static synchronized void releaseShared() {
+        if (shared != null) {
+            shared.release();
+            shared = null;
+        }
+    }
+
+    private boolean isSameVideo(String path, ParcelFileDescriptor other) throws IOException {
+        if (path != null ? !path.equals(this.path) : this.path != null) {
+            return false;
+        }
+        long[] key = fileKey(path, other != null ? other.getFileDescriptor() : null);
+        return index.matches(key[0], key[1]);
+    }
+
+    // -----------------------------------------------------------------------
+    // 索引的建立与持久化
+
+    /** (文件大小, 修改时间毫秒) */
+    private static long[] fileKey(String path, FileDescriptor fd) throws IOException {
+        if (fd != null) {
+            try {
+                StructStat st = Os.fstat(fd);
+                return new long[] { st.st_size, st.st_mtime * 1000L };
+            } catch (Exception e) {
+                throw new IOException("fstat failed", e);
+            }
+        }
+        File file = new File(path);
+        return new long[] { file.length(), file.lastModified() };
+    }
+
+    /** 解复用扫描一遍（不解码）记录每个样本的时间戳与关键帧标记，结束后回到开头 */
+    private static FrameIndex scan(MediaExtractor extractor, long fileSize, long modifiedMs) {
+        FrameIndex.Builder builder = new FrameIndex.Builder();
+        extractor.seekTo(0, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+        long time;
+        while ((time = extractor.getSampleTime()) >= 0) {
+            builder.add(time, (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0);
+            if (!extractor.advance()) {
+                break;
+            }
+        }
+        extractor.seekTo(0, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+        return builder.build(fileSize, modifiedMs);
+    }
+
+    private static File indexFile(String path, long fileSize, long modifiedMs) {
+        if (path != null) {
+            File sidecar = new File(path + INDEX_SUFFIX);
+            File dir = sidecar.getParentFile();
+            if (sidecar.canWrite() || (!sidecar.exists() && dir != null && dir.canWrite())) {
+                return sidecar;
+            }
+        }
+        File cacheDir = VideoManager.getCacheDir();
+        return cacheDir != null ? new File(cacheDir, "frames_" + fileSize + "_" + modifiedMs + INDEX_SUFFIX) : null;
+    }
+
+    private static FrameIndex loadIndex(File file, long fileSize, long modifiedMs) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return FrameIndex.read(in, fileSize, modifiedMs);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** 先写临时文件再改名，读者不会看到写了一半的索引 */
+    private static void saveIndex(File file, FrameIndex index) {
+        if (file == null) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            index.write(out);
+        } catch (IOException e) {
+            LogUtil.log("【CS】帧索引保存失败: " + e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private static int selectVideoTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("video/")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.zensu357.camswap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 视频轨道的样本索引：每个样本的显示时间戳与同步样本（关键帧）位置。
+ * <p>
+ * 每个视频只需解复用扫描一遍（不解码）即可建立，按 (文件大小, 修改时间) 作为键持久化；
+ * 取帧时据此直接 seek 到目标帧之前最近的关键帧，并知道目标帧的精确 PTS，
+ * 解码到该帧即停，不必像 OPTION_CLOSEST 那样每次重新探测。
+ */
+final class FrameIndex {
+
+    private static final int MAGIC = 0x43534649; // "CSFI"
+    static final int VERSION = 1;
+
+    final long fileSize;
+    final long modifiedMs;
+    /** 显示顺序（升序）的全部样本时间戳 */
+    private final long[] ptsUs;
+    /** 关键帧的显示时间戳，升序 */
+    private final long[] syncPtsUs;
+
+    private FrameIndex(long fileSize, long modifiedMs, long[] ptsUs, long[] syncPtsUs) {
+        this.fileSize = fileSize;
+        this.modifiedMs = modifiedMs;
+        this.ptsUs = ptsUs;
+        this.syncPtsUs = syncPtsUs;
+    }
+
+    /** 按解码顺序逐个加入样本；B 帧导致的乱序在 build 时整理 */
+    static final class Builder {
+        private long[] pts = new long[256];
+        private long[] sync = new long[16];
+        private int count;
+        private int syncCount;
+
+        Builder add(long sampleTimeUs, boolean isSync) {
+            if (count == pts.length) {
+                pts = Arrays.copyOf(pts, count * 2);
+            }
+            pts[count++] = sampleTimeUs;
+            if (isSync) {
+                if (syncCount == sync.length) {
+                    sync = Arrays.copyOf(sync, syncCount * 2);
+                }
+                sync[syncCount++] = sampleTimeUs;
+            }
+            return this;
+        }
+
+        FrameIndex build(long fileSize, long modifiedMs) {
+            long[] sortedPts = Arrays.copyOf(pts, count);
+            long[] sortedSync = Arrays.copyOf(sync, syncCount);
+            Arrays.sort(sortedPts);
+            Arrays.sort(sortedSync);
+            return new FrameIndex(fileSize, modifiedMs, sortedPts, sortedSync);
+        }
+    }
+
+    int getFrameCount() {
+        return ptsUs.length;
+    }
+
+    int getSyncCount() {
+        return syncPtsUs.length;
+    }
+
+    boolean matches(long fileSize, long modifiedMs) {
+        return this.fileSize == fileSize && this.modifiedMs == modifiedMs;
+    }
+
+    /** 时刻 timeUs 正在显示的帧的 PTS：不晚于 timeUs 的最后一帧；早于首帧时取首帧。无样本时返回 -1 */
+    long frameTimeAt(long timeUs) {
+        if (ptsUs.length == 0) {
+            return -1;
+        }
+        return ptsUs[floorIndex(ptsUs, timeUs)];
+    }
+
+    /** 解码 frameUs 这一帧需要从哪个关键帧开始：PTS 不晚于它的最后一个关键帧。无关键帧时返回 -1 */
+    long syncTimeFor(long frameUs) {
+        if (syncPtsUs.length == 0) {
+            return -1;
+        }
+        return syncPtsUs[floorIndex(syncPtsUs, frameUs)];
+    }
+
+    /** 从 syncTimeFor(frameUs) 开始解码，到 frameUs 为止会输出的帧数（含两端） */
+    int framesToDecode(long frameUs) {
+        long sync = syncTimeFor(frameUs);
+        if (sync < 0) {
+            return 0;
+        }
+        return floorIndex(ptsUs, frameUs) - floorIndex(ptsUs, sync) + 1;
+    }
+
+    /** 最后一个不大于 key 的位置；key 小于首元素时返回 0 */
+    private static int floorIndex(long[] sorted, long key) {
+        int i = Arrays.binarySearch(sorted, key);
+        if (i >= 0) {
+            // 相同时间戳取最后一个
+            while (i + 1 < sorted.length && sorted[i + 1] == key) {
+                i++;
+            }
+            return i;
+        }
+        return Math.max(0, -i - 2);
+    }
+
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(fileSize);
+        data.writeLong(modifiedMs);
+        writeDeltas(data, ptsUs);
+        writeDeltas(data, syncPtsUs);
+        data.flush();
+    }
+
+    /**
+     * 读取持久化的索引。
+     *
+     * @return 格式不符、版本不同或键与 (fileSize, modifiedMs) 不匹配时返回 null
+     */
+    static FrameIndex read(InputStream in, long fileSize, long modifiedMs) {
+        try {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+                return null;
+            }
+            long size = data.readLong();
+            long modified = data.readLong();
+            if (size != fileSize || modified != modifiedMs) {
+                return null;
+            }
+            long[] pts = readDeltas(data);
+            long[] sync = readDeltas(data);
+            if (pts == null || sync == null) {
+                return null;
+            }
+            return new FrameIndex(size, modified, pts, sync);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // 升序时间戳存差值，常见帧率下每个样本只占 4 字节
+    private static void writeDeltas(DataOutputStream data, long[] values) throws IOException {
+        data.writeInt(values.length);
+        long prev = 0;
+        for (long v : values) {
+            data.writeInt((int) (v - prev));
+            prev = v;
+        }
+    }
+
+    private static long[] readDeltas(DataInputStream data) throws IOException {
+        int n = data.readInt();
+        if (n < 0 || n > 10_000_000) {
+            return null;
+        }
+        long[] values = new long[n];
+        long prev = 0;
+        for (int i = 0; i < n; i++) {
+            prev += data.readInt();
+            values[i] = prev;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,246 @@
+package io.github.zensu357.camswap;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.zensu357.camswap.utils.LogUtil;
+
+/**
+ * 解码与投递解耦：解码线程把已转换好的帧放进定长环，独立的调度线程按 PTS 在
+ * {@link Clock}（默认 {@link System#nanoTime()}）上释放帧。
+ * <p>
+ * 帧对象与其 buffer 预先分配并循环使用。调度线程投递时若帧已迟到且队列中下一帧也已到期，
+ * 则丢弃当前帧；迟到超过 {@link #RESYNC_NS} 时视为时钟不连续（卡顿、循环播放），直接重新对齐。
+ */
+final class FrameScheduler {
+
+    /** 解码领先的帧数 */
+    static final int DEFAULT_DEPTH = 4;
+    /** 晚于到期时间超过该值计为迟到 */
+    static final long LATE_THRESHOLD_NS = 10_000_000L;
+    /** 晚于到期时间超过该值不再追赶，以当前帧重新对齐时钟 */
+    static final long RESYNC_NS = 500_000_000L;
+    private static final long POLL_MS = 100L;
+
+    interface Sink {
+        void onFrame(Frame frame);
+    }
+
+    /** 调度用的时钟；测试注入虚拟时钟以得到确定的投递时刻 */
+    interface Clock {
+        long nanoTime();
+
+        void sleepNanos(long nanos) throws InterruptedException;
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleepNanos(long nanos) throws InterruptedException {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    };
+
+    /** 环中的一帧；data 长度可能大于 size */
+    static final class Frame {
+        byte[] data;
+        int size;
+        int width;
+        int height;
+        long ptsUs;
+
+        /** 保证 data 至少 size 字节并记录本帧大小 */
+        byte[] ensureCapacity(int size) {
+            if (data == null || data.length < size) {
+                data = new byte[size];
+            }
+            this.size = size;
+            return data;
+        }
+    }
+
+    private final ArrayBlockingQueue<Frame> free;
+    private final ArrayBlockingQueue<Frame> ready;
+    private final Sink sink;
+    private final String name;
+    private final Clock clock;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread thread;
+    // 以下仅调度线程访问
+    private boolean aligned;
+    private long baseNs;
+    private long lastPtsUs = Long.MIN_VALUE;
+
+    FrameScheduler(int depth, Sink sink, String name) {
+        this(depth, sink, name, SYSTEM_CLOCK);
+    }
+
+    FrameScheduler(int depth, Sink sink, String name, Clock clock) {
+        this.free = new ArrayBlockingQueue<>(depth);
+        this.ready = new ArrayBlockingQueue<>(depth);
+        this.sink = sink;
+        this.name = name;
+        this.clock = clock;
+        for (int i = 0; i < depth; i++) {
+            free.add(new Frame());
+        }
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        startManual();
+        thread = new Thread(this::loop, name);
+        thread.start();
+    }
+
+    /** 只进入运行状态、不启动调度线程，由调用方用 {@link #pump(long)} 逐帧驱动（测试用） */
+    synchronized void startManual() {
+        running = true;
+        aligned = false;
+        lastPtsUs = Long.MIN_VALUE;
+    }
+
+    /** 停止调度线程，未投递的帧回到空闲环 */
+    synchronized void stop() {
+        running = false;
+        Thread t = thread;
+        thread = null;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Frame frame;
+        while ((frame = ready.poll()) != null) {
+            free.offer(frame);
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 解码线程：取一个空闲帧，环满时阻塞等待调度线程消费。
+     *
+     * @return 空闲帧；调度器已停止时返回 null
+     */
+    Frame obtain() throws InterruptedException {
+        while (running) {
+            Frame frame = free.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            if (frame != null) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    /** 解码线程：把填好的帧交给调度线程 */
+    void queue(Frame frame) {
+        if (!running || !ready.offer(frame)) {
+            free.offer(frame);
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                pump(POLL_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 调度一帧：等待最多 timeoutMs 取下一帧，到期后投递或按迟到规则丢弃，帧随后回到空闲环。
+     *
+     * @return 是否取到了帧
+     */
+    boolean pump(long timeoutMs) throws InterruptedException {
+        Frame frame = ready.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (frame == null) {
+            return false;
+        }
+        try {
+            if (!waitUntilDue(frame)) {
+                dropped.incrementAndGet();
+                return true;
+            }
+            sink.onFrame(frame);
+            delivered.incrementAndGet();
+        } catch (RuntimeException e) {
+            LogUtil.log("【CS】【decoder】帧投递异常: " + e);
+        } finally {
+            free.offer(frame);
+        }
+        return true;
+    }
+
+    /**
+     * 等到帧的到期时间。
+     *
+     * @return false 表示该帧已迟到且下一帧也已到期，应丢弃
+     */
+    private boolean waitUntilDue(Frame frame) throws InterruptedException {
+        long now = clock.nanoTime();
+        // 首帧、PTS 回退（循环播放）时以当前时刻重新对齐
+        if (!aligned || frame.ptsUs < lastPtsUs) {
+            baseNs = now - frame.ptsUs * 1000L;
+            aligned = true;
+        }
+        lastPtsUs = frame.ptsUs;
+        long due = baseNs + frame.ptsUs * 1000L;
+        long wait = due - now;
+        if (wait > 0) {
+            clock.sleepNanos(wait);
+            return true;
+        }
+        long lateness = -wait;
+        if (lateness > RESYNC_NS) {
+            baseNs = now - frame.ptsUs * 1000L;
+            return true;
+        }
+        Frame next = ready.peek();
+        if (next != null && next.ptsUs >= frame.ptsUs && baseNs + next.ptsUs * 1000L <= now) {
+            return false;
+        }
+        if (lateness > LATE_THRESHOLD_NS) {
+            late.incrementAndGet();
+        }
+        return true;
+    }
+
+    long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /** 因迟到被跳过的帧数 */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** 投递时已晚于到期时间 {@link #LATE_THRESHOLD_NS} 以上的帧数 */
+    long getLateCount() {
+        return late.get();
+    }
+
+    @Override
+    public String toString() {
+        return "delivered=" + delivered.get() + " dropped=" + dropped.get() + " late=" + late.get();
+    }
+}
@@ -33,6 +33,14 @@ public final class GLHelper {
             "    gl_FragColor = texture2D(sTexture, vTextureCoord);\n" +
             "}\n";
 
+    /** 普通 2D 纹理（扇出输出的中转纹理）用的片元着色器，配合 {@link #VERTEX_SHADER} */
+    public static final String FRAGMENT_SHADER_2D = "precision mediump float;\n" +
+            "varying vec2 vTextureCoord;\n" +
+            "uniform sampler2D sTexture;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = texture2D(sTexture, vTextureCoord);\n" +
+            "}\n";
+
     // ---- Shared Geometry ----
 
     public static final float[] VERTICES = {
@@ -71,6 +79,28 @@ public final class GLHelper {
         return shader;
     }
 
+    /**
+     * Link a program from the two shader sources.
+     *
+     * @throws RuntimeException if compilation or linking fails
+     */
+    public static int createProgram(String vertexSource, String fragmentSource) {
+        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        int[] linkStatus = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != GLES20.GL_TRUE) {
+            String error = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new RuntimeException("Program link failed: " + error);
+        }
+        return program;
+    }
+
     /**
      * Create a direct FloatBuffer from a float array.
      */
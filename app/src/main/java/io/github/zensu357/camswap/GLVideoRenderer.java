@@ -18,8 +18,10 @@ import io.github.zensu357.camswap.utils.LogUtil;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import android.graphics.Bitmap;
 
 /**
@@ -31,7 +33,11 @@ import android.graphics.Bitmap;
  * 1. new GLVideoRenderer(targetSurface, tag)
  * 2. mediaPlayer.setSurface(renderer.getInputSurface())
  * 3. renderer.setRotation(90) // 实时调整
- * 4. renderer.release() // 释放资源
+ * 4. renderer.addOutput(otherSurface, tag) // 可选：同一路解码再输出到其他 Surface
+ * 5. renderer.release() // 释放资源
+ *
+ * 附加输出的 eglSwapBuffers 在各自线程上执行：某个消费端（如不及时 close Image 的 ImageReader）
+ * 卡住时只会让该输出丢帧，不会阻塞主目标和其他输出。
  */
 public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener {
     private static final String TAG = "GLVideoRenderer";
@@ -40,6 +46,10 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
     private EGLDisplay mEGLDisplay = EGL14.EGL_NO_DISPLAY;
     private EGLContext mEGLContext = EGL14.EGL_NO_CONTEXT;
     private EGLSurface mEGLSurface = EGL14.EGL_NO_SURFACE;
+    private EGLConfig mEGLConfig;
+
+    // 附加输出：与主目标共用同一个解码输入纹理，每帧 updateTexImage 一次后画进各输出的中转纹理
+    private final CopyOnWriteArrayList<Output> mOutputs = new CopyOnWriteArrayList<>();
 
     // GL
     private int mProgram;
@@ -132,6 +142,17 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
         return mInputSurface;
     }
 
+    /**
+     * 设置输入 SurfaceTexture 的缓冲尺寸。
+     * 用 Canvas 等 CPU 生产者写入输入 Surface 时必须先设置，否则缓冲默认为 1x1。
+     */
+    public void setInputBufferSize(int width, int height) {
+        SurfaceTexture texture = mInputSurfaceTexture;
+        if (texture != null && width > 0 && height > 0) {
+            texture.setDefaultBufferSize(width, height);
+        }
+    }
+
     public int getSurfaceWidth() {
         return mSurfaceWidth;
     }
@@ -151,6 +172,236 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
         return mRotationDegrees;
     }
 
+    /**
+     * 附加输出目标：尺寸取自目标 Surface，旋转独立于主目标。
+     * <p>
+     * 主 GL 线程把画面画进本输出的中转纹理（FBO），再交给本输出自己的线程用共享上下文画到目标并 swap。
+     * 上一帧还没 swap 完（消费端未归还 buffer）时主线程跳过本输出，计入丢帧。
+     */
+    public static final class Output {
+        final Surface target;
+        final String tag;
+        // 输出线程独占：共享上下文、窗口 surface 与 2D 纹理程序
+        private HandlerThread thread;
+        private Handler handler;
+        private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+        private EGLContext eglContext = EGL14.EGL_NO_CONTEXT;
+        private EGLSurface eglSurface = EGL14.EGL_NO_SURFACE;
+        private int program;
+        private int aPosition;
+        private int aTextureCoord;
+        private int uSTMatrix;
+        private int uRotMatrix;
+        private FloatBuffer vertexBuffer;
+        private FloatBuffer texCoordBuffer;
+        private final float[] identity = new float[16];
+        // 中转纹理（共享对象）与主上下文里的 FBO；presenting 为 false 时才由主线程改写
+        int texture;
+        int framebuffer;
+        int textureWidth;
+        int textureHeight;
+        final AtomicBoolean presenting = new AtomicBoolean();
+        // 本帧已画好、等 glFinish 后交给输出线程（仅主 GL 线程使用）
+        boolean queued;
+        volatile boolean lost;
+        private volatile long dropped;
+        private volatile int rotationDegrees;
+        private volatile int width;
+        private volatile int height;
+
+        Output(Surface target, String tag) {
+            this.target = target;
+            this.tag = tag;
+            Matrix.setIdentityM(identity, 0);
+        }
+
+        public void setRotation(int degrees) {
+            rotationDegrees = ((degrees % 360) + 360) % 360;
+        }
+
+        public Surface getTarget() {
+            return target;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /** 因上一帧尚未交付而跳过的帧数 */
+        public long getDroppedFrames() {
+            return dropped;
+        }
+
+        /** 输出线程：建立与 shareContext 共享的上下文和目标窗口 surface */
+        private boolean init(EGLDisplay display, EGLConfig config, EGLContext shareContext) {
+            this.display = display;
+            eglContext = EGL14.eglCreateContext(display, config, shareContext,
+                    new int[] { EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE }, 0);
+            if (eglContext == EGL14.EGL_NO_CONTEXT) {
+                return false;
+            }
+            eglSurface = EGL14.eglCreateWindowSurface(display, config, target, new int[] { EGL14.EGL_NONE }, 0);
+            if (eglSurface == EGL14.EGL_NO_SURFACE
+                    || !EGL14.eglMakeCurrent(display, eglSurface, eglSurface, eglContext)) {
+                return false;
+            }
+            program = GLHelper.createProgram(GLHelper.VERTEX_SHADER, GLHelper.FRAGMENT_SHADER_2D);
+            aPosition = GLES20.glGetAttribLocation(program, "aPosition");
+            aTextureCoord = GLES20.glGetAttribLocation(program, "aTextureCoord");
+            uSTMatrix = GLES20.glGetUniformLocation(program, "uSTMatrix");
+            uRotMatrix = GLES20.glGetUniformLocation(program, "uRotMatrix");
+            vertexBuffer = GLHelper.createFloatBuffer(GLHelper.VERTICES);
+            texCoordBuffer = GLHelper.createFloatBuffer(GLHelper.TEX_COORDS);
+            querySize();
+            return true;
+        }
+
+        /** 输出线程：把中转纹理画到目标并 swap；swap 可能因消费端未归还 buffer 而阻塞，只阻塞本线程 */
+        private void present() {
+            try {
+                if (lost || !EGL14.eglMakeCurrent(display, eglSurface, eglSurface, eglContext)) {
+                    lost = true;
+                    return;
+                }
+                GLES20.glViewport(0, 0, textureWidth, textureHeight);
+                GLES20.glUseProgram(program);
+                GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+                GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+                GLES20.glUniformMatrix4fv(uSTMatrix, 1, false, identity, 0);
+                GLES20.glUniformMatrix4fv(uRotMatrix, 1, false, identity, 0);
+                vertexBuffer.position(0);
+                GLES20.glEnableVertexAttribArray(aPosition);
+                GLES20.glVertexAttribPointer(aPosition, 2, GLES20.GL_FLOAT, false, 0, vertexBuffer);
+                texCoordBuffer.position(0);
+                GLES20.glEnableVertexAttribArray(aTextureCoord);
+                GLES20.glVertexAttribPointer(aTextureCoord, 2, GLES20.GL_FLOAT, false, 0, texCoordBuffer);
+                GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+                if (!EGL14.eglSwapBuffers(display, eglSurface)) {
+                    int err = EGL14.eglGetError();
+                    if (err == EGL14.EGL_BAD_SURFACE || err == EGL14.EGL_BAD_NATIVE_WINDOW) {
+                        lost = true;
+                    }
+                }
+                querySize();
+            } catch (Exception e) {
+                LogUtil.log("【CS】【GL】附加输出 " + tag + " 绘制异常: " + e);
+                lost = true;
+            } finally {
+                presenting.set(false);
+            }
+        }
+
+        private void querySize() {
+            int[] value = new int[1];
+            EGL14.eglQuerySurface(display, eglSurface, EGL14.EGL_WIDTH, value, 0);
+            width = value[0];
+            EGL14.eglQuerySurface(display, eglSurface, EGL14.EGL_HEIGHT, value, 0);
+            height = value[0];
+        }
+
+        /** 输出线程：销毁本输出的 GL/EGL 资源（中转纹理是共享对象，也在这里删除） */
+        private void destroy() {
+            if (eglContext != EGL14.EGL_NO_CONTEXT && eglSurface != EGL14.EGL_NO_SURFACE) {
+                EGL14.eglMakeCurrent(display, eglSurface, eglSurface, eglContext);
+            }
+            if (program != 0) {
+                GLES20.glDeleteProgram(program);
+                program = 0;
+            }
+            if (texture != 0) {
+                GLES20.glDeleteTextures(1, new int[] { texture }, 0);
+                texture = 0;
+            }
+            EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+            if (eglSurface != EGL14.EGL_NO_SURFACE) {
+                EGL14.eglDestroySurface(display, eglSurface);
+                eglSurface = EGL14.EGL_NO_SURFACE;
+            }
+            if (eglContext != EGL14.EGL_NO_CONTEXT) {
+                EGL14.eglDestroyContext(display, eglContext);
+                eglContext = EGL14.EGL_NO_CONTEXT;
+            }
+        }
+
+        /**
+         * 在输出线程上销毁资源并退出线程。
+         *
+         * @param waitMs 等待线程退出的时间；消费端卡住时线程可能停在 swap 里，不无限等待
+         */
+        private void shutdown(long waitMs) {
+            HandlerThread t = thread;
+            if (t == null) {
+                return;
+            }
+            thread = null;
+            handler.post(this::destroy);
+            t.quitSafely();
+            if (waitMs > 0) {
+                try {
+                    t.join(waitMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 把同一路解码画面额外输出到 target，不再需要为它单独解码。
+     *
+     * @return 输出句柄；目标无效或 EGL surface 创建失败时返回 null
+     */
+    public Output addOutput(Surface target, String tag) {
+        if (!isInitialized() || target == null || !target.isValid()) {
+            return null;
+        }
+        final Output output = new Output(target, tag);
+        output.thread = new HandlerThread("GLOutput-" + mTag + "-" + tag);
+        output.thread.start();
+        output.handler = new Handler(output.thread.getLooper());
+        final boolean[] ok = { false };
+        CountDownLatch latch = new CountDownLatch(1);
+        output.handler.post(() -> {
+            try {
+                ok[0] = output.init(mEGLDisplay, mEGLConfig, mEGLContext);
+                if (!ok[0]) {
+                    LogUtil.log("【CS】【GL】" + mTag + " 附加输出 " + tag + " 创建失败, err=" + EGL14.eglGetError());
+                }
+            } catch (Exception e) {
+                LogUtil.log("【CS】【GL】" + mTag + " 附加输出 " + tag + " 异常: " + e);
+            }
+            latch.countDown();
+        });
+        try {
+            latch.await(2000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ok[0] && !mReleased) {
+            mOutputs.add(output);
+            LogUtil.log("【CS】【GL】" + mTag + " 附加输出 " + tag + "（共 " + (mOutputs.size() + 1) + " 路）");
+            return output;
+        }
+        output.shutdown(0);
+        return null;
+    }
+
+    /** 移除附加输出并销毁其 EGL surface */
+    public void removeOutput(Output output) {
+        if (output == null || mReleased || mGLHandler == null) {
+            return;
+        }
+        mGLHandler.post(() -> removeOutputInternal(output));
+    }
+
+    public int getOutputCount() {
+        return mOutputs.size();
+    }
+
     @Override
     public void onFrameAvailable(SurfaceTexture surfaceTexture) {
         if (mReleased || !mInitialized)
@@ -174,6 +425,21 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
                 LogUtil.log("【CS】【GL】" + mTag + " eglSwapBuffers 失败, err=" + err);
                 if (err == EGL14.EGL_BAD_SURFACE || err == EGL14.EGL_BAD_NATIVE_WINDOW) {
                     mReleased = true;
+                    return;
+                }
+            }
+            boolean rendered = false;
+            for (Output output : mOutputs) {
+                rendered |= renderOutput(output);
+            }
+            if (rendered) {
+                // 中转纹理要在输出线程的上下文里读取：先等主上下文画完
+                GLES20.glFinish();
+                for (Output output : mOutputs) {
+                    if (output.queued) {
+                        output.queued = false;
+                        output.handler.post(output::present);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -181,6 +447,94 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
         }
     }
 
+    /**
+     * 把已经 latch 的纹理画进附加输出的中转纹理；目标失效时移除该输出。
+     *
+     * @return 是否画了新的一帧、需要交给输出线程
+     */
+    private boolean renderOutput(Output output) {
+        if (output.lost || !output.target.isValid()) {
+            LogUtil.log("【CS】【GL】" + mTag + " 附加输出 " + output.tag + " 已失效，移除");
+            removeOutputInternal(output);
+            return false;
+        }
+        if (output.presenting.get()) {
+            // 上一帧还卡在输出线程的 swap 里（消费端未归还 buffer），本帧跳过这一路
+            output.dropped++;
+            return false;
+        }
+        int width = output.getWidth();
+        int height = output.getHeight();
+        if (width <= 0 || height <= 0 || !ensureOutputTexture(output, width, height)) {
+            return false;
+        }
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, output.framebuffer);
+        drawTexture(width, height, output.rotationDegrees);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        output.presenting.set(true);
+        output.queued = true;
+        return true;
+    }
+
+    /** 按输出尺寸（重新）分配中转纹理并挂到 FBO */
+    private boolean ensureOutputTexture(Output output, int width, int height) {
+        if (output.texture == 0) {
+            int[] ids = new int[1];
+            GLES20.glGenTextures(1, ids, 0);
+            output.texture = ids[0];
+            GLES20.glGenFramebuffers(1, ids, 0);
+            output.framebuffer = ids[0];
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, output.texture);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        }
+        if (output.textureWidth == width && output.textureHeight == height) {
+            return true;
+        }
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, output.texture);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, output.framebuffer);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, output.texture, 0);
+        int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            LogUtil.log("【CS】【GL】" + mTag + " 附加输出 " + output.tag + " FBO 不完整: " + status);
+            output.textureWidth = 0;
+            output.textureHeight = 0;
+            return false;
+        }
+        output.textureWidth = width;
+        output.textureHeight = height;
+        return true;
+    }
+
+    private void removeOutputInternal(Output output) {
+        removeOutputInternal(output, 0);
+    }
+
+    /** 主 GL 线程：删掉输出在主上下文中的 FBO，其余资源交给输出线程销毁 */
+    private void removeOutputInternal(Output output, long waitMs) {
+        mOutputs.remove(output);
+        if (output.framebuffer != 0) {
+            EGL14.eglMakeCurrent(mEGLDisplay, mEGLSurface, mEGLSurface, mEGLContext);
+            GLES20.glDeleteFramebuffers(1, new int[] { output.framebuffer }, 0);
+            output.framebuffer = 0;
+        }
+        output.shutdown(waitMs);
+    }
+
+    private int[] querySurfaceSize(EGLSurface surface) {
+        int[] width = new int[1];
+        int[] height = new int[1];
+        EGL14.eglQuerySurface(mEGLDisplay, surface, EGL14.EGL_WIDTH, width, 0);
+        EGL14.eglQuerySurface(mEGLDisplay, surface, EGL14.EGL_HEIGHT, height, 0);
+        return new int[] { width[0], height[0] };
+    }
+
     /**
      * 渲染一帧到后缓冲（不调用 eglSwapBuffers）。
      * drawFrame() 和 captureFrameRaw() 共用此方法。
@@ -193,28 +547,29 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
         mInputSurfaceTexture.updateTexImage();
         mInputSurfaceTexture.getTransformMatrix(mSTMatrix);
 
+        // Query surface dimensions for viewport
+        int[] size = querySurfaceSize(mEGLSurface);
+        if (size[0] > 0) {
+            mSurfaceWidth = size[0];
+        }
+        if (size[1] > 0) {
+            mSurfaceHeight = size[1];
+        }
+        drawTexture(size[0], size[1], mRotationDegrees);
+    }
+
+    /** 以给定旋转把当前纹理画满当前 EGL surface */
+    private void drawTexture(int width, int height, int rotationDegrees) {
         // Update rotation matrix
-        if (mRotationDegrees == 0) {
+        if (rotationDegrees == 0) {
             Matrix.setIdentityM(mRotMatrix, 0);
         } else {
-            Matrix.setRotateM(mRotMatrix, 0, -mRotationDegrees, 0, 0, 1.0f);
-        }
-
-        // Query surface dimensions for viewport
-        int[] width = new int[1];
-        int[] height = new int[1];
-        EGL14.eglQuerySurface(mEGLDisplay, mEGLSurface, EGL14.EGL_WIDTH, width, 0);
-        EGL14.eglQuerySurface(mEGLDisplay, mEGLSurface, EGL14.EGL_HEIGHT, height, 0);
-        if (width[0] > 0) {
-            mSurfaceWidth = width[0];
-        }
-        if (height[0] > 0) {
-            mSurfaceHeight = height[0];
+            Matrix.setRotateM(mRotMatrix, 0, -rotationDegrees, 0, 0, 1.0f);
         }
 
         // Set viewport to the EGL surface's actual dimensions
-        if (width[0] > 0 && height[0] > 0) {
-            GLES20.glViewport(0, 0, width[0], height[0]);
+        if (width > 0 && height > 0) {
+            GLES20.glViewport(0, 0, width, height);
         }
 
         GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
@@ -338,6 +693,7 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
                 EGL14.EGL_CONTEXT_CLIENT_VERSION, 2,
                 EGL14.EGL_NONE
         };
+        mEGLConfig = configs[0];
         mEGLContext = EGL14.eglCreateContext(mEGLDisplay, configs[0], EGL14.EGL_NO_CONTEXT, contextAttribs, 0);
         if (mEGLContext == EGL14.EGL_NO_CONTEXT) {
             throw new RuntimeException("eglCreateContext failed");
@@ -448,6 +804,10 @@ public class GLVideoRenderer implements SurfaceTexture.OnFrameAvailableListener
     }
 
     private void releaseInternal() {
+        for (Output output : mOutputs) {
+            // 共享上下文要在 eglTerminate 之前销毁；输出线程卡在 swap 里时不无限等待
+            removeOutputInternal(output, 200);
+        }
         if (mInputSurface != null) {
             mInputSurface.release();
             mInputSurface = null;
@@ -28,8 +28,8 @@ public final class HookGuards {
         if (VideoManager.getConfig().getBoolean(ConfigManager.KEY_DISABLE_MODULE, false)) {
             return true;
         }
-        // Stream mode: delegate to MediaSourceDescriptor-based check
-        if (VideoManager.isStreamMode()) {
+        // Stream / still-image mode: delegate to MediaSourceDescriptor-based check
+        if (VideoManager.isStreamMode() || VideoManager.isStillMode()) {
             return shouldBypass(packageName, VideoManager.getCurrentMediaSource());
         }
         return shouldBypassMissingVideo(packageName, videoFile);
@@ -47,6 +47,14 @@ public final class HookGuards {
             logMissingMediaSource(packageName);
             return true;
         }
+        // Still-image mode: the picture is readable directly or through the provider
+        if (source.isStill()) {
+            if (source.useProviderPfd || new File(source.localPath).exists()) {
+                return false;
+            }
+            logMissingVideo(packageName, new File(source.localPath));
+            return true;
+        }
         // Local mode: check file existence
         if (!source.isStream()) {
             return shouldBypassMissingVideo(packageName, source.localPath != null ? new File(source.localPath) : null);
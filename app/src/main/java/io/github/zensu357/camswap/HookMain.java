@@ -48,7 +48,8 @@ public class HookMain {
     public static Camera origin_preview_camera;
     public static Camera camera_onPreviewFrame;
     public static Camera start_preview_camera;
-    public static volatile byte[] data_buffer;
+    /** 解码线程发布给 Camera1 预览回调的 NV21 帧 */
+    public static final FrameExchange previewFrames = new FrameExchange();
     public static byte[] input;
     public static int mhight;
     public static int mwidth;
@@ -223,13 +224,18 @@ public class HookMain {
                         Application application = (Application) args[0];
                         registerActivityLifecycleCallbacks(application);
                         toast_content = application.getApplicationContext();
+                        long warmupStart = android.os.SystemClock.elapsedRealtime();
+                        // 引导成功时配置已就位、视频 fd 已预打开，下面的可用性检查和重载都不再走 IPC
+                        boolean bootstrapped = VideoManager.bootstrap(toast_content);
                         VideoManager.setContext(toast_content);
                         checkProviderAvailability();
 
                         getConfig().setContext(toast_content);
                         getConfig().forceReload();
                         VideoManager.updateVideoPath(false);
-                        LogUtil.log("【CS】Application.onCreate 预热：配置和视频路径已加载");
+                        LogUtil.log("【CS】Application.onCreate 预热：配置和视频路径已加载"
+                                + (bootstrapped ? "（引导包）" : "") + ", 耗时 "
+                                + (android.os.SystemClock.elapsedRealtime() - warmupStart) + "ms");
 
                         initContentObserver(toast_content);
 
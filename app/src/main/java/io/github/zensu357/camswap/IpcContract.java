@@ -9,10 +9,15 @@ public final class IpcContract {
     public static final String PATH_CONFIG = "config";
     public static final String PATH_VIDEO = "video";
     public static final String PATH_AUDIO = "audio";
+    public static final String PATH_IMAGE = "image";
+    /** 内存映射的配置共享段，见 ConfigSegment */
+    public static final String PATH_CONFIG_SEGMENT = "config_segment";
 
     public static final Uri URI_CONFIG = Uri.withAppendedPath(CONTENT_URI, PATH_CONFIG);
     public static final Uri URI_VIDEO = Uri.withAppendedPath(CONTENT_URI, PATH_VIDEO);
     public static final Uri URI_AUDIO = Uri.withAppendedPath(CONTENT_URI, PATH_AUDIO);
+    public static final Uri URI_IMAGE = Uri.withAppendedPath(CONTENT_URI, PATH_IMAGE);
+    public static final Uri URI_CONFIG_SEGMENT = Uri.withAppendedPath(CONTENT_URI, PATH_CONFIG_SEGMENT);
 
     public static final String ACTION_UPDATE_CONFIG = "io.github.zensu357.camswap.ACTION_UPDATE_CONFIG";
     public static final String ACTION_REQUEST_CONFIG = "io.github.zensu357.camswap.ACTION_REQUEST_CONFIG";
@@ -25,10 +30,37 @@ public final class IpcContract {
     public static final String EXTRA_VIDEO_BUNDLE = "video_bundle";
     public static final String EXTRA_VIDEO_BINDER = "video_binder";
     public static final String EXTRA_CHANGED = "changed";
+    public static final String EXTRA_TARGET_WIDTH = "target_width";
+    public static final String EXTRA_TARGET_HEIGHT = "target_height";
+    public static final String EXTRA_TARGET_ROTATION = "target_rotation";
+    public static final String EXTRA_TARGET_FPS = "target_fps";
+    /** call("bootstrap") 的结果，见 Bootstrap */
+    public static final String EXTRA_SOURCE_TYPE = "source_type";
+    public static final String EXTRA_SOURCE_PATH = "source_path";
+    public static final String EXTRA_SOURCE_URL = "source_url";
+    public static final String EXTRA_VIDEO_PFD = "video_pfd";
+    public static final String EXTRA_AUDIO_PFD = "audio_pfd";
+    public static final String EXTRA_IMAGE_PFD = "image_pfd";
+    public static final String EXTRA_CONFIG_SEGMENT_PFD = "config_segment_pfd";
+    public static final String EXTRA_VIDEO_WIDTH = "video_width";
+    public static final String EXTRA_VIDEO_HEIGHT = "video_height";
+    public static final String EXTRA_VIDEO_ROTATION = "video_rotation";
+    public static final String EXTRA_VIDEO_FPS = "video_fps";
+    public static final String EXTRA_VIDEO_DURATION_MS = "video_duration_ms";
 
     public static final String METHOD_NEXT = "next";
     public static final String METHOD_PREV = "prev";
     public static final String METHOD_RANDOM = "random";
+    /** Hook 上报相机目标参数，管理端据此生成转码变体 */
+    public static final String METHOD_REPORT_TARGET = "report_target";
+    /** Hook 冷启动时一次取得配置、媒体源、预打开的 fd 和元数据；参数同 report_target（可选） */
+    public static final String METHOD_BOOTSTRAP = "bootstrap";
+
+    /** URI_VIDEO 的查询参数：带上目标参数时 Provider 优先返回匹配的转码变体 */
+    public static final String QUERY_WIDTH = "w";
+    public static final String QUERY_HEIGHT = "h";
+    public static final String QUERY_ROTATION = "rot";
+    public static final String QUERY_FPS = "fps";
 
     private IpcContract() {
     }
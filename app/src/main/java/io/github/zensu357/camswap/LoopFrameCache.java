@@ -0,0 +1,172 @@
+package io.github.zensu357.camswap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * 短视频循环播放的已解码帧缓存。
+ * <p>
+ * 第一遍解码时按目标尺寸记录变换后的 NV21 帧；整段视频在预算内录完后，后续循环直接从内存重放，
+ * 不再运行解码器。录制期间旋转或目标尺寸变化时丢弃本遍录制，下一遍重新开始；超出预算后对当前视频不再尝试。
+ * <p>
+ * 帧存放在自有 {@link FrameArena} 的 direct slab 中，不占目标 App 的 Java 堆；重新录制时复用上一遍的 slab。
+ * 已知总帧数时，第一帧到来就按 单帧 slab 容量 x 帧数 判断能否装下，装不下的视频不做任何拷贝。
+ */
+final class LoopFrameCache {
+
+    enum State {
+        IDLE, RECORDING, COMPLETE, OVER_BUDGET
+    }
+
+    static final class Entry {
+        final FrameArena.Slab slab;
+        final int size;
+        final int width;
+        final int height;
+        final long ptsUs;
+
+        Entry(FrameArena.Slab slab, int width, int height, long ptsUs) {
+            this.slab = slab;
+            this.size = slab.size();
+            this.width = width;
+            this.height = height;
+            this.ptsUs = ptsUs;
+        }
+    }
+
+    private final ArrayList<Entry> frames = new ArrayList<>();
+    private FrameArena arena;
+    private long budgetBytes;
+    private int expectedFrames;
+    private long bytes;
+    // 已录制帧占用的 slab 容量，与预算比较
+    private long reservedBytes;
+    private State state = State.IDLE;
+    // 录制时的变换参数，重放前与当前配置比对
+    private int rotation;
+    private long targetSize;
+
+    LoopFrameCache(long budgetBytes) {
+        reset(budgetBytes, 0);
+    }
+
+    /**
+     * 换片源时清空并更新预算；预算 <= 0 表示禁用。
+     *
+     * @param expectedFrames 视频总帧数的估计，未知时为 0（只能边录边检查预算）
+     */
+    synchronized void reset(long budgetBytes, int expectedFrames) {
+        clearFrames();
+        if (arena != null) {
+            arena.trim();
+        }
+        arena = budgetBytes > 0 ? new FrameArena(budgetBytes) : null;
+        this.budgetBytes = budgetBytes;
+        this.expectedFrames = Math.max(0, expectedFrames);
+        state = State.IDLE;
+    }
+
+    /** 一遍解码开始；未完成的录制从头开始 */
+    synchronized void beginPass() {
+        if (budgetBytes <= 0 || state == State.COMPLETE || state == State.OVER_BUDGET) {
+            return;
+        }
+        clearFrames();
+        state = State.RECORDING;
+    }
+
+    /**
+     * 记录一帧；data 前 size 字节会被拷贝。
+     */
+    synchronized void record(byte[] data, int size, int width, int height, long ptsUs,
+            int rotation, long targetSize) {
+        if (state != State.RECORDING) {
+            return;
+        }
+        int sizeClass = FrameArena.classOf(size);
+        long slabBytes = sizeClass >= 0 ? FrameArena.classCapacity(sizeClass) : Long.MAX_VALUE;
+        if (frames.isEmpty()) {
+            this.rotation = rotation;
+            this.targetSize = targetSize;
+            // 整段装不下就不必逐帧拷贝到超预算再丢弃
+            if (expectedFrames > 0 && slabBytes > budgetBytes / expectedFrames) {
+                state = State.OVER_BUDGET;
+                return;
+            }
+        } else if (!matches(rotation, targetSize)) {
+            clearFrames();
+            state = State.IDLE;
+            return;
+        }
+        if (slabBytes > budgetBytes - reservedBytes) {
+            clearFrames();
+            state = State.OVER_BUDGET;
+            return;
+        }
+        FrameArena.Slab slab = arena.acquire(size);
+        ByteBuffer buffer = slab.buffer();
+        buffer.put(data, 0, size).rewind();
+        frames.add(new Entry(slab, width, height, ptsUs));
+        bytes += size;
+        reservedBytes += slabBytes;
+    }
+
+    /** 一遍解码到达 EOS；录制中且有帧则转为可重放 */
+    synchronized boolean endPass() {
+        if (state == State.RECORDING) {
+            state = frames.isEmpty() ? State.IDLE : State.COMPLETE;
+        }
+        return state == State.COMPLETE;
+    }
+
+    /** 配置变化导致缓存失效，回到解码并重新录制 */
+    synchronized void invalidate() {
+        if (state == State.COMPLETE || state == State.RECORDING) {
+            clearFrames();
+            state = State.IDLE;
+        }
+    }
+
+    synchronized boolean matches(int rotation, long targetSize) {
+        return this.rotation == rotation && this.targetSize == targetSize;
+    }
+
+    synchronized boolean isComplete() {
+        return state == State.COMPLETE;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized int getFrameCount() {
+        return frames.size();
+    }
+
+    synchronized Entry get(int index) {
+        return frames.get(index);
+    }
+
+    /** 把第 index 帧拷进 dst（长度 ≥ 该帧的 size） */
+    synchronized void read(int index, byte[] dst) {
+        Entry entry = frames.get(index);
+        ByteBuffer buffer = entry.slab.buffer();
+        buffer.position(0);
+        buffer.get(dst, 0, entry.size);
+        buffer.rewind();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void clearFrames() {
+        for (Entry entry : frames) {
+            entry.slab.release();
+        }
+        frames.clear();
+        frames.trimToSize();
+        bytes = 0;
+        reservedBytes = 0;
+    }
+}
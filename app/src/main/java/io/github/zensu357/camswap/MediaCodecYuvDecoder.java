@@ -9,28 +9,34 @@ import android.os.ParcelFileDescriptor;
 
 import java.io.FileDescriptor;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
+import io.github.zensu357.camswap.codec.AsyncCodec;
+import io.github.zensu357.camswap.codec.CodecPort;
+import io.github.zensu357.camswap.codec.ExtractorFeeder;
+import io.github.zensu357.camswap.codec.OutputSink;
 import io.github.zensu357.camswap.utils.LogUtil;
 import io.github.zensu357.camswap.utils.VideoManager;
+import io.github.zensu357.camswap.yuv.YuvConvert;
 
 /**
  * Lightweight MediaCodec-based video decoder that outputs YUV_420_888 frames
  * directly, avoiding the expensive GL→Bitmap→RGB→YUV conversion pipeline.
  * <p>
- * Runs on its own decode thread. The latest decoded YUV frame is cached and
- * can be read lock-free from the pump thread via {@link #acquireLatestFrame}.
+ * Driven by {@link AsyncCodec} callbacks; the decode thread only sets up each pass
+ * and parks until it ends. Each output image is packed straight into the next free
+ * slot of a {@link YuvFrameRing} and published with a volatile swap; the pump thread
+ * reads it lock-free via {@link #acquireLatestFrame}. Frame data lives in
+ * {@link FrameArena} slabs, off the app's Java heap, and steady-state decoding
+ * allocates nothing.
  */
 final class MediaCodecYuvDecoder {
 
-    private static final long TIMEOUT_US = 10_000L;
-
     private volatile boolean running;
     private Thread decodeThread;
 
-    // Latest decoded frame — written by decode thread, read by pump thread.
-    // Access is guarded by volatile reference swap (single writer, single reader).
-    private volatile YuvFrame latestFrame;
+    // Pooled frame slots — written by the codec callback thread, read by the pump thread.
+    // Readers pin a slot via acquireLatestFrame(); pinned slots are never overwritten.
+    private volatile YuvFrameRing ring = new YuvFrameRing(FrameArena.shared(), YuvFrameRing.DEFAULT_SLOTS);
 
     // Video metadata
     private volatile int videoWidth;
@@ -38,22 +44,22 @@ final class MediaCodecYuvDecoder {
     private volatile int videoRotation;
     private volatile int videoFrameRate;
 
-    /** Immutable snapshot of one decoded YUV frame. */
+    /**
+     * One ring slot holding a decoded frame, packed I420 (Y, U, V) in one slab.
+     * Fields are rewritten only while the slot is claimed by the writer, so they
+     * are stable for as long as a reader holds it.
+     */
     static final class YuvFrame {
-        final int width;
-        final int height;
-        final byte[] yPlane;
-        final byte[] uPlane;
-        final byte[] vPlane;
-        final long timestampNs;
-
-        YuvFrame(int width, int height, byte[] y, byte[] u, byte[] v, long tsNs) {
-            this.width = width;
-            this.height = height;
-            this.yPlane = y;
-            this.uPlane = u;
-            this.vPlane = v;
-            this.timestampNs = tsNs;
+        int width;
+        int height;
+        FrameArena.Slab slab;
+        long timestampNs;
+        /** Unique per published frame; keys derived variants such as scaled copies. */
+        long generation;
+
+        /** Drop the reference taken by {@link #acquireLatestFrame}. */
+        void release() {
+            slab.release();
         }
     }
 
@@ -61,8 +67,16 @@ final class MediaCodecYuvDecoder {
     void start() {
         if (running) return;
         running = true;
-        latestFrame = null;
-        decodeThread = new Thread(this::decodeLoop, "CS-YuvDecode");
+        YuvFrameRing frames = new YuvFrameRing(FrameArena.shared(), YuvFrameRing.DEFAULT_SLOTS);
+        ring = frames;
+        decodeThread = new Thread(() -> {
+            try {
+                decodeLoop();
+            } finally {
+                // The codec (and its callback thread) is stopped by now, so nothing can claim a slot any more
+                frames.close();
+            }
+        }, "CS-YuvDecode");
         decodeThread.start();
     }
 
@@ -76,18 +90,30 @@ final class MediaCodecYuvDecoder {
                 t.join(1000);
             } catch (InterruptedException ignored) {
             }
+            if (t.isAlive()) {
+                // The ring is closed by the decode thread on its way out; a late publish just returns its slot
+                LogUtil.log("【CS】YuvDecoder 停止超时，帧环在解码线程退出时释放");
+            }
         }
         decodeThread = null;
-        latestFrame = null;
+        ring.clear();
     }
 
     boolean isRunning() {
         return running;
     }
 
-    /** Returns the latest decoded YUV frame, or null if none available yet. */
+    /**
+     * Returns the latest decoded YUV frame pinned for the caller, or null if none
+     * available yet. The caller must {@link YuvFrame#release()} it.
+     */
     YuvFrame acquireLatestFrame() {
-        return latestFrame;
+        return ring.acquireLatest();
+    }
+
+    /** Frames dropped because every ring slot was still held by readers. */
+    long getDroppedFrameCount() {
+        return ring.getClaimMissCount();
     }
 
     int getVideoWidth() { return videoWidth; }
@@ -107,7 +133,7 @@ final class MediaCodecYuvDecoder {
                     try { Thread.sleep(500); } catch (InterruptedException ie) { break; }
                 }
             }
-            // Loop: seek back to beginning for looped playback
+            // Looping happens inside the pass (flush on EOS); returning here means stop or error
         }
     }
 
@@ -118,6 +144,7 @@ final class MediaCodecYuvDecoder {
 
         MediaExtractor extractor = new MediaExtractor();
         MediaCodec decoder = null;
+        AsyncCodec async = null;
         try {
             if (fd != null) {
                 extractor.setDataSource(fd);
@@ -156,17 +183,26 @@ final class MediaCodecYuvDecoder {
                     MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
 
             decoder = MediaCodec.createDecoderByType(mime);
-            decoder.configure(format, null, null, 0);
-            decoder.start();
+            async = AsyncCodec.start(decoder, format, null, 0,
+                    new ExtractorFeeder(extractor), new FrameSink(), "CS-YuvDecode-cb");
 
             LogUtil.log("【CS】YuvDecoder 启动: " + videoWidth + "x" + videoHeight
                     + "@" + videoFrameRate + "fps rot=" + videoRotation);
 
-            decodeFrames(decoder, extractor);
+            // Looping is flush-based inside the callback; this thread only parks until stop or error
+            while (running && !async.awaitEnd(500)) {
+            }
+            if (async.getError() != null) {
+                throw new IOException("codec error", async.getError());
+            }
 
+        } catch (InterruptedException e) {
+            // stop() interrupts this thread
         } finally {
+            if (async != null) {
+                async.stop();
+            }
             if (decoder != null) {
-                try { decoder.stop(); } catch (Exception ignored) {}
                 try { decoder.release(); } catch (Exception ignored) {}
             }
             extractor.release();
@@ -176,152 +212,56 @@ final class MediaCodecYuvDecoder {
         }
     }
 
-    private void decodeFrames(MediaCodec decoder, MediaExtractor extractor) {
-        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
-        boolean sawInputEOS = false;
-        long startTimeMs = System.currentTimeMillis();
-
-        // Reusable plane buffers — avoid allocation per frame
-        byte[] yBuf = null, uBuf = null, vBuf = null;
-
-        while (running) {
-            // Feed input
-            if (!sawInputEOS) {
-                int inIdx = decoder.dequeueInputBuffer(TIMEOUT_US);
-                if (inIdx >= 0) {
-                    ByteBuffer inputBuf = decoder.getInputBuffer(inIdx);
-                    int sampleSize = extractor.readSampleData(inputBuf, 0);
-                    if (sampleSize < 0) {
-                        decoder.queueInputBuffer(inIdx, 0, 0, 0L,
-                                MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                        sawInputEOS = true;
-                    } else {
-                        long pts = extractor.getSampleTime();
-                        decoder.queueInputBuffer(inIdx, 0, sampleSize, pts, 0);
-                        extractor.advance();
-                    }
-                }
-            }
-
-            // Read output
-            int outIdx = decoder.dequeueOutputBuffer(info, TIMEOUT_US);
-            if (outIdx >= 0) {
-                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                    decoder.releaseOutputBuffer(outIdx, false);
-                    // End of video — seek back for loop
-                    extractor.seekTo(0, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
-                    decoder.flush();
-                    sawInputEOS = false;
-                    startTimeMs = System.currentTimeMillis();
-                    continue;
-                }
-
-                if (info.size > 0) {
-                    Image image = decoder.getOutputImage(outIdx);
-                    if (image != null) {
-                        try {
-                            int w = image.getWidth();
-                            int h = image.getHeight();
-                            int yLen = w * h;
-                            int cLen = (w / 2) * (h / 2);
-
-                            // Allocate/reuse buffers
-                            if (yBuf == null || yBuf.length != yLen) {
-                                yBuf = new byte[yLen];
-                                uBuf = new byte[cLen];
-                                vBuf = new byte[cLen];
-                            }
-
-                            extractYuvPlanes(image, w, h, yBuf, uBuf, vBuf);
-
-                            // Publish frame (copy for immutability)
-                            byte[] yOut = new byte[yLen];
-                            byte[] uOut = new byte[cLen];
-                            byte[] vOut = new byte[cLen];
-                            System.arraycopy(yBuf, 0, yOut, 0, yLen);
-                            System.arraycopy(uBuf, 0, uOut, 0, cLen);
-                            System.arraycopy(vBuf, 0, vOut, 0, cLen);
-                            latestFrame = new YuvFrame(w, h, yOut, uOut, vOut, System.nanoTime());
-                        } finally {
-                            image.close();
-                        }
-                    }
-
-                    // Pace output to video frame rate
-                    long targetTimeMs = info.presentationTimeUs / 1000;
-                    long elapsed = System.currentTimeMillis() - startTimeMs;
-                    long sleepMs = targetTimeMs - elapsed;
-                    if (sleepMs > 2) {
-                        try { Thread.sleep(sleepMs); } catch (InterruptedException e) { break; }
-                    }
-                }
-                decoder.releaseOutputBuffer(outIdx, false);
-            }
-        }
-    }
-
     /**
-     * Extract Y, U, V planes from a decoder output Image into flat byte arrays.
-     * Handles varying row strides and pixel strides.
+     * Runs on the codec callback thread: packs each output image into a ring slot,
+     * publishes it and paces to the video timeline. EOS loops via flush.
      */
-    private static void extractYuvPlanes(Image image, int w, int h,
-                                          byte[] yOut, byte[] uOut, byte[] vOut) {
-        Image.Plane[] planes = image.getPlanes();
-        // Y plane
-        ByteBuffer yBuf = planes[0].getBuffer();
-        int yRowStride = planes[0].getRowStride();
-        int yPixelStride = planes[0].getPixelStride();
-
-        if (yPixelStride == 1 && yRowStride == w) {
-            yBuf.get(yOut, 0, w * h);
-        } else {
-            for (int row = 0; row < h; row++) {
-                yBuf.position(row * yRowStride);
-                if (yPixelStride == 1) {
-                    yBuf.get(yOut, row * w, w);
-                } else {
-                    int base = row * w;
-                    for (int col = 0; col < w; col++) {
-                        yOut[base + col] = yBuf.get(row * yRowStride + col * yPixelStride);
+    private final class FrameSink implements OutputSink {
+        private final YuvFrameRing frames = ring;
+        private long startTimeMs = System.currentTimeMillis();
+        // Row scratch for strided chroma planes, grown only when the stride grows
+        private byte[] row = new byte[0];
+
+        @Override
+        public void onOutputBuffer(CodecPort codec, int index, int offset, int size,
+                                   long presentationTimeUs, int flags) {
+            Image image = codec.getOutputImage(index);
+            if (image != null) {
+                try {
+                    int w = image.getWidth();
+                    int h = image.getHeight();
+                    YuvFrame frame = frames.claim(YuvConvert.frameSize(w, h));
+                    if (frame != null) {
+                        Image.Plane[] planes = image.getPlanes();
+                        int uvRowStride = planes[1].getRowStride();
+                        if (row.length < Math.max(planes[0].getRowStride(), uvRowStride)) {
+                            row = new byte[Math.max(planes[0].getRowStride(), uvRowStride)];
+                        }
+                        YuvConvert.packI420(planes[0].getBuffer(), planes[0].getRowStride(),
+                                planes[0].getPixelStride(), planes[1].getBuffer(), planes[2].getBuffer(),
+                                uvRowStride, planes[1].getPixelStride(), w, h, frame.slab.buffer(), row);
+                        frames.publish(frame, w, h, System.nanoTime());
                     }
+                } finally {
+                    image.close();
                 }
             }
+            codec.releaseOutputBuffer(index, false);
+
+            // Pace output to video frame rate
+            long targetTimeMs = presentationTimeUs / 1000;
+            long elapsed = System.currentTimeMillis() - startTimeMs;
+            long sleepMs = targetTimeMs - elapsed;
+            if (sleepMs > 2 && running) {
+                try { Thread.sleep(sleepMs); } catch (InterruptedException ignored) {}
+            }
         }
 
-        // U and V planes
-        int cw = w / 2;
-        int ch = h / 2;
-        ByteBuffer uBuf = planes[1].getBuffer();
-        ByteBuffer vBuf = planes[2].getBuffer();
-        int uRowStride = planes[1].getRowStride();
-        int uPixelStride = planes[1].getPixelStride();
-        int vRowStride = planes[2].getRowStride();
-        int vPixelStride = planes[2].getPixelStride();
-
-        if (uPixelStride == 1 && uRowStride == cw
-                && vPixelStride == 1 && vRowStride == cw) {
-            // Ideal: packed planar
-            uBuf.get(uOut, 0, cw * ch);
-            vBuf.get(vOut, 0, cw * ch);
-        } else if (uPixelStride == 2 && vPixelStride == 2) {
-            // Common NV12/NV21 interleaved UV: pixel stride 2
-            for (int row = 0; row < ch; row++) {
-                int srcBase = row * uRowStride;
-                int dstBase = row * cw;
-                for (int col = 0; col < cw; col++) {
-                    uOut[dstBase + col] = uBuf.get(srcBase + col * 2);
-                    vOut[dstBase + col] = vBuf.get(srcBase + col * 2);
-                }
-            }
-        } else {
-            // General case
-            for (int row = 0; row < ch; row++) {
-                int dstBase = row * cw;
-                for (int col = 0; col < cw; col++) {
-                    uOut[dstBase + col] = uBuf.get(row * uRowStride + col * uPixelStride);
-                    vOut[dstBase + col] = vBuf.get(row * vRowStride + col * vPixelStride);
-                }
-            }
+        @Override
+        public boolean onEndOfStream() {
+            // End of video — seek back for loop
+            startTimeMs = System.currentTimeMillis();
+            return running;
         }
     }
 
@@ -4,6 +4,9 @@ import android.media.MediaPlayer;
 import android.os.SystemClock;
 import android.view.Surface;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import io.github.zensu357.camswap.utils.LogUtil;
 import io.github.zensu357.camswap.utils.VideoManager;
 
@@ -11,9 +14,9 @@ import io.github.zensu357.camswap.utils.VideoManager;
  * Manages all player backends, GLVideoRenderer, and SurfaceRelay instances.
  * Centralizes player lifecycle, restart, rotation, and release logic.
  * <p>
- * In local mode each slot gets its own {@link AndroidMediaPlayerBackend}.
- * In stream mode all slots share frames from a single {@link ExoPlayerBackend}
- * routed through their respective GL renderers.
+ * In both local and stream mode one decoder feeds one GL renderer, which draws
+ * every Camera2 surface (preview and readers) as an output of the same frame.
+ * Local mode falls back to a player per surface when GL is unavailable.
  */
 public final class MediaPlayerManager {
     private final Object mediaLock = new Object();
@@ -47,8 +50,14 @@ public final class MediaPlayerManager {
     private Surface lastC2ReaderSurface, lastC2ReaderSurface1;
     private Surface lastC2PreviewSurface, lastC2PreviewSurface1;
 
+    // Shared renderer that fans one decode out to every Camera2 surface (also held in its slot field)
+    private GLVideoRenderer c2_fanout;
+    private int c2_fanout_slot = -1;
+
     // ---- Stream mode: single shared ExoPlayerBackend ----
     private SurfacePlayerBackend streamBackend;
+    /** 图片模式下 Camera1 预览的图片输出，键为预览标签（c1_holder / c1_texture） */
+    private final Map<String, StillImageBackend> c1StillBackends = new HashMap<>();
 
     /** Set current package name (future per-app video). */
     public void setPackageName(String packageName) {
@@ -79,14 +88,15 @@ public final class MediaPlayerManager {
     /**
      * Initialize Camera2 players for the given surfaces.
      * In stream mode, creates a single ExoPlayerBackend for the primary preview
-     * and routes frames to reader surfaces via GL renderers.
+     * and routes frames to reader surfaces via GL renderers. Still-image mode uses the
+     * same fan-out with a {@link StillImageBackend}, so no decoder runs at all.
      */
     void initCamera2Players(Surface readerSurface, Surface readerSurface1,
             Surface previewSurface, Surface previewSurface1) {
 
         MediaSourceDescriptor source = getMediaSource();
 
-        if (source.isStream()) {
+        if (source.isStream() || source.isStill()) {
             initCamera2PlayersStream(readerSurface, readerSurface1,
                     previewSurface, previewSurface1, source);
         } else {
@@ -95,48 +105,118 @@ public final class MediaPlayerManager {
         }
     }
 
+    private static final int SLOT_PREVIEW = 0;
+    private static final int SLOT_PREVIEW_1 = 1;
+    private static final int SLOT_READER = 2;
+    private static final int SLOT_READER_1 = 3;
+    private static final String[] SLOT_TAGS = { "c2_preview", "c2_preview_1", "c2_reader", "c2_reader_1" };
+
+    /**
+     * 本地模式：一个 MediaPlayer 解码，经主 GL 渲染器扇出到所有 Surface。
+     * 主槽位优先 preview，其次 reader；其余 Surface 作为主渲染器的附加输出，
+     * 不再各自解码。主渲染器 GL 不可用时回退为每个 Surface 一个播放器。
+     */
     private void initCamera2PlayersLocal(Surface readerSurface, Surface readerSurface1,
             Surface previewSurface, Surface previewSurface1) {
-        if (readerSurface != null && readerSurface != lastC2ReaderSurface) {
-            c2_reader_player = recreatePlayer(c2_reader_player);
-            GLVideoRenderer[] r = { c2_reader_renderer };
-            SurfaceRelay[] rr = { c2_reader_relay };
-            setupMediaPlayer(c2_reader_player, r, rr, readerSurface, "c2_reader", false);
-            c2_reader_renderer = r[0];
-            c2_reader_relay = rr[0];
-            lastC2ReaderSurface = readerSurface;
+        Surface[] targets = { previewSurface, previewSurface1, readerSurface, readerSurface1 };
+        Surface[] last = { lastC2PreviewSurface, lastC2PreviewSurface1, lastC2ReaderSurface, lastC2ReaderSurface1 };
+        int primary = -1;
+        boolean changed = false;
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == null) {
+                continue;
+            }
+            if (primary < 0) {
+                primary = i;
+            }
+            changed |= targets[i] != last[i];
         }
-        if (readerSurface1 != null && readerSurface1 != lastC2ReaderSurface1) {
-            c2_reader_player_1 = recreatePlayer(c2_reader_player_1);
-            GLVideoRenderer[] r = { c2_reader_renderer_1 };
-            SurfaceRelay[] rr = { c2_reader_relay_1 };
-            setupMediaPlayer(c2_reader_player_1, r, rr, readerSurface1, "c2_reader_1", false);
-            c2_reader_renderer_1 = r[0];
-            c2_reader_relay_1 = rr[0];
-            lastC2ReaderSurface1 = readerSurface1;
+        if (primary < 0 || !changed) {
+            return;
         }
 
-        boolean playSound = VideoManager.getConfig().getBoolean(ConfigManager.KEY_PLAY_VIDEO_SOUND, false);
+        GLVideoRenderer fanout = c2_fanout;
+        if (fanout != null && fanout.isInitialized() && c2_fanout_slot == primary
+                && targets[primary] == last[primary]) {
+            // 主目标未变，只把新出现的 Surface 挂到现有渲染器上
+            for (int i = 0; i < targets.length; i++) {
+                if (i != primary && targets[i] != null && targets[i] != last[i]) {
+                    attachFanoutOutput(fanout, targets[i], SLOT_TAGS[i]);
+                }
+            }
+        } else {
+            releaseCamera2Players();
+            boolean playSound = VideoManager.getConfig().getBoolean(ConfigManager.KEY_PLAY_VIDEO_SOUND, false);
+            MediaPlayer player = new MediaPlayer();
+            GLVideoRenderer[] r = { null };
+            SurfaceRelay[] rr = { null };
+            setupMediaPlayer(player, r, rr, targets[primary], SLOT_TAGS[primary],
+                    playSound && primary <= SLOT_PREVIEW_1);
+            setSlot(primary, player, r[0], rr[0]);
+            if (r[0] != null) {
+                c2_fanout = r[0];
+                c2_fanout_slot = primary;
+                for (int i = primary + 1; i < targets.length; i++) {
+                    if (targets[i] != null) {
+                        attachFanoutOutput(r[0], targets[i], SLOT_TAGS[i]);
+                    }
+                }
+            } else {
+                for (int i = primary + 1; i < targets.length; i++) {
+                    if (targets[i] == null) {
+                        continue;
+                    }
+                    MediaPlayer slotPlayer = new MediaPlayer();
+                    GLVideoRenderer[] sr = { null };
+                    SurfaceRelay[] srr = { null };
+                    setupMediaPlayer(slotPlayer, sr, srr, targets[i], SLOT_TAGS[i],
+                            playSound && i <= SLOT_PREVIEW_1);
+                    setSlot(i, slotPlayer, sr[0], srr[0]);
+                }
+            }
+        }
+        lastC2PreviewSurface = previewSurface;
+        lastC2PreviewSurface1 = previewSurface1;
+        lastC2ReaderSurface = readerSurface;
+        lastC2ReaderSurface1 = readerSurface1;
+        LogUtil.log("【CS】Camera2处理过程完全执行（本地模式，"
+                + (c2_fanout != null ? "单路解码扇出 " + (c2_fanout.getOutputCount() + 1) + " 个 Surface" : "逐 Surface 播放")
+                + "）");
+    }
 
-        if (previewSurface != null && previewSurface != lastC2PreviewSurface) {
-            c2_player = recreatePlayer(c2_player);
-            GLVideoRenderer[] r = { c2_renderer };
-            SurfaceRelay[] rr = { c2_relay };
-            setupMediaPlayer(c2_player, r, rr, previewSurface, "c2_preview", playSound);
-            c2_renderer = r[0];
-            c2_relay = rr[0];
-            lastC2PreviewSurface = previewSurface;
+    private void attachFanoutOutput(GLVideoRenderer fanout, Surface target, String tag) {
+        GLVideoRenderer.Output output = fanout.addOutput(target, tag);
+        if (output != null) {
+            // 与独立渲染器一致：附加输出保持 0°，旋转偏移仅作用于 YUV 截帧
+            output.setRotation(0);
+        } else {
+            LogUtil.log("【CS】【GL】" + tag + " 无法挂到共享渲染器");
         }
-        if (previewSurface1 != null && previewSurface1 != lastC2PreviewSurface1) {
-            c2_player_1 = recreatePlayer(c2_player_1);
-            GLVideoRenderer[] r = { c2_renderer_1 };
-            SurfaceRelay[] rr = { c2_relay_1 };
-            setupMediaPlayer(c2_player_1, r, rr, previewSurface1, "c2_preview_1", playSound);
-            c2_renderer_1 = r[0];
-            c2_relay_1 = rr[0];
-            lastC2PreviewSurface1 = previewSurface1;
+    }
+
+    private void setSlot(int slot, MediaPlayer player, GLVideoRenderer renderer, SurfaceRelay relay) {
+        switch (slot) {
+            case SLOT_PREVIEW:
+                c2_player = player;
+                c2_renderer = renderer;
+                c2_relay = relay;
+                break;
+            case SLOT_PREVIEW_1:
+                c2_player_1 = player;
+                c2_renderer_1 = renderer;
+                c2_relay_1 = relay;
+                break;
+            case SLOT_READER:
+                c2_reader_player = player;
+                c2_reader_renderer = renderer;
+                c2_reader_relay = relay;
+                break;
+            default:
+                c2_reader_player_1 = player;
+                c2_reader_renderer_1 = renderer;
+                c2_reader_relay_1 = relay;
+                break;
         }
-        LogUtil.log("【CS】Camera2处理过程完全执行（本地模式）");
     }
 
     private void initCamera2PlayersStream(Surface readerSurface, Surface readerSurface1,
@@ -148,40 +228,40 @@ public final class MediaPlayerManager {
         // 所有渲染器旋转为 0°，rotation_offset 仅通过 captureFrameForYuv 应用于 YUV 截帧
 
         // Choose primary surface: prefer preview, fallback to reader
+        String label = source.isStill() ? "图片模式" : "流模式";
         Surface primaryTarget = previewSurface != null ? previewSurface : readerSurface;
         if (primaryTarget == null) {
-            LogUtil.log("【CS】流模式：无可用目标 Surface");
+            LogUtil.log("【CS】" + label + "：无可用目标 Surface");
             return;
         }
 
-        // Set up GL renderers for all surfaces (stream frames are shared)
-        if (readerSurface != null) {
-            GLVideoRenderer.releaseSafely(c2_reader_renderer);
-            SurfaceRelay.releaseSafely(c2_reader_relay);
-            c2_reader_renderer = GLVideoRenderer.createSafely(readerSurface, "c2_reader_stream");
-        }
-        if (readerSurface1 != null) {
-            GLVideoRenderer.releaseSafely(c2_reader_renderer_1);
-            SurfaceRelay.releaseSafely(c2_reader_relay_1);
-            c2_reader_renderer_1 = GLVideoRenderer.createSafely(readerSurface1, "c2_reader_1_stream");
-        }
-        if (previewSurface != null) {
-            GLVideoRenderer.releaseSafely(c2_renderer);
-            SurfaceRelay.releaseSafely(c2_relay);
-            c2_renderer = GLVideoRenderer.createSafely(previewSurface, "c2_preview_stream");
-        }
-        if (previewSurface1 != null) {
-            GLVideoRenderer.releaseSafely(c2_renderer_1);
-            SurfaceRelay.releaseSafely(c2_relay_1);
-            c2_renderer_1 = GLVideoRenderer.createSafely(previewSurface1, "c2_preview_1_stream");
+        // One GL renderer on the primary surface; the other surfaces hang off it as outputs
+        releaseCamera2Players();
+        int primary = previewSurface != null ? SLOT_PREVIEW : SLOT_READER;
+        GLVideoRenderer primaryRenderer = GLVideoRenderer.createSafely(primaryTarget,
+                SLOT_TAGS[primary] + "_stream");
+        setSlot(primary, null, primaryRenderer, null);
+        if (primaryRenderer != null) {
+            c2_fanout = primaryRenderer;
+            c2_fanout_slot = primary;
+            Surface[] targets = { previewSurface, previewSurface1, readerSurface, readerSurface1 };
+            for (int i = 0; i < targets.length; i++) {
+                if (i != primary && targets[i] != null) {
+                    attachFanoutOutput(primaryRenderer, targets[i], SLOT_TAGS[i] + "_stream");
+                }
+            }
         }
 
-        // Create stream backend — output to primary GL renderer's input surface
+        // Create stream backend — output to the shared GL renderer's input surface
         try {
-            streamBackend = createStreamBackend();
-            GLVideoRenderer primaryRenderer = (previewSurface != null) ? c2_renderer : c2_reader_renderer;
+            streamBackend = source.isStill() ? new StillImageBackend() : createStreamBackend();
             Surface backendSurface;
             if (primaryRenderer != null && primaryRenderer.isInitialized()) {
+                StillImageSource still = source.isStill() ? StillImageSource.current() : null;
+                if (still != null) {
+                    // 输入缓冲与图片同尺寸，画布逐像素拷贝，缩放交给 GL
+                    primaryRenderer.setInputBufferSize(still.width, still.height);
+                }
                 backendSurface = primaryRenderer.getInputSurface();
             } else {
                 backendSurface = primaryTarget;
@@ -193,13 +273,13 @@ public final class MediaPlayerManager {
             streamBackend.setListener(new SurfacePlayerBackend.Listener() {
                 @Override
                 public void onReady() {
-                    LogUtil.log("【CS】流播放器就绪");
+                    LogUtil.log("【CS】" + label + "播放器就绪");
                     lastCamera2PlaybackStartRealtimeMs = SystemClock.elapsedRealtime();
                 }
 
                 @Override
                 public void onError(String message, Throwable cause) {
-                    LogUtil.log("【CS】流播放器错误: " + message
+                    LogUtil.log("【CS】" + label + "播放器错误: " + message
                             + (cause != null ? " " + cause : ""));
                 }
 
@@ -219,9 +299,10 @@ public final class MediaPlayerManager {
                 }
             });
             streamBackend.open(source);
-            LogUtil.log("【CS】Camera2处理过程完全执行（流模式: " + source.streamUrl + "）");
+            LogUtil.log("【CS】Camera2处理过程完全执行（" + label + ": "
+                    + (source.isStill() ? source.localPath : source.streamUrl) + "）");
         } catch (Exception e) {
-            LogUtil.log("【CS】流模式初始化失败: " + android.util.Log.getStackTraceString(e));
+            LogUtil.log("【CS】" + label + "初始化失败: " + android.util.Log.getStackTraceString(e));
         }
     }
 
@@ -244,12 +325,6 @@ public final class MediaPlayerManager {
         }
     }
 
-    private MediaPlayer recreatePlayer(MediaPlayer old) {
-        if (old != null)
-            old.release();
-        return new MediaPlayer();
-    }
-
     long getCamera2PlaybackPositionMs() {
         // Stream mode: query stream backend
         if (streamBackend != null) {
@@ -306,11 +381,14 @@ public final class MediaPlayerManager {
     /** Restart all active players with current video/stream. */
     void restartAll() {
         synchronized (mediaLock) {
-            if (isStreamMode()) {
-                // Stream mode: restart the single stream backend
+            if (isStreamMode() || streamBackend instanceof StillImageBackend) {
+                // Stream / still-image mode: restart the single shared backend
                 if (streamBackend != null) {
                     streamBackend.restart();
                 }
+                for (StillImageBackend backend : c1StillBackends.values()) {
+                    backend.restart();
+                }
             } else {
                 // Local mode: restart individual MediaPlayers
                 VideoManager.checkProviderAvailability();
@@ -374,10 +452,58 @@ public final class MediaPlayerManager {
 
     /** Release Camera1 players and renderers (called from stopPreview/release). */
     void releaseCamera1Resources() {
+        VideoToFrames decoder = HookMain.hw_decode_obj;
+        if (decoder != null) {
+            decoder.setPreviewSurface(null);
+        }
         GLVideoRenderer.releaseSafely(c1_renderer_holder);
         c1_renderer_holder = null;
         GLVideoRenderer.releaseSafely(c1_renderer_texture);
         c1_renderer_texture = null;
+        releaseCamera1Players();
+        for (StillImageBackend backend : c1StillBackends.values()) {
+            backend.release();
+        }
+        c1StillBackends.clear();
+    }
+
+    /**
+     * 图片模式：Camera1 预览改由图片输出驱动，不创建 MediaPlayer。
+     * renderer 可用时输入缓冲设为图片尺寸，否则直接画到 fallback Surface。
+     *
+     * @return false 表示当前不是图片模式或图片不可用
+     */
+    boolean startCamera1Still(String tag, GLVideoRenderer renderer, Surface fallback) {
+        StillImageSource still = StillImageSource.current();
+        if (still == null) {
+            return false;
+        }
+        Surface target;
+        if (renderer != null && renderer.isInitialized()) {
+            renderer.setInputBufferSize(still.width, still.height);
+            target = renderer.getInputSurface();
+        } else {
+            target = fallback;
+        }
+        if (target == null || !target.isValid()) {
+            return false;
+        }
+        synchronized (mediaLock) {
+            StillImageBackend backend = c1StillBackends.remove(tag);
+            if (backend != null) {
+                backend.release();
+            }
+            backend = new StillImageBackend();
+            backend.setOutputSurface(target);
+            backend.open(getMediaSource());
+            c1StillBackends.put(tag, backend);
+        }
+        LogUtil.log("【CS】" + tag + " 预览改由图片输出驱动（无解码器）");
+        return true;
+    }
+
+    /** Release only the Camera1 preview players, keeping their GL renderers. */
+    void releaseCamera1Players() {
         stopAndRelease(mplayer1);
         mplayer1 = null;
         stopAndRelease(mMediaPlayer);
@@ -387,6 +513,16 @@ public final class MediaPlayerManager {
     /** Release Camera2 players and renderers (called from onOpened). */
     void releaseCamera2Resources() {
         releaseStreamBackend();
+        releaseCamera2Players();
+        lastC2ReaderSurface = null;
+        lastC2ReaderSurface1 = null;
+        lastC2PreviewSurface = null;
+        lastC2PreviewSurface1 = null;
+    }
+
+    private void releaseCamera2Players() {
+        c2_fanout = null;
+        c2_fanout_slot = -1;
         GLVideoRenderer.releaseSafely(c2_renderer);
         c2_renderer = null;
         GLVideoRenderer.releaseSafely(c2_renderer_1);
@@ -395,6 +531,14 @@ public final class MediaPlayerManager {
         c2_reader_renderer = null;
         GLVideoRenderer.releaseSafely(c2_reader_renderer_1);
         c2_reader_renderer_1 = null;
+        SurfaceRelay.releaseSafely(c2_relay);
+        c2_relay = null;
+        SurfaceRelay.releaseSafely(c2_relay_1);
+        c2_relay_1 = null;
+        SurfaceRelay.releaseSafely(c2_reader_relay);
+        c2_reader_relay = null;
+        SurfaceRelay.releaseSafely(c2_reader_relay_1);
+        c2_reader_relay_1 = null;
         stopAndRelease(c2_player);
         c2_player = null;
         stopAndRelease(c2_reader_player_1);
@@ -403,10 +547,6 @@ public final class MediaPlayerManager {
         c2_reader_player = null;
         stopAndRelease(c2_player_1);
         c2_player_1 = null;
-        lastC2ReaderSurface = null;
-        lastC2ReaderSurface1 = null;
-        lastC2PreviewSurface = null;
-        lastC2PreviewSurface1 = null;
     }
 
     private void stopAndRelease(MediaPlayer player) {
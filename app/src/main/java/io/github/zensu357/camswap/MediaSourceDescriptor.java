@@ -1,22 +1,23 @@
 package io.github.zensu357.camswap;
 
 /**
- * Unified media source descriptor — abstracts local file and network stream sources.
+ * Unified media source descriptor — abstracts local file, still image and network stream sources.
  * Used by HookGuards, VideoManager, MediaPlayerManager, and player backends
  * to decide playback strategy without scattering type checks across the codebase.
  */
 public final class MediaSourceDescriptor {
     public enum Type {
         LOCAL_FILE,
+        STILL_IMAGE,
         STREAM_URL
     }
 
     public final Type type;
-    /** Local mode: video file path; stream mode: null */
+    /** Local mode: video file path; still mode: image file path; stream mode: null */
     public final String localPath;
     /** Stream mode: stream URL (rtsp/rtmp/http/https); local mode: null */
     public final String streamUrl;
-    /** Local mode: whether to use Provider PFD */
+    /** Local / still mode: whether to use Provider PFD */
     public final boolean useProviderPfd;
 
     // ---- Stream mode parameters ----
@@ -44,8 +45,13 @@ public final class MediaSourceDescriptor {
         return type == Type.STREAM_URL;
     }
 
+    /** Still mode: a single picture decoded once and served from memory, no codec involved. */
+    public boolean isStill() {
+        return type == Type.STILL_IMAGE;
+    }
+
     public boolean isValid() {
-        if (type == Type.LOCAL_FILE) {
+        if (type != Type.STREAM_URL) {
             return localPath != null && !localPath.isEmpty();
         } else {
             return streamUrl != null && !streamUrl.isEmpty();
@@ -56,6 +62,10 @@ public final class MediaSourceDescriptor {
         return new Builder(Type.LOCAL_FILE).localPath(path);
     }
 
+    public static Builder stillImage(String path) {
+        return new Builder(Type.STILL_IMAGE).localPath(path);
+    }
+
     public static Builder stream(String url) {
         return new Builder(Type.STREAM_URL).streamUrl(url);
     }
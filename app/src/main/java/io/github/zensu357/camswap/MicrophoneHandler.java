@@ -94,21 +94,13 @@ public class MicrophoneHandler implements ICameraHandler {
     // 配置读取
     // ================================================================
 
+    /** 每次音频 read 都会调用：读类型化快照的字段，不做 JSON 查找 */
     private static boolean isMicHookEnabled() {
-        try {
-            return VideoManager.getConfig().getBoolean(ConfigManager.KEY_ENABLE_MIC_HOOK, false);
-        } catch (Exception e) {
-            return false;
-        }
+        return VideoManager.getConfig().snapshot().enableMicHook;
     }
 
     private static String getMicHookMode() {
-        try {
-            return VideoManager.getConfig().getString(
-                    ConfigManager.KEY_MIC_HOOK_MODE, ConfigManager.MIC_MODE_MUTE);
-        } catch (Exception e) {
-            return ConfigManager.MIC_MODE_MUTE;
-        }
+        return VideoManager.getConfig().snapshot().micHookMode;
     }
 
     // ================================================================
@@ -120,7 +112,7 @@ public class MicrophoneHandler implements ICameraHandler {
      * 如果数据尚未就绪，触发异步加载并返回 false（本次 read 用静音填充，下次再替换）。
      */
     private static boolean isReplaceMode() {
-        if (!ConfigManager.MIC_MODE_REPLACE.equals(getMicHookMode())) {
+        if (!VideoManager.getConfig().snapshot().micReplaceMode) {
             return false;
         }
         String audioPath = AudioDataProvider.getAudioFilePath();
@@ -150,7 +142,7 @@ public class MicrophoneHandler implements ICameraHandler {
      * 如果数据尚未就绪，触发异步加载并返回 false。
      */
     private static boolean isVideoSyncMode() {
-        if (!ConfigManager.MIC_MODE_VIDEO_SYNC.equals(getMicHookMode())) {
+        if (!VideoManager.getConfig().snapshot().micVideoSyncMode) {
             return false;
         }
         // Stream mode: video_sync is not supported (no local FD to extract audio).
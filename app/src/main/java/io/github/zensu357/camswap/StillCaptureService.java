@@ -0,0 +1,343 @@
+package io.github.zensu357.camswap;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.zensu357.camswap.utils.LogUtil;
+
+/**
+ * 拍照替换的 JPEG 预编码服务。
+ * <p>
+ * 启用后后台线程每隔 {@link #ENCODE_INTERVAL_MS} 从 {@link Source} 取当前帧，按当前拍照尺寸与字节预算编码，
+ * 写入容量为 {@link #RING_SIZE} 的环；快门触发时直接取环中最新的匹配项，连拍不会重复编码。
+ * 编码质量由 {@link QualityModel} 根据上一次的实际大小一步算出，不再逐档试压。
+ * <p>
+ * 另外记录快门到回调的延迟：{@link #markShutter()} 与 {@link #markDelivered()} 可在不同线程调用。
+ */
+final class StillCaptureService {
+
+    static final int RING_SIZE = 3;
+    /** 后台预编码间隔 */
+    static final long ENCODE_INTERVAL_MS = 400L;
+    /** 环中条目超过该时长视为过旧，拍照时改为同步编码 */
+    static final long MAX_AGE_MS = 1500L;
+
+    interface Source {
+        /** 当前帧的标识，帧未变化时保持不变；无可用帧时返回 0 */
+        long currentGeneration();
+
+        /** 以 quality 把当前帧编码为 width x height 的 JPEG 写入 out */
+        boolean encode(int width, int height, int quality, ByteArrayOutputStream out);
+    }
+
+    /** 环中一张已编码的照片；内容不可变，可直接交给调用方 */
+    static final class Shot {
+        final byte[] jpeg;
+        final int width;
+        final int height;
+        final int quality;
+        final long generation;
+        final long encodedAtNs;
+
+        Shot(byte[] jpeg, int width, int height, int quality, long generation, long encodedAtNs) {
+            this.jpeg = jpeg;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+            this.generation = generation;
+            this.encodedAtNs = encodedAtNs;
+        }
+    }
+
+    /**
+     * JPEG 大小随质量变化的经验曲线（相对 q92 的大小），用最近一次实测的每像素字节数校准，
+     * 由字节预算直接选出质量。
+     */
+    static final class QualityModel {
+        static final int MAX_QUALITY = 92;
+        static final int MIN_QUALITY = 30;
+        /** 预测留出的余量，避免贴着预算 */
+        static final float HEADROOM = 0.9f;
+        private static final int[] QUALITIES = { 92, 90, 85, 80, 75, 70, 65, 60, 50, 40, 30 };
+        private static final float[] RELATIVE = { 1.00f, 0.87f, 0.68f, 0.57f, 0.50f, 0.45f, 0.41f, 0.38f,
+                0.33f, 0.28f, 0.23f };
+        /** 尚无实测时的先验：q92 约 0.3 字节/像素，偏保守 */
+        private float bytesPerPixel = 0.3f;
+
+        /** 记录一次实际编码结果 */
+        synchronized void observe(int quality, int pixels, int bytes) {
+            if (pixels > 0 && bytes > 0) {
+                bytesPerPixel = bytes / (relative(quality) * pixels);
+            }
+        }
+
+        /** 预算内的最高质量；maxBytes <= 0 表示不限 */
+        synchronized int pick(int pixels, int maxBytes) {
+            if (maxBytes <= 0) {
+                return MAX_QUALITY;
+            }
+            float estimate = bytesPerPixel * pixels;
+            for (int i = 0; i < QUALITIES.length; i++) {
+                if (estimate * RELATIVE[i] <= maxBytes * HEADROOM) {
+                    return QUALITIES[i];
+                }
+            }
+            return MIN_QUALITY;
+        }
+
+        static float relative(int quality) {
+            if (quality >= QUALITIES[0]) {
+                return RELATIVE[0];
+            }
+            for (int i = 1; i < QUALITIES.length; i++) {
+                if (quality >= QUALITIES[i]) {
+                    float t = (float) (quality - QUALITIES[i]) / (QUALITIES[i - 1] - QUALITIES[i]);
+                    return RELATIVE[i] + t * (RELATIVE[i - 1] - RELATIVE[i]);
+                }
+            }
+            return RELATIVE[RELATIVE.length - 1];
+        }
+    }
+
+    private final Source source;
+    private final String name;
+    private final QualityModel model = new QualityModel();
+    private final Shot[] ring = new Shot[RING_SIZE];
+    private int head;
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream();
+
+    private volatile boolean running;
+    private Thread thread;
+    /** 高 32 位为宽，低 32 位为高；打包成一个 volatile 保证后台线程读到的宽高成对 */
+    private volatile long targetSize;
+    private volatile int targetMaxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refits = new AtomicLong();
+    private final AtomicLong floors = new AtomicLong();
+    private final AtomicLong encodes = new AtomicLong();
+    private final AtomicLong pendingShutterNs = new AtomicLong();
+    private final AtomicLong shots = new AtomicLong();
+    private final AtomicLong totalLatencyNs = new AtomicLong();
+    private final AtomicLong maxLatencyNs = new AtomicLong();
+
+    StillCaptureService(Source source, String name) {
+        this.source = source;
+        this.name = name;
+    }
+
+    /** 开始（或更新目标后继续）后台预编码 */
+    synchronized void start(int width, int height, int maxBytes) {
+        setTarget(width, height, maxBytes);
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** 停止后台线程并清空环 */
+    synchronized void stop() {
+        running = false;
+        Thread t = thread;
+        thread = null;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (ring) {
+            for (int i = 0; i < RING_SIZE; i++) {
+                ring[i] = null;
+            }
+        }
+        pendingShutterNs.set(0);
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    private void setTarget(int width, int height, int maxBytes) {
+        if (width > 0 && height > 0) {
+            targetSize = ((long) width << 32) | (height & 0xFFFFFFFFL);
+        }
+        targetMaxBytes = maxBytes;
+    }
+
+    /**
+     * 取一张 width x height、不超过 maxBytes 的 JPEG：优先用环中足够新的条目，否则同步编码一次。
+     *
+     * @return 编码失败或无可用帧时返回 null
+     */
+    byte[] take(int width, int height, int maxBytes) {
+        setTarget(width, height, maxBytes);
+        Shot shot = latest(width, height, maxBytes, MAX_AGE_MS * 1_000_000L);
+        if (shot != null) {
+            hits.incrementAndGet();
+            return shot.jpeg;
+        }
+        misses.incrementAndGet();
+        long generation = source.currentGeneration();
+        if (generation == 0) {
+            return null;
+        }
+        shot = encode(width, height, maxBytes, generation);
+        return shot != null ? shot.jpeg : null;
+    }
+
+    /** 环中最新的匹配条目；maxAgeNs <= 0 表示不限新旧，没有则返回 null */
+    Shot latest(int width, int height, int maxBytes, long maxAgeNs) {
+        long now = System.nanoTime();
+        synchronized (ring) {
+            for (int i = 0; i < RING_SIZE; i++) {
+                Shot shot = ring[(head - 1 - i + RING_SIZE) % RING_SIZE];
+                if (shot != null && shot.width == width && shot.height == height
+                        && (maxBytes <= 0 || shot.jpeg.length <= maxBytes)
+                        && (maxAgeNs <= 0 || now - shot.encodedAtNs <= maxAgeNs)) {
+                    return shot;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void loop() {
+        while (running) {
+            long target = targetSize;
+            int width = (int) (target >>> 32);
+            int height = (int) target;
+            int maxBytes = targetMaxBytes;
+            long generation = source.currentGeneration();
+            if (width > 0 && height > 0 && generation != 0) {
+                Shot newest = latest(width, height, maxBytes, 0);
+                if (newest == null || newest.generation != generation) {
+                    try {
+                        encode(width, height, maxBytes, generation);
+                    } catch (RuntimeException e) {
+                        LogUtil.log("【CS】拍照预编码失败: " + e);
+                    }
+                }
+            }
+            try {
+                Thread.sleep(ENCODE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 按模型选出的质量编码一次；模型估计偏低导致超出预算时，用实测结果校准后再编码一次，
+     * 仍超出（内容突然变复杂）时退到最低质量，最低质量也放不下才放弃。
+     * 后台线程与拍照线程可能同时调用，编码缓冲按调用串行使用。
+     */
+    private Shot encode(int width, int height, int maxBytes, long generation) {
+        synchronized (encodeBuffer) {
+            return encodeLocked(width, height, maxBytes, generation);
+        }
+    }
+
+    private Shot encodeLocked(int width, int height, int maxBytes, long generation) {
+        int pixels = width * height;
+        int quality = model.pick(pixels, maxBytes);
+        byte[] jpeg = encodeOnce(width, height, quality);
+        if (jpeg != null && maxBytes > 0 && jpeg.length > maxBytes && quality > QualityModel.MIN_QUALITY) {
+            refits.incrementAndGet();
+            quality = model.pick(pixels, maxBytes);
+            jpeg = encodeOnce(width, height, quality);
+        }
+        if (jpeg != null && maxBytes > 0 && jpeg.length > maxBytes && quality > QualityModel.MIN_QUALITY) {
+            floors.incrementAndGet();
+            quality = QualityModel.MIN_QUALITY;
+            jpeg = encodeOnce(width, height, quality);
+        }
+        if (jpeg == null || (maxBytes > 0 && jpeg.length > maxBytes)) {
+            return null;
+        }
+        Shot shot = new Shot(jpeg, width, height, quality, generation, System.nanoTime());
+        synchronized (ring) {
+            ring[head] = shot;
+            head = (head + 1) % RING_SIZE;
+        }
+        return shot;
+    }
+
+    private byte[] encodeOnce(int width, int height, int quality) {
+        encodeBuffer.reset();
+        if (!source.encode(width, height, quality, encodeBuffer) || encodeBuffer.size() == 0) {
+            return null;
+        }
+        encodes.incrementAndGet();
+        model.observe(quality, width * height, encodeBuffer.size());
+        return encodeBuffer.toByteArray();
+    }
+
+    /** 快门：记录起点；连拍时保留尚未送达的最早一次 */
+    void markShutter() {
+        pendingShutterNs.compareAndSet(0, System.nanoTime());
+    }
+
+    /** 照片已交给应用回调：计入快门到回调的延迟 */
+    void markDelivered() {
+        long start = pendingShutterNs.getAndSet(0);
+        if (start == 0) {
+            return;
+        }
+        long latency = System.nanoTime() - start;
+        shots.incrementAndGet();
+        totalLatencyNs.addAndGet(latency);
+        long max;
+        while (latency > (max = maxLatencyNs.get()) && !maxLatencyNs.compareAndSet(max, latency)) {
+        }
+    }
+
+    long getShotCount() {
+        return shots.get();
+    }
+
+    /** 平均快门到回调延迟（毫秒），尚无样本时为 0 */
+    long getAverageLatencyMs() {
+        long n = shots.get();
+        return n == 0 ? 0 : totalLatencyNs.get() / n / 1_000_000L;
+    }
+
+    long getMaxLatencyMs() {
+        return maxLatencyNs.get() / 1_000_000L;
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    long getEncodeCount() {
+        return encodes.get();
+    }
+
+    /** 模型估计偏低、超出预算后重新编码的次数 */
+    long getRefitCount() {
+        return refits.get();
+    }
+
+    /** 校准后仍超出预算、退到最低质量的次数 */
+    long getFloorCount() {
+        return floors.get();
+    }
+
+    @Override
+    public String toString() {
+        return "still shots=" + shots.get() + " avg=" + getAverageLatencyMs() + "ms max=" + getMaxLatencyMs()
+                + "ms hit=" + hits.get() + " miss=" + misses.get() + " encodes=" + encodes.get()
+                + " refit=" + refits.get() + " floor=" + floors.get();
+    }
+}
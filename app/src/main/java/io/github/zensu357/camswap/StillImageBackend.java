@@ -0,0 +1,161 @@
+package io.github.zensu357.camswap;
+
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import io.github.zensu357.camswap.utils.LogUtil;
+
+/**
+ * Still-image backend: posts the selected picture to the output Surface with a software
+ * Canvas instead of running a decoder. The same frame is re-posted at a low keep-alive rate
+ * so consumers behind a GL fan-out (ImageReaders, encoders) keep receiving buffers.
+ */
+public final class StillImageBackend implements SurfacePlayerBackend {
+
+    /**
+     * Re-post interval. The picture never changes between posts, so this only has to be fast
+     * enough that consumers waiting on a frame do not time out.
+     */
+    static final long KEEP_ALIVE_MS = 100L;
+
+    private Surface outputSurface;
+    private Listener listener;
+    private HandlerThread thread;
+    private Handler handler;
+    private volatile boolean playing;
+    private long startRealtimeMs;
+    private long lastGeneration;
+    private long postCount;
+
+    private final Runnable drawTask = new Runnable() {
+        @Override
+        public void run() {
+            if (!playing) {
+                return;
+            }
+            drawOnce();
+            Handler h = handler;
+            if (playing && h != null) {
+                h.postDelayed(this, KEEP_ALIVE_MS);
+            }
+        }
+    };
+
+    @Override
+    public void setOutputSurface(Surface surface) {
+        this.outputSurface = surface;
+    }
+
+    @Override
+    public void open(MediaSourceDescriptor source) {
+        stop();
+        StillImageSource still = StillImageSource.current();
+        if (still == null) {
+            if (listener != null) {
+                listener.onError("still image unavailable: " + source.localPath, null);
+            }
+            return;
+        }
+        if (thread == null) {
+            thread = new HandlerThread("CS-StillImage");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        playing = true;
+        startRealtimeMs = android.os.SystemClock.elapsedRealtime();
+        handler.post(drawTask);
+        LogUtil.log("【CS】【Still】图片输出已启动: " + still);
+        if (listener != null) {
+            listener.onReady();
+        }
+    }
+
+    private void drawOnce() {
+        Surface surface = outputSurface;
+        StillImageSource still = StillImageSource.current();
+        if (surface == null || !surface.isValid() || still == null) {
+            return;
+        }
+        try {
+            Canvas canvas = surface.lockCanvas(null);
+            try {
+                still.drawTo(canvas, 0);
+            } finally {
+                surface.unlockCanvasAndPost(canvas);
+            }
+            postCount++;
+            if (still.generation != lastGeneration) {
+                lastGeneration = still.generation;
+                LogUtil.log("【CS】【Still】输出图片 " + still.name + " 到 " + canvas.getWidth() + "x"
+                        + canvas.getHeight());
+            }
+        } catch (Exception e) {
+            // Surface 被销毁或已被其他生产者连接
+            playing = false;
+            LogUtil.log("【CS】【Still】图片输出失败: " + e);
+            if (listener != null) {
+                listener.onError("draw failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void restart() {
+        if (handler != null) {
+            playing = true;
+            handler.removeCallbacks(drawTask);
+            handler.post(drawTask);
+        }
+    }
+
+    @Override
+    public void stop() {
+        playing = false;
+        if (handler != null) {
+            handler.removeCallbacks(drawTask);
+        }
+    }
+
+    @Override
+    public void release() {
+        stop();
+        if (thread != null) {
+            thread.quitSafely();
+            thread = null;
+            handler = null;
+        }
+        LogUtil.log("【CS】【Still】图片输出已释放，共投递 " + postCount + " 帧");
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public long getCurrentPositionMs() {
+        return playing ? android.os.SystemClock.elapsedRealtime() - startRealtimeMs : 0;
+    }
+
+    @Override
+    public long getDurationMs() {
+        return -1;
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        // A still picture has no timeline
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        // No audio track
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+}
@@ -0,0 +1,330 @@
+package io.github.zensu357.camswap;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.media.ExifInterface;
+import android.os.ParcelFileDescriptor;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.zensu357.camswap.utils.LogUtil;
+import io.github.zensu357.camswap.utils.VideoManager;
+import io.github.zensu357.camswap.yuv.RgbToYuv;
+import io.github.zensu357.camswap.yuv.YuvConvert;
+
+/**
+ * 静态图片替换源：选中的图片只解码一次，按请求的 (宽, 高, 旋转) 缓存 YUV / JPEG 变体，
+ * Camera1 回调、Camera2 YUV reader、拍照与预览都直接取内存中的结果，不再经过图片→视频→解码。
+ * <p>
+ * 图片内容不变时 {@link #generation} 不变，各路消费者据此跳过重复生成与投递；
+ * 选中的图片变化后 {@link #current()} 重新加载并分配新的 generation。
+ */
+final class StillImageSource {
+
+    /** 解码后长边上限，超出时按 2 的幂降采样，避免大图占用过多内存 */
+    static final int MAX_DECODE_DIMENSION = 2048;
+    /** 每种变体最多保留的尺寸/旋转组合数 */
+    private static final int MAX_BYTE_VARIANTS = 4;
+    private static final int JPEG_QUALITY = 90;
+    /** 加载失败后同一张图的重试间隔，避免每帧都重新解码 */
+    static final long RETRY_INTERVAL_MS = 1000;
+
+    private static final AtomicLong nextGeneration = new AtomicLong(1);
+    private static StillImageSource current;
+    private static String currentKey;
+    private static String failedKey;
+    private static long failedAtMs;
+
+    /** 图片内容的代数，全局唯一且不为 0 */
+    final long generation;
+    final String name;
+    /** 已按 EXIF 方向摆正后的图片尺寸 */
+    final int width;
+    final int height;
+
+    private final Bitmap bitmap;
+    private final YuvVariantCache i420Variants = new YuvVariantCache(FrameArena.shared());
+    private final Map<String, byte[]> nv21Variants = newByteVariantMap();
+    private final Map<String, byte[]> jpegVariants = newByteVariantMap();
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private StillImageSource(String name, Bitmap bitmap) {
+        this.generation = nextGeneration.getAndIncrement();
+        this.name = name;
+        this.bitmap = bitmap;
+        this.width = bitmap.getWidth();
+        this.height = bitmap.getHeight();
+    }
+
+    /**
+     * 当前选中的静态图片；非图片模式或加载失败时返回 null。
+     * 选中的图片（名称或文件大小/修改时间）变化时重新加载；加载失败的图片隔 {@link #RETRY_INTERVAL_MS} 再试。
+     */
+    static synchronized StillImageSource current() {
+        if (!VideoManager.isStillMode()) {
+            return null;
+        }
+        String name = VideoManager.getSelectedImageName();
+        File file = new File(VideoManager.video_path, name);
+        String key = name + "_" + file.length() + "_" + file.lastModified();
+        if (key.equals(currentKey)) {
+            return current;
+        }
+        long now = System.currentTimeMillis();
+        if (key.equals(failedKey) && now - failedAtMs < RETRY_INTERVAL_MS) {
+            return null;
+        }
+        releaseLocked();
+        current = load(name, file);
+        if (current != null) {
+            // 只有加载成功才记下 key，失败（如 Provider 暂时不可用）后仍会重试
+            currentKey = key;
+            failedKey = null;
+        } else {
+            failedKey = key;
+            failedAtMs = now;
+        }
+        return current;
+    }
+
+    /** 释放当前图片及其全部变体（相机关闭时） */
+    static synchronized void release() {
+        releaseLocked();
+    }
+
+    private static void releaseLocked() {
+        if (current != null) {
+            // 其他线程可能仍在用这张图生成变体，bitmap 交给 GC 回收
+            current.i420Variants.clear();
+            current = null;
+        }
+        currentKey = null;
+        failedKey = null;
+    }
+
+    private static StillImageSource load(String name, File file) {
+        long start = System.currentTimeMillis();
+        Bitmap bitmap = null;
+        try {
+            if (file.canRead()) {
+                bitmap = decode(file.getPath(), null);
+            } else {
+                // 目标应用通常读不到公共目录，经 Provider 打开
+                ParcelFileDescriptor pfd = VideoManager.getImagePFD();
+                if (pfd != null) {
+                    try {
+                        bitmap = decode(null, pfd.getFileDescriptor());
+                    } finally {
+                        pfd.close();
+                    }
+                }
+            }
+        } catch (Exception | OutOfMemoryError e) {
+            LogUtil.log("【CS】【Still】图片解码失败: " + name + " " + e);
+        }
+        if (bitmap == null) {
+            LogUtil.log("【CS】【Still】无法加载图片: " + name);
+            return null;
+        }
+        StillImageSource source = new StillImageSource(name, bitmap);
+        LogUtil.log("【CS】【Still】图片已加载: " + name + " " + source.width + "x" + source.height
+                + ", " + (System.currentTimeMillis() - start) + "ms");
+        return source;
+    }
+
+    /** 从路径或 fd 解码并按 EXIF 方向摆正；fd 需可 seek */
+    private static Bitmap decode(String path, FileDescriptor fd) throws Exception {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeWith(path, fd, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, MAX_DECODE_DIMENSION);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap decoded = decodeWith(path, fd, options);
+        if (decoded == null) {
+            return null;
+        }
+        int degrees = 0;
+        try {
+            if (fd != null) {
+                Os.lseek(fd, 0, OsConstants.SEEK_SET);
+            }
+            ExifInterface exif = path != null ? new ExifInterface(path) : new ExifInterface(fd);
+            degrees = exifDegrees(exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL));
+        } catch (Exception e) {
+            // PNG / BMP 等没有 EXIF，按原方向使用
+        }
+        if (degrees == 0) {
+            return decoded;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postRotate(degrees);
+        Bitmap rotated = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+        if (rotated != decoded) {
+            decoded.recycle();
+        }
+        return rotated;
+    }
+
+    private static Bitmap decodeWith(String path, FileDescriptor fd, BitmapFactory.Options options)
+            throws Exception {
+        if (path != null) {
+            return BitmapFactory.decodeFile(path, options);
+        }
+        Os.lseek(fd, 0, OsConstants.SEEK_SET);
+        return BitmapFactory.decodeFileDescriptor(fd, null, options);
+    }
+
+    /** EXIF 方向对应的顺时针旋转角度；镜像方向按其旋转分量处理 */
+    static int exifDegrees(int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+
+    /** 使长边不超过 maxDimension 的最小 2 的幂降采样倍数 */
+    static int sampleSize(int width, int height, int maxDimension) {
+        int sample = 1;
+        while (Math.max(width, height) / sample > maxDimension) {
+            sample <<= 1;
+        }
+        return sample;
+    }
+
+    /**
+     * 把 srcWidth x srcHeight 的图片旋转 rotation 后居中裁剪铺满 dstWidth x dstHeight 所需的缩放倍数。
+     */
+    static float coverScale(int srcWidth, int srcHeight, int rotation, int dstWidth, int dstHeight) {
+        boolean swap = rotation == 90 || rotation == 270;
+        int w = swap ? srcHeight : srcWidth;
+        int h = swap ? srcWidth : srcHeight;
+        return Math.max((float) dstWidth / w, (float) dstHeight / h);
+    }
+
+    /** 按旋转居中裁剪铺满画布；画布尺寸即输出尺寸 */
+    void drawTo(Canvas canvas, int rotation) {
+        int dstWidth = canvas.getWidth();
+        int dstHeight = canvas.getHeight();
+        float scale = coverScale(width, height, rotation, dstWidth, dstHeight);
+        Matrix matrix = new Matrix();
+        matrix.postTranslate(-width / 2f, -height / 2f);
+        matrix.postRotate(rotation);
+        matrix.postScale(scale, scale);
+        matrix.postTranslate(dstWidth / 2f, dstHeight / 2f);
+        canvas.drawColor(Color.BLACK);
+        canvas.drawBitmap(bitmap, matrix, paint);
+    }
+
+    /** 生成 width x height / rotation 的 ARGB 画面，调用方负责 recycle */
+    Bitmap render(int width, int height, int rotation) {
+        Bitmap out = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        drawTo(new Canvas(out), rotation);
+        return out;
+    }
+
+    /**
+     * I420 变体（紧排，存放在 {@link FrameArena} slab 中），同一组参数只生成一次。
+     * 调用方用完须 release 返回的 slab。
+     */
+    FrameArena.Slab acquireI420(int width, int height, int rotation) {
+        return i420Variants.acquire(generation, width, height, rotation, (dst, scratch) -> {
+            int[] argb = renderPixels(width, height, rotation);
+            int cLen = YuvConvert.chromaSize(width, height);
+            byte[] y = new byte[width * height];
+            byte[] u = new byte[cLen];
+            byte[] v = new byte[cLen];
+            RgbToYuv.argbToI420(argb, 0, width, width, height, y, u, v);
+            dst.put(y).put(u).put(v);
+        });
+    }
+
+    /** NV21 变体，供 Camera1 预览回调；返回的数组共享缓存，调用方不得改写 */
+    byte[] nv21(int width, int height, int rotation) {
+        String key = variantKey(width, height, rotation);
+        synchronized (nv21Variants) {
+            byte[] cached = nv21Variants.get(key);
+            if (cached == null) {
+                cached = new byte[YuvConvert.frameSize(width, height)];
+                RgbToYuv.argbToNv21(renderPixels(width, height, rotation), 0, width, width, height, cached);
+                nv21Variants.put(key, cached);
+            }
+            return cached;
+        }
+    }
+
+    /** JPEG 变体，供拍照替换；返回的数组共享缓存，调用方不得改写 */
+    byte[] jpeg(int width, int height, int rotation) {
+        String key = variantKey(width, height, rotation);
+        synchronized (jpegVariants) {
+            byte[] cached = jpegVariants.get(key);
+            if (cached == null) {
+                Bitmap frame = render(width, height, rotation);
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    if (!frame.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                        return null;
+                    }
+                    cached = out.toByteArray();
+                } finally {
+                    frame.recycle();
+                }
+                jpegVariants.put(key, cached);
+            }
+            return cached;
+        }
+    }
+
+    private int[] renderPixels(int width, int height, int rotation) {
+        Bitmap frame = render(width, height, rotation);
+        try {
+            int[] argb = new int[width * height];
+            frame.getPixels(argb, 0, width, 0, 0, width, height);
+            return argb;
+        } finally {
+            frame.recycle();
+        }
+    }
+
+    private static String variantKey(int width, int height, int rotation) {
+        return width + "x" + height + "_r" + rotation;
+    }
+
+    private static Map<String, byte[]> newByteVariantMap() {
+        return new LinkedHashMap<String, byte[]>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > MAX_BYTE_VARIANTS;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "still{" + name + " " + width + "x" + height + " gen=" + generation + ", " + i420Variants + "}";
+    }
+}
@@ -11,14 +11,48 @@ import android.util.Log;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import io.github.zensu357.camswap.utils.TranscodeCache;
 import io.github.zensu357.camswap.utils.VideoManager;
+import io.github.zensu357.camswap.utils.VideoTranscoder;
 
 public class VideoProvider extends ContentProvider {
     private ConfigManager configManager;
+    /** 转码变体缓存；预算为 0 时为 null */
+    private TranscodeCache transcodeCache;
+    /** bootstrap 返回的视频元数据，按 路径_大小_修改时间 缓存 */
+    private final Map<String, Bootstrap.Metadata> metadataCache = new LinkedHashMap<String, Bootstrap.Metadata>(8, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bootstrap.Metadata> eldest) {
+            return size() > MAX_CACHED_METADATA;
+        }
+    };
+    private static final int MAX_CACHED_METADATA = 16;
+    /** 正在后台探测的缓存键，与 metadataCache 同锁 */
+    private final Set<String> pendingProbes = new HashSet<>();
+    /** MediaMetadataRetriever 探测放在后台，bootstrap 的 IPC 只读缓存 */
+    private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "CS-MetadataProbe");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    /**
+     * 放进 bootstrap 结果的 fd 在回复写入 Binder 时被复制，本端副本在此之后关闭。
+     * Bundle 写出时不会替我们关闭，只能延迟关闭。
+     */
+    private static final long BOOTSTRAP_FD_CLOSE_DELAY_MS = 10_000L;
 
     private boolean isCallerAllowed() {
         android.content.Context context = getContext();
@@ -71,6 +105,34 @@ public class VideoProvider extends ContentProvider {
         // double loading
         VideoManager.setConfigManager(configManager);
 
+        if (getContext() != null) {
+            // 之后每次配置落盘都会发布到这里，Hook 进程映射后直接读取
+            ConfigSegment.initShared(new File(getContext().getFilesDir(), ConfigSegment.FILE_NAME),
+                    configManager.getConfigData());
+        }
+
+        // 选中的视频在 Hook 端冷启动之前就探测好元数据，换视频时重新探测
+        prefetchMetadata();
+        configManager.addListener((previous, current, changedKeys) -> {
+            if (changedKeys.contains(ConfigManager.KEY_SELECTED_VIDEO)) {
+                prefetchMetadata();
+            }
+        });
+
+        long budgetMb = configManager.getInt(ConfigManager.KEY_TRANSCODE_CACHE_MB,
+                (int) (TranscodeCache.DEFAULT_BUDGET_BYTES >> 20));
+        if (getContext() != null && budgetMb > 0) {
+            // 单线程低优先级：同一时间只转码一个变体，不与前台争抢编解码器
+            ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "CS-Transcode");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+            transcodeCache = new TranscodeCache(new File(getContext().getCacheDir(), "transcode"),
+                    budgetMb << 20, new VideoTranscoder(), executor);
+        }
+
         return true;
     }
 
@@ -149,8 +211,29 @@ public class VideoProvider extends ContentProvider {
         if (IpcContract.PATH_AUDIO.equals(lastSeg)) {
             return openAudioFile();
         }
+        if (IpcContract.PATH_IMAGE.equals(lastSeg)) {
+            return openImageFile();
+        }
+        if (IpcContract.PATH_CONFIG_SEGMENT.equals(lastSeg)) {
+            return openConfigSegment();
+        }
+
+        startNotificationServiceIfEnabled();
+
+        // Random play is handled ONLY via call("random"), not on every openFile access.
+        // This prevents the video from constantly switching during playback.
 
-        // Try to start service if enabled (Lazy load when video is accessed)
+        File videoFile = resolveVideoFile();
+        File variant = findVariant(videoFile, targetFrom(uri));
+        if (variant != null) {
+            Log.d("VideoProvider", "openFile: serving variant " + variant.getName());
+            videoFile = variant;
+        }
+        return openVideoFile(videoFile);
+    }
+
+    /** Try to start service if enabled (Lazy load when video is accessed) */
+    private void startNotificationServiceIfEnabled() {
         if (configManager.getBoolean(ConfigManager.KEY_NOTIFICATION_CONTROL_ENABLED, false)) {
             try {
                 android.content.Context context = getContext();
@@ -166,10 +249,25 @@ public class VideoProvider extends ContentProvider {
                 Log.w("VideoProvider", "Failed to start NotificationService: " + e.getMessage());
             }
         }
+    }
 
-        // Random play is handled ONLY via call("random"), not on every openFile access.
-        // This prevents the video from constantly switching during playback.
+    private static ParcelFileDescriptor openVideoFile(File videoFile) throws FileNotFoundException {
+        Log.d("VideoProvider", "openFile: opening " + videoFile.getAbsolutePath()
+                + " size=" + videoFile.length()
+                + " canRead=" + videoFile.canRead());
+        try {
+            ParcelFileDescriptor pfd = ParcelFileDescriptor.open(videoFile, ParcelFileDescriptor.MODE_READ_ONLY);
+            Log.d("VideoProvider", "openFile: PFD opened successfully");
+            return pfd;
+        } catch (Exception e) {
+            Log.e("VideoProvider", "openFile: PFD open FAILED: " + e.getMessage());
+            throw new FileNotFoundException(
+                    "Cannot open video file: " + videoFile.getAbsolutePath() + " - " + e.getMessage());
+        }
+    }
 
+    /** 当前选中的视频：selected_video → Cam.mp4 → 目录中任意 mp4 */
+    private File resolveVideoFile() throws FileNotFoundException {
         // 1. Try to get the selected video name
         String videoName = configManager.getString(ConfigManager.KEY_SELECTED_VIDEO, null);
 
@@ -205,17 +303,52 @@ public class VideoProvider extends ContentProvider {
             throw new FileNotFoundException("No video file found in " + videoDir.getAbsolutePath());
         }
 
-        Log.d("VideoProvider", "openFile: opening " + videoFile.getAbsolutePath()
-                + " size=" + videoFile.length()
-                + " canRead=" + videoFile.canRead());
+        return videoFile;
+    }
+
+    /** URI 查询参数中的目标参数；没有或无效时为 null */
+    private static TranscodeCache.Target targetFrom(Uri uri) {
+        return TranscodeCache.Target.of(
+                parseInt(uri.getQueryParameter(IpcContract.QUERY_WIDTH)),
+                parseInt(uri.getQueryParameter(IpcContract.QUERY_HEIGHT)),
+                parseInt(uri.getQueryParameter(IpcContract.QUERY_ROTATION)),
+                parseInt(uri.getQueryParameter(IpcContract.QUERY_FPS)));
+    }
+
+    /** call extras 中的目标参数；没有或无效时为 null */
+    private static TranscodeCache.Target targetFrom(Bundle extras) {
+        if (extras == null) {
+            return null;
+        }
+        return TranscodeCache.Target.of(
+                extras.getInt(IpcContract.EXTRA_TARGET_WIDTH),
+                extras.getInt(IpcContract.EXTRA_TARGET_HEIGHT),
+                extras.getInt(IpcContract.EXTRA_TARGET_ROTATION),
+                extras.getInt(IpcContract.EXTRA_TARGET_FPS));
+    }
+
+    /**
+     * 有目标参数时返回已生成的匹配变体；尚未生成则排队转码并返回 null，本次仍使用源视频。
+     */
+    private File findVariant(File videoFile, TranscodeCache.Target target) {
+        if (transcodeCache == null || target == null) {
+            return null;
+        }
+        File variant = transcodeCache.find(videoFile, target);
+        if (variant == null) {
+            transcodeCache.request(videoFile, target);
+        }
+        return variant;
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return 0;
+        }
         try {
-            ParcelFileDescriptor pfd = ParcelFileDescriptor.open(videoFile, ParcelFileDescriptor.MODE_READ_ONLY);
-            Log.d("VideoProvider", "openFile: PFD opened successfully");
-            return pfd;
-        } catch (Exception e) {
-            Log.e("VideoProvider", "openFile: PFD open FAILED: " + e.getMessage());
-            throw new FileNotFoundException(
-                    "Cannot open video file: " + videoFile.getAbsolutePath() + " - " + e.getMessage());
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 
@@ -270,6 +403,32 @@ public class VideoProvider extends ContentProvider {
         }
     }
 
+    /** 以只读方式打开配置共享段，Hook 端映射后只需检查版本号 */
+    private ParcelFileDescriptor openConfigSegment() throws FileNotFoundException {
+        File segment = ConfigSegment.sharedFile();
+        if (segment == null) {
+            throw new FileNotFoundException("Config segment unavailable");
+        }
+        return ParcelFileDescriptor.open(segment, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    /** 打开图片模式下选中的图片，Hook 端解码一次后常驻内存 */
+    private ParcelFileDescriptor openImageFile() throws FileNotFoundException {
+        String selectedImage = configManager.getString(ConfigManager.KEY_SELECTED_IMAGE, null);
+        if (selectedImage == null || selectedImage.isEmpty()) {
+            throw new FileNotFoundException("No image selected");
+        }
+        File imageFile = new File(ConfigManager.DEFAULT_CONFIG_DIR, selectedImage);
+        Log.d("VideoProvider", "openImageFile: opening " + imageFile.getAbsolutePath()
+                + " exists=" + imageFile.exists());
+        try {
+            return ParcelFileDescriptor.open(imageFile, ParcelFileDescriptor.MODE_READ_ONLY);
+        } catch (Exception e) {
+            throw new FileNotFoundException(
+                    "Cannot open image file: " + imageFile.getAbsolutePath() + " - " + e.getMessage());
+        }
+    }
+
     @Override
     public Bundle call(String method, String arg, Bundle extras) {
         if (!isCallerAllowed()) {
@@ -278,6 +437,9 @@ public class VideoProvider extends ContentProvider {
             return denied;
         }
         configManager.reload();
+        if (IpcContract.METHOD_BOOTSTRAP.equals(method)) {
+            return bootstrap(extras);
+        }
         boolean changed = false;
 
         try {
@@ -287,6 +449,8 @@ public class VideoProvider extends ContentProvider {
                 changed = switchVideo(false);
             } else if (IpcContract.METHOD_RANDOM.equals(method)) {
                 changed = pickRandomVideo();
+            } else if (IpcContract.METHOD_REPORT_TARGET.equals(method)) {
+                requestVariant(extras);
             }
 
             if (changed) {
@@ -303,6 +467,144 @@ public class VideoProvider extends ContentProvider {
         return result;
     }
 
+    /**
+     * 冷启动引导：一次返回配置、解析后的媒体源、预打开的 fd（视频/音频/图片/配置共享段）和已探测好的视频元数据，
+     * Hook 端不再逐项查询配置、探测可用性和打开文件。取不到的项不放进结果，Hook 端按需回退。
+     */
+    private Bundle bootstrap(Bundle extras) {
+        long start = android.os.SystemClock.elapsedRealtime();
+        Bundle result = new Bundle();
+        result.putString(IpcContract.EXTRA_CONFIG_JSON, configManager.getConfigData().toString());
+        List<ParcelFileDescriptor> opened = new ArrayList<>();
+
+        File segment = ConfigSegment.sharedFile();
+        if (segment != null) {
+            putPfd(result, IpcContract.EXTRA_CONFIG_SEGMENT_PFD, opened,
+                    () -> ParcelFileDescriptor.open(segment, ParcelFileDescriptor.MODE_READ_ONLY));
+        }
+
+        ConfigSnapshot config = configManager.snapshot();
+        if (config.streamMode && !config.streamUrl.isEmpty()) {
+            Bootstrap.writeSource(result, MediaSourceDescriptor.stream(config.streamUrl).build());
+        } else if (config.stillMode) {
+            File image = new File(ConfigManager.DEFAULT_CONFIG_DIR, config.selectedImage);
+            Bootstrap.writeSource(result, MediaSourceDescriptor.stillImage(image.getAbsolutePath()).build());
+            putPfd(result, IpcContract.EXTRA_IMAGE_PFD, opened, this::openImageFile);
+        } else {
+            startNotificationServiceIfEnabled();
+            try {
+                File videoFile = resolveVideoFile();
+                File variant = findVariant(videoFile, targetFrom(extras));
+                if (variant != null) {
+                    videoFile = variant;
+                }
+                Bootstrap.writeSource(result, MediaSourceDescriptor.localFile(videoFile.getAbsolutePath()).build());
+                File served = videoFile;
+                putPfd(result, IpcContract.EXTRA_VIDEO_PFD, opened, () -> openVideoFile(served));
+                Bootstrap.Metadata metadata = cachedMetadata(videoFile);
+                if (metadata != null) {
+                    metadata.writeTo(result);
+                }
+            } catch (FileNotFoundException e) {
+                Log.w("VideoProvider", "bootstrap: " + e.getMessage());
+            }
+        }
+
+        if (config.enableMicHook && config.micReplaceMode) {
+            putPfd(result, IpcContract.EXTRA_AUDIO_PFD, opened, this::openAudioFile);
+        }
+
+        closeAfterReply(opened);
+        Log.d("VideoProvider", "bootstrap: " + opened.size() + " fds in "
+                + (android.os.SystemClock.elapsedRealtime() - start) + "ms");
+        return result;
+    }
+
+    private interface PfdOpener {
+        ParcelFileDescriptor open() throws IOException;
+    }
+
+    private static void putPfd(Bundle result, String key, List<ParcelFileDescriptor> opened, PfdOpener opener) {
+        try {
+            ParcelFileDescriptor pfd = opener.open();
+            if (pfd != null) {
+                result.putParcelable(key, pfd);
+                opened.add(pfd);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w("VideoProvider", "bootstrap: " + key + " unavailable: " + e.getMessage());
+        }
+    }
+
+    private static void closeAfterReply(List<ParcelFileDescriptor> opened) {
+        // 同进程调用不经 Binder 复制，调用方拿到的就是这些对象，由调用方关闭
+        if (opened.isEmpty() || android.os.Binder.getCallingPid() == android.os.Process.myPid()) {
+            return;
+        }
+        new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
+            for (ParcelFileDescriptor pfd : opened) {
+                try {
+                    pfd.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }, BOOTSTRAP_FD_CLOSE_DELAY_MS);
+    }
+
+    /**
+     * 已缓存的视频元数据；未命中时排队后台探测并返回 null，这次 bootstrap 不带元数据，Hook 端自行读取。
+     */
+    private Bootstrap.Metadata cachedMetadata(File videoFile) {
+        String key = videoFile.getAbsolutePath() + "_" + videoFile.length() + "_" + videoFile.lastModified();
+        synchronized (metadataCache) {
+            Bootstrap.Metadata cached = metadataCache.get(key);
+            if (cached != null || !pendingProbes.add(key)) {
+                return cached;
+            }
+        }
+        probeExecutor.execute(() -> {
+            Bootstrap.Metadata metadata = Bootstrap.Metadata.probe(videoFile);
+            synchronized (metadataCache) {
+                pendingProbes.remove(key);
+                if (metadata != null) {
+                    metadataCache.put(key, metadata);
+                }
+            }
+        });
+        return null;
+    }
+
+    private void prefetchMetadata() {
+        ConfigSnapshot config = configManager.snapshot();
+        if (config.streamMode || config.stillMode) {
+            return;
+        }
+        try {
+            cachedMetadata(resolveVideoFile());
+        } catch (FileNotFoundException e) {
+            // 还没有可用的视频，等选中后再探测
+        }
+    }
+
+    /** Hook 上报的目标参数：为当前视频排队生成变体，不影响当前播放 */
+    private void requestVariant(Bundle extras) {
+        if (transcodeCache == null) {
+            return;
+        }
+        TranscodeCache.Target target = targetFrom(extras);
+        if (target == null) {
+            return;
+        }
+        try {
+            File videoFile = resolveVideoFile();
+            if (transcodeCache.request(videoFile, target)) {
+                Log.d("VideoProvider", "report_target: queued " + videoFile.getName() + " -> " + target);
+            }
+        } catch (FileNotFoundException e) {
+            Log.w("VideoProvider", "report_target: " + e.getMessage());
+        }
+    }
+
     private boolean switchVideo(boolean next) {
         if (configManager.getBoolean(ConfigManager.KEY_ENABLE_RANDOM_PLAY, false)) {
             return pickRandomVideo();
@@ -14,17 +14,22 @@ import android.view.Surface;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.concurrent.LinkedBlockingQueue;
 
+import io.github.zensu357.camswap.codec.AsyncCodec;
+import io.github.zensu357.camswap.codec.CodecPort;
+import io.github.zensu357.camswap.codec.ExtractorFeeder;
+import io.github.zensu357.camswap.codec.OutputSink;
 import io.github.zensu357.camswap.utils.LogUtil;
+import io.github.zensu357.camswap.utils.VideoManager;
+import io.github.zensu357.camswap.yuv.Nv21FrameTransform;
+import io.github.zensu357.camswap.yuv.TiledExecutor;
+import io.github.zensu357.camswap.yuv.YuvConvert;
+import io.github.zensu357.camswap.yuv.YuvPlanes;
+import io.github.zensu357.camswap.yuv.YuvToRgb;
 
 public class VideoToFrames implements Runnable {
     private static final String TAG = "VideoToFrames";
-    private static final long DEFAULT_TIMEOUT_US = 10000;
-
-    private static final int COLOR_FormatI420 = 1;
-    private static final int COLOR_FormatNV21 = 2;
 
     private final int decodeColorFormat = MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible;
 
@@ -36,7 +41,7 @@ public class VideoToFrames implements Runnable {
     private String videoFilePath;
     private Throwable throwable;
     private Thread childThread;
-    private Surface play_surf;
+    private volatile Surface play_surf;
 
     private Callback callback;
 
@@ -66,8 +71,27 @@ public class VideoToFrames implements Runnable {
         }
     }
 
+    /**
+     * 把同一批解码帧同时渲染到预览 Surface，预览与回调数据逐帧对齐；传 null 解除。
+     */
+    public void setPreviewSurface(Surface surface) {
+        play_surf = surface;
+    }
+
+    /** 解码线程是否在运行（含循环缓存重放） */
+    public boolean isDecoding() {
+        Thread t = childThread;
+        return !stopDecode && t != null && t.isAlive();
+    }
+
+    /** 最近一次投递帧的 PTS（微秒），尚未投递时为 0 */
+    public long getLastDeliveredPtsUs() {
+        return lastDeliveredPtsUs;
+    }
+
     public void stopDecode() {
         stopDecode = true;
+        scheduler.stop();
         if (childThread != null) {
             try {
                 childThread.join(500);
@@ -135,6 +159,7 @@ public class VideoToFrames implements Runnable {
     }
 
     public void run() {
+        scheduler.start();
         try {
             if (videoFd != null) {
                 videoDecode(videoFd);
@@ -149,21 +174,28 @@ public class VideoToFrames implements Runnable {
     @SuppressLint("WrongConstant")
     public void videoDecode(java.io.FileDescriptor fd) throws IOException {
         LogUtil.log("【CS】【decoder】开始解码(FD)");
-        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-        try {
-            retriever.setDataSource(fd);
-            String rotation = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION);
-            if (rotation != null) {
-                mVideoRotation = Integer.parseInt(rotation);
-                LogUtil.log("【CS】【decoder】视频旋转角度: " + mVideoRotation);
-            }
-        } catch (Exception e) {
-            LogUtil.log("【CS】【decoder】获取视频旋转角度失败: " + e.getMessage());
-        } finally {
+        // 冷启动引导包交出的 fd 已带管理端探测好的元数据，省掉一次 MediaMetadataRetriever
+        Bootstrap.Metadata metadata = VideoManager.bootstrapMetadataFor(videoPfd);
+        if (metadata != null) {
+            mVideoRotation = metadata.rotation;
+            LogUtil.log("【CS】【decoder】视频旋转角度(引导包): " + mVideoRotation);
+        } else {
+            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
             try {
-                retriever.release();
-            } catch (IOException e) {
-                e.printStackTrace();
+                retriever.setDataSource(fd);
+                String rotation = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION);
+                if (rotation != null) {
+                    mVideoRotation = Integer.parseInt(rotation);
+                    LogUtil.log("【CS】【decoder】视频旋转角度: " + mVideoRotation);
+                }
+            } catch (Exception e) {
+                LogUtil.log("【CS】【decoder】获取视频旋转角度失败: " + e.getMessage());
+            } finally {
+                try {
+                    retriever.release();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
             }
         }
         MediaExtractor extractor = null;
@@ -189,15 +221,7 @@ public class VideoToFrames implements Runnable {
                 LogUtil.log("【CS】【decoder】unable to set decode color format, color format type " + decodeColorFormat
                         + " not supported");
             }
-            // 解码第一帧
-            decodeFramesToImage(decoder, extractor, mediaFormat);
-            decoder.stop();
-            while (!stopDecode) {
-                extractor.seekTo(0, 0);
-                // 解码后续帧
-                decodeFramesToImage(decoder, extractor, mediaFormat);
-                decoder.stop();
-            }
+            decodeLooping(decoder, extractor, mediaFormat);
         } catch (Exception e) {
             LogUtil.log("【CS】【decoder】【videoFD】" + e.toString());
         } finally {
@@ -268,13 +292,7 @@ public class VideoToFrames implements Runnable {
                 LogUtil.log("【CS】【decoder】unable to set decode color format, color format type " + decodeColorFormat
                         + " not supported");
             }
-            decodeFramesToImage(decoder, extractor, mediaFormat);
-            decoder.stop();
-            while (!stopDecode) {
-                extractor.seekTo(0, 0);
-                decodeFramesToImage(decoder, extractor, mediaFormat);
-                decoder.stop();
-            }
+            decodeLooping(decoder, extractor, mediaFormat);
         } catch (Exception e) {
             LogUtil.log("【CS】【decoder】【videofile】" + e.toString());
         } finally {
@@ -310,317 +328,388 @@ public class VideoToFrames implements Runnable {
         return false;
     }
 
-    private void decodeFramesToImage(MediaCodec decoder, MediaExtractor extractor, MediaFormat mediaFormat) {
-        boolean is_first = false;
-        long startWhen = 0;
-        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+    /**
+     * 循环播放：编解码器以回调模式运行，输出模式不变时到达 EOS 只 seek + flush，不重新 configure/start；
+     * 短视频在预算内录入 {@link LoopFrameCache} 后停掉解码器，直接从内存重放。
+     */
+    private void decodeLooping(MediaCodec decoder, MediaExtractor extractor, MediaFormat mediaFormat) {
+        loopCache.reset(loopCacheBudgetBytes(), estimateFrameCount(mediaFormat));
+        directChromaLayout = YuvConvert.CHROMA_PLANAR;
+        while (!stopDecode) {
+            // 如果需要旋转或需要向预览回调发布帧，则不配置 Surface（走内存解码）
+            DecodeSink sink = new DecodeSink(needSoftDecode());
+            Surface configSurface = sink.softDecode ? null : play_surf;
+            extractor.seekTo(0, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+            if (sink.softDecode) {
+                loopCache.beginPass();
+            }
+            AsyncCodec async = AsyncCodec.start(decoder, mediaFormat, configSurface, 0,
+                    new ExtractorFeeder(extractor), sink, "decode-cb");
+            try {
+                // 解码全在回调线程上进行，本线程只等待停止、出错或需要重新 configure
+                while (!stopDecode && !async.awaitEnd(100)) {
+                }
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                async.stop();
+            }
+            if (async.getError() != null) {
+                LogUtil.log("【CS】【decoder】解码出错: " + async.getError());
+                return;
+            }
+            if (sink.replay && !stopDecode) {
+                LogUtil.log("【CS】【decoder】循环缓存就绪: " + loopCache.getFrameCount() + " 帧, "
+                        + (loopCache.getBytes() >> 10) + "KB，停止解码器");
+                replayLoopCache();
+            }
+        }
+    }
 
-        // 计算初始旋转角度决定是否需要内存解码模式
-        int manualOffset = 0;
-        try {
-            manualOffset = HookMain.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
-        } catch (Exception ignored) {
+    /** 解码输出，运行在编解码器回调线程上 */
+    private final class DecodeSink implements OutputSink {
+        final boolean softDecode;
+        volatile boolean replay;
+        private long startWhen = -1;
+        private int outputFrameCount;
+
+        DecodeSink(boolean softDecode) {
+            this.softDecode = softDecode;
         }
-        int initialEffectiveRotation = (mVideoRotation + manualOffset + 360) % 360;
-        boolean needSoftDecode = (initialEffectiveRotation != 0) || outputImageFormat != null;
-
-        // 如果需要旋转或需要填充 data_buffer，则不配置 Surface（走内存解码）
-        Surface configSurface = needSoftDecode ? null : play_surf;
-        decoder.configure(mediaFormat, configSurface, null, 0);
-
-        boolean sawInputEOS = false;
-        boolean sawOutputEOS = false;
-        decoder.start();
-        final int width = mediaFormat.getInteger(MediaFormat.KEY_WIDTH);
-        final int height = mediaFormat.getInteger(MediaFormat.KEY_HEIGHT);
-        int outputFrameCount = 0;
-        while (!sawOutputEOS && !stopDecode) {
-            if (!sawInputEOS) {
-                int inputBufferId = decoder.dequeueInputBuffer(DEFAULT_TIMEOUT_US);
-                if (inputBufferId >= 0) {
-                    ByteBuffer inputBuffer = decoder.getInputBuffer(inputBufferId);
-                    int sampleSize = extractor.readSampleData(inputBuffer, 0);
-                    if (sampleSize < 0) {
-                        decoder.queueInputBuffer(inputBufferId, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                        sawInputEOS = true;
-                    } else {
-                        long presentationTimeUs = extractor.getSampleTime();
-                        decoder.queueInputBuffer(inputBufferId, 0, sampleSize, presentationTimeUs, 0);
-                        extractor.advance();
+
+        @Override
+        public void onOutputBuffer(CodecPort codec, int index, int offset, int size, long presentationTimeUs,
+                int flags) {
+            outputFrameCount++;
+            if (callback != null) {
+                callback.onDecodeFrame(outputFrameCount);
+            }
+            if (softDecode) {
+                // 内存解码模式：拷出平面后立即归还输出 buffer，变换结果进入预解码环，由调度线程按 PTS 投递
+                Image image = codec.getOutputImage(index);
+                boolean queued = false;
+                if (image != null) {
+                    // 无需旋转/缩放时输出平面直接写进预解码环的帧，省去暂存与变换两次整帧拷贝
+                    queued = queueDirect(image, presentationTimeUs);
+                    if (!queued) {
+                        planes.copyFrom(image);
                     }
+                    image.close();
                 }
-            }
-            int outputBufferId = decoder.dequeueOutputBuffer(info, DEFAULT_TIMEOUT_US);
-            if (outputBufferId >= 0) {
-                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                    sawOutputEOS = true;
+                codec.releaseOutputBuffer(index, false);
+                if (image != null && !queued) {
+                    convertAndQueue(presentationTimeUs);
                 }
-                boolean doRender = (info.size != 0);
-                if (doRender) {
-                    outputFrameCount++;
-                    if (callback != null) {
-                        callback.onDecodeFrame(outputFrameCount);
-                    }
-                    if (!is_first) {
-                        startWhen = System.currentTimeMillis();
-                        is_first = true;
-                    }
-                    if (configSurface == null) {
-                        // 内存解码模式：获取帧数据，做旋转处理
-                        Image image = decoder.getOutputImage(outputBufferId);
-
-                        // 动态重新计算旋转角度（配置可能被通知栏按钮实时更新）
-                        int currentManualOffset = 0;
-                        try {
-                            currentManualOffset = HookMain.getConfig().getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET,
-                                    0);
-                        } catch (Exception ignored) {
-                        }
-                        int effectiveRotation = (mVideoRotation + currentManualOffset + 360) % 360;
-
-                        boolean needSwapDimensions = (effectiveRotation == 90 || effectiveRotation == 270);
-                        int finalWidth = needSwapDimensions ? height : width;
-                        int finalHeight = needSwapDimensions ? width : height;
-
-                        byte[] rawData = getDataFromImage(image, COLOR_FormatNV21);
-                        byte[] processedData;
-
-                        // 1. Rotation
-                        if (effectiveRotation != 0) {
-                            processedData = rotateNV21(rawData, width, height, effectiveRotation);
-                        } else {
-                            processedData = rawData;
-                        }
-
-                        // 2. Scaling (if target size is set and mismatches)
-                        if (targetWidth > 0 && targetHeight > 0
-                                && (finalWidth != targetWidth || finalHeight != targetHeight)) {
-                            // LogUtil.log("【CS】Scaling frame from " + finalWidth + "x" + finalHeight + " to
-                            // " + targetWidth + "x" + targetHeight);
-                            processedData = cropAndScaleNV21(processedData, finalWidth, finalHeight, targetWidth,
-                                    targetHeight);
-                            finalWidth = targetWidth;
-                            finalHeight = targetHeight;
-                        }
-
-                        if (mQueue != null) {
-                            try {
-                                mQueue.put(processedData);
-                            } catch (InterruptedException e) {
-                                LogUtil.log("【CS】" + e.toString());
-                                BytePool.release(processedData);
-                            }
-                        }
-                        if (outputImageFormat != null) {
-                            byte[] old = HookMain.data_buffer;
-                            HookMain.data_buffer = processedData;
-                            Camera1Handler.notifyPreviewFrameBufferReady();
-                            // Do NOT overwrite mwidth/mhight if we are respecting target size
-                            // If target size was set, these should match HookMain's expectations already
-                            if (targetWidth == 0 || targetHeight == 0) {
-                                HookMain.mwidth = finalWidth;
-                                HookMain.mhight = finalHeight;
-                            }
-
-                            if (old != null && old.length > 1 && old != processedData) {
-                                BytePool.release(old);
-                            }
-                        }
-
-                        // 如果有 play_surf（Camera2 reader Surface），将旋转后的帧渲染上去
-                        if (play_surf != null) {
-                            try {
-                                renderNV21ToSurface(processedData, finalWidth, finalHeight, play_surf);
-                            } catch (Exception e) {
-                                LogUtil.log("【CS】渲染到Surface失败: " + e.toString());
-                            }
-                        }
-
-                        image.close();
-                    }
-                    long sleepTime = info.presentationTimeUs / 1000 - (System.currentTimeMillis() - startWhen);
-                    if (sleepTime > 0) {
-                        try {
-                            Thread.sleep(sleepTime);
-                        } catch (InterruptedException e) {
-                            LogUtil.log("【CS】" + e.toString());
-                            LogUtil.log("【CS】线程延迟出错");
-                        }
-                    }
-                    decoder.releaseOutputBuffer(outputBufferId, configSurface != null);
+                return;
+            }
+            if (startWhen < 0) {
+                startWhen = System.currentTimeMillis();
+            }
+            long sleepTime = presentationTimeUs / 1000 - (System.currentTimeMillis() - startWhen);
+            if (sleepTime > 0) {
+                try {
+                    Thread.sleep(sleepTime);
+                } catch (InterruptedException e) {
+                    LogUtil.log("【CS】" + e.toString());
+                    LogUtil.log("【CS】线程延迟出错");
                 }
             }
+            codec.releaseOutputBuffer(index, true);
         }
-        if (callback != null) {
-            callback.onFinishDecode();
+
+        @Override
+        public boolean onEndOfStream() {
+            if (callback != null) {
+                callback.onFinishDecode();
+            }
+            if (stopDecode) {
+                return false;
+            }
+            if (softDecode && loopCache.endPass()) {
+                replay = true;
+                return false;
+            }
+            // 旋转变化可能在 Surface 直出与内存解码间切换，需要重新 configure
+            if (needSoftDecode() != softDecode) {
+                return false;
+            }
+            if (softDecode) {
+                loopCache.beginPass();
+            }
+            startWhen = -1;
+            outputFrameCount = 0;
+            return true;
         }
     }
 
-    private int targetWidth = 0;
-    private int targetHeight = 0;
-
-    public void setTargetSize(int w, int h) {
-        this.targetWidth = w;
-        this.targetHeight = h;
+    /** 从循环缓存重放，直到停止或旋转/目标尺寸变化使缓存失效 */
+    private void replayLoopCache() {
+        while (!stopDecode) {
+            int count = loopCache.getFrameCount();
+            for (int i = 0; i < count && !stopDecode; i++) {
+                if (!loopCache.matches(effectiveRotation(), targetSize)) {
+                    LogUtil.log("【CS】【decoder】变换参数变化，循环缓存失效，恢复解码");
+                    loopCache.invalidate();
+                    return;
+                }
+                LoopFrameCache.Entry entry = loopCache.get(i);
+                FrameScheduler.Frame frame;
+                try {
+                    frame = scheduler.obtain();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (frame == null) {
+                    return;
+                }
+                loopCache.read(i, frame.ensureCapacity(entry.size));
+                frame.width = entry.width;
+                frame.height = entry.height;
+                frame.ptsUs = entry.ptsUs;
+                scheduler.queue(frame);
+                if (callback != null) {
+                    callback.onDecodeFrame(i + 1);
+                }
+            }
+            if (callback != null) {
+                callback.onFinishDecode();
+            }
+        }
     }
 
-    private byte[] cropAndScaleNV21(byte[] src, int srcW, int srcH, int dstW, int dstH) {
-        float srcAspect = (float) srcW / srcH;
-        float dstAspect = (float) dstW / dstH;
+    private boolean needSoftDecode() {
+        return effectiveRotation() != 0 || outputImageFormat != null;
+    }
 
-        int cropW = srcW;
-        int cropH = srcH;
-        int cropX = 0;
-        int cropY = 0;
+    /** 视频自带旋转 + 用户偏移（配置可能被通知栏按钮实时更新） */
+    private int effectiveRotation() {
+        // 每帧调用两次：读类型化快照的字段，不做 JSON 查找
+        int currentManualOffset = HookMain.getConfig().snapshot().videoRotationOffset;
+        return (mVideoRotation + currentManualOffset + 360) % 360;
+    }
 
-        if (srcAspect > dstAspect) {
-            // Source is wider than target -> Crop horizontal
-            cropW = (int) (srcH * dstAspect);
-            cropW = cropW & ~1; // Ensure even
-            cropX = (srcW - cropW) / 2;
-            cropX = cropX & ~1; // Ensure even
-        } else if (srcAspect < dstAspect) {
-            // Source is taller than target -> Crop vertical
-            cropH = (int) (srcW / dstAspect);
-            cropH = cropH & ~1; // Ensure even
-            cropY = (srcH - cropH) / 2;
-            cropY = cropY & ~1; // Ensure even
+    private static long loopCacheBudgetBytes() {
+        int mb = LOOP_CACHE_DEFAULT_MB;
+        try {
+            mb = HookMain.getConfig().getInt(ConfigManager.KEY_LOOP_CACHE_MB, LOOP_CACHE_DEFAULT_MB);
+        } catch (Exception ignored) {
         }
+        return Math.max(0, mb) * 1024L * 1024L;
+    }
 
-        byte[] dst = new byte[dstW * dstH * 3 / 2];
-
-        int scaleX_fp = (cropW << 16) / dstW;
-        int scaleY_fp = (cropH << 16) / dstH;
+    /** 由时长和帧率估算总帧数，任一缺失时返回 0 */
+    private static int estimateFrameCount(MediaFormat format) {
+        try {
+            if (!format.containsKey(MediaFormat.KEY_DURATION) || !format.containsKey(MediaFormat.KEY_FRAME_RATE)) {
+                return 0;
+            }
+            long durationUs = format.getLong(MediaFormat.KEY_DURATION);
+            int fps = format.getInteger(MediaFormat.KEY_FRAME_RATE);
+            return fps > 0 ? (int) Math.min(Integer.MAX_VALUE, durationUs * fps / 1_000_000L) : 0;
+        } catch (RuntimeException e) {
+            // 部分封装把帧率存成 float
+            return 0;
+        }
+    }
 
-        // Scale Y using Bilinear Interpolation
-        for (int y = 0; y < dstH; y++) {
-            float sy = cropY + y * (float) cropH / dstH;
-            int y0 = (int) sy;
-            int y1 = Math.min(y0 + 1, cropY + cropH - 1);
-            float dy = sy - y0;
-            float dy1 = 1.0f - dy;
+    /** 高 32 位为宽，低 32 位为高；打包成一个 volatile 保证解码线程读到的宽高成对 */
+    private volatile long targetSize = 0;
+    private final YuvPlanes planes = new YuvPlanes();
+    // 直通路径的色度布局与逐行暂存，仅解码回调线程使用
+    private int directChromaLayout = YuvConvert.CHROMA_PLANAR;
+    private byte[] directRow = new byte[0];
+    private final Nv21FrameTransform frameTransform = new Nv21FrameTransform();
+
+    private final TiledExecutor tiles = new TiledExecutor();
+    private final FrameScheduler scheduler = new FrameScheduler(FrameScheduler.DEFAULT_DEPTH,
+            this::deliverFrame, "decode-schedule");
+    /** 循环缓存默认预算（MB），与帧内存池的默认预算相同；0 为禁用 */
+    static final int LOOP_CACHE_DEFAULT_MB = (int) (FrameArena.DEFAULT_BUDGET_BYTES >> 20);
+    private final LoopFrameCache loopCache = new LoopFrameCache(0);
+    private volatile long lastDeliveredPtsUs;
+    // renderNV21ToSurface 复用的转换缓冲，仅调度线程使用
+    private int[] renderArgb;
+    private android.graphics.Bitmap renderBitmap;
+    private final android.graphics.Rect renderDestRect = new android.graphics.Rect();
+
+    public VideoToFrames() {
+        // 超过 720p 的帧在共享的有界线程池上分带并行变换
+        frameTransform.setExecutor(tiles);
+    }
 
-            int dstRowOffset = y * dstW;
-            int srcRowOffset0 = y0 * srcW;
-            int srcRowOffset1 = y1 * srcW;
+    public void setTargetSize(int w, int h) {
+        this.targetSize = (w > 0 && h > 0) ? ((long) w << 32) | (h & 0xFFFFFFFFL) : 0;
+    }
 
-            for (int x = 0; x < dstW; x++) {
-                float sx = cropX + x * (float) cropW / dstW;
-                int x0 = (int) sx;
-                int x1 = Math.min(x0 + 1, cropX + cropW - 1);
-                float dx = sx - x0;
-                float dx1 = 1.0f - dx;
+    /** 解码线程：对已拷出的平面做 旋转 + 裁剪 + 缩放，写入预解码环 */
+    private void convertAndQueue(long presentationTimeUs) {
+        // 动态重新计算旋转角度（配置可能被通知栏按钮实时更新）
+        int effectiveRotation = effectiveRotation();
+
+        // 单遍完成 旋转 + 裁剪 + 缩放；旋转或目标尺寸变化时下一帧自动重建映射表
+        long target = targetSize;
+        if (frameTransform.configure(planes, effectiveRotation, (int) (target >>> 32), (int) target)) {
+            LogUtil.log("【CS】【decoder】帧变换: " + planes.width + "x" + planes.height
+                    + " rot=" + effectiveRotation + " -> "
+                    + frameTransform.getOutputWidth() + "x" + frameTransform.getOutputHeight());
+        }
+        FrameScheduler.Frame frame;
+        try {
+            frame = scheduler.obtain();
+        } catch (InterruptedException e) {
+            return;
+        }
+        if (frame == null) {
+            return;
+        }
+        frameTransform.apply(planes, frame.ensureCapacity(frameTransform.getOutputSize()));
+        frame.width = frameTransform.getOutputWidth();
+        frame.height = frameTransform.getOutputHeight();
+        frame.ptsUs = presentationTimeUs;
+        loopCache.record(frame.data, frame.size, frame.width, frame.height, presentationTimeUs,
+                effectiveRotation, target);
+        scheduler.queue(frame);
+    }
 
-                int p00 = src[srcRowOffset0 + x0] & 0xFF;
-                int p01 = src[srcRowOffset0 + x1] & 0xFF;
-                int p10 = src[srcRowOffset1 + x0] & 0xFF;
-                int p11 = src[srcRowOffset1 + x1] & 0xFF;
+    /**
+     * 解码线程：旋转为 0、裁剪区从原点开始且尺寸与目标一致时，把 Image 平面按行整块拷贝成 NV21
+     * 直接写入预解码环的帧；交错色度按 {@link YuvConvert#chromaLayout} 的判断整块拷贝。
+     *
+     * @return false 表示需要变换，调用方走暂存 + 变换路径
+     */
+    private boolean queueDirect(Image image, long presentationTimeUs) {
+        if (image.getFormat() != ImageFormat.YUV_420_888) {
+            return false;
+        }
+        Rect crop = image.getCropRect();
+        int width = crop.width() & ~1;
+        int height = crop.height() & ~1;
+        long target = targetSize;
+        if (crop.left != 0 || crop.top != 0 || effectiveRotation() != 0
+                || (target != 0 && ((int) (target >>> 32) != width || (int) target != height))) {
+            return false;
+        }
+        Image.Plane[] p = image.getPlanes();
+        if (p[0].getPixelStride() != 1 || p[1].getRowStride() != p[2].getRowStride()
+                || p[1].getPixelStride() != p[2].getPixelStride()) {
+            return false;
+        }
+        int uvRowStride = p[1].getRowStride();
+        int uvPixelStride = p[1].getPixelStride();
+        // 同一解码器的平面布局不会变化；色度平坦时判断不出顺序，留到后续帧再判断
+        if (directChromaLayout == YuvConvert.CHROMA_PLANAR) {
+            directChromaLayout = YuvConvert.chromaLayout(p[1].getBuffer(), p[2].getBuffer(),
+                    uvRowStride, uvPixelStride, width, height);
+        }
+        if (directRow.length < uvRowStride) {
+            directRow = new byte[uvRowStride];
+        }
+        FrameScheduler.Frame frame;
+        try {
+            frame = scheduler.obtain();
+        } catch (InterruptedException e) {
+            return true;
+        }
+        if (frame == null) {
+            return true;
+        }
+        YuvConvert.packNv21(p[0].getBuffer(), p[0].getRowStride(), p[1].getBuffer(), p[2].getBuffer(),
+                uvRowStride, uvPixelStride, directChromaLayout, width, height,
+                frame.ensureCapacity(YuvConvert.frameSize(width, height)), directRow);
+        frame.width = width;
+        frame.height = height;
+        frame.ptsUs = presentationTimeUs;
+        loopCache.record(frame.data, frame.size, width, height, presentationTimeUs, 0, target);
+        scheduler.queue(frame);
+        return true;
+    }
 
-                float val = (p00 * dx1 + p01 * dx) * dy1 + (p10 * dx1 + p11 * dx) * dy;
-                dst[dstRowOffset + x] = (byte) (int) val;
+    /** 调度线程：按 PTS 到期的帧发布给 Camera1 预览回调并渲染到 Camera2 Surface */
+    private void deliverFrame(FrameScheduler.Frame frame) {
+        byte[] processedData = frame.data;
+        int finalWidth = frame.width;
+        int finalHeight = frame.height;
+        if (mQueue != null) {
+            try {
+                mQueue.put(java.util.Arrays.copyOf(processedData, frame.size));
+            } catch (InterruptedException e) {
+                LogUtil.log("【CS】" + e.toString());
+            }
+        }
+        if (outputImageFormat != null) {
+            if (processedData.length == frame.size) {
+                // 与交换槽位互换数组，不再整帧拷贝；换回来的数组留给下一帧写入
+                frame.data = HookMain.previewFrames.publishSwap(processedData, finalWidth, finalHeight);
+            } else {
+                byte[] slot = HookMain.previewFrames.beginWrite(frame.size);
+                if (slot != null) {
+                    System.arraycopy(processedData, 0, slot, 0, frame.size);
+                    HookMain.previewFrames.publish(finalWidth, finalHeight);
+                }
+            }
+            // Do NOT overwrite mwidth/mhight if we are respecting target size
+            // If target size was set, these should match HookMain's expectations already
+            if (targetSize == 0) {
+                HookMain.mwidth = finalWidth;
+                HookMain.mhight = finalHeight;
             }
         }
 
-        // Scale UV using Nearest Neighbor (sufficient for chroma and faster)
-        int srcUVStart = srcW * srcH;
-        int dstUVStart = dstW * dstH;
-        for (int y = 0; y < dstH / 2; y++) {
-            int sy = (cropY / 2) + ((y * scaleY_fp) >> 16);
-            int srcRowOffset = srcUVStart + sy * srcW;
-            int dstRowOffset = dstUVStart + y * dstW;
-            for (int x = 0; x < dstW / 2; x++) {
-                int sx = (cropX / 2) + ((x * scaleX_fp) >> 16);
-                int srcColOffset = sx * 2;
-                dst[dstRowOffset + x * 2] = src[srcRowOffset + srcColOffset];
-                dst[dstRowOffset + x * 2 + 1] = src[srcRowOffset + srcColOffset + 1];
+        lastDeliveredPtsUs = frame.ptsUs;
+
+        // 如果有 play_surf（Camera2 reader Surface 或 Camera1 预览），将同一帧渲染上去
+        Surface surface = play_surf;
+        if (surface != null && surface.isValid()) {
+            try {
+                renderNV21ToSurface(processedData, finalWidth, finalHeight, surface);
+            } catch (Exception e) {
+                LogUtil.log("【CS】渲染到Surface失败: " + e.toString());
             }
         }
-        return dst;
+        long delivered = scheduler.getDeliveredCount();
+        if (delivered > 0 && delivered % 300 == 0) {
+            LogUtil.log("【CS】【decoder】帧调度: " + scheduler);
+        }
+    }
+
+    /** 因迟到被调度器跳过的帧数 */
+    public long getDroppedFrameCount() {
+        return scheduler.getDroppedCount();
+    }
+
+    /** 晚于 PTS 到期时间投递的帧数 */
+    public long getLateFrameCount() {
+        return scheduler.getLateCount();
     }
 
     /**
      * 将 NV21 数据转为 Bitmap 并渲染到指定 Surface。
      * 用于 Camera2 reader 路径在旋转后手动渲染帧。
+     * 直接查表转换到复用的 ARGB 缓冲与 Bitmap，不再经过 JPEG 编解码。
      */
     private void renderNV21ToSurface(byte[] nv21Data, int width, int height, Surface surface) {
-        android.graphics.YuvImage yuvImage = new android.graphics.YuvImage(
-                nv21Data, android.graphics.ImageFormat.NV21, width, height, null);
-        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-        yuvImage.compressToJpeg(new android.graphics.Rect(0, 0, width, height), 90, baos);
-        byte[] jpegData = baos.toByteArray();
-        android.graphics.Bitmap bitmap = android.graphics.BitmapFactory.decodeByteArray(jpegData, 0, jpegData.length);
-
-        if (bitmap != null) {
-            android.graphics.Canvas canvas = surface.lockCanvas(null);
-            if (canvas != null) {
-                // 缩放 bitmap 以填充 canvas
-                android.graphics.Rect destRect = new android.graphics.Rect(0, 0, canvas.getWidth(), canvas.getHeight());
-                canvas.drawBitmap(bitmap, null, destRect, null);
-                surface.unlockCanvasAndPost(canvas);
-            }
-            bitmap.recycle();
-        }
-    }
-
-    private byte[] rotateNV21(byte[] input, int width, int height, int rotation) {
-        byte[] output = new byte[input.length];
-        int frameSize = width * height;
-        boolean swap = (rotation == 90 || rotation == 270);
-
-        // 90 degrees CW
-        if (rotation == 90) {
-            int k = 0;
-            // Rotate Y
-            for (int x = 0; x < width; x++) {
-                for (int y = height - 1; y >= 0; y--) {
-                    output[k++] = input[y * width + x];
-                }
-            }
-            // Rotate UV
-            for (int x = 0; x < width; x += 2) {
-                for (int y = height / 2 - 1; y >= 0; y--) {
-                    output[k++] = input[frameSize + y * width + x];
-                    output[k++] = input[frameSize + y * width + x + 1];
-                }
-            }
-            return output;
+        int pixels = width * height;
+        if (renderArgb == null || renderArgb.length != pixels) {
+            renderArgb = new int[pixels];
         }
-
-        // 180 degrees
-        if (rotation == 180) {
-            int k = 0;
-            // Rotate Y
-            for (int i = frameSize - 1; i >= 0; i--) {
-                output[k++] = input[i];
-            }
-            // Rotate UV
-            for (int i = input.length - 2; i >= frameSize; i -= 2) {
-                output[k++] = input[i]; // V
-                output[k++] = input[i + 1]; // U
+        if (renderBitmap == null || renderBitmap.getWidth() != width || renderBitmap.getHeight() != height) {
+            if (renderBitmap != null) {
+                renderBitmap.recycle();
             }
-            return output;
+            renderBitmap = android.graphics.Bitmap.createBitmap(width, height, android.graphics.Bitmap.Config.ARGB_8888);
         }
-
-        // 270 degrees CW (or 90 CCW)
-        if (rotation == 270) {
-            int k = 0;
-            // Rotate Y
-            for (int x = width - 1; x >= 0; x--) {
-                for (int y = 0; y < height; y++) {
-                    output[k++] = input[y * width + x];
-                }
-            }
-            // Rotate UV
-            for (int x = width - 2; x >= 0; x -= 2) {
-                for (int y = 0; y < height / 2; y++) {
-                    output[k++] = input[frameSize + y * width + x];
-                    output[k++] = input[frameSize + y * width + x + 1];
-                }
-            }
-            return output;
+        final int[] argb = renderArgb;
+        tiles.run(height, 2, pixels,
+                (rowStart, rowEnd) -> YuvToRgb.nv21ToArgbRows(nv21Data, width, height, rowStart, rowEnd, argb));
+        renderBitmap.setPixels(argb, 0, width, 0, 0, width, height);
+
+        android.graphics.Canvas canvas = surface.lockCanvas(null);
+        if (canvas != null) {
+            // 缩放 bitmap 以填充 canvas
+            renderDestRect.set(0, 0, canvas.getWidth(), canvas.getHeight());
+            canvas.drawBitmap(renderBitmap, null, renderDestRect, null);
+            surface.unlockCanvasAndPost(canvas);
         }
-
-        return input;
     }
 
     private static int selectTrack(MediaExtractor extractor) {
@@ -634,88 +723,6 @@ public class VideoToFrames implements Runnable {
         }
         return -1;
     }
-
-    private static boolean isImageFormatSupported(Image image) {
-        int format = image.getFormat();
-        switch (format) {
-            case ImageFormat.YUV_420_888:
-            case ImageFormat.NV21:
-            case ImageFormat.YV12:
-                return true;
-        }
-        return false;
-    }
-
-    private static byte[] getDataFromImage(Image image, int colorFormat) {
-        if (colorFormat != COLOR_FormatI420 && colorFormat != COLOR_FormatNV21) {
-            throw new IllegalArgumentException("only support COLOR_FormatI420 " + "and COLOR_FormatNV21");
-        }
-        if (!isImageFormatSupported(image)) {
-            throw new RuntimeException("can't convert Image to byte array, format " + image.getFormat());
-        }
-        Rect crop = image.getCropRect();
-        int format = image.getFormat();
-        int width = crop.width();
-        int height = crop.height();
-        Image.Plane[] planes = image.getPlanes();
-        byte[] data = BytePool.acquire(width * height * ImageFormat.getBitsPerPixel(format) / 8);
-        byte[] rowData = new byte[planes[0].getRowStride()];
-        int channelOffset = 0;
-        int outputStride = 1;
-        for (int i = 0; i < planes.length; i++) {
-            switch (i) {
-                case 0:
-                    channelOffset = 0;
-                    outputStride = 1;
-                    break;
-                case 1:
-                    if (colorFormat == COLOR_FormatI420) {
-                        channelOffset = width * height;
-                        outputStride = 1;
-                    } else if (colorFormat == COLOR_FormatNV21) {
-                        channelOffset = width * height + 1;
-                        outputStride = 2;
-                    }
-                    break;
-                case 2:
-                    if (colorFormat == COLOR_FormatI420) {
-                        channelOffset = (int) (width * height * 1.25);
-                        outputStride = 1;
-                    } else if (colorFormat == COLOR_FormatNV21) {
-                        channelOffset = width * height;
-                        outputStride = 2;
-                    }
-                    break;
-            }
-            ByteBuffer buffer = planes[i].getBuffer();
-            int rowStride = planes[i].getRowStride();
-            int pixelStride = planes[i].getPixelStride();
-            int shift = (i == 0) ? 0 : 1;
-            int w = width >> shift;
-            int h = height >> shift;
-            buffer.position(rowStride * (crop.top >> shift) + pixelStride * (crop.left >> shift));
-            for (int row = 0; row < h; row++) {
-                int length;
-                if (pixelStride == 1 && outputStride == 1) {
-                    length = w;
-                    buffer.get(data, channelOffset, length);
-                    channelOffset += length;
-                } else {
-                    length = (w - 1) * pixelStride + 1;
-                    buffer.get(rowData, 0, length);
-                    for (int col = 0; col < w; col++) {
-                        data[channelOffset] = rowData[col * pixelStride];
-                        channelOffset += outputStride;
-                    }
-                }
-                if (row < h - 1) {
-                    buffer.position(buffer.position() + rowStride - length);
-                }
-            }
-        }
-        return data;
-    }
-
 }
 
 enum OutputImageFormat {
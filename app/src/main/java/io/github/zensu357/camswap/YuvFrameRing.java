@@ -0,0 +1,162 @@
+package io.github.zensu357.camswap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MediaCodecYuvDecoder} 发布帧用的定长环：每个槽是一个常驻的 {@link MediaCodecYuvDecoder.YuvFrame}，
+ * 数据放在环长期持有的 {@link FrameArena} slab 中。
+ * <p>
+ * 引用约定：环自身对每个 slab 持有 1 个引用；当前发布的帧再多 1 个；读者每持有一次各 1 个。
+ * 引用数回到 1 的槽即空闲，写线程用 CAS 1→2 独占认领后原地写入，再以 volatile 交换发布。
+ * 稳态下不分配任何对象；所有槽都被读者占着时 {@link #claim} 返回 null，由写方丢帧。
+ * <p>
+ * 认领、发布与 {@link #close} 在环的监视器下互斥（写线程单一，无竞争时开销可忽略）：
+ * 关闭后不再认领；关闭前已认领的帧再发布时直接归还，不会留下没人释放的 slab。
+ */
+final class YuvFrameRing {
+
+    static final int DEFAULT_SLOTS = 3;
+    /** 跨所有环递增，解码器重启后代数也不会与旧帧重复 */
+    private static final AtomicLong generations = new AtomicLong();
+
+    private final FrameArena arena;
+    private final MediaCodecYuvDecoder.YuvFrame[] slots;
+    private final AtomicLong claimMisses = new AtomicLong();
+    private volatile MediaCodecYuvDecoder.YuvFrame latest;
+    private volatile boolean closed;
+    // 仅写线程访问
+    private int next;
+
+    YuvFrameRing(FrameArena arena, int slotCount) {
+        this.arena = arena;
+        this.slots = new MediaCodecYuvDecoder.YuvFrame[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new MediaCodecYuvDecoder.YuvFrame();
+        }
+    }
+
+    /**
+     * 写线程：认领一个空闲槽，保证 slab 至少 size 字节，limit 为 size。
+     *
+     * @return 认领到的帧；全部槽被读者占用或环已关闭时返回 null
+     */
+    synchronized MediaCodecYuvDecoder.YuvFrame claim(int size) {
+        if (closed) {
+            return null;
+        }
+        for (int i = 0; i < slots.length; i++) {
+            MediaCodecYuvDecoder.YuvFrame frame = slots[next];
+            next = (next + 1) % slots.length;
+            FrameArena.Slab slab = frame.slab;
+            if (slab == null) {
+                frame.slab = acquireOwned(size);
+                return frame;
+            }
+            if (frame == latest || !slab.tryRetainExclusive()) {
+                continue;
+            }
+            if (slab.capacity() < size) {
+                // 尺寸变大：放弃认领引用和环的引用，换一块更大的
+                slab.release();
+                slab.release();
+                frame.slab = acquireOwned(size);
+            } else {
+                slab.buffer().clear().limit(size);
+            }
+            return frame;
+        }
+        claimMisses.incrementAndGet();
+        return null;
+    }
+
+    /** 环引用 + 认领引用 */
+    private FrameArena.Slab acquireOwned(int size) {
+        FrameArena.Slab slab = arena.acquire(size);
+        slab.retain();
+        return slab;
+    }
+
+    /**
+     * 写线程：发布已写好的帧；认领引用转为"当前帧"引用，上一帧的该引用释放。
+     * 环已关闭时（解码线程没能在 stop 的等待内退出）只释放认领引用，帧不再发布。
+     */
+    void publish(MediaCodecYuvDecoder.YuvFrame frame, int width, int height, long timestampNs) {
+        MediaCodecYuvDecoder.YuvFrame old;
+        synchronized (this) {
+            if (closed) {
+                old = frame;
+            } else {
+                frame.width = width;
+                frame.height = height;
+                frame.timestampNs = timestampNs;
+                frame.generation = generations.incrementAndGet();
+                old = latest;
+                latest = frame;
+            }
+        }
+        if (old != null) {
+            old.slab.release();
+        }
+    }
+
+    /** 写线程：放弃已认领但未发布的帧 */
+    void abandon(MediaCodecYuvDecoder.YuvFrame frame) {
+        frame.slab.release();
+    }
+
+    /**
+     * 读线程：取当前帧并加引用，调用方用完须 {@link MediaCodecYuvDecoder.YuvFrame#release()}。
+     * 尚无帧时返回 null。
+     */
+    MediaCodecYuvDecoder.YuvFrame acquireLatest() {
+        while (true) {
+            MediaCodecYuvDecoder.YuvFrame frame = latest;
+            if (frame == null) {
+                return null;
+            }
+            FrameArena.Slab slab = frame.slab;
+            if (slab.tryRetain()) {
+                // 读到 latest 后该槽可能已被替换并重新认领：确认仍是当前帧才交给读者
+                if (latest == frame && frame.slab == slab) {
+                    return frame;
+                }
+                slab.release();
+            } else if (latest == frame) {
+                return null;
+            }
+        }
+    }
+
+    /** 撤下当前帧（换片源等），之后 {@link #acquireLatest} 返回 null 直到下一次发布 */
+    void clear() {
+        MediaCodecYuvDecoder.YuvFrame old;
+        synchronized (this) {
+            old = latest;
+            latest = null;
+        }
+        if (old != null) {
+            old.slab.release();
+        }
+    }
+
+    /** 撤下当前帧并放弃环对所有 slab 的引用；读者仍持有的 slab 在其释放后回到 arena */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        clear();
+        for (MediaCodecYuvDecoder.YuvFrame frame : slots) {
+            if (frame.slab != null) {
+                frame.slab.release();
+            }
+        }
+    }
+
+    /** 因全部槽被读者占用而丢弃的帧数 */
+    long getClaimMissCount() {
+        return claimMisses.get();
+    }
+}
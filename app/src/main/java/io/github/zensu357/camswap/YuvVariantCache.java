@@ -0,0 +1,117 @@
+package io.github.zensu357.camswap;
+
+import java.nio.ByteBuffer;
+
+import io.github.zensu357.camswap.yuv.YuvConvert;
+import io.github.zensu357.camswap.yuv.YuvRotate;
+
+/**
+ * 同一解码帧的多尺寸变体缓存：键为 (帧代数, 宽, 高, 旋转)，每个变体每帧最多生成一次。
+ * <p>
+ * 不同尺寸的 YUV reader 刷新时共享同一份缩放结果；变体存放在 {@link FrameArena} slab 中，
+ * 新一代帧到来时上一代的变体全部淘汰。返回给调用方的 slab 已加引用，淘汰不影响正在使用的持有者。
+ */
+final class YuvVariantCache {
+
+    /** 同一代帧最多保留的变体数，超出时淘汰最早生成的 */
+    static final int MAX_VARIANTS = 4;
+
+    /** 在 dst（limit 为变体大小）中生成变体内容；scratch 归本缓存所有，只在本次调用内使用 */
+    interface Renderer {
+        void render(ByteBuffer dst, YuvRotate.Scratch scratch);
+    }
+
+    private final FrameArena arena;
+    // 生成都在本对象的锁内进行，一份暂存足够
+    private final YuvRotate.Scratch scratch = new YuvRotate.Scratch();
+    private final int[] widths = new int[MAX_VARIANTS];
+    private final int[] heights = new int[MAX_VARIANTS];
+    private final int[] rotations = new int[MAX_VARIANTS];
+    private final FrameArena.Slab[] slabs = new FrameArena.Slab[MAX_VARIANTS];
+    private int count;
+    private long generation = -1;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    YuvVariantCache(FrameArena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * 取 generation 帧的 width x height / rotation 变体，没有则用 renderer 生成。
+     * 调用方用完须 release 返回的 slab。
+     */
+    synchronized FrameArena.Slab acquire(long generation, int width, int height, int rotation,
+            Renderer renderer) {
+        if (generation != this.generation) {
+            evictAll();
+            this.generation = generation;
+        }
+        for (int i = 0; i < count; i++) {
+            if (widths[i] == width && heights[i] == height && rotations[i] == rotation) {
+                hits++;
+                slabs[i].retain();
+                return slabs[i];
+            }
+        }
+        misses++;
+        FrameArena.Slab slab = arena.acquire(YuvConvert.frameSize(width, height));
+        renderer.render(slab.buffer(), scratch);
+        slab.buffer().rewind();
+        if (count == MAX_VARIANTS) {
+            slabs[0].release();
+            evictions++;
+            count--;
+            System.arraycopy(widths, 1, widths, 0, count);
+            System.arraycopy(heights, 1, heights, 0, count);
+            System.arraycopy(rotations, 1, rotations, 0, count);
+            System.arraycopy(slabs, 1, slabs, 0, count);
+        }
+        widths[count] = width;
+        heights[count] = height;
+        rotations[count] = rotation;
+        slabs[count] = slab;
+        count++;
+        slab.retain();
+        return slab;
+    }
+
+    /** 释放全部缓存的变体（解码器停止、换片源时） */
+    synchronized void clear() {
+        evictAll();
+        generation = -1;
+    }
+
+    private void evictAll() {
+        for (int i = 0; i < count; i++) {
+            slabs[i].release();
+            slabs[i] = null;
+        }
+        evictions += count;
+        count = 0;
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized long getMissCount() {
+        return misses;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** 命中率，尚无请求时为 0 */
+    synchronized float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0f : (float) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "variants{hit=" + hits + ", miss=" + misses + ", evict=" + evictions + "}";
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.zensu357.camswap.codec;
+
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 用 {@link MediaCodec#setCallback(MediaCodec.Callback, Handler)} 驱动编解码器，
+ * 取代 dequeueInputBuffer/dequeueOutputBuffer 带超时的轮询。
+ * <p>
+ * 每个实例一个专用回调线程；buffer 一可用就在该线程上处理，不再有最长一个超时的等待。
+ * 调用方线程只需 {@link #awaitEnd} 挂起等待。
+ */
+public final class AsyncCodec implements CodecPort {
+
+    private final MediaCodec codec;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private CodecDriver driver;
+    // 仅回调线程访问：flush 之后、屏障消息之前送达的回调属于 flush 前的 buffer，丢弃
+    private boolean flushing;
+
+    private final MediaCodec.Callback callback = new MediaCodec.Callback() {
+        @Override
+        public void onInputBufferAvailable(MediaCodec c, int index) {
+            if (flushing) {
+                return;
+            }
+            try {
+                driver.onInputBufferAvailable(index);
+            } catch (RuntimeException e) {
+                driver.onError(e);
+            }
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec c, int index, MediaCodec.BufferInfo info) {
+            if (flushing) {
+                return;
+            }
+            try {
+                driver.onOutputBufferAvailable(index, info.offset, info.size, info.presentationTimeUs, info.flags);
+            } catch (RuntimeException e) {
+                driver.onError(e);
+            }
+        }
+
+        @Override
+        public void onError(MediaCodec c, MediaCodec.CodecException e) {
+            driver.onError(e);
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec c, MediaFormat format) {
+            if (flushing) {
+                return;
+            }
+            try {
+                driver.onOutputFormatChanged(format);
+            } catch (RuntimeException e) {
+                driver.onError(e);
+            }
+        }
+    };
+
+    private AsyncCodec(MediaCodec codec, String name) {
+        this.codec = codec;
+        this.thread = new HandlerThread(name);
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * 设置回调后 configure + start。codec 须处于未配置状态，结束后由调用方 {@link MediaCodec#release()}。
+     */
+    public static AsyncCodec start(MediaCodec codec, MediaFormat format, Surface surface, int flags,
+            InputFeeder feeder, OutputSink sink, String name) {
+        AsyncCodec async = new AsyncCodec(codec, name);
+        async.driver = new CodecDriver(async, feeder, sink);
+        try {
+            codec.setCallback(async.callback, async.handler);
+            codec.configure(format, surface, null, flags);
+            codec.start();
+        } catch (RuntimeException e) {
+            async.thread.quitSafely();
+            throw e;
+        }
+        return async;
+    }
+
+    public CodecDriver getDriver() {
+        return driver;
+    }
+
+    /** @see CodecDriver#awaitEnd(long) */
+    public boolean awaitEnd(long timeoutMs) throws InterruptedException {
+        return driver.awaitEnd(timeoutMs);
+    }
+
+    public Throwable getError() {
+        return driver.getError();
+    }
+
+    /** 停止回调处理与编解码器并结束回调线程；codec 回到未配置状态，可重新 {@link #start} */
+    public void stop() {
+        driver.stop();
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignored) {
+        }
+        thread.quitSafely();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public ByteBuffer getInputBuffer(int index) {
+        return codec.getInputBuffer(index);
+    }
+
+    @Override
+    public void queueInputBuffer(int index, int offset, int size, long presentationTimeUs, int flags) {
+        codec.queueInputBuffer(index, offset, size, presentationTimeUs, flags);
+    }
+
+    @Override
+    public ByteBuffer getOutputBuffer(int index) {
+        return codec.getOutputBuffer(index);
+    }
+
+    @Override
+    public Image getOutputImage(int index) {
+        return codec.getOutputImage(index);
+    }
+
+    @Override
+    public void releaseOutputBuffer(int index, boolean render) {
+        codec.releaseOutputBuffer(index, render);
+    }
+
+    /** 只在回调线程上调用（由 {@link CodecDriver} 在 EOS 时触发） */
+    @Override
+    public void flushAndResume() {
+        codec.flush();
+        flushing = true;
+        // 屏障先于 start 入队，start 之后的回调一定排在它后面
+        handler.post(() -> flushing = false);
+        codec.start();
+    }
+}
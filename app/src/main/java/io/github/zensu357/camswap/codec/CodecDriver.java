@@ -0,0 +1,134 @@
+package io.github.zensu357.camswap.codec;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回调模式编解码器的驱动逻辑：输入 buffer 可用时从 {@link InputFeeder} 取样本，
+ * 输出交给 {@link OutputSink}，EOS 时由 sink 决定 flush 循环还是结束。
+ * <p>
+ * 不依赖 Handler/Looper，所有 on* 方法须在同一个回调线程上串行调用；
+ * {@link #awaitEnd} 与 {@link #stop} 可在任意线程调用。
+ */
+public final class CodecDriver {
+
+    private final CodecPort codec;
+    private final InputFeeder feeder;
+    private final OutputSink sink;
+    private final CountDownLatch ended = new CountDownLatch(1);
+
+    private volatile boolean stopped;
+    private volatile Throwable error;
+    // 以下仅回调线程访问
+    private boolean inputDone;
+    private long inputCount;
+    private long outputCount;
+    private int loopCount;
+
+    public CodecDriver(CodecPort codec, InputFeeder feeder, OutputSink sink) {
+        this.codec = codec;
+        this.feeder = feeder;
+        this.sink = sink;
+    }
+
+    public void onInputBufferAvailable(int index) {
+        // 输入已送完 EOS 的这一遍不再需要输入 buffer；flush 后编解码器会重新通知所有输入 buffer
+        if (stopped || inputDone) {
+            return;
+        }
+        int size = -1;
+        ByteBuffer buffer = codec.getInputBuffer(index);
+        if (buffer != null) {
+            buffer.clear();
+            size = feeder.readSample(buffer);
+        }
+        if (size < 0) {
+            codec.queueInputBuffer(index, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            inputDone = true;
+        } else {
+            codec.queueInputBuffer(index, 0, size, feeder.getSampleTimeUs(), 0);
+            feeder.advance();
+            inputCount++;
+        }
+    }
+
+    public void onOutputBufferAvailable(int index, int offset, int size, long presentationTimeUs, int flags) {
+        if (stopped) {
+            return;
+        }
+        if (size > 0) {
+            outputCount++;
+            sink.onOutputBuffer(codec, index, offset, size, presentationTimeUs, flags);
+        } else {
+            codec.releaseOutputBuffer(index, false);
+        }
+        if ((flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) == 0 || stopped) {
+            return;
+        }
+        if (sink.onEndOfStream() && !stopped) {
+            loopCount++;
+            feeder.seekToStart();
+            inputDone = false;
+            codec.flushAndResume();
+        } else {
+            finish();
+        }
+    }
+
+    public void onOutputFormatChanged(MediaFormat format) {
+        if (!stopped) {
+            sink.onFormatChanged(format);
+        }
+    }
+
+    public void onError(Throwable e) {
+        if (error == null) {
+            error = e;
+        }
+        finish();
+    }
+
+    /** 结束运行；之后到达的回调全部忽略 */
+    public void stop() {
+        finish();
+    }
+
+    private void finish() {
+        stopped = true;
+        ended.countDown();
+    }
+
+    /**
+     * 等待 EOS（sink 不再循环）、出错或 {@link #stop}。
+     *
+     * @return false 表示超时
+     */
+    public boolean awaitEnd(long timeoutMs) throws InterruptedException {
+        return ended.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnded() {
+        return ended.getCount() == 0;
+    }
+
+    /** 编解码器报告的错误或回调中抛出的异常；正常结束为 null */
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getInputCount() {
+        return inputCount;
+    }
+
+    public long getOutputCount() {
+        return outputCount;
+    }
+
+    public int getLoopCount() {
+        return loopCount;
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.zensu357.camswap.codec;
+
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link CodecDriver} 使用的编解码器操作子集。
+ * <p>
+ * 真机上由 {@link AsyncCodec} 包装 {@code MediaCodec}；JVM 测试里用假编解码器实现。
+ */
+public interface CodecPort {
+
+    ByteBuffer getInputBuffer(int index);
+
+    void queueInputBuffer(int index, int offset, int size, long presentationTimeUs, int flags);
+
+    ByteBuffer getOutputBuffer(int index);
+
+    /** 仅 YUV 输出的解码器可用，其余返回 null */
+    Image getOutputImage(int index);
+
+    void releaseOutputBuffer(int index, boolean render);
+
+    /** 丢弃队列中的所有 buffer 并恢复运行（异步模式下 flush 后需要重新 start） */
+    void flushAndResume();
+}
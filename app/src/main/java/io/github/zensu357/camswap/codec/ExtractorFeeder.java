@@ -0,0 +1,35 @@
+package io.github.zensu357.camswap.codec;
+
+import android.media.MediaExtractor;
+
+import java.nio.ByteBuffer;
+
+/** 从已选好轨道的 {@link MediaExtractor} 读取样本 */
+public final class ExtractorFeeder implements InputFeeder {
+
+    private final MediaExtractor extractor;
+
+    public ExtractorFeeder(MediaExtractor extractor) {
+        this.extractor = extractor;
+    }
+
+    @Override
+    public int readSample(ByteBuffer buffer) {
+        return extractor.readSampleData(buffer, 0);
+    }
+
+    @Override
+    public long getSampleTimeUs() {
+        return extractor.getSampleTime();
+    }
+
+    @Override
+    public void advance() {
+        extractor.advance();
+    }
+
+    @Override
+    public void seekToStart() {
+        extractor.seekTo(0, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.zensu357.camswap.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 编解码器输入来源：解码时是 {@link ExtractorFeeder}，编码时是调用方生成的原始帧。
+ */
+public interface InputFeeder {
+
+    /**
+     * 把下一个样本写入 buffer（从位置 0 开始）。
+     *
+     * @return 样本字节数；&lt; 0 表示输入结束
+     */
+    int readSample(ByteBuffer buffer);
+
+    /** 当前样本的 PTS，{@link #readSample} 之后调用 */
+    long getSampleTimeUs();
+
+    /** 前进到下一个样本 */
+    void advance();
+
+    /** 循环播放时回到开头 */
+    void seekToStart();
+}
@@ -0,0 +1,28 @@
+package io.github.zensu357.camswap.codec;
+
+import android.media.MediaFormat;
+
+/**
+ * 编解码器输出的消费方，所有方法都在编解码器回调线程上调用。
+ */
+public interface OutputSink {
+
+    /** 输出格式确定或变化；假编解码器传入 null */
+    default void onFormatChanged(MediaFormat format) {
+    }
+
+    /**
+     * 一个非空输出 buffer。sink 负责调用 {@link CodecPort#releaseOutputBuffer}，
+     * 可以先拷出数据立即归还，也可以按 PTS 延迟后渲染。
+     */
+    void onOutputBuffer(CodecPort codec, int index, int offset, int size, long presentationTimeUs, int flags);
+
+    /**
+     * 输出到达 EOS。
+     *
+     * @return true 则回到开头继续（flush 循环），false 结束本次运行
+     */
+    default boolean onEndOfStream() {
+        return false;
+    }
+}
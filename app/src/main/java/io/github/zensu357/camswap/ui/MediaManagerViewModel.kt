@@ -18,7 +18,6 @@ import java.io.FileOutputStream
 import java.util.Locale
 import io.github.zensu357.camswap.ConfigManager
 import io.github.zensu357.camswap.IpcContract
-import io.github.zensu357.camswap.utils.ImageToVideoConverter
 
 
 enum class MediaType {
@@ -117,6 +116,8 @@ class MediaManagerViewModel(application: Application) : AndroidViewModel(applica
             }?.toList() ?: emptyList()
 
             val imageItems = imageFiles.map { file ->
+                // Hook process decodes the selected image directly when it can read the path
+                try { file.setReadable(true, false) } catch (_: Exception) {}
                 MediaItem(file, file.name, file.name, false, file.length(), 0, MediaType.IMAGE)
             }
 
@@ -194,6 +195,8 @@ class MediaManagerViewModel(application: Application) : AndroidViewModel(applica
                         configManager.setString(ConfigManager.KEY_SELECTED_VIDEO, item.name)
                         _uiState.update { it.copy(selectedVideoName = item.name) }
                     }
+                    // Choosing a video switches back to video replacement
+                    configManager.setString(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_VIDEO)
                     try {
                         getApplication<Application>().contentResolver.notifyChange(
                             IpcContract.URI_CONFIG, null)
@@ -201,8 +204,21 @@ class MediaManagerViewModel(application: Application) : AndroidViewModel(applica
                     loadMedia()
                 }
                 MediaType.IMAGE -> {
-                    configManager.setString(ConfigManager.KEY_SELECTED_IMAGE, item.name)
-                    _uiState.update { it.copy(selectedImageName = item.name) }
+                    configManager.reload()
+                    val currentSelected = configManager.getString(ConfigManager.KEY_SELECTED_IMAGE, null)
+
+                    if (currentSelected == item.name) {
+                        configManager.setString(ConfigManager.KEY_SELECTED_IMAGE, "")
+                        configManager.setString(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_VIDEO)
+                        _uiState.update { it.copy(selectedImageName = null) }
+                    } else {
+                        selectImage(item.name)
+                    }
+                    try {
+                        getApplication<Application>().contentResolver.notifyChange(
+                            IpcContract.URI_CONFIG, null)
+                    } catch (_: Exception) {}
+                    loadMedia()
                 }
                 MediaType.AUDIO -> {
                     configManager.reload()
@@ -247,47 +263,37 @@ class MediaManagerViewModel(application: Application) : AndroidViewModel(applica
                     }
 
                     if (effectiveType == MediaType.IMAGE) {
-                        android.util.Log.d("CamSwap", "开始图片转视频流程...")
-                        
-                        // 1. Save to temp file using the original name to produce a clean output filename
+                        // Images are served directly by the hook (decoded once, kept in memory),
+                        // so they are stored as-is instead of being encoded into a video
                         val extension = originalName?.substringAfterLast('.', "jpg") ?: "jpg"
                         val safeBaseName = (originalName?.substringBeforeLast('.') ?: "img")
                             .replace(Regex("[^a-zA-Z0-9_\\-]"), "_")
                             .take(30)
-                        val tempFile = File(context.cacheDir, "${safeBaseName}.$extension")
-                        
+                        val destFile = File(mediaDir, "${safeBaseName}.$extension")
+
                         context.contentResolver.openInputStream(uri)?.use { input ->
-                            FileOutputStream(tempFile).use { output ->
+                            FileOutputStream(destFile).use { output ->
                                 input.copyTo(output)
                             }
                         }
-                        
-                        android.util.Log.d("CamSwap", "临时文件已保存: ${tempFile.absolutePath}, 大小: ${tempFile.length()}")
-                        
-                        if (!tempFile.exists() || tempFile.length() == 0L) {
-                            android.util.Log.e("CamSwap", "临时文件为空或不存在!")
+
+                        if (!destFile.exists() || destFile.length() == 0L) {
+                            android.util.Log.e("CamSwap", "图片保存失败: ${destFile.absolutePath}")
+                            destFile.delete()
                             continue
                         }
-                        
-                        // 2. Convert to video
-                        val convertedFile = ImageToVideoConverter.convert(tempFile.absolutePath, mediaDir)
-                        
-                        // 3. Delete temp file
-                        if (tempFile.exists()) tempFile.delete()
-                        
-                        if (convertedFile != null && convertedFile.exists() && convertedFile.length() > 0) {
-                            android.util.Log.d("CamSwap", "转换成功: ${convertedFile.name}, 大小: ${convertedFile.length()}")
-                            // Auto-select the converted video
-                            configManager.setString(ConfigManager.KEY_SELECTED_VIDEO, convertedFile.name)
-                            _uiState.update { it.copy(selectedVideoName = convertedFile.name) }
-                            try {
-                                context.contentResolver.notifyChange(
-                                    IpcContract.URI_CONFIG, null)
-                            } catch (_: Exception) {}
-                        } else {
-                            android.util.Log.e("CamSwap", "图片转视频失败! convertedFile=$convertedFile")
-                        }
-                        
+                        try {
+                            destFile.setReadable(true, false)
+                            Runtime.getRuntime().exec(arrayOf("chmod", "644", destFile.absolutePath))
+                        } catch (_: Exception) {}
+                        android.util.Log.d("CamSwap", "图片已保存: ${destFile.absolutePath}, 大小: ${destFile.length()}")
+
+                        // Auto-select the image and switch to still-image replacement
+                        selectImage(destFile.name)
+                        try {
+                            context.contentResolver.notifyChange(
+                                IpcContract.URI_CONFIG, null)
+                        } catch (_: Exception) {}
                     } else {
                         // Handle Video / Audio
                         val extension = originalName?.substringAfterLast('.', "") ?: if (type == MediaType.VIDEO) "mp4" else "mp3"
@@ -316,6 +322,12 @@ class MediaManagerViewModel(application: Application) : AndroidViewModel(applica
         }
     }
 
+    private fun selectImage(name: String) {
+        configManager.setString(ConfigManager.KEY_SELECTED_IMAGE, name)
+        configManager.setString(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_IMAGE)
+        _uiState.update { it.copy(selectedImageName = name) }
+    }
+
     fun deleteMedia(item: MediaItem) {
         viewModelScope.launch(Dispatchers.IO) {
             if (item.file.exists()) {
@@ -3,7 +3,6 @@ package io.github.zensu357.camswap.utils;
 import android.media.MediaCodec;
 import android.media.MediaExtractor;
 import android.media.MediaFormat;
-import android.os.Build;
 
 import java.io.File;
 import java.nio.ByteBuffer;
@@ -11,6 +10,11 @@ import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
 import java.util.Arrays;
 
+import io.github.zensu357.camswap.codec.AsyncCodec;
+import io.github.zensu357.camswap.codec.CodecPort;
+import io.github.zensu357.camswap.codec.ExtractorFeeder;
+import io.github.zensu357.camswap.codec.OutputSink;
+
 /**
  * 音频数据提供器 —— 解码本地音频文件为 PCM 数据并提供给 MicrophoneHandler。
  * <p>
@@ -26,6 +30,7 @@ import java.util.Arrays;
 public class AudioDataProvider {
 
     private static final String TAG = "【CS】[AudioData]";
+    private static final long DECODE_TIMEOUT_MS = 60_000L;
 
     // 解码后的 PCM 16-bit 数据（原始格式）
     private static short[] pcmData = null;
@@ -188,6 +193,7 @@ public class AudioDataProvider {
 
             MediaExtractor extractor = null;
             MediaCodec codec = null;
+            AsyncCodec asyncCodec = null;
 
             android.os.ParcelFileDescriptor providerPfd = null;
 
@@ -232,84 +238,19 @@ public class AudioDataProvider {
                         + " sampleRate=" + pcmSampleRate
                         + " channels=" + pcmChannels);
 
-                // 创建解码器
+                // 创建解码器，回调模式解码到 PCM
                 codec = MediaCodec.createDecoderByType(mime);
-                codec.configure(format, null, null, 0);
-                codec.start();
-
-                // 解码循环
-                // 预分配缓冲区，初始 1MB（约 5 秒 44100Hz 16-bit 立体声）
-                short[] tempBuffer = new short[512 * 1024];
-                int totalSamples = 0;
-                boolean inputDone = false;
-                boolean outputDone = false;
-                long timeoutUs = 10000; // 10ms
-
-                MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
-
-                while (!outputDone) {
-                    // 喂入输入数据
-                    if (!inputDone) {
-                        int inputIndex = codec.dequeueInputBuffer(timeoutUs);
-                        if (inputIndex >= 0) {
-                            ByteBuffer inputBuffer;
-                            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                                inputBuffer = codec.getInputBuffer(inputIndex);
-                            } else {
-                                inputBuffer = codec.getInputBuffers()[inputIndex];
-                            }
-                            int sampleSize = extractor.readSampleData(inputBuffer, 0);
-                            if (sampleSize < 0) {
-                                codec.queueInputBuffer(inputIndex, 0, 0, 0,
-                                        MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                                inputDone = true;
-                            } else {
-                                long presentationTimeUs = extractor.getSampleTime();
-                                codec.queueInputBuffer(inputIndex, 0, sampleSize,
-                                        presentationTimeUs, 0);
-                                extractor.advance();
-                            }
-                        }
-                    }
-
-                    // 读取输出数据
-                    int outputIndex = codec.dequeueOutputBuffer(bufferInfo, timeoutUs);
-                    if (outputIndex >= 0) {
-                        ByteBuffer outputBuffer;
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                            outputBuffer = codec.getOutputBuffer(outputIndex);
-                        } else {
-                            outputBuffer = codec.getOutputBuffers()[outputIndex];
-                        }
-
-                        if (outputBuffer != null && bufferInfo.size > 0) {
-                            outputBuffer.position(bufferInfo.offset);
-                            outputBuffer.limit(bufferInfo.offset + bufferInfo.size);
-
-                            // PCM 16-bit: 每个 sample 2 字节
-                            int sampleCount = bufferInfo.size / 2;
-
-                            // 扩容
-                            if (totalSamples + sampleCount > tempBuffer.length) {
-                                int newSize = Math.max(tempBuffer.length * 2,
-                                        totalSamples + sampleCount);
-                                tempBuffer = Arrays.copyOf(tempBuffer, newSize);
-                            }
-
-                            // 读取 short 数据
-                            ShortBuffer shortBuffer = outputBuffer.order(ByteOrder.nativeOrder())
-                                    .asShortBuffer();
-                            shortBuffer.get(tempBuffer, totalSamples, sampleCount);
-                            totalSamples += sampleCount;
-                        }
-
-                        codec.releaseOutputBuffer(outputIndex, false);
-
-                        if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                            outputDone = true;
-                        }
-                    }
+                PcmCollector collector = new PcmCollector();
+                asyncCodec = AsyncCodec.start(codec, format, null, 0,
+                        new ExtractorFeeder(extractor), collector, "CS-AudioDecode");
+                if (!asyncCodec.awaitEnd(DECODE_TIMEOUT_MS)) {
+                    throw new IllegalStateException("解码超时");
+                }
+                if (asyncCodec.getError() != null) {
+                    throw new IllegalStateException(asyncCodec.getError());
                 }
+                short[] tempBuffer = collector.samples;
+                int totalSamples = collector.totalSamples;
 
                 // 裁剪到实际大小
                 pcmData = Arrays.copyOf(tempBuffer, totalSamples);
@@ -338,8 +279,10 @@ public class AudioDataProvider {
                 } catch (Exception ignored) {
                 }
                 try {
+                    if (asyncCodec != null) {
+                        asyncCodec.stop();
+                    }
                     if (codec != null) {
-                        codec.stop();
                         codec.release();
                     }
                 } catch (Exception ignored) {
@@ -354,6 +297,38 @@ public class AudioDataProvider {
         }
     }
 
+    /** 在解码回调线程上把 PCM 16-bit 输出累积到可扩容数组 */
+    private static final class PcmCollector implements OutputSink {
+        // 预分配缓冲区，初始 1MB（约 5 秒 44100Hz 16-bit 立体声）
+        short[] samples = new short[512 * 1024];
+        int totalSamples;
+
+        @Override
+        public void onOutputBuffer(CodecPort codec, int index, int offset, int size, long presentationTimeUs,
+                int flags) {
+            ByteBuffer outputBuffer = codec.getOutputBuffer(index);
+            if (outputBuffer != null) {
+                outputBuffer.position(offset);
+                outputBuffer.limit(offset + size);
+
+                // PCM 16-bit: 每个 sample 2 字节
+                int sampleCount = size / 2;
+
+                // 扩容
+                if (totalSamples + sampleCount > samples.length) {
+                    int newSize = Math.max(samples.length * 2, totalSamples + sampleCount);
+                    samples = Arrays.copyOf(samples, newSize);
+                }
+
+                // 读取 short 数据
+                ShortBuffer shortBuffer = outputBuffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+                shortBuffer.get(samples, totalSamples, sampleCount);
+                totalSamples += sampleCount;
+            }
+            codec.releaseOutputBuffer(index, false);
+        }
+    }
+
     /**
      * 检查音频数据是否已就绪
      */
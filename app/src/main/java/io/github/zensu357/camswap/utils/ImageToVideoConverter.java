@@ -15,6 +15,13 @@ import android.media.MediaMuxer;
 import java.io.File;
 import java.nio.ByteBuffer;
 
+import io.github.zensu357.camswap.codec.AsyncCodec;
+import io.github.zensu357.camswap.codec.CodecPort;
+import io.github.zensu357.camswap.codec.InputFeeder;
+import io.github.zensu357.camswap.codec.OutputSink;
+import io.github.zensu357.camswap.yuv.RgbToYuv;
+import io.github.zensu357.camswap.yuv.YuvConvert;
+
 /**
  * 将图片转换为短循环 MP4 视频。
  * 使用 ByteBuffer 输入模式（COLOR_FormatYUV420Flexible），
@@ -22,12 +29,12 @@ import java.nio.ByteBuffer;
  */
 public class ImageToVideoConverter {
 
-    private static final String MIME_TYPE = "video/avc";
+    static final String MIME_TYPE = "video/avc";
     private static final int FRAME_RATE = 25;
-    private static final int IFRAME_INTERVAL = 1;
+    static final int IFRAME_INTERVAL = 1;
     private static final int DURATION_SEC = 3;
     private static final int TOTAL_FRAMES = FRAME_RATE * DURATION_SEC;
-    private static final int TIMEOUT_USEC = 30000;
+    private static final long ENCODE_TIMEOUT_MS = 30_000L;
 
     /**
      * 将图片转换为 MP4 视频文件。
@@ -97,16 +104,8 @@ public class ImageToVideoConverter {
 
         LogUtil.log("【CS】【Converter】输出文件: " + outputFile.getAbsolutePath());
 
-        // Convert bitmap pixels to NV12 (YUV420SP) format
-        byte[] yuvData = bitmapToNV12(bitmap, width, height);
-        if (yuvData == null) {
-            LogUtil.log("【CS】【Converter】NV12转换失败");
-            bitmap.recycle();
-            return null;
-        }
-        LogUtil.log("【CS】【Converter】NV12数据大小: " + yuvData.length);
-
         MediaCodec encoder = null;
+        AsyncCodec asyncEncoder = null;
         MediaMuxer muxer = null;
 
         try {
@@ -123,6 +122,15 @@ public class ImageToVideoConverter {
                 LogUtil.log("【CS】【Converter】使用编码器: " + codecName + ", colorFormat=" + colorFormat);
             }
 
+            // 按编码器实际接受的布局转换：Planar 需要 I420，其余按 NV12 (YUV420SP) 提交
+            boolean planar = colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Planar;
+            byte[] yuvData = bitmapToYuv420(bitmap, width, height, planar);
+            if (yuvData == null) {
+                LogUtil.log("【CS】【Converter】YUV转换失败");
+                return null;
+            }
+            LogUtil.log("【CS】【Converter】" + (planar ? "I420" : "NV12") + "数据大小: " + yuvData.length);
+
             MediaFormat format = MediaFormat.createVideoFormat(MIME_TYPE, width, height);
             format.setInteger(MediaFormat.KEY_COLOR_FORMAT, colorFormat);
             format.setInteger(MediaFormat.KEY_BIT_RATE, width * height * 4); // Good quality
@@ -134,12 +142,17 @@ public class ImageToVideoConverter {
             } else {
                 encoder = MediaCodec.createEncoderByType(MIME_TYPE);
             }
-            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
-            encoder.start();
-
             muxer = new MediaMuxer(outputFile.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
 
-            doEncode(encoder, muxer, yuvData, width, height);
+            asyncEncoder = AsyncCodec.start(encoder, format, null, MediaCodec.CONFIGURE_FLAG_ENCODE,
+                    new StillFrameFeeder(yuvData), new MuxerSink(muxer), "CS-Converter");
+            if (!asyncEncoder.awaitEnd(ENCODE_TIMEOUT_MS)) {
+                throw new RuntimeException("编码超时");
+            }
+            if (asyncEncoder.getError() != null) {
+                throw new RuntimeException(asyncEncoder.getError());
+            }
+            LogUtil.log("【CS】【Converter】收到 EOS，已提交帧: " + asyncEncoder.getDriver().getInputCount());
 
             LogUtil.log("【CS】【Converter】转换成功! 文件大小: " + outputFile.length() + " bytes");
 
@@ -170,8 +183,10 @@ public class ImageToVideoConverter {
             return null;
         } finally {
             try {
+                if (asyncEncoder != null) {
+                    asyncEncoder.stop();
+                }
                 if (encoder != null) {
-                    encoder.stop();
                     encoder.release();
                 }
             } catch (Exception ignored) {
@@ -187,80 +202,74 @@ public class ImageToVideoConverter {
         }
     }
 
-    /**
-     * 编码所有帧
-     */
-    private static void doEncode(MediaCodec encoder, MediaMuxer muxer, byte[] yuvData,
-            int width, int height) {
-        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
-        int trackIndex = -1;
-        boolean muxerStarted = false;
-        int framesSubmitted = 0;
-        boolean inputDone = false;
-
-        while (true) {
-            // Submit input frames
-            if (!inputDone) {
-                int inputBufIndex = encoder.dequeueInputBuffer(TIMEOUT_USEC);
-                if (inputBufIndex >= 0) {
-                    ByteBuffer inputBuf = encoder.getInputBuffer(inputBufIndex);
-                    if (inputBuf != null) {
-                        inputBuf.clear();
-                        inputBuf.put(yuvData);
-
-                        long ptsUsec = computePts(framesSubmitted);
-
-                        if (framesSubmitted >= TOTAL_FRAMES) {
-                            // Send EOS
-                            encoder.queueInputBuffer(inputBufIndex, 0, yuvData.length, ptsUsec,
-                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                            inputDone = true;
-                            LogUtil.log("【CS】【Converter】发送 EOS，已提交帧: " + framesSubmitted);
-                        } else {
-                            encoder.queueInputBuffer(inputBufIndex, 0, yuvData.length, ptsUsec, 0);
-                            framesSubmitted++;
-                        }
-                    }
-                }
+    /** 同一帧 YUV 重复提交 {@link #TOTAL_FRAMES} 次，之后发送 EOS */
+    private static final class StillFrameFeeder implements InputFeeder {
+        private final byte[] yuvData;
+        private int framesSubmitted;
+
+        StillFrameFeeder(byte[] yuvData) {
+            this.yuvData = yuvData;
+        }
+
+        @Override
+        public int readSample(ByteBuffer buffer) {
+            if (framesSubmitted >= TOTAL_FRAMES) {
+                return -1;
             }
+            buffer.put(yuvData);
+            return yuvData.length;
+        }
 
-            // Drain output
-            int outputBufIndex = encoder.dequeueOutputBuffer(bufferInfo, TIMEOUT_USEC);
-            if (outputBufIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
-                if (inputDone) {
-                    // Keep trying until we get EOS
-                    continue;
-                }
-            } else if (outputBufIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-                if (muxerStarted) {
-                    throw new RuntimeException("Format changed twice");
-                }
-                MediaFormat newFormat = encoder.getOutputFormat();
-                LogUtil.log("【CS】【Converter】输出格式: " + newFormat);
-                trackIndex = muxer.addTrack(newFormat);
-                muxer.start();
-                muxerStarted = true;
-            } else if (outputBufIndex >= 0) {
-                ByteBuffer encodedData = encoder.getOutputBuffer(outputBufIndex);
-
-                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
-                    // Codec specific data; not written to muxer
-                    bufferInfo.size = 0;
-                }
+        @Override
+        public long getSampleTimeUs() {
+            return computePts(framesSubmitted);
+        }
 
-                if (bufferInfo.size != 0 && muxerStarted) {
-                    encodedData.position(bufferInfo.offset);
-                    encodedData.limit(bufferInfo.offset + bufferInfo.size);
-                    muxer.writeSampleData(trackIndex, encodedData, bufferInfo);
-                }
+        @Override
+        public void advance() {
+            framesSubmitted++;
+        }
 
-                encoder.releaseOutputBuffer(outputBufIndex, false);
+        @Override
+        public void seekToStart() {
+            framesSubmitted = 0;
+        }
+    }
 
-                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                    LogUtil.log("【CS】【Converter】收到 EOS");
-                    break;
-                }
+    /** 把编码输出写入 muxer；回调线程上执行 */
+    static final class MuxerSink implements OutputSink {
+        private final MediaMuxer muxer;
+        private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        private int trackIndex = -1;
+        private boolean muxerStarted;
+
+        MuxerSink(MediaMuxer muxer) {
+            this.muxer = muxer;
+        }
+
+        @Override
+        public void onFormatChanged(MediaFormat newFormat) {
+            if (muxerStarted) {
+                throw new RuntimeException("Format changed twice");
             }
+            LogUtil.log("【CS】【Converter】输出格式: " + newFormat);
+            trackIndex = muxer.addTrack(newFormat);
+            muxer.start();
+            muxerStarted = true;
+        }
+
+        @Override
+        public void onOutputBuffer(CodecPort codec, int index, int offset, int size, long presentationTimeUs,
+                int flags) {
+            // Codec specific data; not written to muxer
+            if ((flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && muxerStarted) {
+                ByteBuffer encodedData = codec.getOutputBuffer(index);
+                encodedData.position(offset);
+                encodedData.limit(offset + size);
+                bufferInfo.set(offset, size, presentationTimeUs, flags);
+                muxer.writeSampleData(trackIndex, encodedData, bufferInfo);
+            }
+            codec.releaseOutputBuffer(index, false);
         }
     }
 
@@ -269,56 +278,36 @@ public class ImageToVideoConverter {
     }
 
     /**
-     * 将 Bitmap 转为 NV12 (YUV420 Semi-Planar) 字节数组
+     * 将 Bitmap 转为 YUV420 字节数组：planar 时为 I420，否则为 NV12 (YUV420 Semi-Planar)
      */
-    private static byte[] bitmapToNV12(Bitmap bitmap, int width, int height) {
+    private static byte[] bitmapToYuv420(Bitmap bitmap, int width, int height, boolean planar) {
         try {
             int[] pixels = new int[width * height];
             bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
 
-            int ySize = width * height;
-            int uvSize = ySize / 2; // NV12: interleaved UV
-            byte[] yuv = new byte[ySize + uvSize];
-
-            int yIndex = 0;
-            int uvIndex = ySize;
-
-            for (int j = 0; j < height; j++) {
-                for (int i = 0; i < width; i++) {
-                    int pixel = pixels[j * width + i];
-                    int r = (pixel >> 16) & 0xFF;
-                    int g = (pixel >> 8) & 0xFF;
-                    int b = pixel & 0xFF;
-
-                    // RGB to YUV (BT.601)
-                    int y = ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
-                    int u = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
-                    int v = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
-
-                    yuv[yIndex++] = (byte) clamp(y, 0, 255);
-
-                    // UV is sampled every 2x2 block
-                    if (j % 2 == 0 && i % 2 == 0) {
-                        yuv[uvIndex++] = (byte) clamp(u, 0, 255);
-                        yuv[uvIndex++] = (byte) clamp(v, 0, 255);
-                    }
-                }
+            byte[] yuv = new byte[YuvConvert.frameSize(width, height)];
+            if (planar) {
+                int ySize = width * height;
+                int cSize = YuvConvert.chromaSize(width, height);
+                byte[] u = new byte[cSize];
+                byte[] v = new byte[cSize];
+                RgbToYuv.argbToI420(pixels, 0, width, width, height, yuv, u, v);
+                System.arraycopy(u, 0, yuv, ySize, cSize);
+                System.arraycopy(v, 0, yuv, ySize + cSize, cSize);
+            } else {
+                RgbToYuv.argbToNv12(pixels, 0, width, width, height, yuv);
             }
             return yuv;
         } catch (Exception e) {
-            LogUtil.log("【CS】【Converter】bitmapToNV12 异常: " + e.getMessage());
+            LogUtil.log("【CS】【Converter】bitmapToYuv420 异常: " + e.getMessage());
             return null;
         }
     }
 
-    private static int clamp(int val, int min, int max) {
-        return Math.max(min, Math.min(val, max));
-    }
-
     /**
      * 查找设备上的 H.264 编码器
      */
-    private static String findEncoderCodec(String mimeType) {
+    static String findEncoderCodec(String mimeType) {
         MediaCodecList codecList = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
         for (MediaCodecInfo info : codecList.getCodecInfos()) {
             if (!info.isEncoder())
@@ -332,7 +321,7 @@ public class ImageToVideoConverter {
         return null;
     }
 
-    private static MediaCodecInfo getCodecInfo(String codecName) {
+    static MediaCodecInfo getCodecInfo(String codecName) {
         MediaCodecList codecList = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
         for (MediaCodecInfo info : codecList.getCodecInfos()) {
             if (info.getName().equals(codecName))
@@ -344,7 +333,7 @@ public class ImageToVideoConverter {
     /**
      * 选择编码器支持的颜色格式，优先选 NV12
      */
-    private static int selectColorFormat(MediaCodecInfo codecInfo, String mimeType) {
+    static int selectColorFormat(MediaCodecInfo codecInfo, String mimeType) {
         MediaCodecInfo.CodecCapabilities capabilities = codecInfo.getCapabilitiesForType(mimeType);
         // Prefer NV12 (YUV420SemiPlanar)
         for (int format : capabilities.colorFormats) {
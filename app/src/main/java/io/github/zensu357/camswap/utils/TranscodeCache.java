@@ -0,0 +1,220 @@
+package io.github.zensu357.camswap.utils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 按相机目标参数预先转码的视频变体缓存，运行在管理端（VideoProvider 所在进程）。
+ * <p>
+ * Hook 进程通过 VideoProvider 上报观察到的目标（宽、高、旋转偏移、帧率）；缓存为当前源视频排队生成
+ * 匹配的变体，之后 openFile 直接返回变体：解码输出已是目标尺寸且无需旋转，Hook 端每帧不再做变换。
+ * <p>
+ * 变体以源文件的 (名称, 大小, 修改时间) 与目标参数命名，源视频被替换后旧变体自然失效；
+ * 总大小超出预算时按最近使用顺序淘汰。
+ */
+public final class TranscodeCache {
+
+    public static final long DEFAULT_BUDGET_BYTES = 512L << 20;
+    static final int MAX_DIMENSION = 4096;
+    static final int MAX_FPS = 120;
+    private static final String SUFFIX = ".mp4";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /** 一组相机目标参数；rotation 是用户设置的旋转偏移，源视频自带的旋转由转码器叠加 */
+    public static final class Target {
+        public final int width;
+        public final int height;
+        public final int rotation;
+        /** 0 表示沿用源视频帧率 */
+        public final int fps;
+
+        private Target(int width, int height, int rotation, int fps) {
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+            this.fps = fps;
+        }
+
+        /** 参数不合法（奇数或超限尺寸、非直角旋转）时返回 null */
+        public static Target of(int width, int height, int rotation, int fps) {
+            rotation = ((rotation % 360) + 360) % 360;
+            if (width <= 0 || height <= 0 || width > MAX_DIMENSION || height > MAX_DIMENSION
+                    || (width & 1) != 0 || (height & 1) != 0 || rotation % 90 != 0) {
+                return null;
+            }
+            return new Target(width, height, rotation, Math.max(0, Math.min(fps, MAX_FPS)));
+        }
+
+        String key() {
+            return width + "x" + height + "_r" + rotation + "_f" + fps;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Target)) {
+                return false;
+            }
+            Target t = (Target) o;
+            return width == t.width && height == t.height && rotation == t.rotation && fps == t.fps;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((width * 31 + height) * 31 + rotation) * 31 + fps;
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + " rot=" + rotation + " fps=" + fps;
+        }
+    }
+
+    public interface Transcoder {
+        /**
+         * 把 source 转码为符合 target 的视频写入 output。
+         *
+         * @return 源视频已经匹配、不支持或转码失败时返回 false
+         */
+        boolean transcode(File source, Target target, File output);
+    }
+
+    private final File dir;
+    private final long budgetBytes;
+    private final Transcoder transcoder;
+    private final Executor executor;
+    /** 文件名 → 大小，按访问顺序排列，首个为最久未用 */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> pending = new HashSet<>();
+    /** 转码失败或不需要变体的文件名；源视频变化后名称随之变化，不会误伤 */
+    private final Set<String> rejected = new HashSet<>();
+    private long totalBytes;
+    private boolean loaded;
+
+    public TranscodeCache(File dir, long budgetBytes, Transcoder transcoder, Executor executor) {
+        this.dir = dir;
+        this.budgetBytes = budgetBytes;
+        this.transcoder = transcoder;
+        this.executor = executor;
+    }
+
+    /** 已生成的匹配变体，没有则返回 null；命中会刷新其最近使用时间 */
+    public synchronized File find(File source, Target target) {
+        ensureLoaded();
+        String name = variantName(source, target);
+        if (entries.get(name) == null) {
+            return null;
+        }
+        File file = new File(dir, name);
+        if (!file.isFile()) {
+            totalBytes -= entries.remove(name);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * 为 source 排队生成 target 变体。
+     *
+     * @return 是否新排入了一个转码任务；已存在、正在转码或此前失败时返回 false
+     */
+    public boolean request(File source, Target target) {
+        String name = variantName(source, target);
+        synchronized (this) {
+            ensureLoaded();
+            if (entries.containsKey(name) || pending.contains(name) || rejected.contains(name)) {
+                return false;
+            }
+            pending.add(name);
+        }
+        executor.execute(() -> run(source, target, name));
+        return true;
+    }
+
+    private void run(File source, Target target, String name) {
+        File tmp = new File(dir, name + TMP_SUFFIX);
+        boolean ok;
+        long start = System.currentTimeMillis();
+        try {
+            ok = transcoder.transcode(source, target, tmp) && tmp.length() > 0;
+        } catch (RuntimeException e) {
+            LogUtil.log("【CS】【Transcode】转码异常: " + e);
+            ok = false;
+        }
+        File out = new File(dir, name);
+        ok = ok && tmp.renameTo(out);
+        synchronized (this) {
+            pending.remove(name);
+            if (!ok) {
+                tmp.delete();
+                rejected.add(name);
+                return;
+            }
+            long size = out.length();
+            Long old = entries.put(name, size);
+            totalBytes += size - (old != null ? old : 0);
+            evict(name);
+        }
+        LogUtil.log("【CS】【Transcode】变体就绪: " + source.getName() + " -> " + target + ", "
+                + out.length() + " bytes, " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /** 淘汰最久未用的变体直到不超预算；刚生成的 keep 保留 */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            new File(dir, eldest.getKey()).delete();
+            totalBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    /** 首次使用时从目录重建索引：按修改时间恢复使用顺序，清理上次中断留下的临时文件 */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        dir.mkdirs();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TMP_SUFFIX)) {
+                file.delete();
+            } else if (name.endsWith(SUFFIX)) {
+                entries.put(name, file.length());
+                totalBytes += file.length();
+            }
+        }
+        evict(null);
+    }
+
+    public synchronized long getTotalBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    public synchronized int getVariantCount() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    static String variantName(File source, Target target) {
+        return Integer.toHexString(source.getName().hashCode()) + "_" + source.length() + "_"
+                + source.lastModified() + "_" + target.key() + SUFFIX;
+    }
+}
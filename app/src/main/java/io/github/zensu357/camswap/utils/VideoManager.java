@@ -5,7 +5,9 @@ import android.os.ParcelFileDescriptor;
 import android.net.Uri;
 import android.os.Bundle;
 
+import io.github.zensu357.camswap.Bootstrap;
 import io.github.zensu357.camswap.ConfigManager;
+import io.github.zensu357.camswap.ConfigSnapshot;
 import io.github.zensu357.camswap.IpcContract;
 import io.github.zensu357.camswap.MediaSourceDescriptor;
 
@@ -28,6 +30,10 @@ public class VideoManager {
     private static ConfigManager configManager;
     private static long lastPfdFailLogMs = 0L;
     private static long lastPfdSuccessLogMs = 0L;
+    /** 本进程观察到的相机目标参数；打开视频时随 URI 带给 Provider，以取得匹配的转码变体 */
+    private static volatile TranscodeCache.Target cameraTarget;
+    /** 冷启动引导包；其中预打开的 fd 被取走或媒体源变化后作废 */
+    private static volatile Bootstrap bootstrap;
 
     /** Supported video file extensions */
     private static final String[] VIDEO_EXTENSIONS = { ".mp4", ".mov", ".avi", ".mkv" };
@@ -68,13 +74,98 @@ public class VideoManager {
         }
     }
 
+    /** 宿主应用的缓存目录；尚未拿到 Context 时为 null */
+    public static File getCacheDir() {
+        return toast_content != null ? toast_content.getCacheDir() : null;
+    }
+
+    /**
+     * 旋转偏移变化时按新偏移重新上报相机目标，管理端提前生成对应的变体；
+     * 媒体源变化时丢弃引导包里预打开的 fd，它们指向的是旧视频。
+     */
+    private static final ConfigSnapshot.Listener TARGET_ROTATION_LISTENER = (previous, current, changedKeys) -> {
+        TranscodeCache.Target target = cameraTarget;
+        if (target != null && changedKeys.contains(ConfigManager.KEY_VIDEO_ROTATION_OFFSET)) {
+            reportCameraTarget(target.width, target.height, target.fps);
+        }
+        if (!previous.sameMediaSource(current)) {
+            discardBootstrap();
+        }
+    };
+
+    /**
+     * 冷启动引导：一次 call("bootstrap") 取回配置、媒体源、预打开的 fd 和视频元数据，
+     * 代替配置查询、共享段映射、可用性探测和首次打开视频各自的 IPC。
+     *
+     * 应在 {@link #setContext} 之前调用：之后 ConfigManager.setContext 的 reload 只检查已映射共享段的版本号。
+     *
+     * @return false 表示管理端未运行或不支持引导，调用方走原来的逐项加载
+     */
+    public static boolean bootstrap(Context context) {
+        Bundle extras = null;
+        TranscodeCache.Target target = cameraTarget;
+        if (target != null) {
+            extras = new Bundle();
+            extras.putInt(IpcContract.EXTRA_TARGET_WIDTH, target.width);
+            extras.putInt(IpcContract.EXTRA_TARGET_HEIGHT, target.height);
+            extras.putInt(IpcContract.EXTRA_TARGET_ROTATION, target.rotation);
+            extras.putInt(IpcContract.EXTRA_TARGET_FPS, target.fps);
+        }
+        long start = android.os.SystemClock.elapsedRealtime();
+        Bundle result;
+        try {
+            result = context.getContentResolver().call(IpcContract.CONTENT_URI,
+                    IpcContract.METHOD_BOOTSTRAP, null, extras);
+        } catch (Exception e) {
+            log("【CS】【Bootstrap】引导失败: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            return false;
+        }
+        long now = android.os.SystemClock.elapsedRealtime();
+        Bootstrap fresh = Bootstrap.fromBundle(result, now - start, now);
+        if (fresh == null) {
+            log("【CS】【Bootstrap】管理端不支持引导，回退到逐项加载");
+            return false;
+        }
+        getConfig().adoptBootstrap(fresh.configJson, fresh.takeSegmentPfd());
+        Bootstrap old = bootstrap;
+        bootstrap = fresh;
+        if (old != null) {
+            old.close();
+        }
+        // 到期仍未取用的 fd 主动关闭，不打开相机的进程不会一直占着管理端的文件
+        new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(fresh::close, Bootstrap.PFD_TTL_MS);
+        if (fresh.hasVideoPfd()) {
+            providerAvailable = true;
+        }
+        log("【CS】【Bootstrap】" + fresh);
+        return true;
+    }
+
+    private static void discardBootstrap() {
+        Bootstrap old = bootstrap;
+        if (old != null) {
+            bootstrap = null;
+            old.close();
+        }
+    }
+
+    /** pfd 是引导包交出的视频 fd 时返回管理端探测的元数据，否则 null */
+    public static Bootstrap.Metadata bootstrapMetadataFor(ParcelFileDescriptor pfd) {
+        Bootstrap current = bootstrap;
+        return current != null ? current.metadataFor(pfd) : null;
+    }
+
     public static void setConfigManager(ConfigManager manager) {
         configManager = manager;
+        if (manager != null) {
+            manager.addListener(TARGET_ROTATION_LISTENER);
+        }
     }
 
     public static ConfigManager getConfig() {
         if (configManager == null) {
             configManager = new ConfigManager();
+            configManager.addListener(TARGET_ROTATION_LISTENER);
             if (toast_content != null) {
                 configManager.setContext(toast_content);
             }
@@ -102,8 +193,17 @@ public class VideoManager {
         }
         // directly.
 
+        Bootstrap current = bootstrap;
+        if (current != null) {
+            ParcelFileDescriptor pfd = current.takeVideoPfd(android.os.SystemClock.elapsedRealtime());
+            if (pfd != null) {
+                log("【CS】getVideoPFD: 使用引导包预打开的 fd");
+                return pfd;
+            }
+        }
+
         try {
-            ParcelFileDescriptor pfd = toast_content.getContentResolver().openFileDescriptor(IpcContract.URI_VIDEO, "r");
+            ParcelFileDescriptor pfd = toast_content.getContentResolver().openFileDescriptor(videoUri(), "r");
             if (pfd != null) {
                 long now = android.os.SystemClock.elapsedRealtime();
                 if (now - lastPfdSuccessLogMs >= 5000L) {
@@ -124,6 +224,50 @@ public class VideoManager {
         return null;
     }
 
+    /**
+     * 上报相机目标参数（Camera1 预览尺寸、Camera2 YUV 读取尺寸）；旋转取当前的用户偏移，fps 为 0 表示未知。
+     * 参数变化时才经 Provider 上报一次，管理端在后台生成变体，下次打开视频时生效。
+     */
+    public static void reportCameraTarget(int width, int height, int fps) {
+        if (isStillMode()) {
+            return; // 图片模式不解码视频，不需要转码变体
+        }
+        int rotation = getConfig().snapshot().videoRotationOffset;
+        TranscodeCache.Target target = TranscodeCache.Target.of(width, height, rotation, fps);
+        if (target == null || target.equals(cameraTarget)) {
+            return;
+        }
+        cameraTarget = target;
+        if (toast_content == null) {
+            return;
+        }
+        Bundle extras = new Bundle();
+        extras.putInt(IpcContract.EXTRA_TARGET_WIDTH, target.width);
+        extras.putInt(IpcContract.EXTRA_TARGET_HEIGHT, target.height);
+        extras.putInt(IpcContract.EXTRA_TARGET_ROTATION, target.rotation);
+        extras.putInt(IpcContract.EXTRA_TARGET_FPS, target.fps);
+        try {
+            toast_content.getContentResolver().call(IpcContract.CONTENT_URI,
+                    IpcContract.METHOD_REPORT_TARGET, null, extras);
+            log("【CS】上报相机目标: " + target);
+        } catch (Exception e) {
+            log("【CS】上报相机目标失败: " + e);
+        }
+    }
+
+    private static Uri videoUri() {
+        TranscodeCache.Target target = cameraTarget;
+        if (target == null) {
+            return IpcContract.URI_VIDEO;
+        }
+        return IpcContract.URI_VIDEO.buildUpon()
+                .appendQueryParameter(IpcContract.QUERY_WIDTH, String.valueOf(target.width))
+                .appendQueryParameter(IpcContract.QUERY_HEIGHT, String.valueOf(target.height))
+                .appendQueryParameter(IpcContract.QUERY_ROTATION, String.valueOf(target.rotation))
+                .appendQueryParameter(IpcContract.QUERY_FPS, String.valueOf(target.fps))
+                .build();
+    }
+
     public static void copyToPrivateDir(ParcelFileDescriptor pfd) {
         if (toast_content == null)
             return;
@@ -159,6 +303,14 @@ public class VideoManager {
         if (toast_content == null) {
             return null;
         }
+        Bootstrap current = bootstrap;
+        if (current != null) {
+            ParcelFileDescriptor pfd = current.takeAudioPfd(android.os.SystemClock.elapsedRealtime());
+            if (pfd != null) {
+                log("【CS】getAudioPFD: 使用引导包预打开的 fd");
+                return pfd;
+            }
+        }
         try {
             ParcelFileDescriptor pfd = toast_content.getContentResolver().openFileDescriptor(IpcContract.URI_AUDIO, "r");
             if (pfd != null) {
@@ -171,6 +323,28 @@ public class VideoManager {
         return null;
     }
 
+    /**
+     * 通过 ContentProvider 获取当前选中图片的 PFD（图片模式下目标应用通常读不到公共目录）。
+     */
+    public static ParcelFileDescriptor getImagePFD() {
+        if (toast_content == null) {
+            return null;
+        }
+        Bootstrap current = bootstrap;
+        if (current != null) {
+            ParcelFileDescriptor pfd = current.takeImagePfd(android.os.SystemClock.elapsedRealtime());
+            if (pfd != null) {
+                return pfd;
+            }
+        }
+        try {
+            return toast_content.getContentResolver().openFileDescriptor(IpcContract.URI_IMAGE, "r");
+        } catch (Exception e) {
+            log("【CS】getImagePFD 失败: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * 将音频文件从 Provider 拷贝到 app 私有目录。
      * @return 拷贝后的私有目录音频文件路径，失败返回 null
@@ -226,6 +400,12 @@ public class VideoManager {
     }
 
     public static void checkProviderAvailability() {
+        // 引导包里还留着预打开的视频 fd：管理端刚应答过，不必再打开一次探测
+        Bootstrap current = bootstrap;
+        if (current != null && current.hasVideoPfd()) {
+            providerAvailable = true;
+            return;
+        }
         ParcelFileDescriptor pfd = getVideoPFD();
         if (pfd != null) {
             providerAvailable = true;
@@ -489,19 +669,27 @@ public class VideoManager {
 
     /** Whether current config is set to stream mode. */
     public static boolean isStreamMode() {
-        ConfigManager config = getConfig();
-        String type = config.getString(ConfigManager.KEY_MEDIA_SOURCE_TYPE, ConfigManager.MEDIA_SOURCE_LOCAL);
-        return ConfigManager.MEDIA_SOURCE_STREAM.equals(type);
+        return getConfig().snapshot().streamMode;
     }
 
-    /** Whether there is a usable media source (local file or stream URL). */
+    /** Whether current config replaces the camera with a still image (local source only). */
+    public static boolean isStillMode() {
+        return getConfig().snapshot().stillMode;
+    }
+
+    /** Selected image file name, empty when none. */
+    public static String getSelectedImageName() {
+        return getConfig().snapshot().selectedImage;
+    }
+
+    /** Whether there is a usable media source (local file, still image or stream URL). */
     public static boolean hasUsableMediaSource() {
         return getCurrentMediaSource().isValid();
     }
 
     /**
      * Build a {@link MediaSourceDescriptor} from current config state.
-     * Local mode: uses existing video path logic.
+     * Local mode: uses existing video path logic; image replace mode yields a still-image source.
      * Stream mode: uses stream_url; falls back to local if URL empty and fallback enabled.
      */
     public static MediaSourceDescriptor getCurrentMediaSource() {
@@ -534,6 +722,12 @@ public class VideoManager {
             return MediaSourceDescriptor.stream("").build();
         }
 
+        if (isStillMode()) {
+            String image = getSelectedImageName();
+            return MediaSourceDescriptor.stillImage(new File(video_path, image).getAbsolutePath())
+                    .useProviderPfd(isProviderAvailable())
+                    .build();
+        }
         return buildLocalDescriptor();
     }
 
@@ -0,0 +1,318 @@
+package io.github.zensu357.camswap.utils;
+
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.github.zensu357.camswap.codec.AsyncCodec;
+import io.github.zensu357.camswap.codec.CodecPort;
+import io.github.zensu357.camswap.codec.ExtractorFeeder;
+import io.github.zensu357.camswap.codec.InputFeeder;
+import io.github.zensu357.camswap.codec.OutputSink;
+import io.github.zensu357.camswap.yuv.Nv21FrameTransform;
+import io.github.zensu357.camswap.yuv.YuvConvert;
+import io.github.zensu357.camswap.yuv.YuvPlanes;
+
+/**
+ * 把源视频转码为相机目标参数的变体：旋转（源自带旋转 + 用户偏移）、居中裁剪缩放、按需降帧，
+ * 编码器配置沿用 {@link ImageToVideoConverter}。
+ * <p>
+ * 解码器与编码器各自由 {@link AsyncCodec} 驱动，中间用容量固定的帧队列衔接，数组循环复用。
+ * 输出写入方向标记 (360 - 用户偏移)：Hook 端按“容器旋转 + 用户偏移”计算的旋转恰好为 0，
+ * 偏移之后若被修改，Hook 端算出的差值仍能正确补偿。
+ */
+public final class VideoTranscoder implements TranscodeCache.Transcoder {
+
+    private static final long TIMEOUT_MS = 10 * 60_000L;
+    /** 任一端停止推进超过该时长视为失败 */
+    private static final long STALL_TIMEOUT_MS = 5_000L;
+    private static final int QUEUE_FRAMES = 3;
+
+    /** 排队中的一帧（编码器输入布局）；data 为 null 表示结束 */
+    private static final class Frame {
+        final byte[] data;
+        final long ptsUs;
+
+        Frame(byte[] data, long ptsUs) {
+            this.data = data;
+            this.ptsUs = ptsUs;
+        }
+    }
+
+    private static final Frame END = new Frame(null, -1);
+
+    @Override
+    public boolean transcode(File source, TranscodeCache.Target target, File output) {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec decoder = null;
+        MediaCodec encoder = null;
+        AsyncCodec asyncDecoder = null;
+        AsyncCodec asyncEncoder = null;
+        MediaMuxer muxer = null;
+        try {
+            extractor.setDataSource(source.getPath());
+            int track = selectVideoTrack(extractor);
+            if (track < 0) {
+                LogUtil.log("【CS】【Transcode】未发现视频轨道: " + source.getName());
+                return false;
+            }
+            extractor.selectTrack(track);
+            MediaFormat inputFormat = extractor.getTrackFormat(track);
+            int srcWidth = inputFormat.getInteger(MediaFormat.KEY_WIDTH);
+            int srcHeight = inputFormat.getInteger(MediaFormat.KEY_HEIGHT);
+            int srcRotation = inputFormat.containsKey(MediaFormat.KEY_ROTATION)
+                    ? inputFormat.getInteger(MediaFormat.KEY_ROTATION) : 0;
+            int srcFps = inputFormat.containsKey(MediaFormat.KEY_FRAME_RATE)
+                    ? inputFormat.getInteger(MediaFormat.KEY_FRAME_RATE) : 30;
+            if (srcFps <= 0) {
+                srcFps = 30;
+            }
+            int rotation = (srcRotation + target.rotation) % 360;
+            int fps = target.fps > 0 ? Math.min(target.fps, srcFps) : srcFps;
+            if (rotation == 0 && target.rotation == 0 && srcWidth == target.width
+                    && srcHeight == target.height && fps == srcFps) {
+                LogUtil.log("【CS】【Transcode】源视频已匹配 " + target + "，无需变体");
+                return false;
+            }
+
+            String codecName = ImageToVideoConverter.findEncoderCodec(ImageToVideoConverter.MIME_TYPE);
+            int colorFormat = MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420SemiPlanar;
+            if (codecName != null) {
+                MediaCodecInfo codecInfo = ImageToVideoConverter.getCodecInfo(codecName);
+                if (codecInfo != null) {
+                    colorFormat = ImageToVideoConverter.selectColorFormat(codecInfo, ImageToVideoConverter.MIME_TYPE);
+                }
+            }
+            boolean planar = colorFormat == MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Planar;
+
+            MediaFormat outputFormat = MediaFormat.createVideoFormat(ImageToVideoConverter.MIME_TYPE,
+                    target.width, target.height);
+            outputFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT, colorFormat);
+            outputFormat.setInteger(MediaFormat.KEY_BIT_RATE, target.width * target.height * 4);
+            outputFormat.setInteger(MediaFormat.KEY_FRAME_RATE, fps);
+            outputFormat.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, ImageToVideoConverter.IFRAME_INTERVAL);
+
+            LogUtil.log("【CS】【Transcode】开始: " + source.getName() + " " + srcWidth + "x" + srcHeight
+                    + " rot=" + srcRotation + " @" + srcFps + "fps -> " + target + ", " + (planar ? "I420" : "NV12"));
+
+            int frameSize = YuvConvert.frameSize(target.width, target.height);
+            BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+            for (int i = 0; i < QUEUE_FRAMES; i++) {
+                free.add(new byte[frameSize]);
+            }
+            BlockingQueue<Frame> filled = new ArrayBlockingQueue<>(QUEUE_FRAMES + 1);
+
+            muxer = new MediaMuxer(output.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            muxer.setOrientationHint((360 - target.rotation) % 360);
+            encoder = codecName != null ? MediaCodec.createByCodecName(codecName)
+                    : MediaCodec.createEncoderByType(ImageToVideoConverter.MIME_TYPE);
+            asyncEncoder = AsyncCodec.start(encoder, outputFormat, null, MediaCodec.CONFIGURE_FLAG_ENCODE,
+                    new QueueFeeder(filled, free), new ImageToVideoConverter.MuxerSink(muxer), "CS-Transcode-enc");
+
+            inputFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                    MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+            decoder = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+            asyncDecoder = AsyncCodec.start(decoder, inputFormat, null, 0, new ExtractorFeeder(extractor),
+                    new TransformSink(target, rotation, fps < srcFps ? fps : 0, planar, free, filled),
+                    "CS-Transcode-dec");
+
+            if (!asyncEncoder.awaitEnd(TIMEOUT_MS)) {
+                throw new RuntimeException("转码超时");
+            }
+            if (!asyncDecoder.awaitEnd(1000) || asyncDecoder.getError() != null) {
+                throw new RuntimeException("解码未正常结束", asyncDecoder.getError());
+            }
+            if (asyncEncoder.getError() != null) {
+                throw new RuntimeException(asyncEncoder.getError());
+            }
+            return true;
+        } catch (Exception e) {
+            LogUtil.log("【CS】【Transcode】转码失败: " + e);
+            return false;
+        } finally {
+            if (asyncDecoder != null) {
+                asyncDecoder.stop();
+            }
+            if (asyncEncoder != null) {
+                asyncEncoder.stop();
+            }
+            if (decoder != null) {
+                decoder.release();
+            }
+            if (encoder != null) {
+                encoder.release();
+            }
+            try {
+                if (muxer != null) {
+                    muxer.stop();
+                    muxer.release();
+                }
+            } catch (Exception ignored) {
+            }
+            extractor.release();
+        }
+    }
+
+    /** 解码回调线程：旋转、裁剪缩放并转为编码器布局，按目标帧率丢帧后交给编码队列 */
+    private static final class TransformSink implements OutputSink {
+        private final TranscodeCache.Target target;
+        private final int rotation;
+        /** 大于 0 时按该帧率降帧 */
+        private final int dropToFps;
+        private final boolean planar;
+        private final BlockingQueue<byte[]> free;
+        private final BlockingQueue<Frame> filled;
+        private final YuvPlanes planes = new YuvPlanes();
+        private final Nv21FrameTransform transform = new Nv21FrameTransform();
+        private final byte[] nv21;
+        private final byte[] u;
+        private final byte[] v;
+        private long nextPtsUs = Long.MIN_VALUE;
+
+        TransformSink(TranscodeCache.Target target, int rotation, int dropToFps, boolean planar,
+                BlockingQueue<byte[]> free, BlockingQueue<Frame> filled) {
+            this.target = target;
+            this.rotation = rotation;
+            this.dropToFps = dropToFps;
+            this.planar = planar;
+            this.free = free;
+            this.filled = filled;
+            this.nv21 = new byte[YuvConvert.frameSize(target.width, target.height)];
+            int chroma = YuvConvert.chromaSize(target.width, target.height);
+            this.u = planar ? new byte[chroma] : null;
+            this.v = planar ? new byte[chroma] : null;
+        }
+
+        @Override
+        public void onOutputBuffer(CodecPort codec, int index, int offset, int size, long presentationTimeUs,
+                int flags) {
+            try {
+                if (presentationTimeUs < nextPtsUs) {
+                    return;
+                }
+                Image image = codec.getOutputImage(index);
+                if (image == null) {
+                    return;
+                }
+                try {
+                    planes.copyFrom(image);
+                } finally {
+                    image.close();
+                }
+                if (dropToFps > 0) {
+                    // 以上一个保留帧的理想时刻推进，源帧时间抖动时不累积误差
+                    long interval = 1_000_000L / dropToFps;
+                    long base = nextPtsUs == Long.MIN_VALUE ? presentationTimeUs
+                            : Math.max(nextPtsUs, presentationTimeUs - interval / 2);
+                    nextPtsUs = base + interval;
+                }
+                transform.configure(planes, rotation, target.width, target.height);
+                transform.apply(planes, nv21);
+                byte[] out = take(free);
+                if (planar) {
+                    YuvConvert.nv21ToI420(nv21, target.width, target.height, out, u, v);
+                    int ySize = target.width * target.height;
+                    System.arraycopy(u, 0, out, ySize, u.length);
+                    System.arraycopy(v, 0, out, ySize + u.length, v.length);
+                } else {
+                    YuvConvert.swapUv(nv21, target.width, target.height, out);
+                }
+                put(filled, new Frame(out, presentationTimeUs));
+            } finally {
+                codec.releaseOutputBuffer(index, false);
+            }
+        }
+
+        @Override
+        public boolean onEndOfStream() {
+            put(filled, END);
+            return false;
+        }
+    }
+
+    /** 编码回调线程：从队列取帧写入编码器输入，交还数组 */
+    private static final class QueueFeeder implements InputFeeder {
+        private final BlockingQueue<Frame> filled;
+        private final BlockingQueue<byte[]> free;
+        private long ptsUs;
+
+        QueueFeeder(BlockingQueue<Frame> filled, BlockingQueue<byte[]> free) {
+            this.filled = filled;
+            this.free = free;
+        }
+
+        @Override
+        public int readSample(ByteBuffer buffer) {
+            Frame frame;
+            try {
+                frame = filled.poll(STALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+            // 解码端停滞或结束：发送 EOS，是否成功由解码端状态判定
+            if (frame == null || frame == END) {
+                return -1;
+            }
+            buffer.put(frame.data);
+            ptsUs = frame.ptsUs;
+            free.offer(frame.data);
+            return frame.data.length;
+        }
+
+        @Override
+        public long getSampleTimeUs() {
+            return ptsUs;
+        }
+
+        @Override
+        public void advance() {
+        }
+
+        @Override
+        public void seekToStart() {
+        }
+    }
+
+    /** 编码端停滞时抛出，由 AsyncCodec 记为解码错误，避免回调线程永久阻塞 */
+    private static <T> T take(BlockingQueue<T> queue) {
+        T item;
+        try {
+            item = queue.poll(STALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+        if (item == null) {
+            throw new IllegalStateException("encoder stalled");
+        }
+        return item;
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int selectVideoTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("video/")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,374 @@
+package io.github.zensu357.camswap.yuv;
+
+/**
+ * 单遍完成 旋转 + 居中裁剪 + 缩放，从 {@link YuvPlanes} 直接写出 NV21。
+ * <p>
+ * 旋转只是坐标重映射，而且目标列只影响源的一个轴、目标行只影响另一个轴，
+ * 所以源偏移可以拆成 {@code col[dx] + row[dy]} 两张表。表按
+ * (源尺寸, 跨度, 旋转, 目标尺寸, 缩放方式) 缓存，参数变化时下一帧自动重建，无需重启解码器。
+ * <p>
+ * 亮度缩放方式默认按比例自动选择（见 {@link ScaleMode#forRatio}）：
+ * 8 位权重定点双线性，或缩小超过 2 倍时的区域平均；色度始终最近邻。
+ * 设置 {@link TiledExecutor} 后，大帧按行分带并行处理。
+ * 实例不是线程安全的，每个解码线程持有一个。
+ */
+public final class Nv21FrameTransform {
+    private int srcW = -1;
+    private int srcH = -1;
+    private int yStride = -1;
+    private int cStride = -1;
+    private int cPixelStride = -1;
+    private int rotation = -1;
+    private int reqW = -1;
+    private int reqH = -1;
+    private ScaleMode forcedMode;
+    private boolean tablesValid;
+
+    private int outW;
+    private int outH;
+    private ScaleMode lumaMode = ScaleMode.BILINEAR;
+
+    // 双线性 / 最近邻：每个目标列、行的两个源偏移分量与权重
+    private int[] yColA;
+    private int[] yColB;
+    private int[] yColF;
+    private int[] yRowA;
+    private int[] yRowB;
+    private int[] yRowF;
+
+    // 区域平均：旋转后坐标系中每列/每行的源偏移分量，以及每个目标列/行覆盖的区间
+    private int[] rotColOff;
+    private int[] rotRowOff;
+    private int[] boxColStart;
+    private int[] boxColCount;
+    private int[] boxRowStart;
+    private int[] boxRowCount;
+    private int[] boxRecip;
+
+    private int[] cCol;
+    private int[] cRow;
+
+    private final int[] crop = new int[4];
+
+    private TiledExecutor executor;
+    private YuvPlanes pendingSrc;
+    private byte[] pendingDst;
+    private final TiledExecutor.RowTask rowTask = (rowStart, rowEnd) ->
+            applyRows(pendingSrc, pendingDst, rowStart, rowEnd);
+
+    /**
+     * 设置并行执行器；null 表示始终在调用线程顺序执行。
+     */
+    public void setExecutor(TiledExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 固定亮度缩放方式；传 null 恢复按比例自动选择。
+     */
+    public void setLumaMode(ScaleMode mode) {
+        if (mode != forcedMode) {
+            forcedMode = mode;
+            tablesValid = false;
+        }
+    }
+
+    /**
+     * 按需重建映射表。
+     *
+     * @param rotation 顺时针角度 0/90/180/270
+     * @param dstW     目标宽，≤ 0 表示不缩放（输出为旋转后的原尺寸）
+     * @return 是否重建了映射表
+     */
+    public boolean configure(YuvPlanes src, int rotation, int dstW, int dstH) {
+        if (tablesValid && src.width == srcW && src.height == srcH && src.yRowStride == yStride
+                && src.uvRowStride == cStride && src.uvPixelStride == cPixelStride
+                && rotation == this.rotation && dstW == reqW && dstH == reqH) {
+            return false;
+        }
+        srcW = src.width;
+        srcH = src.height;
+        yStride = src.yRowStride;
+        cStride = src.uvRowStride;
+        cPixelStride = src.uvPixelStride;
+        this.rotation = rotation;
+        reqW = dstW;
+        reqH = dstH;
+        buildTables();
+        tablesValid = true;
+        return true;
+    }
+
+    public int getOutputWidth() {
+        return outW;
+    }
+
+    public int getOutputHeight() {
+        return outH;
+    }
+
+    public int getOutputSize() {
+        return YuvConvert.frameSize(outW, outH);
+    }
+
+    /** 当前实际使用的亮度缩放方式 */
+    public ScaleMode getLumaMode() {
+        return lumaMode;
+    }
+
+    private void buildTables() {
+        boolean swap = YuvRotate.swapsDimensions(rotation);
+        int rotW = swap ? srcH : srcW;
+        int rotH = swap ? srcW : srcH;
+        if (reqW > 0 && reqH > 0) {
+            outW = reqW;
+            outH = reqH;
+            YuvScale.centerCrop(rotW, rotH, outW, outH, crop);
+        } else {
+            outW = rotW;
+            outH = rotH;
+            crop[0] = 0;
+            crop[1] = 0;
+            crop[2] = rotW;
+            crop[3] = rotH;
+        }
+        int cropX = crop[0];
+        int cropY = crop[1];
+        int cropW = crop[2];
+        int cropH = crop[3];
+        lumaMode = forcedMode != null ? forcedMode : ScaleMode.forRatio(cropW, cropH, outW, outH);
+
+        if (lumaMode == ScaleMode.AREA) {
+            buildBoxTables(rotW, rotH, cropX, cropY, cropW, cropH);
+        } else {
+            buildBilinearTables(cropX, cropY, cropW, cropH);
+        }
+
+        int cSrcW = srcW / 2;
+        int cSrcH = srcH / 2;
+        long scaleXFp = ((long) cropW << 16) / outW;
+        long scaleYFp = ((long) cropH << 16) / outH;
+        cCol = ensure(cCol, outW / 2);
+        for (int x = 0; x < outW / 2; x++) {
+            int cx = (cropX / 2) + (int) ((x * scaleXFp) >> 16);
+            cCol[x] = mapCol(cx, cSrcW, cSrcH, cStride, cPixelStride);
+        }
+        cRow = ensure(cRow, outH / 2);
+        for (int y = 0; y < outH / 2; y++) {
+            int cy = (cropY / 2) + (int) ((y * scaleYFp) >> 16);
+            cRow[y] = mapRow(cy, cSrcW, cSrcH, cStride, cPixelStride);
+        }
+    }
+
+    private void buildBilinearTables(int cropX, int cropY, int cropW, int cropH) {
+        yColA = ensure(yColA, outW);
+        yColB = ensure(yColB, outW);
+        yColF = ensure(yColF, outW);
+        for (int x = 0; x < outW; x++) {
+            long pos = ((long) cropX << 16) + (((long) x * cropW) << 16) / outW;
+            int x0 = (int) (pos >> 16);
+            int x1 = Math.min(x0 + 1, cropX + cropW - 1);
+            yColA[x] = mapCol(x0, srcW, srcH, yStride, 1);
+            yColB[x] = mapCol(x1, srcW, srcH, yStride, 1);
+            yColF[x] = (int) (pos >> 8) & 0xFF;
+        }
+        yRowA = ensure(yRowA, outH);
+        yRowB = ensure(yRowB, outH);
+        yRowF = ensure(yRowF, outH);
+        for (int y = 0; y < outH; y++) {
+            long pos = ((long) cropY << 16) + (((long) y * cropH) << 16) / outH;
+            int y0 = (int) (pos >> 16);
+            int y1 = Math.min(y0 + 1, cropY + cropH - 1);
+            yRowA[y] = mapRow(y0, srcW, srcH, yStride, 1);
+            yRowB[y] = mapRow(y1, srcW, srcH, yStride, 1);
+            yRowF[y] = (int) (pos >> 8) & 0xFF;
+        }
+    }
+
+    private void buildBoxTables(int rotW, int rotH, int cropX, int cropY, int cropW, int cropH) {
+        rotColOff = ensure(rotColOff, rotW);
+        for (int rx = 0; rx < rotW; rx++) {
+            rotColOff[rx] = mapCol(rx, srcW, srcH, yStride, 1);
+        }
+        rotRowOff = ensure(rotRowOff, rotH);
+        for (int ry = 0; ry < rotH; ry++) {
+            rotRowOff[ry] = mapRow(ry, srcW, srcH, yStride, 1);
+        }
+        boxColStart = ensure(boxColStart, outW);
+        boxColCount = ensure(boxColCount, outW);
+        int maxCols = fillBoxes(boxColStart, boxColCount, outW, cropX, cropW);
+        boxRowStart = ensure(boxRowStart, outH);
+        boxRowCount = ensure(boxRowCount, outH);
+        int maxRows = fillBoxes(boxRowStart, boxRowCount, outH, cropY, cropH);
+
+        int maxArea = maxCols * maxRows;
+        boxRecip = ensure(boxRecip, maxArea + 1);
+        for (int n = 1; n <= maxArea; n++) {
+            boxRecip[n] = (65536 + n / 2) / n;
+        }
+    }
+
+    /** 把 [start, start+len) 均分成 out 段，每段至少 1 个像素；返回最长段长度 */
+    private static int fillBoxes(int[] starts, int[] counts, int out, int start, int len) {
+        int max = 1;
+        for (int i = 0; i < out; i++) {
+            int a = (int) ((long) i * len / out);
+            int b = (int) ((long) (i + 1) * len / out);
+            if (b <= a) {
+                b = Math.min(a + 1, len);
+                a = b - 1;
+            }
+            starts[i] = start + a;
+            counts[i] = b - a;
+            max = Math.max(max, b - a);
+        }
+        return max;
+    }
+
+    /** 旋转后坐标系中的第 rx 列对应的源偏移分量 */
+    private int mapCol(int rx, int w, int h, int rowStride, int pixelStride) {
+        switch (rotation) {
+            case 90:
+                return (h - 1 - rx) * rowStride;
+            case 180:
+                return (w - 1 - rx) * pixelStride;
+            case 270:
+                return rx * rowStride;
+            default:
+                return rx * pixelStride;
+        }
+    }
+
+    /** 旋转后坐标系中的第 ry 行对应的源偏移分量 */
+    private int mapRow(int ry, int w, int h, int rowStride, int pixelStride) {
+        switch (rotation) {
+            case 90:
+                return ry * pixelStride;
+            case 180:
+                return (h - 1 - ry) * rowStride;
+            case 270:
+                return (w - 1 - ry) * pixelStride;
+            default:
+                return ry * rowStride;
+        }
+    }
+
+    /**
+     * 写出一帧 NV21，dst 长度需 ≥ {@link #getOutputSize()}。
+     * 调用前必须先用同一份 planes 调用 {@link #configure}。
+     */
+    public void apply(YuvPlanes src, byte[] dst) {
+        TiledExecutor exec = executor;
+        if (exec == null) {
+            applyRows(src, dst, 0, outH);
+            return;
+        }
+        long work = lumaMode == ScaleMode.AREA ? (long) crop[2] * crop[3] : (long) outW * outH;
+        pendingSrc = src;
+        pendingDst = dst;
+        try {
+            exec.run(outH, 2, work, rowTask);
+        } finally {
+            pendingSrc = null;
+            pendingDst = null;
+        }
+    }
+
+    /** 处理亮度行 [rowStart, rowEnd) 以及对应的色度行；rowStart 需为偶数 */
+    private void applyRows(YuvPlanes src, byte[] dst, int rowStart, int rowEnd) {
+        switch (lumaMode) {
+            case AREA:
+                applyLumaArea(src, dst, rowStart, rowEnd);
+                break;
+            case NEAREST:
+                applyLumaNearest(src, dst, rowStart, rowEnd);
+                break;
+            default:
+                applyLumaBilinear(src, dst, rowStart, rowEnd);
+                break;
+        }
+        applyChroma(src, dst, rowStart / 2, Math.min(outH / 2, rowEnd / 2));
+    }
+
+    private void applyLumaBilinear(YuvPlanes src, byte[] dst, int rowStart, int rowEnd) {
+        final byte[] yIn = src.y;
+        final int yBase = src.yOffset;
+        final int w = outW;
+        int d = rowStart * w;
+        for (int dy = rowStart; dy < rowEnd; dy++) {
+            int rowA = yBase + yRowA[dy];
+            int rowB = yBase + yRowB[dy];
+            int fy = yRowF[dy];
+            int fy1 = 256 - fy;
+            for (int dx = 0; dx < w; dx++) {
+                int a = yColA[dx];
+                int b = yColB[dx];
+                int fx = yColF[dx];
+                int fx1 = 256 - fx;
+                int top = (yIn[rowA + a] & 0xFF) * fx1 + (yIn[rowA + b] & 0xFF) * fx;
+                int bottom = (yIn[rowB + a] & 0xFF) * fx1 + (yIn[rowB + b] & 0xFF) * fx;
+                dst[d++] = (byte) ((top * fy1 + bottom * fy + 32768) >> 16);
+            }
+        }
+    }
+
+    private void applyLumaNearest(YuvPlanes src, byte[] dst, int rowStart, int rowEnd) {
+        final byte[] yIn = src.y;
+        final int yBase = src.yOffset;
+        final int w = outW;
+        int d = rowStart * w;
+        for (int dy = rowStart; dy < rowEnd; dy++) {
+            int row = yBase + yRowA[dy];
+            for (int dx = 0; dx < w; dx++) {
+                dst[d++] = yIn[row + yColA[dx]];
+            }
+        }
+    }
+
+    private void applyLumaArea(YuvPlanes src, byte[] dst, int rowStart, int rowEnd) {
+        final byte[] yIn = src.y;
+        final int yBase = src.yOffset;
+        final int w = outW;
+        final int[] colOff = rotColOff;
+        final int[] rowOff = rotRowOff;
+        int d = rowStart * w;
+        for (int dy = rowStart; dy < rowEnd; dy++) {
+            int rs = boxRowStart[dy];
+            int re = rs + boxRowCount[dy];
+            int rc = boxRowCount[dy];
+            for (int dx = 0; dx < w; dx++) {
+                int cs = boxColStart[dx];
+                int ce = cs + boxColCount[dx];
+                int sum = 0;
+                for (int r = rs; r < re; r++) {
+                    int base = yBase + rowOff[r];
+                    for (int c = cs; c < ce; c++) {
+                        sum += yIn[base + colOff[c]] & 0xFF;
+                    }
+                }
+                dst[d++] = (byte) ((sum * boxRecip[rc * boxColCount[dx]] + 32768) >> 16);
+            }
+        }
+    }
+
+    private void applyChroma(YuvPlanes src, byte[] dst, int rowStart, int rowEnd) {
+        final byte[] uIn = src.u;
+        final byte[] vIn = src.v;
+        final int uBase = src.uOffset;
+        final int vBase = src.vOffset;
+        final int cw = outW / 2;
+        int d = outW * outH + rowStart * cw * 2;
+        for (int cy = rowStart; cy < rowEnd; cy++) {
+            int row = cRow[cy];
+            for (int cx = 0; cx < cw; cx++) {
+                int off = row + cCol[cx];
+                dst[d++] = vIn[vBase + off];
+                dst[d++] = uIn[uBase + off];
+            }
+        }
+    }
+
+    private static int[] ensure(int[] table, int size) {
+        return (table != null && table.length >= size) ? table : new int[size];
+    }
+}
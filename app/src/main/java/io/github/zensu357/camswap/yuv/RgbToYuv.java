@@ -0,0 +1,100 @@
+package io.github.zensu357.camswap.yuv;
+
+/**
+ * ARGB_8888 像素（{@code Bitmap.getPixels} 的输出）→ YUV420。
+ * <p>
+ * 使用 BT.601 limited range 整数系数；8 位输入下结果天然落在 [16, 240]，无需再 clamp。
+ * 色度取每个 2x2 块左上角像素，与原先各条路径的行为一致。
+ */
+public final class RgbToYuv {
+
+    private RgbToYuv() {
+    }
+
+    static int y(int r, int g, int b) {
+        return ((66 * r + 129 * g + 25 * b + 128) >> 8) + 16;
+    }
+
+    static int u(int r, int g, int b) {
+        return ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
+    }
+
+    static int v(int r, int g, int b) {
+        return ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
+    }
+
+    /**
+     * @param argb   像素数组
+     * @param offset 第一个像素的下标
+     * @param stride 每行像素数（≥ width）
+     */
+    public static void argbToI420(int[] argb, int offset, int stride, int width, int height,
+            byte[] dstY, byte[] dstU, byte[] dstV) {
+        argbToI420Rows(argb, offset, stride, width, 0, height, dstY, dstU, dstV);
+    }
+
+    /**
+     * 只转换 [rowStart, rowEnd) 行，供 {@link TiledExecutor} 分带并行；rowStart 需为偶数。
+     */
+    public static void argbToI420Rows(int[] argb, int offset, int stride, int width, int rowStart, int rowEnd,
+            byte[] dstY, byte[] dstU, byte[] dstV) {
+        int chromaWidth = width / 2;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int src = offset + row * stride;
+            int yIdx = row * width;
+            if ((row & 1) == 0) {
+                int cIdx = (row >> 1) * chromaWidth;
+                for (int col = 0; col < width; col++) {
+                    int p = argb[src + col];
+                    int r = (p >> 16) & 0xff;
+                    int g = (p >> 8) & 0xff;
+                    int b = p & 0xff;
+                    dstY[yIdx + col] = (byte) y(r, g, b);
+                    if ((col & 1) == 0 && (col >> 1) < chromaWidth) {
+                        dstU[cIdx + (col >> 1)] = (byte) u(r, g, b);
+                        dstV[cIdx + (col >> 1)] = (byte) v(r, g, b);
+                    }
+                }
+            } else {
+                for (int col = 0; col < width; col++) {
+                    int p = argb[src + col];
+                    dstY[yIdx + col] = (byte) y((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff);
+                }
+            }
+        }
+    }
+
+    public static void argbToNv21(int[] argb, int offset, int stride, int width, int height, byte[] dst) {
+        argbToSemiPlanar(argb, offset, stride, width, height, dst, true);
+    }
+
+    public static void argbToNv12(int[] argb, int offset, int stride, int width, int height, byte[] dst) {
+        argbToSemiPlanar(argb, offset, stride, width, height, dst, false);
+    }
+
+    private static void argbToSemiPlanar(int[] argb, int offset, int stride, int width, int height,
+            byte[] dst, boolean vFirst) {
+        int ySize = width * height;
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        for (int row = 0; row < height; row++) {
+            int src = offset + row * stride;
+            int yIdx = row * width;
+            boolean chromaRow = (row & 1) == 0 && (row >> 1) < chromaHeight;
+            int cIdx = ySize + (row >> 1) * chromaWidth * 2;
+            for (int col = 0; col < width; col++) {
+                int p = argb[src + col];
+                int r = (p >> 16) & 0xff;
+                int g = (p >> 8) & 0xff;
+                int b = p & 0xff;
+                dst[yIdx + col] = (byte) y(r, g, b);
+                if (chromaRow && (col & 1) == 0 && (col >> 1) < chromaWidth) {
+                    byte uVal = (byte) u(r, g, b);
+                    byte vVal = (byte) v(r, g, b);
+                    dst[cIdx++] = vFirst ? vVal : uVal;
+                    dst[cIdx++] = vFirst ? uVal : vVal;
+                }
+            }
+        }
+    }
+}
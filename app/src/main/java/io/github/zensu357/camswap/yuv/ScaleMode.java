@@ -0,0 +1,24 @@
+package io.github.zensu357.camswap.yuv;
+
+/**
+ * 亮度缩放方式。色度始终使用最近邻。
+ */
+public enum ScaleMode {
+    /** 最近邻，最快，仅用于调试/对比 */
+    NEAREST,
+    /** 定点双线性，适合放大和 2 倍以内的缩小 */
+    BILINEAR,
+    /** 区域（box）平均，缩小超过 2 倍时避免混叠 */
+    AREA;
+
+    /** 缩小比例超过该值时改用区域平均 */
+    public static final int AREA_THRESHOLD = 2;
+
+    /** 按裁剪区域到目标尺寸的比例自动选择 */
+    public static ScaleMode forRatio(int cropW, int cropH, int dstW, int dstH) {
+        if (cropW > dstW * AREA_THRESHOLD || cropH > dstH * AREA_THRESHOLD) {
+            return AREA;
+        }
+        return BILINEAR;
+    }
+}
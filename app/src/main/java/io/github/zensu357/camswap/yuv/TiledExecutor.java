@@ -0,0 +1,140 @@
+package io.github.zensu357.camswap.yuv;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 把按行分带的 kernel 切成若干水平条带，在一个小的有界 {@link ForkJoinPool} 上并行执行。
+ * <p>
+ * 只有工作量超过 {@link #PIXEL_THRESHOLD} 时才并行，否则直接在调用线程顺序执行；
+ * 调用线程自己也处理一个条带。条带任务对象预先分配并复用，每帧不产生新对象。
+ * 同一实例的 {@link #run} 是串行的（synchronized），不同使用方应各自持有实例，共享线程池。
+ */
+public final class TiledExecutor {
+
+    /** 按行处理 [rowStart, rowEnd) 的 kernel */
+    public interface RowTask {
+        void run(int rowStart, int rowEnd);
+    }
+
+    /** 低于该像素数时顺序执行：分发和同步的开销会吃掉并行收益 */
+    public static final int PIXEL_THRESHOLD = 1280 * 720;
+    /** 共享线程池最多使用的线程数（含调用线程） */
+    public static final int MAX_SHARED_WORKERS = 4;
+
+    private static ForkJoinPool sharedPool;
+    private static int sharedWorkers;
+
+    private final ForkJoinPool pool;
+    private final int workers;
+    private final Band[] bands;
+
+    /** 使用共享线程池 */
+    public TiledExecutor() {
+        this(0);
+    }
+
+    /**
+     * @param workers 参与计算的线程总数（含调用线程）；≤ 0 表示使用共享线程池，
+     *                1 表示始终顺序执行，其余值会创建独立线程池（用于基准测试）
+     */
+    public TiledExecutor(int workers) {
+        if (workers <= 0) {
+            this.pool = sharedPool();
+            this.workers = sharedWorkers;
+        } else {
+            this.pool = workers > 1 ? createPool(workers - 1) : null;
+            this.workers = workers;
+        }
+        bands = new Band[this.workers];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new Band();
+        }
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public boolean isParallel() {
+        return pool != null && workers > 1;
+    }
+
+    /**
+     * 执行 task 覆盖 [0, rows)。条带边界对齐到 align（如 2 以保证色度行成对）。
+     *
+     * @param workPixels 本次处理的像素量，用于判断是否值得并行
+     */
+    public synchronized void run(int rows, int align, long workPixels, RowTask task) {
+        int tiles = Math.min(workers, rows / Math.max(align, 16));
+        if (pool == null || tiles <= 1 || workPixels <= PIXEL_THRESHOLD) {
+            task.run(0, rows);
+            return;
+        }
+        int step = ((rows / tiles) + align - 1) / align * align;
+        int used = 0;
+        for (int start = step; start < rows && used + 1 < tiles; start += step) {
+            Band band = bands[++used];
+            band.reinitialize();
+            band.set(task, start, (used + 1 == tiles) ? rows : Math.min(rows, start + step));
+            pool.execute(band);
+        }
+        RuntimeException failure = null;
+        try {
+            task.run(0, Math.min(rows, step));
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (int i = 1; i <= used; i++) {
+            try {
+                bands[i].join();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            bands[i].set(null, 0, 0);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null) {
+            int cpus = Runtime.getRuntime().availableProcessors();
+            sharedWorkers = Math.max(1, Math.min(MAX_SHARED_WORKERS, cpus - 1));
+            sharedPool = sharedWorkers > 1 ? createPool(sharedWorkers - 1) : null;
+        }
+        return sharedPool;
+    }
+
+    private static ForkJoinPool createPool(int threads) {
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("CS-Yuv-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    private static final class Band extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private transient RowTask task;
+        private int rowStart;
+        private int rowEnd;
+
+        void set(RowTask task, int rowStart, int rowEnd) {
+            this.task = task;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+        }
+
+        @Override
+        protected void compute() {
+            task.run(rowStart, rowEnd);
+        }
+    }
+}
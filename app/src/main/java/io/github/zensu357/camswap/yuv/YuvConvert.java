@@ -0,0 +1,360 @@
+package io.github.zensu357.camswap.yuv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YUV420 内存布局之间的互转（NV21 / NV12 / I420 / YV12）。
+ * <p>
+ * 约定：宽高均为偶数；I420 以三个独立平面表示，NV21/NV12/YV12 为连续打包数组。
+ * 所有方法只写调用方提供的目标缓冲区，不做任何分配。
+ */
+public final class YuvConvert {
+
+    private YuvConvert() {
+    }
+
+    /** 单个色度平面（U 或 V）的字节数 */
+    public static int chromaSize(int width, int height) {
+        return (width / 2) * (height / 2);
+    }
+
+    /** 完整 YUV420 帧的字节数（Y + U + V） */
+    public static int frameSize(int width, int height) {
+        return width * height + 2 * chromaSize(width, height);
+    }
+
+    public static void nv21ToI420(byte[] src, int width, int height, byte[] dstY, byte[] dstU, byte[] dstV) {
+        int ySize = width * height;
+        System.arraycopy(src, 0, dstY, 0, ySize);
+        deinterleave(src, ySize, dstV, dstU, chromaSize(width, height));
+    }
+
+    public static void nv12ToI420(byte[] src, int width, int height, byte[] dstY, byte[] dstU, byte[] dstV) {
+        int ySize = width * height;
+        System.arraycopy(src, 0, dstY, 0, ySize);
+        deinterleave(src, ySize, dstU, dstV, chromaSize(width, height));
+    }
+
+    public static void i420ToNv21(byte[] srcY, byte[] srcU, byte[] srcV, int width, int height, byte[] dst) {
+        int ySize = width * height;
+        System.arraycopy(srcY, 0, dst, 0, ySize);
+        interleave(srcV, srcU, dst, ySize, chromaSize(width, height));
+    }
+
+    public static void i420ToNv12(byte[] srcY, byte[] srcU, byte[] srcV, int width, int height, byte[] dst) {
+        int ySize = width * height;
+        System.arraycopy(srcY, 0, dst, 0, ySize);
+        interleave(srcU, srcV, dst, ySize, chromaSize(width, height));
+    }
+
+    /** I420 三平面 → 打包 YV12（Y 后紧跟 V 平面，再跟 U 平面） */
+    public static void i420ToYv12(byte[] srcY, byte[] srcU, byte[] srcV, int width, int height, byte[] dst) {
+        int ySize = width * height;
+        int cSize = chromaSize(width, height);
+        System.arraycopy(srcY, 0, dst, 0, ySize);
+        System.arraycopy(srcV, 0, dst, ySize, cSize);
+        System.arraycopy(srcU, 0, dst, ySize + cSize, cSize);
+    }
+
+    public static void yv12ToI420(byte[] src, int width, int height, byte[] dstY, byte[] dstU, byte[] dstV) {
+        int ySize = width * height;
+        int cSize = chromaSize(width, height);
+        System.arraycopy(src, 0, dstY, 0, ySize);
+        System.arraycopy(src, ySize, dstV, 0, cSize);
+        System.arraycopy(src, ySize + cSize, dstU, 0, cSize);
+    }
+
+    /** I420 三平面 → 打包 I420（Y、U、V 依次连续） */
+    public static void i420ToPacked(byte[] srcY, byte[] srcU, byte[] srcV, int width, int height, byte[] dst) {
+        int ySize = width * height;
+        int cSize = chromaSize(width, height);
+        System.arraycopy(srcY, 0, dst, 0, ySize);
+        System.arraycopy(srcU, 0, dst, ySize, cSize);
+        System.arraycopy(srcV, 0, dst, ySize + cSize, cSize);
+    }
+
+    /**
+     * 带行跨度/像素跨度的三平面（如解码器输出 Image 的平面）→ 打包 I420，写入 dst 的 [0, frameSize)。
+     * U/V 共享跨度；row 为逐行暂存，长度不小于色度行跨度。源平面的 position/limit 会被复位。
+     */
+    public static void packI420(ByteBuffer srcY, int yRowStride, int yPixelStride,
+            ByteBuffer srcU, ByteBuffer srcV, int uvRowStride, int uvPixelStride,
+            int width, int height, ByteBuffer dst, byte[] row) {
+        int out = packPlane(srcY, yRowStride, yPixelStride, width, height, dst, 0, row);
+        out = packPlane(srcU, uvRowStride, uvPixelStride, width / 2, height / 2, dst, out, row);
+        packPlane(srcV, uvRowStride, uvPixelStride, width / 2, height / 2, dst, out, row);
+        dst.position(0);
+    }
+
+    private static int packPlane(ByteBuffer src, int rowStride, int pixelStride, int w, int h,
+            ByteBuffer dst, int out, byte[] row) {
+        dst.position(out);
+        if (pixelStride == 1 && rowStride == w) {
+            src.limit(w * h).position(0);
+            dst.put(src);
+        } else {
+            int span = (w - 1) * pixelStride + 1;
+            for (int r = 0; r < h; r++) {
+                int start = r * rowStride;
+                src.limit(start + span).position(start);
+                if (pixelStride == 1) {
+                    dst.put(src);
+                } else {
+                    src.get(row, 0, span);
+                    for (int c = 1; c < w; c++) {
+                        row[c] = row[c * pixelStride];
+                    }
+                    dst.put(row, 0, w);
+                }
+            }
+        }
+        src.clear();
+        return out + w * h;
+    }
+
+    /** 色度两平面互相独立（或布局未知），只能逐样本访问 */
+    public static final int CHROMA_PLANAR = 0;
+    /** U/V 交错在同一块内存中，U 在前（V 平面 = U 平面 + 1 字节） */
+    public static final int CHROMA_NV12 = 1;
+    /** U/V 交错在同一块内存中，V 在前（U 平面 = V 平面 + 1 字节） */
+    public static final int CHROMA_NV21 = 2;
+
+    /**
+     * 判断只读源平面（如解码器输出 Image）的 U/V 是否交错于同一块内存。
+     * <p>
+     * Java 层拿不到 buffer 地址，这里比对错开一个字节后的 9 个采样点：同一块内存必然逐点相等。
+     * 色度平坦时两种顺序可能同时成立，此时返回 {@link #CHROMA_PLANAR}，调用方可在后续帧重新判断。
+     */
+    public static int chromaLayout(ByteBuffer srcU, ByteBuffer srcV, int uvRowStride, int uvPixelStride,
+            int width, int height) {
+        int cw = width / 2;
+        int ch = height / 2;
+        if (uvPixelStride != 2 || cw < 2 || ch < 1) {
+            return CHROMA_PLANAR;
+        }
+        boolean nv12 = true;
+        boolean nv21 = true;
+        int[] rows = {0, ch / 2, ch - 1};
+        // 末行最后一对样本超出在前平面的视图，只取到倒数第二列
+        int[] cols = {0, cw / 2, cw - 2};
+        for (int r : rows) {
+            for (int c : cols) {
+                int pos = r * uvRowStride + c * 2;
+                nv12 = nv12 && pos + 1 < srcU.limit() && pos < srcV.limit()
+                        && srcU.get(pos + 1) == srcV.get(pos);
+                nv21 = nv21 && pos + 1 < srcV.limit() && pos < srcU.limit()
+                        && srcV.get(pos + 1) == srcU.get(pos);
+            }
+        }
+        if (nv12 == nv21) {
+            return CHROMA_PLANAR;
+        }
+        return nv12 ? CHROMA_NV12 : CHROMA_NV21;
+    }
+
+    /**
+     * 判断可写目标平面（如 ImageWriter 出队的 Image）的 U/V 是否交错于同一块内存：
+     * 写入一个平面的首字节，观察另一平面的第二个字节是否随之变化。探测完恢复原值。
+     */
+    public static int probeChromaLayout(ByteBuffer dstU, ByteBuffer dstV) {
+        if (dstU.isReadOnly() || dstV.isReadOnly() || dstU.limit() < 2 || dstV.limit() < 2) {
+            return CHROMA_PLANAR;
+        }
+        if (aliasesNextByte(dstV, dstU)) {
+            return CHROMA_NV12;
+        }
+        if (aliasesNextByte(dstU, dstV)) {
+            return CHROMA_NV21;
+        }
+        return CHROMA_PLANAR;
+    }
+
+    /** second[0] 与 first[1] 是否为同一字节 */
+    private static boolean aliasesNextByte(ByteBuffer second, ByteBuffer first) {
+        byte saved = second.get(0);
+        boolean aliased = true;
+        for (byte probe : new byte[] {(byte) 0x5A, (byte) 0xA5}) {
+            second.put(0, probe);
+            if (first.get(1) != probe) {
+                aliased = false;
+                break;
+            }
+        }
+        second.put(0, saved);
+        return aliased;
+    }
+
+    /**
+     * 带行跨度的三平面（解码器输出 Image 的平面，Y 像素跨度为 1）→ 打包 NV21，写入 dst 的 [0, frameSize)。
+     * <p>
+     * chromaLayout 取 {@link #chromaLayout} 的结果：NV21 交错时色度按行整块拷贝，行跨度等于宽度时
+     * 整个色度区一次拷贝；NV12 交错时同样整块拷贝后原地交换样本对；独立平面逐样本交错。
+     * row 为逐行暂存，长度不小于色度行跨度。源平面的 position/limit 会被复位。
+     */
+    public static void packNv21(ByteBuffer srcY, int yRowStride, ByteBuffer srcU, ByteBuffer srcV,
+            int uvRowStride, int uvPixelStride, int chromaLayout, int width, int height, byte[] dst, byte[] row) {
+        copyRows(srcY, yRowStride, width, height, dst, 0);
+        int ySize = width * height;
+        int cw = width / 2;
+        int ch = height / 2;
+        if (chromaLayout == CHROMA_PLANAR) {
+            int span = (cw - 1) * uvPixelStride + 1;
+            for (int r = 0; r < ch; r++) {
+                int start = r * uvRowStride;
+                int d = ySize + r * width;
+                srcV.limit(start + span).position(start);
+                srcV.get(row, 0, span);
+                for (int c = 0; c < cw; c++) {
+                    dst[d + 2 * c] = row[c * uvPixelStride];
+                }
+                srcU.limit(start + span).position(start);
+                srcU.get(row, 0, span);
+                for (int c = 0; c < cw; c++) {
+                    dst[d + 2 * c + 1] = row[c * uvPixelStride];
+                }
+            }
+            srcU.clear();
+            srcV.clear();
+            return;
+        }
+        // 交错色度：从在前的平面起整块拷贝 2*cw*ch - 1 字节，最后一个样本只属于另一平面的视图
+        ByteBuffer first = chromaLayout == CHROMA_NV21 ? srcV : srcU;
+        ByteBuffer second = chromaLayout == CHROMA_NV21 ? srcU : srcV;
+        int chromaEnd = ySize + width * ch;
+        if (uvRowStride == width) {
+            first.limit(width * ch - 1).position(0);
+            first.get(dst, ySize, width * ch - 1);
+        } else {
+            for (int r = 0; r < ch; r++) {
+                int len = r == ch - 1 ? width - 1 : width;
+                first.limit(r * uvRowStride + len).position(r * uvRowStride);
+                first.get(dst, ySize + r * width, len);
+            }
+        }
+        dst[chromaEnd - 1] = second.get((ch - 1) * uvRowStride + (cw - 1) * 2);
+        first.clear();
+        if (chromaLayout == CHROMA_NV12) {
+            for (int i = ySize; i < chromaEnd; i += 2) {
+                byte u = dst[i];
+                dst[i] = dst[i + 1];
+                dst[i + 1] = u;
+            }
+        }
+    }
+
+    /** 紧排写入 dst：行跨度等于宽度时一次拷贝，否则逐行拷贝 */
+    private static void copyRows(ByteBuffer src, int rowStride, int w, int h, byte[] dst, int out) {
+        if (rowStride == w) {
+            src.limit(w * h).position(0);
+            src.get(dst, out, w * h);
+        } else {
+            for (int r = 0; r < h; r++) {
+                src.limit(r * rowStride + w).position(r * rowStride);
+                src.get(dst, out + r * w, w);
+            }
+        }
+        src.clear();
+    }
+
+    /**
+     * 打包 I420（Y、U、V 三个紧排平面的视图）→ 带行跨度的目标平面，如 ImageWriter 出队的 Image。
+     * <p>
+     * 目标色度交错（见 {@link #probeChromaLayout}）时每行先在 row 中交错好，再整行写入在前平面的 buffer；
+     * 独立平面且像素跨度为 1 时按行整块写入；其余情况逐样本写入。目标 Y 像素跨度须为 1，
+     * row 长度不小于 2 * width。各 buffer 的 position/limit 会被复位。
+     */
+    public static void unpackI420(ByteBuffer srcY, ByteBuffer srcU, ByteBuffer srcV, int width, int height,
+            ByteBuffer dstY, int yRowStride, ByteBuffer dstU, ByteBuffer dstV, int uvRowStride, int uvPixelStride,
+            int chromaLayout, byte[] row) {
+        putRows(srcY, width, height, dstY, yRowStride);
+        int cw = width / 2;
+        int ch = height / 2;
+        if (chromaLayout != CHROMA_PLANAR) {
+            ByteBuffer first = chromaLayout == CHROMA_NV21 ? srcV : srcU;
+            ByteBuffer second = chromaLayout == CHROMA_NV21 ? srcU : srcV;
+            ByteBuffer dst = chromaLayout == CHROMA_NV21 ? dstV : dstU;
+            ByteBuffer other = chromaLayout == CHROMA_NV21 ? dstU : dstV;
+            for (int r = 0; r < ch; r++) {
+                first.limit((r + 1) * cw).position(r * cw);
+                first.get(row, width, cw);
+                second.limit((r + 1) * cw).position(r * cw);
+                second.get(row, width + cw, cw);
+                for (int c = 0; c < cw; c++) {
+                    row[2 * c] = row[width + c];
+                    row[2 * c + 1] = row[width + cw + c];
+                }
+                // 最后一行的最后一个样本只在另一平面的视图范围内
+                int len = r == ch - 1 ? width - 1 : width;
+                dst.limit(r * uvRowStride + len).position(r * uvRowStride);
+                dst.put(row, 0, len);
+            }
+            other.put((ch - 1) * uvRowStride + (cw - 1) * 2, row[width - 1]);
+            first.clear();
+            second.clear();
+            dst.clear();
+            return;
+        }
+        if (uvPixelStride == 1) {
+            putRows(srcU, cw, ch, dstU, uvRowStride);
+            putRows(srcV, cw, ch, dstV, uvRowStride);
+            return;
+        }
+        for (int r = 0; r < ch; r++) {
+            int d = r * uvRowStride;
+            for (int c = 0; c < cw; c++) {
+                dstU.put(d + c * uvPixelStride, srcU.get(r * cw + c));
+                dstV.put(d + c * uvPixelStride, srcV.get(r * cw + c));
+            }
+        }
+    }
+
+    /** 紧排 src → 带行跨度的 dst：行跨度等于宽度时一次写入，否则逐行写入 */
+    private static void putRows(ByteBuffer src, int w, int h, ByteBuffer dst, int rowStride) {
+        if (rowStride == w) {
+            src.limit(w * h).position(0);
+            dst.position(0);
+            dst.put(src);
+        } else {
+            for (int r = 0; r < h; r++) {
+                src.limit((r + 1) * w).position(r * w);
+                dst.limit(r * rowStride + w).position(r * rowStride);
+                dst.put(src);
+            }
+        }
+        src.clear();
+        dst.clear();
+    }
+
+    /**
+     * NV21 ↔ NV12：交换每对色度样本的顺序。两个方向是同一个操作，
+     * 且允许 src == dst 原地转换。
+     */
+    public static void swapUv(byte[] src, int width, int height, byte[] dst) {
+        int ySize = width * height;
+        if (src != dst) {
+            System.arraycopy(src, 0, dst, 0, ySize);
+        }
+        int end = ySize + 2 * chromaSize(width, height);
+        for (int i = ySize; i < end; i += 2) {
+            byte first = src[i];
+            dst[i] = src[i + 1];
+            dst[i + 1] = first;
+        }
+    }
+
+    private static void deinterleave(byte[] src, int srcOffset, byte[] first, byte[] second, int count) {
+        int s = srcOffset;
+        for (int i = 0; i < count; i++) {
+            first[i] = src[s++];
+            second[i] = src[s++];
+        }
+    }
+
+    private static void interleave(byte[] first, byte[] second, byte[] dst, int dstOffset, int count) {
+        int d = dstOffset;
+        for (int i = 0; i < count; i++) {
+            dst[d++] = first[i];
+            dst[d++] = second[i];
+        }
+    }
+}
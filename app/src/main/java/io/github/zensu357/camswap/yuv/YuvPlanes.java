@@ -0,0 +1,100 @@
+package io.github.zensu357.camswap.yuv;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一帧 YUV420 的三平面视图：每个平面是 数组 + 起始偏移 + 行跨度，U/V 共享像素跨度。
+ * <p>
+ * 可以直接包装已有的 NV21 / I420 数组，也可以从 {@link Image} 整块拷贝（每平面一次 bulk get，
+ * 不做逐像素处理），拷贝用的暂存数组在多帧之间复用。
+ */
+public final class YuvPlanes {
+    public int width;
+    public int height;
+
+    public byte[] y;
+    public int yOffset;
+    public int yRowStride;
+
+    public byte[] u;
+    public int uOffset;
+    public byte[] v;
+    public int vOffset;
+    public int uvRowStride;
+    public int uvPixelStride;
+
+    private byte[] stageY;
+    private byte[] stageU;
+    private byte[] stageV;
+
+    public YuvPlanes wrapNv21(byte[] nv21, int width, int height) {
+        this.width = width;
+        this.height = height;
+        y = nv21;
+        yOffset = 0;
+        yRowStride = width;
+        v = nv21;
+        vOffset = width * height;
+        u = nv21;
+        uOffset = width * height + 1;
+        uvRowStride = width;
+        uvPixelStride = 2;
+        return this;
+    }
+
+    public YuvPlanes wrapI420(byte[] yPlane, byte[] uPlane, byte[] vPlane, int width, int height) {
+        this.width = width;
+        this.height = height;
+        y = yPlane;
+        yOffset = 0;
+        yRowStride = width;
+        u = uPlane;
+        uOffset = 0;
+        v = vPlane;
+        vOffset = 0;
+        uvRowStride = width / 2;
+        uvPixelStride = 1;
+        return this;
+    }
+
+    /**
+     * 从解码器输出的 Image 暂存三个平面。宽高取 crop rect 并向下对齐到偶数。
+     */
+    public YuvPlanes copyFrom(Image image) {
+        int format = image.getFormat();
+        if (format != ImageFormat.YUV_420_888 && format != ImageFormat.NV21 && format != ImageFormat.YV12) {
+            throw new RuntimeException("can't convert Image to byte array, format " + format);
+        }
+        Rect crop = image.getCropRect();
+        Image.Plane[] planes = image.getPlanes();
+        width = crop.width() & ~1;
+        height = crop.height() & ~1;
+
+        yRowStride = planes[0].getRowStride();
+        y = stageY = stage(planes[0].getBuffer(), stageY);
+        yOffset = crop.top * yRowStride + crop.left * planes[0].getPixelStride();
+
+        uvRowStride = planes[1].getRowStride();
+        uvPixelStride = planes[1].getPixelStride();
+        int chromaOffset = (crop.top >> 1) * uvRowStride + (crop.left >> 1) * uvPixelStride;
+        u = stageU = stage(planes[1].getBuffer(), stageU);
+        uOffset = chromaOffset;
+        v = stageV = stage(planes[2].getBuffer(), stageV);
+        // YUV_420_888 保证 U/V 的行跨度和像素跨度一致
+        vOffset = chromaOffset;
+        return this;
+    }
+
+    private static byte[] stage(ByteBuffer buffer, byte[] reuse) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(0);
+        int len = b.remaining();
+        byte[] out = (reuse != null && reuse.length >= len) ? reuse : new byte[len];
+        b.get(out, 0, len);
+        return out;
+    }
+}
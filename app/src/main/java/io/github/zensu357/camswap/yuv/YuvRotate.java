@@ -0,0 +1,219 @@
+package io.github.zensu357.camswap.yuv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 顺时针 0/90/180/270 度旋转。90/270 时输出宽高互换。
+ * 目标缓冲区必须与源缓冲区不同。
+ */
+public final class YuvRotate {
+
+    private YuvRotate() {
+    }
+
+    /** 把任意角度归一化到 0/90/180/270，非 90 的倍数按 0 处理 */
+    public static int normalize(int degrees) {
+        int r = ((degrees % 360) + 360) % 360;
+        return (r % 90 == 0) ? r : 0;
+    }
+
+    public static boolean swapsDimensions(int rotation) {
+        return rotation == 90 || rotation == 270;
+    }
+
+    /** NV21 / NV12 整帧旋转（色度对整体移动，不改变 UV 顺序） */
+    public static void rotateNv21(byte[] src, int width, int height, int rotation, byte[] dst) {
+        int ySize = width * height;
+        int dstW = swapsDimensions(rotation) ? height : width;
+        rotatePlane(src, 0, width, width, height, 1, dst, 0, dstW, rotation);
+        rotatePlane(src, ySize, width, width / 2, height / 2, 2, dst, ySize, dstW, rotation);
+    }
+
+    public static void rotateI420(byte[] srcY, byte[] srcU, byte[] srcV, int width, int height, int rotation,
+            byte[] dstY, byte[] dstU, byte[] dstV) {
+        int dstW = swapsDimensions(rotation) ? height : width;
+        rotatePlane(srcY, 0, width, width, height, 1, dstY, 0, dstW, rotation);
+        rotatePlane(srcU, 0, width / 2, width / 2, height / 2, 1, dstU, 0, dstW / 2, rotation);
+        rotatePlane(srcV, 0, width / 2, width / 2, height / 2, 1, dstV, 0, dstW / 2, rotation);
+    }
+
+    /**
+     * {@link #rotateScaleI420} 复用的行缓冲与下标表。下标表按 (源宽高, 目标宽高, 旋转) 缓存，
+     * 几何不变时每帧既不分配也不重算。非线程安全，每个调用线程（或锁）持有一份。
+     */
+    public static final class Scratch {
+        private byte[] srcRow = new byte[0];
+        private byte[] dstRow = new byte[0];
+        private int[] lumaRows = new int[0];
+        private int[] lumaCols = new int[0];
+        private int[] chromaRows = new int[0];
+        private int[] chromaCols = new int[0];
+        private int srcW = -1;
+        private int srcH;
+        private int dstW;
+        private int dstH;
+        private int rotation;
+
+        private void prepare(int srcW, int srcH, int rotation, int dstW, int dstH) {
+            if (srcRow.length < srcW) {
+                srcRow = new byte[srcW];
+            }
+            if (dstRow.length < dstW) {
+                dstRow = new byte[dstW];
+            }
+            if (rotation == 0 || (this.srcW == srcW && this.srcH == srcH && this.rotation == rotation
+                    && this.dstW == dstW && this.dstH == dstH)) {
+                return;
+            }
+            if (lumaRows.length < dstH) {
+                lumaRows = new int[dstH];
+                chromaRows = new int[dstH / 2];
+            }
+            if (lumaCols.length < dstW) {
+                lumaCols = new int[dstW];
+                chromaCols = new int[dstW / 2];
+            }
+            fillTerms(srcW, srcH, rotation, dstW, dstH, lumaRows, lumaCols);
+            fillTerms(srcW / 2, srcH / 2, rotation, dstW / 2, dstH / 2, chromaRows, chromaCols);
+            this.srcW = srcW;
+            this.srcH = srcH;
+            this.rotation = rotation;
+            this.dstW = dstW;
+            this.dstH = dstH;
+        }
+    }
+
+    /**
+     * 紧排 I420 帧（Y、U、V 依次存放）的旋转 + 最近邻缩放，一遍完成，不经过中间帧。
+     * 先按 rotation 顺时针旋转，再拉伸到 dstW x dstH；不改变两个 buffer 的 position。
+     */
+    public static void rotateScaleI420(ByteBuffer src, int srcW, int srcH, int rotation,
+            ByteBuffer dst, int dstW, int dstH, Scratch scratch) {
+        rotation = normalize(rotation);
+        scratch.prepare(srcW, srcH, rotation, dstW, dstH);
+        if (rotation == 0) {
+            YuvScale.scaleI420Nearest(src, srcW, srcH, dst, dstW, dstH, scratch.srcRow, scratch.dstRow);
+            return;
+        }
+        ByteBuffer out = dst.duplicate();
+        copyPlane(src, 0, out, 0, dstW, dstH, scratch.dstRow, scratch.lumaRows, scratch.lumaCols);
+        int srcU = srcW * srcH;
+        int dstU = dstW * dstH;
+        int srcC = YuvConvert.chromaSize(srcW, srcH);
+        int dstC = YuvConvert.chromaSize(dstW, dstH);
+        copyPlane(src, srcU, out, dstU, dstW / 2, dstH / 2, scratch.dstRow, scratch.chromaRows, scratch.chromaCols);
+        copyPlane(src, srcU + srcC, out, dstU + dstC, dstW / 2, dstH / 2, scratch.dstRow,
+                scratch.chromaRows, scratch.chromaCols);
+    }
+
+    /**
+     * 目标 (x, y) 对应源下标 = rowTerm[y] + colTerm[x]：每行、每列的贡献各算一次，
+     * 内层循环只剩一次加法和一次绝对读取。
+     */
+    private static void fillTerms(int srcW, int srcH, int rotation, int dstW, int dstH,
+            int[] rowTerm, int[] colTerm) {
+        // 旋转后的源尺寸
+        int rw = swapsDimensions(rotation) ? srcH : srcW;
+        int rh = swapsDimensions(rotation) ? srcW : srcH;
+        for (int y = 0; y < dstH; y++) {
+            int ry = y * rh / dstH;
+            switch (rotation) {
+                case 90:
+                    rowTerm[y] = ry;
+                    break;
+                case 180:
+                    rowTerm[y] = (srcH - 1 - ry) * srcW;
+                    break;
+                default:
+                    rowTerm[y] = srcW - 1 - ry;
+                    break;
+            }
+        }
+        for (int x = 0; x < dstW; x++) {
+            int rx = x * rw / dstW;
+            switch (rotation) {
+                case 90:
+                    colTerm[x] = (srcH - 1 - rx) * srcW;
+                    break;
+                case 180:
+                    colTerm[x] = srcW - 1 - rx;
+                    break;
+                default:
+                    colTerm[x] = rx * srcW;
+                    break;
+            }
+        }
+    }
+
+    private static void copyPlane(ByteBuffer src, int srcOffset, ByteBuffer dst, int dstOffset, int dstW, int dstH,
+            byte[] dstRow, int[] rowTerm, int[] colTerm) {
+        for (int y = 0; y < dstH; y++) {
+            int base = srcOffset + rowTerm[y];
+            for (int x = 0; x < dstW; x++) {
+                dstRow[x] = src.get(base + colTerm[x]);
+            }
+            dst.position(dstOffset + y * dstW);
+            dst.put(dstRow, 0, dstW);
+        }
+    }
+
+    /**
+     * 旋转单个平面。
+     *
+     * @param srcStride 源每行字节数
+     * @param width     平面宽度（以像素计）
+     * @param height    平面高度
+     * @param bpp       每像素字节数：Y/U/V 平面为 1，交错 UV 平面为 2
+     * @param dstStride 目标每行字节数
+     */
+    public static void rotatePlane(byte[] src, int srcOffset, int srcStride, int width, int height, int bpp,
+            byte[] dst, int dstOffset, int dstStride, int rotation) {
+        switch (rotation) {
+            case 90:
+                // dst(h-1-y, x) = src(x, y)：按目标行写，源按列读
+                for (int x = 0; x < width; x++) {
+                    int d = dstOffset + x * dstStride;
+                    for (int y = height - 1; y >= 0; y--) {
+                        int s = srcOffset + y * srcStride + x * bpp;
+                        dst[d++] = src[s];
+                        if (bpp == 2) {
+                            dst[d++] = src[s + 1];
+                        }
+                    }
+                }
+                break;
+            case 180:
+                for (int y = 0; y < height; y++) {
+                    int d = dstOffset + (height - 1 - y) * dstStride + (width - 1) * bpp;
+                    int s = srcOffset + y * srcStride;
+                    for (int x = 0; x < width; x++) {
+                        dst[d] = src[s++];
+                        if (bpp == 2) {
+                            dst[d + 1] = src[s++];
+                        }
+                        d -= bpp;
+                    }
+                }
+                break;
+            case 270:
+                // dst(y, w-1-x) = src(x, y)
+                for (int x = width - 1; x >= 0; x--) {
+                    int d = dstOffset + (width - 1 - x) * dstStride;
+                    for (int y = 0; y < height; y++) {
+                        int s = srcOffset + y * srcStride + x * bpp;
+                        dst[d++] = src[s];
+                        if (bpp == 2) {
+                            dst[d++] = src[s + 1];
+                        }
+                    }
+                }
+                break;
+            default:
+                int rowBytes = width * bpp;
+                for (int y = 0; y < height; y++) {
+                    System.arraycopy(src, srcOffset + y * srcStride, dst, dstOffset + y * dstStride, rowBytes);
+                }
+                break;
+        }
+    }
+}
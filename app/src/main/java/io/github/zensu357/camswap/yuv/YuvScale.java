@@ -0,0 +1,113 @@
+package io.github.zensu357.camswap.yuv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 裁剪与缩放。NV21 的裁剪 + 缩放（含旋转）由 {@link Nv21FrameTransform} 完成。
+ */
+public final class YuvScale {
+
+    private YuvScale() {
+    }
+
+    /**
+     * 计算按目标宽高比居中裁剪的源区域，偏移和尺寸都对齐到偶数以保持色度对齐。
+     *
+     * @param out 长度 ≥ 4，依次写入 x, y, width, height
+     */
+    public static void centerCrop(int srcW, int srcH, int dstW, int dstH, int[] out) {
+        float srcAspect = (float) srcW / srcH;
+        float dstAspect = (float) dstW / dstH;
+        int cropW = srcW;
+        int cropH = srcH;
+        int cropX = 0;
+        int cropY = 0;
+        if (srcAspect > dstAspect) {
+            // 源更宽 -> 水平裁剪
+            cropW = ((int) (srcH * dstAspect)) & ~1;
+            cropX = ((srcW - cropW) / 2) & ~1;
+        } else if (srcAspect < dstAspect) {
+            // 源更高 -> 垂直裁剪
+            cropH = ((int) (srcW / dstAspect)) & ~1;
+            cropY = ((srcH - cropH) / 2) & ~1;
+        }
+        out[0] = cropX;
+        out[1] = cropY;
+        out[2] = cropW;
+        out[3] = cropH;
+    }
+
+    /** 从 NV21 中裁出一块区域（x/y/w/h 需为偶数） */
+    public static void cropNv21(byte[] src, int srcW, int srcH, int x, int y, int w, int h, byte[] dst) {
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(src, (y + row) * srcW + x, dst, row * w, w);
+        }
+        int srcUV = srcW * srcH;
+        int dstUV = w * h;
+        for (int row = 0; row < h / 2; row++) {
+            System.arraycopy(src, srcUV + (y / 2 + row) * srcW + x, dst, dstUV + row * w, w);
+        }
+    }
+
+    /** 单平面最近邻缩放（不裁剪） */
+    public static void scalePlaneNearest(byte[] src, int srcOffset, int srcStride, int srcW, int srcH,
+            byte[] dst, int dstOffset, int dstStride, int dstW, int dstH) {
+        for (int y = 0; y < dstH; y++) {
+            int s = srcOffset + (y * srcH / dstH) * srcStride;
+            int d = dstOffset + y * dstStride;
+            for (int x = 0; x < dstW; x++) {
+                dst[d + x] = src[s + x * srcW / dstW];
+            }
+        }
+    }
+
+    public static void scaleI420Nearest(byte[] srcY, byte[] srcU, byte[] srcV, int srcW, int srcH,
+            byte[] dstY, byte[] dstU, byte[] dstV, int dstW, int dstH) {
+        scalePlaneNearest(srcY, 0, srcW, srcW, srcH, dstY, 0, dstW, dstW, dstH);
+        int cSrcW = srcW / 2;
+        int cSrcH = srcH / 2;
+        int cDstW = dstW / 2;
+        int cDstH = dstH / 2;
+        scalePlaneNearest(srcU, 0, cSrcW, cSrcW, cSrcH, dstU, 0, cDstW, cDstW, cDstH);
+        scalePlaneNearest(srcV, 0, cSrcW, cSrcW, cSrcH, dstV, 0, cDstW, cDstW, cDstH);
+    }
+
+    /**
+     * I420 紧排帧（Y、U、V 依次存放）在 ByteBuffer 之间的最近邻缩放，不改变两个 buffer 的 position。
+     * 逐行经由调用方提供的行缓冲批量读写，避免逐字节访问 direct buffer，也不在每帧分配。
+     *
+     * @param srcRow 长度 ≥ srcW
+     * @param dstRow 长度 ≥ dstW
+     */
+    public static void scaleI420Nearest(ByteBuffer src, int srcW, int srcH, ByteBuffer dst, int dstW, int dstH,
+            byte[] srcRow, byte[] dstRow) {
+        ByteBuffer in = src.duplicate();
+        ByteBuffer out = dst.duplicate();
+        scalePlaneNearest(in, 0, srcW, srcH, out, 0, dstW, dstH, srcRow, dstRow);
+        int srcC = YuvConvert.chromaSize(srcW, srcH);
+        int dstC = YuvConvert.chromaSize(dstW, dstH);
+        int srcU = srcW * srcH;
+        int dstU = dstW * dstH;
+        scalePlaneNearest(in, srcU, srcW / 2, srcH / 2, out, dstU, dstW / 2, dstH / 2, srcRow, dstRow);
+        scalePlaneNearest(in, srcU + srcC, srcW / 2, srcH / 2, out, dstU + dstC, dstW / 2, dstH / 2,
+                srcRow, dstRow);
+    }
+
+    private static void scalePlaneNearest(ByteBuffer src, int srcOffset, int srcW, int srcH,
+            ByteBuffer dst, int dstOffset, int dstW, int dstH, byte[] srcRow, byte[] dstRow) {
+        int loadedRow = -1;
+        for (int y = 0; y < dstH; y++) {
+            int sy = y * srcH / dstH;
+            if (sy != loadedRow) {
+                src.position(srcOffset + sy * srcW);
+                src.get(srcRow, 0, srcW);
+                for (int x = 0; x < dstW; x++) {
+                    dstRow[x] = srcRow[x * srcW / dstW];
+                }
+                loadedRow = sy;
+            }
+            dst.position(dstOffset + y * dstW);
+            dst.put(dstRow, 0, dstW);
+        }
+    }
+}
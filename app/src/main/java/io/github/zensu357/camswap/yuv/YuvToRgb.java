@@ -0,0 +1,77 @@
+package io.github.zensu357.camswap.yuv;
+
+/**
+ * NV21 → ARGB_8888（{@code Bitmap.setPixels} 的输入）。
+ * <p>
+ * BT.601 limited range，16.16 定点系数预先乘进 256 项查找表，每像素只有查表、加法和 clamp。
+ * 色度按 2x2 块共享，与 {@link RgbToYuv} 的采样方式对应。
+ */
+public final class YuvToRgb {
+
+    private static final int SHIFT = 16;
+    private static final int HALF = 1 << (SHIFT - 1);
+
+    /** 1.164 * (Y - 16) */
+    private static final int[] Y_TAB = new int[256];
+    /** 1.596 * (V - 128) */
+    private static final int[] RV_TAB = new int[256];
+    /** -0.391 * (U - 128) - 0.813 * (V - 128) 的两项 */
+    private static final int[] GU_TAB = new int[256];
+    private static final int[] GV_TAB = new int[256];
+    /** 2.018 * (U - 128) */
+    private static final int[] BU_TAB = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            Y_TAB[i] = Math.round(1.164f * (i - 16) * (1 << SHIFT)) + HALF;
+            RV_TAB[i] = Math.round(1.596f * (i - 128) * (1 << SHIFT));
+            GU_TAB[i] = Math.round(-0.391f * (i - 128) * (1 << SHIFT));
+            GV_TAB[i] = Math.round(-0.813f * (i - 128) * (1 << SHIFT));
+            BU_TAB[i] = Math.round(2.018f * (i - 128) * (1 << SHIFT));
+        }
+    }
+
+    private YuvToRgb() {
+    }
+
+    public static void nv21ToArgb(byte[] nv21, int width, int height, int[] dst) {
+        nv21ToArgbRows(nv21, width, height, 0, height, dst);
+    }
+
+    /**
+     * 只转换 [rowStart, rowEnd) 行，供 {@link TiledExecutor} 分带并行；rowStart 需为偶数。
+     */
+    public static void nv21ToArgbRows(byte[] nv21, int width, int height, int rowStart, int rowEnd, int[] dst) {
+        int ySize = width * height;
+        int chromaWidth = width / 2;
+        int chromaRows = height / 2;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int yIdx = row * width;
+            int cRow = Math.min(row >> 1, chromaRows - 1);
+            int cBase = ySize + cRow * chromaWidth * 2;
+            for (int col = 0; col < width; col += 2) {
+                int c = Math.min(col >> 1, chromaWidth - 1);
+                int v = nv21[cBase + 2 * c] & 0xff;
+                int u = nv21[cBase + 2 * c + 1] & 0xff;
+                int rv = RV_TAB[v];
+                int guv = GU_TAB[u] + GV_TAB[v];
+                int bu = BU_TAB[u];
+                dst[yIdx + col] = pixel(Y_TAB[nv21[yIdx + col] & 0xff], rv, guv, bu);
+                if (col + 1 < width) {
+                    dst[yIdx + col + 1] = pixel(Y_TAB[nv21[yIdx + col + 1] & 0xff], rv, guv, bu);
+                }
+            }
+        }
+    }
+
+    private static int pixel(int y, int rv, int guv, int bu) {
+        int r = clamp((y + rv) >> SHIFT);
+        int g = clamp((y + guv) >> SHIFT);
+        int b = clamp((y + bu) >> SHIFT);
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.zensu357.camswap;
+
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BootstrapTest {
+
+    /** 单元测试里的 android.jar 只有桩实现：用 Map 模拟 Bundle 的 put/get */
+    private static Bundle bundle() {
+        Map<String, Object> values = new HashMap<>();
+        return Mockito.mock(Bundle.class, invocation -> {
+            String name = invocation.getMethod().getName();
+            Object[] args = invocation.getArguments();
+            if (name.startsWith("put")) {
+                values.put((String) args[0], args[1]);
+                return null;
+            }
+            if (name.equals("containsKey")) {
+                return values.containsKey(args[0]);
+            }
+            if (name.startsWith("get")) {
+                Object value = values.get(args[0]);
+                // getXxx(key, defaultValue)；getParcelable(key, Class) 的第二个参数不是默认值
+                if (value == null && args.length == 2 && !(args[1] instanceof Class)) {
+                    return args[1];
+                }
+                return value;
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        });
+    }
+
+    private static Bundle reply(MediaSourceDescriptor source) {
+        Bundle result = bundle();
+        result.putString(IpcContract.EXTRA_CONFIG_JSON, "{\"selected_video\":\"a.mp4\"}");
+        Bootstrap.writeSource(result, source);
+        return result;
+    }
+
+    @Test
+    public void oldProviderReplyIsNotABootstrap() {
+        Bundle legacy = bundle();
+        legacy.putBoolean("changed", false);
+        assertNull(Bootstrap.fromBundle(legacy, 3, 0));
+        assertNull(Bootstrap.fromBundle(null, 3, 0));
+    }
+
+    @Test
+    public void sourceAndMetadataRoundTrip() {
+        Bundle result = reply(MediaSourceDescriptor.localFile("/sdcard/a.mp4").build());
+        new Bootstrap.Metadata(1280, 720, 90, 30, 5000).writeTo(result);
+        Bootstrap local = Bootstrap.fromBundle(result, 4, 0);
+        assertNotNull(local);
+        assertEquals(MediaSourceDescriptor.Type.LOCAL_FILE, local.source.type);
+        assertEquals("/sdcard/a.mp4", local.source.localPath);
+        assertEquals(4, local.roundTripMs);
+        assertEquals(1280, local.metadata.width);
+        assertEquals(720, local.metadata.height);
+        assertEquals(90, local.metadata.rotation);
+        assertEquals(30, local.metadata.fps);
+        assertEquals(5000, local.metadata.durationMs);
+
+        Bootstrap stream = Bootstrap.fromBundle(
+                reply(MediaSourceDescriptor.stream("rtsp://host/live").build()), 1, 0);
+        assertEquals(MediaSourceDescriptor.Type.STREAM_URL, stream.source.type);
+        assertEquals("rtsp://host/live", stream.source.streamUrl);
+        assertNull(stream.metadata);
+
+        Bootstrap still = Bootstrap.fromBundle(
+                reply(MediaSourceDescriptor.stillImage("/sdcard/a.jpg").build()), 1, 0);
+        assertEquals(MediaSourceDescriptor.Type.STILL_IMAGE, still.source.type);
+        assertNull(still.metadata);
+    }
+
+    @Test
+    public void preopenedFdsAreHandedOutOnce() throws Exception {
+        ParcelFileDescriptor video = Mockito.mock(ParcelFileDescriptor.class);
+        ParcelFileDescriptor audio = Mockito.mock(ParcelFileDescriptor.class);
+        Bundle result = reply(MediaSourceDescriptor.localFile("/sdcard/a.mp4").build());
+        result.putParcelable(IpcContract.EXTRA_VIDEO_PFD, video);
+        result.putParcelable(IpcContract.EXTRA_AUDIO_PFD, audio);
+        new Bootstrap.Metadata(640, 480, 0, 0, 1000).writeTo(result);
+        Bootstrap bootstrap = Bootstrap.fromBundle(result, 2, 1000);
+
+        assertTrue(bootstrap.hasVideoPfd());
+        ParcelFileDescriptor other = Mockito.mock(ParcelFileDescriptor.class);
+        assertNull(bootstrap.metadataFor(other));
+
+        assertSame(video, bootstrap.takeVideoPfd(1000));
+        assertFalse(bootstrap.hasVideoPfd());
+        assertNull(bootstrap.takeVideoPfd(1000));
+        // 元数据只对应交出的那个 fd
+        assertEquals(640, bootstrap.metadataFor(video).width);
+        assertNull(bootstrap.metadataFor(other));
+
+        bootstrap.close();
+        Mockito.verify(video, Mockito.never()).close();
+        Mockito.verify(audio).close();
+        assertNull(bootstrap.takeAudioPfd(1000));
+        assertNull(bootstrap.metadataFor(video));
+    }
+
+    @Test
+    public void expiredFdsAreClosedInsteadOfHandedOut() throws Exception {
+        ParcelFileDescriptor video = Mockito.mock(ParcelFileDescriptor.class);
+        Bundle result = reply(MediaSourceDescriptor.localFile("/sdcard/a.mp4").build());
+        result.putParcelable(IpcContract.EXTRA_VIDEO_PFD, video);
+        Bootstrap bootstrap = Bootstrap.fromBundle(result, 2, 0);
+
+        assertNull(bootstrap.takeVideoPfd(Bootstrap.PFD_TTL_MS + 1));
+        Mockito.verify(video).close();
+        assertFalse(bootstrap.hasVideoPfd());
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CallbackBufferPoolTest {
+
+    private static final int NV21_VGA = 640 * 480 * 3 / 2;
+
+    @Test
+    public void appGetsItsOwnBufferBack() {
+        CallbackBufferPool pool = new CallbackBufferPool();
+        byte[] app = new byte[16];
+        byte[] ours = pool.substitute(app);
+        assertNotSame(app, ours);
+        assertEquals(app.length, ours.length);
+        assertEquals(1, pool.getQueuedCount());
+
+        assertSame(app, pool.restore(ours));
+        assertEquals(0, pool.getQueuedCount());
+        // 应用再次加回同一个 buffer：复用同一个替身
+        assertSame(ours, pool.substitute(app));
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(1, pool.getReuseCount());
+    }
+
+    @Test
+    public void unknownBufferPassesThrough() {
+        CallbackBufferPool pool = new CallbackBufferPool();
+        byte[] cameraOwned = new byte[8];
+        assertSame(cameraOwned, pool.restore(cameraOwned));
+    }
+
+    @Test
+    public void substitutesAreMatchedByLength() {
+        CallbackBufferPool pool = new CallbackBufferPool();
+        byte[] small = pool.substitute(new byte[8]);
+        pool.restore(small);
+        byte[] large = pool.substitute(new byte[32]);
+        assertEquals(32, large.length);
+        assertSame(small, pool.substitute(new byte[8]));
+        assertEquals(2, pool.getAllocationCount());
+    }
+
+    @Test
+    public void clearDropsMappings() {
+        CallbackBufferPool pool = new CallbackBufferPool();
+        byte[] app = new byte[8];
+        byte[] ours = pool.substitute(app);
+        pool.clear();
+        assertEquals(0, pool.getQueuedCount());
+        assertSame(ours, pool.restore(ours));
+        assertNotSame(ours, pool.substitute(app));
+    }
+
+    /**
+     * 应用三 buffer 轮转、每帧回调后立即加回：对比旧行为（每次 addCallbackBuffer 都 new 一个数组）
+     * 与替身池在稳态下的分配字节数。
+     */
+    @Test
+    public void steadyStateAllocationRate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long tid = Thread.currentThread().getId();
+        int frames = 300;
+
+        byte[][] appBuffers = { new byte[NV21_VGA], new byte[NV21_VGA], new byte[NV21_VGA] };
+        ArrayDeque<byte[]> cameraQueue = new ArrayDeque<>(8);
+        CallbackBufferPool pool = new CallbackBufferPool();
+        // 预热：建立映射与空闲替身
+        for (byte[] app : appBuffers) {
+            cameraQueue.add(pool.substitute(app));
+        }
+        for (int i = 0; i < 30; i++) {
+            cameraQueue.add(pool.substitute(pool.restore(cameraQueue.poll())));
+        }
+
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < frames; i++) {
+            byte[] delivered = pool.restore(cameraQueue.poll());
+            cameraQueue.add(pool.substitute(delivered));
+        }
+        long pooledBytes = threads.getThreadAllocatedBytes(tid) - before;
+
+        ArrayDeque<byte[]> legacyQueue = new ArrayDeque<>(8);
+        for (byte[] app : appBuffers) {
+            legacyQueue.add(new byte[app.length]);
+        }
+        before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < frames; i++) {
+            byte[] delivered = legacyQueue.poll();
+            legacyQueue.add(new byte[delivered.length]);
+        }
+        long legacyBytes = threads.getThreadAllocatedBytes(tid) - before;
+
+        System.out.println("[CallbackBufferPool] " + frames + " frames @" + NV21_VGA + "B: legacy "
+                + legacyBytes / frames + " B/frame, pooled " + pooledBytes / frames + " B/frame");
+        assertTrue("legacy=" + legacyBytes, legacyBytes >= (long) frames * NV21_VGA);
+        assertTrue("pooled=" + pooledBytes, pooledBytes < NV21_VGA);
+        assertEquals(appBuffers.length, pool.getAllocationCount());
+    }
+}
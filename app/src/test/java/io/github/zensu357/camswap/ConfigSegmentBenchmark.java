@@ -0,0 +1,85 @@
+package io.github.zensu357.camswap;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Locale;
+
+/**
+ * Hook 进程判断配置是否变化的成本：共享段的版本号检查、版本变化时的完整读取，
+ * 对比回退路径中无法省掉的整份 JSON 解析（Provider 游标的 IPC 不计入）。
+ * 输出到 stdout，不做耗时断言。
+ */
+public class ConfigSegmentBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+    private static final int CHECKS = 1_000_000;
+    private static final int READS = 10_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static long sink;
+
+    @Test
+    public void versionCheckVersusJsonParse() throws Exception {
+        try (MockedStatic<Log> ignored = Mockito.mockStatic(Log.class)) {
+            JSONArray packages = new JSONArray();
+            for (int i = 0; i < 20; i++) {
+                packages.put("com.example.app" + i);
+            }
+            JSONObject config = new JSONObject()
+                    .put(ConfigManager.KEY_SELECTED_VIDEO, "demo.mp4")
+                    .put(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 90)
+                    .put(ConfigManager.KEY_ENABLE_MIC_HOOK, true)
+                    .put(ConfigManager.KEY_MIC_HOOK_MODE, ConfigManager.MIC_MODE_VIDEO_SYNC)
+                    .put(ConfigManager.KEY_STREAM_URL, "rtsp://192.168.1.10:8554/live")
+                    .put(ConfigManager.KEY_TARGET_PACKAGES, packages);
+            String json = config.toString(4);
+
+            File file = new File(temporaryFolder.getRoot(), ConfigSegment.FILE_NAME);
+            ConfigSegment.Writer.open(file).publish(config);
+            ConfigSegment.Reader reader;
+            try (FileInputStream in = new FileInputStream(file)) {
+                reader = ConfigSegment.Reader.map(in.getFD());
+            }
+
+            long checkNs = 0;
+            long readNs = 0;
+            long parseNs = 0;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                long t0 = System.nanoTime();
+                for (int c = 0; c < CHECKS; c++) {
+                    sink += reader.version();
+                }
+                long t1 = System.nanoTime();
+                for (int r = 0; r < READS; r++) {
+                    sink += reader.read().config.length();
+                }
+                long t2 = System.nanoTime();
+                for (int r = 0; r < READS; r++) {
+                    sink += new JSONObject(json).length();
+                }
+                long t3 = System.nanoTime();
+                if (i >= WARMUP) {
+                    checkNs += t1 - t0;
+                    readNs += t2 - t1;
+                    parseNs += t3 - t2;
+                }
+            }
+            System.out.println(String.format(Locale.US,
+                    "[ConfigSegment] version check %.1f ns, segment read+decode %.2f us, JSON parse %.2f us, sink=%d",
+                    (double) checkNs / ITERATIONS / CHECKS, readNs / 1e3 / ITERATIONS / READS,
+                    parseNs / 1e3 / ITERATIONS / READS, sink & 1));
+        }
+    }
+}
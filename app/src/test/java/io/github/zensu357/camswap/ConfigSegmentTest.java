@@ -0,0 +1,147 @@
+package io.github.zensu357.camswap;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigSegmentTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockedStatic<Log> logMock;
+
+    @Before
+    public void setUp() {
+        logMock = Mockito.mockStatic(Log.class);
+    }
+
+    @After
+    public void tearDown() {
+        logMock.close();
+    }
+
+    private static JSONObject config(int rotation) throws Exception {
+        return new JSONObject()
+                .put(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, rotation)
+                .put(ConfigManager.KEY_ENABLE_MIC_HOOK, true)
+                .put(ConfigManager.KEY_SELECTED_VIDEO, "演示.mp4")
+                .put("last_switch", 1700000000000L)
+                .put(ConfigManager.KEY_TARGET_PACKAGES, new JSONArray().put("com.a").put("com.b"));
+    }
+
+    private ConfigSegment.Reader openReader(File file) throws Exception {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return ConfigSegment.Reader.map(in.getFD());
+        }
+    }
+
+    @Test
+    public void encodingKeepsValueTypes() throws Exception {
+        JSONObject source = config(90);
+        JSONObject decoded = ConfigSegment.decode(ConfigSegment.encode(source));
+        assertTrue(ConfigSnapshot.changedKeys(source, decoded).isEmpty());
+        assertTrue(decoded.get(ConfigManager.KEY_VIDEO_ROTATION_OFFSET) instanceof Integer);
+        assertTrue(decoded.get("last_switch") instanceof Long);
+        assertEquals("com.b", decoded.getJSONArray(ConfigManager.KEY_TARGET_PACKAGES).getString(1));
+    }
+
+    @Test
+    public void readerSeesPublishedVersionsThroughSeparateMapping() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), ConfigSegment.FILE_NAME);
+        ConfigSegment.Writer writer = ConfigSegment.Writer.open(file);
+        ConfigSegment.Reader reader = openReader(file);
+        assertEquals(-1, reader.version());
+        assertNull(reader.read());
+
+        assertTrue(writer.publish(config(90)));
+        long first = reader.version();
+        ConfigSegment.Record record = reader.read();
+        assertNotNull(record);
+        assertEquals(first, record.version);
+        assertEquals(90, record.config.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET));
+
+        // 内容相同不升版本
+        assertTrue(writer.publish(config(90)));
+        assertEquals(first, reader.version());
+
+        assertTrue(writer.publish(config(180)));
+        assertEquals(first + 1, reader.version());
+        assertEquals(180, reader.read().config.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET));
+
+        // 管理端重启后重新打开：版本号延续，已映射的读取方继续有效
+        ConfigSegment.Writer reopened = ConfigSegment.Writer.open(file);
+        assertTrue(reopened.publish(config(270)));
+        assertEquals(first + 2, reader.version());
+        assertEquals(270, reader.read().config.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET));
+    }
+
+    @Test
+    public void oversizedConfigFallsBack() throws Exception {
+        ConfigSegment.Writer writer = new ConfigSegment.Writer(ByteBuffer.allocate(ConfigSegment.SIZE));
+        StringBuilder big = new StringBuilder();
+        while (big.length() <= ConfigSegment.CAPACITY) {
+            big.append("0123456789");
+        }
+        assertFalse(writer.publish(new JSONObject().put("big", big.toString())));
+    }
+
+    @Test
+    public void writeInProgressOrTornPayloadIsRejected() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), ConfigSegment.FILE_NAME);
+        ConfigSegment.Writer.open(file).publish(config(90));
+        ConfigSegment.Reader reader = openReader(file);
+        assertNotNull(reader.read());
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // 序号一致但内容被改动：CRC 不符
+            raf.seek(ConfigSegment.HEADER_SIZE + 8);
+            byte original = raf.readByte();
+            raf.seek(ConfigSegment.HEADER_SIZE + 8);
+            raf.writeByte(original ^ 0x7f);
+            assertNull(reader.read());
+
+            // 序号一致、内容完好，但版本号是另一次写入的：CRC 覆盖版本号，同样拒绝
+            raf.seek(ConfigSegment.HEADER_SIZE + 8);
+            raf.writeByte(original);
+            assertNotNull(reader.read());
+            raf.seek(16);
+            long version = raf.readLong();
+            raf.seek(16);
+            raf.writeLong(version + 1);
+            assertNull(reader.read());
+            raf.seek(16);
+            raf.writeLong(version);
+
+            // 写入方在写入中途退出：序号停在奇数
+            raf.seek(8);
+            long seq = raf.readLong();
+            raf.seek(8);
+            raf.writeLong(seq + 1);
+            assertEquals(-1, reader.version());
+            assertNull(reader.read());
+        }
+
+        // 下一次发布从奇数序号恢复
+        ConfigSegment.Writer.open(file).publish(config(180));
+        assertEquals(180, reader.read().config.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET));
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.zensu357.camswap;
+
+import android.util.Log;
+
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.util.Locale;
+
+/**
+ * 热路径配置读取成本：每帧的旋转偏移 + 每次音频 read 的麦克风开关/模式。
+ * 旧路径每次经 ConfigManager.getXxx 查 JSONObject，新路径读一次 volatile 快照后取字段。
+ * 输出到 stdout，不做耗时断言。
+ */
+public class ConfigSnapshotBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+    private static final int READS = 1_000_000;
+
+    /** 防止 JIT 把读取整个消除 */
+    private static long sink;
+
+    @Test
+    public void jsonLookupVersusSnapshotFields() {
+        try (MockedStatic<Log> ignored = Mockito.mockStatic(Log.class)) {
+            ConfigManager config = new ConfigManager(false);
+            config.updateConfigFromJSON("{"
+                    + "\"video_rotation_offset\":90,"
+                    + "\"enable_mic_hook\":true,"
+                    + "\"mic_hook_mode\":\"video_sync\","
+                    + "\"selected_video\":\"demo.mp4\","
+                    + "\"media_source_type\":\"local\","
+                    + "\"disable_toast\":false"
+                    + "}");
+
+            long jsonNs = 0;
+            long snapshotNs = 0;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                long t0 = System.nanoTime();
+                sink += readJson(config);
+                long t1 = System.nanoTime();
+                sink += readSnapshot(config);
+                long t2 = System.nanoTime();
+                if (i >= WARMUP) {
+                    jsonNs += t1 - t0;
+                    snapshotNs += t2 - t1;
+                }
+            }
+            double jsonPerRead = (double) jsonNs / ITERATIONS / READS;
+            double snapshotPerRead = (double) snapshotNs / ITERATIONS / READS;
+            System.out.println(String.format(Locale.US,
+                    "[ConfigSnapshot] 3 keys/read: JSONObject %.1f ns/read, snapshot %.1f ns/read (%.1fx), sink=%d",
+                    jsonPerRead, snapshotPerRead, jsonPerRead / snapshotPerRead, sink & 1));
+        }
+    }
+
+    private static long readJson(ConfigManager config) {
+        long acc = 0;
+        for (int i = 0; i < READS; i++) {
+            acc += config.getInt(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 0);
+            if (config.getBoolean(ConfigManager.KEY_ENABLE_MIC_HOOK, false)) {
+                acc++;
+            }
+            if (ConfigManager.MIC_MODE_VIDEO_SYNC.equals(
+                    config.getString(ConfigManager.KEY_MIC_HOOK_MODE, ConfigManager.MIC_MODE_MUTE))) {
+                acc++;
+            }
+        }
+        return acc;
+    }
+
+    private static long readSnapshot(ConfigManager config) {
+        long acc = 0;
+        for (int i = 0; i < READS; i++) {
+            ConfigSnapshot snapshot = config.snapshot();
+            acc += snapshot.videoRotationOffset;
+            if (snapshot.enableMicHook) {
+                acc++;
+            }
+            if (snapshot.micVideoSyncMode) {
+                acc++;
+            }
+        }
+        return acc;
+    }
+}
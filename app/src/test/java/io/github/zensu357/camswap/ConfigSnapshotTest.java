@@ -0,0 +1,172 @@
+package io.github.zensu357.camswap;
+
+import android.util.Log;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigSnapshotTest {
+    private MockedStatic<Log> logMock;
+
+    @Before
+    public void setUp() {
+        logMock = Mockito.mockStatic(Log.class);
+    }
+
+    @After
+    public void tearDown() {
+        logMock.close();
+    }
+
+    @Test
+    public void snapshotReadsTypedFieldsWithDefaults() throws Exception {
+        ConfigSnapshot empty = new ConfigSnapshot(new JSONObject(), 0);
+        assertEquals(0, empty.videoRotationOffset);
+        assertEquals(ConfigManager.MIC_MODE_MUTE, empty.micHookMode);
+        assertEquals(ConfigManager.MEDIA_SOURCE_LOCAL, empty.mediaSourceType);
+        assertFalse(empty.streamMode);
+        assertFalse(empty.stillMode);
+
+        JSONObject json = new JSONObject()
+                .put(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, 270)
+                .put(ConfigManager.KEY_ENABLE_MIC_HOOK, true)
+                .put(ConfigManager.KEY_MIC_HOOK_MODE, ConfigManager.MIC_MODE_VIDEO_SYNC)
+                .put(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_IMAGE)
+                .put(ConfigManager.KEY_SELECTED_IMAGE, "a.jpg");
+        ConfigSnapshot snapshot = new ConfigSnapshot(json, 3);
+        assertEquals(3, snapshot.version);
+        assertEquals(270, snapshot.videoRotationOffset);
+        assertTrue(snapshot.enableMicHook);
+        assertTrue(snapshot.micVideoSyncMode);
+        assertFalse(snapshot.micReplaceMode);
+        assertTrue(snapshot.stillMode);
+        // 网络流优先于图片模式
+        json.put(ConfigManager.KEY_MEDIA_SOURCE_TYPE, ConfigManager.MEDIA_SOURCE_STREAM);
+        ConfigSnapshot stream = new ConfigSnapshot(json, 4);
+        assertTrue(stream.streamMode);
+        assertFalse(stream.stillMode);
+        assertFalse(stream.sameMediaSource(snapshot));
+    }
+
+    @Test
+    public void changedKeysCoversAddedRemovedAndModified() throws Exception {
+        JSONObject previous = new JSONObject().put("a", 1).put("b", "x").put("c", true);
+        JSONObject current = new JSONObject().put("a", 1L).put("b", "y").put("d", 0);
+        assertEquals(Arrays.asList("b", "c", "d"), new ArrayList<>(ConfigSnapshot.changedKeys(previous, current)));
+        assertTrue(ConfigSnapshot.changedKeys(current, new JSONObject(current.toString())).isEmpty());
+    }
+
+    @Test
+    public void versionAdvancesOnlyWhenContentChanges() {
+        ConfigManager config = new ConfigManager(false);
+        List<Set<String>> events = new ArrayList<>();
+        config.addListener((previous, current, changedKeys) -> {
+            assertEquals(previous.version + 1, current.version);
+            events.add(changedKeys);
+        });
+
+        config.updateConfigFromJSON("{\"video_rotation_offset\":90,\"selected_video\":\"a.mp4\"}");
+        ConfigSnapshot first = config.snapshot();
+        assertEquals(90, first.videoRotationOffset);
+        assertEquals("a.mp4", first.selectedVideo);
+
+        // 内容相同：不发布新快照，不回调
+        config.updateConfigFromJSON("{\"selected_video\":\"a.mp4\",\"video_rotation_offset\":90}");
+        assertSame(first, config.snapshot());
+
+        config.updateConfigFromJSON("{\"video_rotation_offset\":180,\"selected_video\":\"a.mp4\"}");
+        ConfigSnapshot second = config.snapshot();
+        assertEquals(first.version + 1, second.version);
+        assertTrue(second.sameMediaSource(first));
+
+        assertEquals(2, events.size());
+        assertEquals(Arrays.asList(ConfigManager.KEY_SELECTED_VIDEO, ConfigManager.KEY_VIDEO_ROTATION_OFFSET),
+                new ArrayList<>(events.get(0)));
+        assertEquals(Arrays.asList(ConfigManager.KEY_VIDEO_ROTATION_OFFSET), new ArrayList<>(events.get(1)));
+    }
+
+    @Test
+    public void failingListenerDoesNotBlockOthers() {
+        ConfigManager config = new ConfigManager(false);
+        List<Long> versions = new ArrayList<>();
+        config.addListener((previous, current, changedKeys) -> {
+            throw new IllegalStateException("boom");
+        });
+        ConfigSnapshot.Listener listener = (previous, current, changedKeys) -> versions.add(current.version);
+        config.addListener(listener);
+        config.addListener(listener);
+
+        config.updateConfigFromJSON("{\"disable_toast\":true}");
+        assertTrue(config.snapshot().disableToast);
+        assertEquals(1, versions.size());
+
+        config.removeListener(listener);
+        config.updateConfigFromJSON("{\"disable_toast\":false}");
+        assertEquals(1, versions.size());
+    }
+
+    @Test
+    public void listenersRunOutsideConfigLockInVersionOrder() throws Exception {
+        ConfigManager config = new ConfigManager(false);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> versions = Collections.synchronizedList(new ArrayList<>());
+        config.addListener((previous, current, changedKeys) -> {
+            versions.add(current.version);
+            if (versions.size() == 1) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread first = worker(() -> config.updateConfigFromJSON("{\"video_rotation_offset\":90}"), failures);
+        first.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        // 第一个回调阻塞（如做 IPC）期间，其他线程的发布不被配置锁挡住，回调由正在分发的线程代为执行
+        Thread second = worker(() -> config.updateConfigFromJSON("{\"video_rotation_offset\":180}"), failures);
+        second.start();
+        second.join(5000);
+        assertFalse(second.isAlive());
+        assertEquals(180, config.snapshot().videoRotationOffset);
+        assertEquals(1, versions.size());
+
+        release.countDown();
+        first.join(5000);
+        assertFalse(first.isAlive());
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals(Arrays.asList(1L, 2L), versions);
+    }
+
+    /** 静态 mock 只对创建它的线程生效：工作线程自己 mock Log，异常记进 failures 由测试线程断言 */
+    private static Thread worker(Runnable body, List<Throwable> failures) {
+        Thread thread = new Thread(() -> {
+            try (MockedStatic<Log> ignored = Mockito.mockStatic(Log.class)) {
+                body.run();
+            }
+        });
+        thread.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+        return thread;
+    }
+}
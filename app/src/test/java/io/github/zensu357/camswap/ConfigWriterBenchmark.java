@@ -0,0 +1,114 @@
+package io.github.zensu357.camswap;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连续 100 次 set 的成本：旧路径每次 toString() 再解析整份配置并同步重写文件（每次都通知），
+ * 新路径浅拷贝后交给 {@link ConfigWriter}，一批只写一次文件、通知一次。
+ * 新路径分别统计调用方耗时和到落盘为止的总耗时。输出到 stdout，不做耗时断言。
+ */
+public class ConfigWriterBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+    private static final int MUTATIONS = 100;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void hundredRapidMutations() throws Exception {
+        try (MockedStatic<Log> ignored = Mockito.mockStatic(Log.class)) {
+            JSONObject base = typicalConfig();
+            File file = new File(temporaryFolder.getRoot(), ConfigManager.CONFIG_FILE_NAME);
+            ConfigWriter writer = new ConfigWriter(file, ConfigWriter.COALESCE_WINDOW_MS);
+            AtomicInteger notifications = new AtomicInteger();
+
+            long beforeNs = 0;
+            long afterCallerNs = 0;
+            long afterTotalNs = 0;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                long t0 = System.nanoTime();
+                JSONObject config = base;
+                for (int m = 0; m < MUTATIONS; m++) {
+                    config = new JSONObject(config.toString());
+                    config.put(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, m % 4 * 90);
+                    try (FileOutputStream fos = new FileOutputStream(file)) {
+                        fos.write(config.toString(4).getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                long t1 = System.nanoTime();
+
+                notifications.set(0);
+                long flushesBefore = writer.getFlushCount();
+                config = base;
+                for (int m = 0; m < MUTATIONS; m++) {
+                    config = shallowCopy(config);
+                    config.put(ConfigManager.KEY_VIDEO_ROTATION_OFFSET, m % 4 * 90);
+                    writer.submit(config, notifications::incrementAndGet);
+                }
+                long t2 = System.nanoTime();
+                while (notifications.get() == 0) {
+                    Thread.sleep(1);
+                }
+                long t3 = System.nanoTime();
+                if (i >= WARMUP) {
+                    beforeNs += t1 - t0;
+                    afterCallerNs += t2 - t1;
+                    afterTotalNs += t3 - t1;
+                }
+                if (i == WARMUP + ITERATIONS - 1) {
+                    System.out.println(String.format(Locale.US,
+                            "[ConfigWriter] %d mutations: before %d writes / %d notifications, after %d write(s) / %d notification(s)",
+                            MUTATIONS, MUTATIONS, MUTATIONS, writer.getFlushCount() - flushesBefore,
+                            notifications.get()));
+                }
+            }
+            System.out.println(String.format(Locale.US,
+                    "[ConfigWriter] %d mutations: copy+sync write %.2f ms, write-behind caller %.2f ms"
+                            + " (durable after %.2f ms incl. %d ms window)",
+                    MUTATIONS, beforeNs / 1e6 / ITERATIONS, afterCallerNs / 1e6 / ITERATIONS,
+                    afterTotalNs / 1e6 / ITERATIONS, ConfigWriter.COALESCE_WINDOW_MS));
+        }
+    }
+
+    private static JSONObject typicalConfig() throws Exception {
+        JSONArray packages = new JSONArray();
+        for (int i = 0; i < 20; i++) {
+            packages.put("com.example.app" + i);
+        }
+        return new JSONObject()
+                .put(ConfigManager.KEY_SELECTED_VIDEO, "demo.mp4")
+                .put(ConfigManager.KEY_REPLACE_MODE, ConfigManager.REPLACE_MODE_VIDEO)
+                .put(ConfigManager.KEY_ENABLE_MIC_HOOK, true)
+                .put(ConfigManager.KEY_MIC_HOOK_MODE, ConfigManager.MIC_MODE_VIDEO_SYNC)
+                .put(ConfigManager.KEY_DISABLE_TOAST, false)
+                .put(ConfigManager.KEY_STREAM_URL, "rtsp://192.168.1.10:8554/live")
+                .put(ConfigManager.KEY_TARGET_PACKAGES, packages);
+    }
+
+    /** 与 ConfigManager 的浅拷贝一致 */
+    private static JSONObject shallowCopy(JSONObject source) throws Exception {
+        JSONObject copy = new JSONObject();
+        Iterator<String> keys = source.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            copy.put(key, source.opt(key));
+        }
+        return copy;
+    }
+}
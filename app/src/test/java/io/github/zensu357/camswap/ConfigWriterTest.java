@@ -0,0 +1,91 @@
+package io.github.zensu357.camswap;
+
+import android.util.Log;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigWriterTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockedStatic<Log> logMock;
+
+    @Before
+    public void setUp() {
+        logMock = Mockito.mockStatic(Log.class);
+    }
+
+    @After
+    public void tearDown() {
+        logMock.close();
+    }
+
+    private static JSONObject read(File file) throws Exception {
+        return new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void burstIsWrittenOnceWithLastValue() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "cs_config.json");
+        // 窗口足够长，由测试显式 flush
+        ConfigWriter writer = new ConfigWriter(file, 60_000);
+        AtomicInteger notified = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            writer.submit(new JSONObject().put("video_rotation_offset", i), notified::incrementAndGet);
+        }
+        assertFalse(file.exists());
+
+        assertTrue(writer.flush());
+        assertEquals(99, read(file).getInt("video_rotation_offset"));
+        assertEquals(1, writer.getFlushCount());
+        assertEquals(1, notified.get());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        // 没有待写内容
+        assertFalse(writer.flush());
+        assertEquals(1, notified.get());
+    }
+
+    @Test
+    public void scheduledFlushWritesAfterWindow() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "sub/cs_config.json");
+        ConfigWriter writer = new ConfigWriter(file, 10);
+        AtomicInteger notified = new AtomicInteger();
+        writer.submit(new JSONObject().put("a", 1), notified::incrementAndGet);
+        writer.submit(new JSONObject().put("a", 2), notified::incrementAndGet);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (notified.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, notified.get());
+        assertEquals(2, read(file).getInt("a"));
+        assertEquals(1, writer.getFlushCount());
+    }
+
+    @Test
+    public void replacesExistingFile() throws Exception {
+        File file = temporaryFolder.newFile("cs_config.json");
+        Files.write(file.toPath(), "{\"old\":true}".getBytes(StandardCharsets.UTF_8));
+        ConfigWriter.writeAtomically(file, new JSONObject().put("new", true));
+        JSONObject written = read(file);
+        assertTrue(written.getBoolean("new"));
+        assertFalse(written.has("old"));
+    }
+}
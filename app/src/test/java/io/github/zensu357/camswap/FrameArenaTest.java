@@ -0,0 +1,142 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FrameArenaTest {
+
+    private static final int FRAME_1080P = 1920 * 1080 * 3 / 2;
+
+    @Test
+    public void sizeClassesCoverRequestWithBoundedSlack() {
+        int[] sizes = { 1, 4096, 4097, 8192, 8193, 640 * 480 * 3 / 2, FRAME_1080P, 3840 * 2160 * 3 / 2 };
+        for (int size : sizes) {
+            int capacity = FrameArena.classCapacity(FrameArena.classOf(size));
+            assertTrue(size + " -> " + capacity, capacity >= size);
+            assertTrue(size + " -> " + capacity, size <= 4096 || capacity <= size + size / 4 + 1);
+        }
+        assertEquals(FrameArena.classOf(FRAME_1080P), FrameArena.classOf(FRAME_1080P - 1000));
+    }
+
+    @Test
+    public void releasedSlabIsReused() {
+        FrameArena arena = new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES);
+        FrameArena.Slab first = arena.acquire(FRAME_1080P);
+        assertTrue(first.buffer().isDirect());
+        assertEquals(FRAME_1080P, first.size());
+        first.release();
+        FrameArena.Slab second = arena.acquire(FRAME_1080P - 16);
+        assertSame(first, second);
+        assertEquals(FRAME_1080P - 16, second.size());
+        assertEquals(0, second.buffer().position());
+        assertEquals(1, arena.getMissCount());
+        assertEquals(1, arena.getHitCount());
+        second.release();
+    }
+
+    @Test
+    public void slabReturnsOnlyAfterLastRelease() {
+        FrameArena arena = new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES);
+        FrameArena.Slab slab = arena.acquire(1024);
+        slab.retain();
+        slab.release();
+        FrameArena.Slab other = arena.acquire(1024);
+        assertTrue(other != slab);
+        slab.release();
+        assertFalse(slab.tryRetain());
+        try {
+            slab.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        other.release();
+    }
+
+    @Test
+    public void budgetEvictsFreeSlabsThenFallsBackToUnpooled() {
+        int small = 64 * 1024;
+        long frameCapacity = FrameArena.classCapacity(FrameArena.classOf(FRAME_1080P));
+        FrameArena arena = new FrameArena(frameCapacity * 2 + small);
+        FrameArena.Slab a = arena.acquire(small);
+        FrameArena.Slab b = arena.acquire(small);
+        a.release();
+        b.release();
+        assertEquals(0, arena.getEvictionCount());
+
+        FrameArena.Slab big1 = arena.acquire(FRAME_1080P);
+        FrameArena.Slab big2 = arena.acquire(FRAME_1080P);
+        // 为第二帧腾预算时淘汰了空闲的小 slab
+        assertTrue(arena.getEvictionCount() >= 1);
+        assertTrue(arena.getReservedBytes() <= arena.getBudgetBytes());
+
+        FrameArena.Slab big3 = arena.acquire(FRAME_1080P);
+        assertEquals(1, arena.getOverBudgetCount());
+        assertEquals(FRAME_1080P, big3.size());
+        long reserved = arena.getReservedBytes();
+        big3.release();
+        assertEquals(reserved, arena.getReservedBytes());
+        big1.release();
+        big2.release();
+        arena.trim();
+        assertEquals(0, arena.getReservedBytes());
+    }
+
+    @Test
+    public void concurrentAcquireReleaseKeepsBudget() throws Exception {
+        final FrameArena arena = new FrameArena(8L * 1024 * 1024);
+        final int[] sizes = { 640 * 480 * 3 / 2, 1280 * 720 * 3 / 2, 320 * 240 * 3 / 2 };
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final long seed = t;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                List<FrameArena.Slab> held = new ArrayList<>();
+                try {
+                    for (int i = 0; i < 5000; i++) {
+                        if (held.size() < 3 && random.nextBoolean()) {
+                            FrameArena.Slab slab = arena.acquire(sizes[random.nextInt(sizes.length)]);
+                            // 独占期间写入的标记不能被其他线程改写
+                            byte mark = (byte) random.nextInt();
+                            slab.buffer().put(0, mark);
+                            held.add(slab);
+                            slab.buffer().put(slab.size() - 1, mark);
+                        } else if (!held.isEmpty()) {
+                            FrameArena.Slab slab = held.remove(random.nextInt(held.size()));
+                            if (slab.buffer().get(0) != slab.buffer().get(slab.size() - 1)) {
+                                throw new AssertionError("slab shared between owners");
+                            }
+                            slab.release();
+                        }
+                    }
+                    for (FrameArena.Slab slab : held) {
+                        slab.release();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertTrue(arena.getReservedBytes() <= arena.getBudgetBytes());
+        assertTrue(arena.getHitCount() > arena.getMissCount());
+    }
+}
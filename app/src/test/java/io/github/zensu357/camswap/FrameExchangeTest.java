@@ -0,0 +1,258 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FrameExchangeTest {
+
+    private static void produce(FrameExchange exchange, int size, int width, int height, byte value) {
+        byte[] buffer = exchange.beginWrite(size);
+        if (buffer != null) {
+            Arrays.fill(buffer, value);
+            exchange.publish(width, height);
+        }
+    }
+
+    @Test
+    public void emptyExchangeHasNoFrame() {
+        FrameExchange exchange = new FrameExchange();
+        assertFalse(exchange.hasFrame());
+        assertNull(exchange.acquire());
+        byte[] dst = { 7, 7 };
+        assertEquals(0, exchange.copyTo(dst, -1));
+        assertArrayEquals(new byte[] { 7, 7 }, dst);
+    }
+
+    @Test
+    public void copySkippedWhenGenerationUnchanged() {
+        FrameExchange exchange = new FrameExchange();
+        produce(exchange, 4, 2, 1, (byte) 1);
+        byte[] dst = new byte[4];
+        long generation = exchange.copyTo(dst, -1);
+        assertEquals(1, generation);
+        assertArrayEquals(new byte[] { 1, 1, 1, 1 }, dst);
+
+        dst[0] = 9;
+        assertEquals(generation, exchange.copyTo(dst, generation));
+        assertEquals(9, dst[0]);
+
+        produce(exchange, 4, 2, 1, (byte) 2);
+        assertEquals(2, exchange.copyTo(dst, generation));
+        assertArrayEquals(new byte[] { 2, 2, 2, 2 }, dst);
+    }
+
+    @Test
+    public void pinnedFramesAreNeverRewritten() {
+        FrameExchange exchange = new FrameExchange();
+        produce(exchange, 8, 4, 1, (byte) 1);
+        FrameExchange.Frame first = exchange.acquire();
+        produce(exchange, 8, 4, 1, (byte) 2);
+        FrameExchange.Frame second = exchange.acquire();
+        assertNotSame(first, second);
+
+        produce(exchange, 8, 4, 1, (byte) 3);
+        assertEquals(3, exchange.getGeneration());
+
+        // 已发布槽位之外的两个槽位都被读者占住：生产者只能丢弃本帧
+        produce(exchange, 8, 4, 1, (byte) 4);
+        assertEquals(1, exchange.getDroppedCount());
+        assertEquals(3, exchange.getGeneration());
+        assertArrayEquals(new byte[] { 1, 1, 1, 1, 1, 1, 1, 1 }, first.getData());
+        assertArrayEquals(new byte[] { 2, 2, 2, 2, 2, 2, 2, 2 }, second.getData());
+
+        exchange.release(second);
+        produce(exchange, 8, 4, 1, (byte) 5);
+        assertEquals(4, exchange.getGeneration());
+        assertArrayEquals(new byte[] { 1, 1, 1, 1, 1, 1, 1, 1 }, first.getData());
+        exchange.release(first);
+    }
+
+    @Test
+    public void frameKeepsItsOwnDimensions() {
+        FrameExchange exchange = new FrameExchange();
+        produce(exchange, 6, 2, 2, (byte) 1);
+        FrameExchange.Frame frame = exchange.acquire();
+        assertNotNull(frame);
+        assertEquals(2, frame.getWidth());
+        assertEquals(2, frame.getHeight());
+        exchange.release(frame);
+        produce(exchange, 24, 4, 4, (byte) 1);
+        frame = exchange.acquire();
+        assertEquals(24, frame.getData().length);
+        assertEquals(4, frame.getWidth());
+        exchange.release(frame);
+    }
+
+    @Test
+    public void publishSwapHandsBackFreeBuffer() {
+        FrameExchange exchange = new FrameExchange();
+        byte[] first = new byte[] { 1, 1, 1, 1 };
+        assertNull(exchange.publishSwap(first, 2, 1));
+        FrameExchange.Frame frame = exchange.acquire();
+        assertSame(first, frame.getData());
+        assertEquals(1, frame.getGeneration());
+
+        // 读者钉住的帧不会被换出，换回来的是另一个空闲槽位的 buffer
+        byte[] second = new byte[] { 2, 2, 2, 2 };
+        assertNull(exchange.publishSwap(second, 2, 1));
+        byte[] third = new byte[] { 3, 3, 3, 3 };
+        assertNull(exchange.publishSwap(third, 2, 1));
+        assertSame(first, frame.getData());
+        exchange.release(frame);
+
+        byte[] fourth = new byte[] { 4, 4, 4, 4 };
+        assertSame(first, exchange.publishSwap(fourth, 2, 1));
+        byte[] dst = new byte[4];
+        assertEquals(4, exchange.copyTo(dst, -1));
+        assertArrayEquals(fourth, dst);
+    }
+
+    @Test
+    public void publishSwapDropsWhenReadersHoldEverySlot() {
+        FrameExchange exchange = new FrameExchange();
+        List<FrameExchange.Frame> held = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            exchange.publishSwap(new byte[] { (byte) i }, 1, 1);
+            held.add(exchange.acquire());
+        }
+        byte[] rejected = new byte[] { 9 };
+        assertSame(rejected, exchange.publishSwap(rejected, 1, 1));
+        assertEquals(1, exchange.getDroppedCount());
+        assertEquals(3, exchange.getGeneration());
+        for (FrameExchange.Frame frame : held) {
+            exchange.release(frame);
+        }
+    }
+
+    /**
+     * 60 fps 生产者 + 多个回调线程并发读取：读者拿到的帧必须内容完整（整帧同一个值，
+     * 与 generation 对应），且每个读者看到的 generation 单调不减。
+     */
+    @Test
+    public void stressSingleProducerManyConsumers() throws Exception {
+        final FrameExchange exchange = new FrameExchange();
+        final int frameSize = 640 * 480 * 3 / 2;
+        final int consumers = 4;
+        final long runMs = 1500;
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicLong reads = new AtomicLong();
+
+        Thread producer = new Thread(() -> {
+            long start = System.nanoTime();
+            long frame = 0;
+            while (running.get()) {
+                byte[] buffer = exchange.beginWrite(frameSize);
+                if (buffer != null) {
+                    // 第 n 次发布的 generation 为 n，整帧填 (byte) n
+                    long generation = exchange.getGeneration() + 1;
+                    Arrays.fill(buffer, (byte) generation);
+                    exchange.publish(640, 480);
+                }
+                frame++;
+                long next = start + frame * 1_000_000_000L / 60;
+                long sleepNs = next - System.nanoTime();
+                if (sleepNs > 0) {
+                    try {
+                        Thread.sleep(sleepNs / 1_000_000, (int) (sleepNs % 1_000_000));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "producer");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            final boolean copying = (i & 1) == 0;
+            threads.add(new Thread(() -> {
+                byte[] dst = new byte[frameSize];
+                long last = 0;
+                try {
+                    while (running.get()) {
+                        long generation;
+                        byte[] data;
+                        if (copying) {
+                            generation = exchange.copyTo(dst, -1);
+                            data = dst;
+                        } else {
+                            FrameExchange.Frame frame = exchange.acquire();
+                            if (frame == null) {
+                                Thread.yield();
+                                continue;
+                            }
+                            try {
+                                generation = frame.getGeneration();
+                                data = frame.getData();
+                                checkFrame(data, generation);
+                                // 模拟回调内的处理时间，期间帧必须保持不变
+                                Thread.sleep(3);
+                                checkFrame(data, generation);
+                            } finally {
+                                exchange.release(frame);
+                            }
+                        }
+                        if (generation == 0) {
+                            Thread.yield();
+                            continue;
+                        }
+                        if (copying) {
+                            checkFrame(data, generation);
+                        }
+                        if (generation < last) {
+                            throw new AssertionError("generation went back: " + last + " -> " + generation);
+                        }
+                        last = generation;
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "consumer-" + i));
+        }
+
+        producer.start();
+        for (Thread t : threads) {
+            t.start();
+        }
+        Thread.sleep(runMs);
+        running.set(false);
+        producer.join(2000);
+        for (Thread t : threads) {
+            t.join(2000);
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertTrue("published " + exchange.getPublishedCount(), exchange.getPublishedCount() > 30);
+        assertTrue(reads.get() > 0);
+    }
+
+    private static void checkFrame(byte[] data, long generation) {
+        byte expected = (byte) generation;
+        for (int i = 0; i < data.length; i += 97) {
+            if (data[i] != expected) {
+                throw new AssertionError("torn frame at " + i + ": gen=" + generation + " value=" + data[i]);
+            }
+        }
+        if (data[data.length - 1] != expected) {
+            throw new AssertionError("torn frame tail: gen=" + generation);
+        }
+    }
+}
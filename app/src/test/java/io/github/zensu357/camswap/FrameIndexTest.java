@@ -0,0 +1,124 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameIndexTest {
+
+    private static final long FRAME_US = 40_000L; // 25fps
+    private static final int GOP = 25;
+    private static final int FRAMES = 100;
+
+    /**
+     * 按解码顺序生成 IBBP 结构的样本序列：每个 GOP 以 I 帧开头，P 帧先于前面的两个 B 帧解码。
+     */
+    private static FrameIndex generate(long size, long mtime) {
+        FrameIndex.Builder builder = new FrameIndex.Builder();
+        for (int gop = 0; gop < FRAMES / GOP; gop++) {
+            int base = gop * GOP;
+            builder.add(base * FRAME_US, true);
+            int i = 1;
+            while (i < GOP) {
+                int p = Math.min(i + 2, GOP - 1);
+                builder.add((base + p) * FRAME_US, false);
+                for (int b = i; b < p; b++) {
+                    builder.add((base + b) * FRAME_US, false);
+                }
+                i = p + 1;
+            }
+        }
+        return builder.build(size, mtime);
+    }
+
+    @Test
+    public void reordersSamplesIntoPresentationOrder() {
+        FrameIndex index = generate(1, 1);
+        assertEquals(FRAMES, index.getFrameCount());
+        assertEquals(FRAMES / GOP, index.getSyncCount());
+        for (int i = 0; i < FRAMES; i++) {
+            assertEquals(i * FRAME_US, index.frameTimeAt(i * FRAME_US));
+        }
+    }
+
+    @Test
+    public void frameTimeAtFloorsToDisplayedFrame() {
+        FrameIndex index = generate(1, 1);
+        assertEquals(0, index.frameTimeAt(-5));
+        assertEquals(0, index.frameTimeAt(FRAME_US - 1));
+        assertEquals(10 * FRAME_US, index.frameTimeAt(10 * FRAME_US + FRAME_US / 2));
+        assertEquals((FRAMES - 1) * FRAME_US, index.frameTimeAt(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void syncTimeForPicksPrecedingKeyframe() {
+        FrameIndex index = generate(1, 1);
+        assertEquals(0, index.syncTimeFor(0));
+        assertEquals(0, index.syncTimeFor((GOP - 1) * FRAME_US));
+        assertEquals(GOP * FRAME_US, index.syncTimeFor(GOP * FRAME_US));
+        assertEquals(2 * GOP * FRAME_US, index.syncTimeFor((2 * GOP + 7) * FRAME_US));
+    }
+
+    @Test
+    public void framesToDecodeCountsFromKeyframe() {
+        FrameIndex index = generate(1, 1);
+        assertEquals(1, index.framesToDecode(GOP * FRAME_US));
+        assertEquals(8, index.framesToDecode((GOP + 7) * FRAME_US));
+        assertEquals(GOP, index.framesToDecode((2 * GOP - 1) * FRAME_US));
+        // 任意位置都不超过一个 GOP
+        for (int i = 0; i < FRAMES; i++) {
+            assertTrue(index.framesToDecode(i * FRAME_US) <= GOP);
+        }
+    }
+
+    @Test
+    public void emptyIndexHasNoFrames() {
+        FrameIndex index = new FrameIndex.Builder().build(0, 0);
+        assertEquals(-1, index.frameTimeAt(0));
+        assertEquals(-1, index.syncTimeFor(0));
+        assertEquals(0, index.framesToDecode(0));
+    }
+
+    @Test
+    public void roundTripsThroughStream() throws Exception {
+        FrameIndex index = generate(123_456L, 1_700_000_000_000L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        // 每个样本 4 字节差值 + 定长头
+        assertTrue(out.size() < (FRAMES + FRAMES / GOP) * 4 + 64);
+
+        FrameIndex copy = FrameIndex.read(new ByteArrayInputStream(out.toByteArray()), 123_456L,
+                1_700_000_000_000L);
+        assertNotNull(copy);
+        assertTrue(copy.matches(123_456L, 1_700_000_000_000L));
+        assertEquals(index.getFrameCount(), copy.getFrameCount());
+        assertEquals(index.getSyncCount(), copy.getSyncCount());
+        for (long t = 0; t < FRAMES * FRAME_US; t += FRAME_US / 3) {
+            assertEquals(index.frameTimeAt(t), copy.frameTimeAt(t));
+            assertEquals(index.syncTimeFor(t), copy.syncTimeFor(t));
+        }
+    }
+
+    @Test
+    public void rejectsStaleKeyAndTruncatedData() throws Exception {
+        FrameIndex index = generate(10, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        byte[] bytes = out.toByteArray();
+
+        // 视频被替换（大小或修改时间变化）后旧索引作废
+        assertNull(FrameIndex.read(new ByteArrayInputStream(bytes), 11, 20));
+        assertNull(FrameIndex.read(new ByteArrayInputStream(bytes), 10, 21));
+        assertNull(FrameIndex.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)), 10, 20));
+        byte[] garbage = bytes.clone();
+        garbage[0] ^= 0x7F;
+        assertNull(FrameIndex.read(new ByteArrayInputStream(garbage), 10, 20));
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameSchedulerTest {
+
+    private static final long FRAME_US = 16_667L;
+
+    /** 虚拟时钟：sleep 直接推进时间，投递时刻只由 PTS 和 sink 耗时决定 */
+    private static final class FakeClock implements FrameScheduler.Clock {
+        long now = 1_000_000_000L;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleepNanos(long nanos) {
+            now += nanos;
+        }
+    }
+
+    private static long[] ptsRange(int from, int count) {
+        long[] pts = new long[count];
+        for (int i = 0; i < count; i++) {
+            pts[i] = (from + i) * FRAME_US;
+        }
+        return pts;
+    }
+
+    /** 解码端始终把环填满（与实际解码领先时一致），调度端逐帧处理，直到所有帧投递或丢弃 */
+    private static void run(FrameScheduler scheduler, int depth, long... ptsUs) throws InterruptedException {
+        int queued = 0;
+        int handled = 0;
+        while (handled < ptsUs.length) {
+            while (queued < ptsUs.length && queued - handled < depth) {
+                FrameScheduler.Frame frame = scheduler.obtain();
+                assertNotNull(frame);
+                frame.ensureCapacity(16)[0] = (byte) queued;
+                frame.ptsUs = ptsUs[queued++];
+                scheduler.queue(frame);
+            }
+            assertTrue(scheduler.pump(0));
+            handled++;
+        }
+        assertFalse(scheduler.pump(0));
+    }
+
+    @Test
+    public void releasesFramesOnPresentationClock() throws Exception {
+        final FakeClock clock = new FakeClock();
+        final List<Long> times = new ArrayList<>();
+        FrameScheduler scheduler = new FrameScheduler(4, frame -> times.add(clock.now), "test-schedule", clock);
+        scheduler.startManual();
+        long start = clock.now;
+        run(scheduler, 4, ptsRange(0, 30));
+
+        assertEquals(30, scheduler.getDeliveredCount());
+        assertEquals(0, scheduler.getDroppedCount());
+        assertEquals(0, scheduler.getLateCount());
+        // 每帧恰好在首帧时刻 + PTS 投递
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(start + i * FRAME_US * 1000L, (long) times.get(i));
+        }
+    }
+
+    @Test
+    public void slowSinkDropsLateFramesInsteadOfFallingBehind() throws Exception {
+        final FakeClock clock = new FakeClock();
+        final List<Long> delivered = new ArrayList<>();
+        FrameScheduler scheduler = new FrameScheduler(4, frame -> {
+            delivered.add(frame.ptsUs);
+            clock.now += 40_000_000L;
+        }, "test-schedule", clock);
+        scheduler.startManual();
+        long start = clock.now;
+        run(scheduler, 4, ptsRange(0, 60));
+
+        assertEquals(60, scheduler.getDeliveredCount() + scheduler.getDroppedCount());
+        assertTrue("dropped " + scheduler.getDroppedCount(), scheduler.getDroppedCount() > 20);
+        assertTrue(scheduler.getLateCount() > 0);
+        // 跟上时钟：总时长不超过末帧 PTS 加两次 sink 耗时，而不是 60 × 40ms
+        long elapsedNs = clock.now - start;
+        assertTrue("elapsed " + elapsedNs, elapsedNs <= 59 * FRAME_US * 1000L + 2 * 40_000_000L);
+        for (int i = 1; i < delivered.size(); i++) {
+            assertTrue(delivered.get(i) > delivered.get(i - 1));
+        }
+    }
+
+    @Test
+    public void ptsRewindOnLoopRealignsClock() throws Exception {
+        FakeClock clock = new FakeClock();
+        FrameScheduler scheduler = new FrameScheduler(4, frame -> {
+        }, "test-schedule", clock);
+        scheduler.startManual();
+        long start = clock.now;
+        long[] loop = new long[12];
+        System.arraycopy(ptsRange(0, 6), 0, loop, 0, 6);
+        System.arraycopy(ptsRange(0, 6), 0, loop, 6, 6);
+        run(scheduler, 4, loop);
+
+        assertEquals(12, scheduler.getDeliveredCount());
+        assertEquals(0, scheduler.getDroppedCount());
+        // 回退的首帧立即投递并重新对齐：两轮各 5 个帧间隔
+        assertEquals(10 * FRAME_US * 1000L, clock.now - start);
+    }
+
+    @Test
+    public void decodeAheadIsBoundedByRingDepth() throws Exception {
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final FrameScheduler scheduler = new FrameScheduler(4, frame -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "test-schedule");
+        scheduler.start();
+        try {
+            for (long pts : ptsRange(0, 4)) {
+                FrameScheduler.Frame frame = scheduler.obtain();
+                frame.ptsUs = pts;
+                scheduler.queue(frame);
+            }
+            final AtomicReference<FrameScheduler.Frame> fifth = new AtomicReference<>();
+            Thread decoder = new Thread(() -> {
+                try {
+                    fifth.set(scheduler.obtain());
+                } catch (InterruptedException ignored) {
+                }
+            });
+            decoder.start();
+            decoder.join(300);
+            assertTrue(decoder.isAlive());
+            assertNull(fifth.get());
+            unblock.countDown();
+            decoder.join(2000);
+            assertFalse(decoder.isAlive());
+            assertNotNull(fifth.get());
+        } finally {
+            unblock.countDown();
+            scheduler.stop();
+        }
+        assertNull(scheduler.obtain());
+    }
+}
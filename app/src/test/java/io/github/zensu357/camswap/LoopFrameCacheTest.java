@@ -0,0 +1,118 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoopFrameCacheTest {
+
+    private static final long TARGET = (640L << 32) | 480;
+
+    private static void recordPass(LoopFrameCache cache, int frames, int size, int rotation) {
+        cache.beginPass();
+        byte[] scratch = new byte[size + 8];
+        for (int i = 0; i < frames; i++) {
+            scratch[0] = (byte) i;
+            cache.record(scratch, size, 640, 480, i * 33_333L, rotation, TARGET);
+        }
+    }
+
+    @Test
+    public void completedPassIsReplayable() {
+        LoopFrameCache cache = new LoopFrameCache(1024 * 1024);
+        recordPass(cache, 90, 1000, 90);
+        assertTrue(cache.endPass());
+        assertEquals(90, cache.getFrameCount());
+        assertEquals(90_000, cache.getBytes());
+        LoopFrameCache.Entry entry = cache.get(5);
+        assertEquals(1000, entry.size);
+        assertTrue(entry.slab.buffer().isDirect());
+        byte[] out = new byte[1000];
+        cache.read(5, out);
+        assertEquals(5, out[0]);
+        assertEquals(5 * 33_333L, entry.ptsUs);
+        assertTrue(cache.matches(90, TARGET));
+        assertFalse(cache.matches(180, TARGET));
+
+        // 完成后后续遍不再录制
+        cache.beginPass();
+        cache.record(new byte[1000], 1000, 640, 480, 0, 90, TARGET);
+        assertEquals(90, cache.getFrameCount());
+    }
+
+    @Test
+    public void recordCopiesSourceBuffer() {
+        LoopFrameCache cache = new LoopFrameCache(64 * 1024);
+        byte[] ring = { 1, 2, 3, 4 };
+        cache.beginPass();
+        cache.record(ring, 3, 2, 1, 0, 0, TARGET);
+        ring[0] = 9;
+        assertTrue(cache.endPass());
+        byte[] out = new byte[3];
+        cache.read(0, out);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, out);
+    }
+
+    @Test
+    public void overBudgetDisablesCacheForSource() {
+        // 每帧占一个 4KB slab：预算只够 4 帧
+        long budget = 4 * FrameArena.classCapacity(FrameArena.classOf(1000));
+        LoopFrameCache cache = new LoopFrameCache(budget);
+        recordPass(cache, 20, 1000, 0);
+        assertFalse(cache.endPass());
+        assertEquals(LoopFrameCache.State.OVER_BUDGET, cache.getState());
+        assertEquals(0, cache.getBytes());
+        recordPass(cache, 5, 1000, 0);
+        assertFalse(cache.endPass());
+
+        cache.reset(budget, 0);
+        recordPass(cache, 4, 1000, 0);
+        assertTrue(cache.endPass());
+    }
+
+    @Test
+    public void knownFrameCountOverBudgetIsRefusedOnFirstFrame() {
+        long slab = FrameArena.classCapacity(FrameArena.classOf(1000));
+        LoopFrameCache cache = new LoopFrameCache(0);
+        cache.reset(10 * slab, 11);
+        cache.beginPass();
+        cache.record(new byte[1000], 1000, 640, 480, 0, 0, TARGET);
+        assertEquals(LoopFrameCache.State.OVER_BUDGET, cache.getState());
+        assertEquals(0, cache.getFrameCount());
+        assertEquals(0, cache.getBytes());
+
+        cache.reset(10 * slab, 10);
+        recordPass(cache, 10, 1000, 0);
+        assertTrue(cache.endPass());
+        assertEquals(10, cache.getFrameCount());
+    }
+
+    @Test
+    public void rotationChangeMidPassRestartsNextPass() {
+        LoopFrameCache cache = new LoopFrameCache(1024 * 1024);
+        cache.beginPass();
+        cache.record(new byte[100], 100, 640, 480, 0, 0, TARGET);
+        cache.record(new byte[100], 100, 640, 480, 33_333L, 90, TARGET);
+        assertFalse(cache.endPass());
+        assertEquals(0, cache.getFrameCount());
+
+        recordPass(cache, 10, 100, 90);
+        assertTrue(cache.endPass());
+        cache.invalidate();
+        assertEquals(LoopFrameCache.State.IDLE, cache.getState());
+        recordPass(cache, 10, 100, 180);
+        assertTrue(cache.endPass());
+        assertTrue(cache.matches(180, TARGET));
+    }
+
+    @Test
+    public void zeroBudgetNeverRecords() {
+        LoopFrameCache cache = new LoopFrameCache(0);
+        recordPass(cache, 3, 10, 0);
+        assertFalse(cache.endPass());
+        assertEquals(LoopFrameCache.State.IDLE, cache.getState());
+    }
+}
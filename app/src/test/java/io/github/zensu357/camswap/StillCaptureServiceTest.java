@@ -0,0 +1,187 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StillCaptureServiceTest {
+
+    /** 假编码器：输出大小 = 像素数 * bytesPerPixel * 质量曲线，内容为帧号 */
+    private static class FakeSource implements StillCaptureService.Source {
+        final AtomicLong generation = new AtomicLong(1);
+        final AtomicInteger encodes = new AtomicInteger();
+        volatile float bytesPerPixel = 0.5f;
+        volatile int lastQuality;
+
+        @Override
+        public long currentGeneration() {
+            return generation.get();
+        }
+
+        @Override
+        public boolean encode(int width, int height, int quality, ByteArrayOutputStream out) {
+            encodes.incrementAndGet();
+            lastQuality = quality;
+            int size = (int) (width * height * bytesPerPixel * StillCaptureService.QualityModel.relative(quality));
+            byte value = (byte) generation.get();
+            for (int i = 0; i < size; i++) {
+                out.write(value);
+            }
+            return true;
+        }
+    }
+
+    @Test
+    public void burstIsServedFromRingWithoutReencoding() {
+        FakeSource source = new FakeSource();
+        StillCaptureService service = new StillCaptureService(source, "test");
+        byte[] first = service.take(64, 48, 0);
+        assertNotNull(first);
+        for (int i = 0; i < 5; i++) {
+            assertSame(first, service.take(64, 48, 0));
+        }
+        assertEquals(1, source.encodes.get());
+        assertEquals(1, service.getMissCount());
+        assertEquals(5, service.getHitCount());
+
+        // 尺寸变化不能复用环中的照片
+        assertNotNull(service.take(32, 24, 0));
+        assertEquals(2, source.encodes.get());
+    }
+
+    @Test
+    public void noFrameMeansNoPhoto() {
+        FakeSource source = new FakeSource();
+        source.generation.set(0);
+        StillCaptureService service = new StillCaptureService(source, "test");
+        assertNull(service.take(64, 48, 0));
+        assertEquals(0, source.encodes.get());
+    }
+
+    @Test
+    public void backgroundPreEncodesNewFrames() throws Exception {
+        FakeSource source = new FakeSource();
+        StillCaptureService service = new StillCaptureService(source, "test");
+        service.start(64, 48, 0);
+        try {
+            waitFor(() -> source.encodes.get() >= 1);
+            // 帧未变化时后台不重复编码
+            Thread.sleep(StillCaptureService.ENCODE_INTERVAL_MS * 2);
+            assertEquals(1, source.encodes.get());
+
+            source.generation.set(2);
+            waitFor(() -> source.encodes.get() >= 2);
+            byte[] jpeg = service.take(64, 48, 0);
+            assertEquals(2, jpeg[0]);
+            assertEquals(0, service.getMissCount());
+        } finally {
+            service.stop();
+        }
+        assertNull(service.latest(64, 48, 0, 0));
+    }
+
+    @Test
+    public void qualityIsFittedToBudgetInOneStep() {
+        FakeSource source = new FakeSource();
+        StillCaptureService service = new StillCaptureService(source, "test");
+        int width = 200, height = 100;
+        int budget = (int) (width * height * 0.5f * 0.6f);
+
+        byte[] jpeg = service.take(width, height, budget);
+        assertNotNull(jpeg);
+        assertTrue(jpeg.length <= budget);
+        // 先验偏乐观时最多校准一次
+        assertTrue(service.getRefitCount() <= 1);
+
+        // 模型已校准：后续新帧一次编码即落在预算内
+        long refits = service.getRefitCount();
+        for (int g = 2; g < 6; g++) {
+            source.generation.set(g);
+            int before = source.encodes.get();
+            // 换一个尺寸，确保不命中环而是真的编码
+            jpeg = service.take(width + g * 2, height, budget);
+            assertNotNull(jpeg);
+            assertTrue(jpeg.length <= budget);
+            assertEquals(before + 1, source.encodes.get());
+        }
+        assertEquals(refits, service.getRefitCount());
+        assertTrue(source.lastQuality < StillCaptureService.QualityModel.MAX_QUALITY);
+    }
+
+    @Test
+    public void overshootAfterRefitFallsBackToMinimumQuality() {
+        FakeSource source = new FakeSource() {
+            @Override
+            public boolean encode(int width, int height, int quality, ByteArrayOutputStream out) {
+                // 校准后的第二次编码时内容变复杂，校准出的质量仍超出预算
+                if (encodes.get() == 1) {
+                    bytesPerPixel = 0.8f;
+                }
+                return super.encode(width, height, quality, out);
+            }
+        };
+        StillCaptureService service = new StillCaptureService(source, "test");
+        int width = 200, height = 100;
+        int budget = (int) (width * height * 0.5f * 0.6f);
+
+        byte[] jpeg = service.take(width, height, budget);
+        assertNotNull(jpeg);
+        assertTrue(jpeg.length <= budget);
+        assertEquals(3, source.encodes.get());
+        assertEquals(1, service.getRefitCount());
+        assertEquals(1, service.getFloorCount());
+        assertEquals(StillCaptureService.QualityModel.MIN_QUALITY, source.lastQuality);
+    }
+
+    @Test
+    public void qualityModelPicksHighestQualityWithinBudget() {
+        StillCaptureService.QualityModel model = new StillCaptureService.QualityModel();
+        model.observe(92, 1000, 300);
+        assertEquals(StillCaptureService.QualityModel.MAX_QUALITY, model.pick(1000, 0));
+        assertEquals(StillCaptureService.QualityModel.MAX_QUALITY, model.pick(1000, 1000));
+        int previous = StillCaptureService.QualityModel.MIN_QUALITY;
+        for (int budget = 50; budget <= 400; budget += 10) {
+            int quality = model.pick(1000, budget);
+            assertTrue(quality >= previous);
+            previous = quality;
+        }
+        assertEquals(StillCaptureService.QualityModel.MIN_QUALITY, model.pick(1000, 10));
+    }
+
+    @Test
+    public void shutterLatencyIsMeasuredOncePerShot() throws Exception {
+        StillCaptureService service = new StillCaptureService(new FakeSource(), "test");
+        service.markDelivered();
+        assertEquals(0, service.getShotCount());
+
+        service.markShutter();
+        Thread.sleep(20);
+        // 连拍的第二次快门不覆盖尚未送达的起点
+        service.markShutter();
+        service.markDelivered();
+        service.markDelivered();
+        assertEquals(1, service.getShotCount());
+        assertTrue(service.getAverageLatencyMs() >= 20);
+        assertEquals(service.getAverageLatencyMs(), service.getMaxLatencyMs());
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.met()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.zensu357.camswap;
+
+import android.media.ExifInterface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StillImageSourceTest {
+
+    @Test
+    public void sampleSizeKeepsLongSideWithinLimit() {
+        assertEquals(1, StillImageSource.sampleSize(1920, 1080, 2048));
+        assertEquals(1, StillImageSource.sampleSize(2048, 1536, 2048));
+        assertEquals(2, StillImageSource.sampleSize(4000, 3000, 2048));
+        assertEquals(4, StillImageSource.sampleSize(3000, 8192 + 1, 2048));
+    }
+
+    @Test
+    public void coverScaleFillsTargetAfterRotation() {
+        // 横图铺满横向目标：按较大的缩放比例，多出的部分被裁掉
+        assertEquals(0.5f, StillImageSource.coverScale(1280, 720, 0, 640, 360), 1e-6f);
+        assertEquals(1f, StillImageSource.coverScale(1280, 720, 0, 1280, 480), 1e-6f);
+        // 旋转 90° 后宽高互换
+        assertEquals(1280f / 720f, StillImageSource.coverScale(1280, 720, 90, 1280, 720), 1e-6f);
+        assertEquals(StillImageSource.coverScale(1280, 720, 90, 480, 640),
+                StillImageSource.coverScale(720, 1280, 0, 480, 640), 1e-6f);
+    }
+
+    @Test
+    public void exifOrientationMapsToClockwiseDegrees() {
+        assertEquals(0, StillImageSource.exifDegrees(ExifInterface.ORIENTATION_NORMAL));
+        assertEquals(0, StillImageSource.exifDegrees(ExifInterface.ORIENTATION_UNDEFINED));
+        assertEquals(90, StillImageSource.exifDegrees(ExifInterface.ORIENTATION_ROTATE_90));
+        assertEquals(180, StillImageSource.exifDegrees(ExifInterface.ORIENTATION_ROTATE_180));
+        assertEquals(270, StillImageSource.exifDegrees(ExifInterface.ORIENTATION_ROTATE_270));
+        assertEquals(90, StillImageSource.exifDegrees(ExifInterface.ORIENTATION_TRANSPOSE));
+    }
+}
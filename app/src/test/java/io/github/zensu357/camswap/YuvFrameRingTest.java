@@ -0,0 +1,164 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import io.github.zensu357.camswap.yuv.YuvConvert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class YuvFrameRingTest {
+
+    private static final int W = 1920;
+    private static final int H = 1080;
+    private static final int FRAME = YuvConvert.frameSize(W, H);
+
+    @Test
+    public void heldFrameIsNeverOverwritten() {
+        YuvFrameRing ring = new YuvFrameRing(new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES), 3);
+        assertNull(ring.acquireLatest());
+        publish(ring, 1);
+        MediaCodecYuvDecoder.YuvFrame held = ring.acquireLatest();
+        assertNotNull(held);
+        for (int i = 2; i < 20; i++) {
+            publish(ring, i);
+        }
+        assertEquals(1, held.slab.buffer().get(0));
+        assertEquals(1L, held.timestampNs);
+
+        MediaCodecYuvDecoder.YuvFrame latest = ring.acquireLatest();
+        assertNotSame(held, latest);
+        assertEquals(19, latest.slab.buffer().get(0));
+        latest.release();
+        held.release();
+    }
+
+    @Test
+    public void claimFailsOnlyWhenReadersHoldEverySlot() {
+        YuvFrameRing ring = new YuvFrameRing(new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES), 2);
+        publish(ring, 1);
+        MediaCodecYuvDecoder.YuvFrame first = ring.acquireLatest();
+        publish(ring, 2);
+        MediaCodecYuvDecoder.YuvFrame second = ring.acquireLatest();
+
+        assertNull(ring.claim(FRAME));
+        assertEquals(1, ring.getClaimMissCount());
+
+        first.release();
+        MediaCodecYuvDecoder.YuvFrame reused = ring.claim(FRAME);
+        assertSame(first, reused);
+        ring.abandon(reused);
+        second.release();
+    }
+
+    @Test
+    public void growingFrameSwapsInLargerSlab() {
+        FrameArena arena = new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES);
+        YuvFrameRing ring = new YuvFrameRing(arena, 1);
+        MediaCodecYuvDecoder.YuvFrame frame = ring.claim(YuvConvert.frameSize(640, 480));
+        ring.publish(frame, 640, 480, 0);
+        ring.clear();
+        MediaCodecYuvDecoder.YuvFrame bigger = ring.claim(FRAME);
+        assertSame(frame, bigger);
+        assertTrue(bigger.slab.capacity() >= FRAME);
+        assertEquals(FRAME, bigger.slab.size());
+        ring.publish(bigger, W, H, 0);
+        ring.close();
+        // 环关闭后 slab 已回到 arena，可再次命中
+        long hits = arena.getHitCount();
+        FrameArena.Slab again = arena.acquire(FRAME);
+        assertEquals(hits + 1, arena.getHitCount());
+        again.release();
+    }
+
+    @Test
+    public void publishAfterCloseReturnsClaimedSlab() {
+        FrameArena arena = new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES);
+        YuvFrameRing ring = new YuvFrameRing(arena, 2);
+        publish(ring, 1);
+        // 解码线程没能在 stop 的等待内退出：认领后环被关闭，再发布
+        MediaCodecYuvDecoder.YuvFrame late = ring.claim(FRAME);
+        ring.close();
+        assertNull(ring.claim(FRAME));
+        ring.publish(late, W, H, 2);
+        assertNull(ring.acquireLatest());
+        // 两块 slab 都已回到 arena
+        long hits = arena.getHitCount();
+        arena.acquire(FRAME).release();
+        FrameArena.Slab a = arena.acquire(FRAME);
+        FrameArena.Slab b = arena.acquire(FRAME);
+        assertEquals(hits + 3, arena.getHitCount());
+        a.release();
+        b.release();
+    }
+
+    /**
+     * 模拟解码回调：每帧从带跨度的 NV12 平面打包进环并发布，读者取帧后释放。
+     * 预热后稳态循环的分配字节数应为 0。
+     */
+    @Test
+    public void steadyStateDecodeAllocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long tid = Thread.currentThread().getId();
+
+        int stride = W + 64;
+        ByteBuffer y = ByteBuffer.allocateDirect(stride * H);
+        ByteBuffer uv = ByteBuffer.allocateDirect(stride * H / 2);
+        ByteBuffer v = uv.duplicate();
+        v.position(1);
+        v = v.slice();
+        byte[] row = new byte[stride];
+        YuvFrameRing ring = new YuvFrameRing(new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES),
+                YuvFrameRing.DEFAULT_SLOTS);
+
+        for (int i = 0; i < 50; i++) {
+            decodeAndRead(ring, y, uv, v, stride, row, i);
+        }
+        long idle = threads.getThreadAllocatedBytes(tid);
+        long overhead = threads.getThreadAllocatedBytes(tid) - idle;
+        int frames = 200;
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < frames; i++) {
+            decodeAndRead(ring, y, uv, v, stride, row, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - before - overhead;
+
+        System.out.println("[YuvFrameRing] " + frames + " frames @" + W + "x" + H + ": " + allocated
+                + " B allocated");
+        assertEquals(0, allocated);
+        assertEquals(0, ring.getClaimMissCount());
+        ring.close();
+    }
+
+    private static void decodeAndRead(YuvFrameRing ring, ByteBuffer y, ByteBuffer u, ByteBuffer v,
+            int stride, byte[] row, int index) {
+        MediaCodecYuvDecoder.YuvFrame frame = ring.claim(FRAME);
+        YuvConvert.packI420(y, stride, 1, u, v, stride, 2, W, H, frame.slab.buffer(), row);
+        frame.slab.buffer().put(0, (byte) index);
+        ring.publish(frame, W, H, index);
+        MediaCodecYuvDecoder.YuvFrame read = ring.acquireLatest();
+        if (read.slab.buffer().get(0) != (byte) index) {
+            throw new AssertionError("stale frame");
+        }
+        read.release();
+    }
+
+    private static void publish(YuvFrameRing ring, int marker) {
+        MediaCodecYuvDecoder.YuvFrame frame = ring.claim(FRAME);
+        assertNotNull(frame);
+        frame.slab.buffer().put(0, (byte) marker);
+        ring.publish(frame, W, H, marker);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.zensu357.camswap;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class YuvVariantCacheTest {
+
+    @Test
+    public void eachVariantRendersOncePerGeneration() {
+        YuvVariantCache cache = new YuvVariantCache(new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES));
+        AtomicInteger renders = new AtomicInteger();
+        YuvVariantCache.Renderer renderer = (dst, scratch) -> renders.incrementAndGet();
+
+        // 两个 reader（640x480 与 1280x720）各刷新 3 次
+        for (int i = 0; i < 3; i++) {
+            cache.acquire(1, 640, 480, 0, renderer).release();
+            cache.acquire(1, 1280, 720, 0, renderer).release();
+        }
+        assertEquals(2, renders.get());
+        assertEquals(4, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(4f / 6f, cache.getHitRate(), 1e-6f);
+
+        // 旋转不同视为不同变体
+        cache.acquire(1, 640, 480, 90, renderer).release();
+        assertEquals(3, renders.get());
+    }
+
+    @Test
+    public void nextGenerationEvictsButHoldersKeepTheirSlab() {
+        FrameArena arena = new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES);
+        YuvVariantCache cache = new YuvVariantCache(arena);
+        FrameArena.Slab held = cache.acquire(1, 64, 48, 0, (dst, scratch) -> dst.put(0, (byte) 1));
+        FrameArena.Slab next = cache.acquire(2, 64, 48, 0, (dst, scratch) -> dst.put(0, (byte) 2));
+        assertNotSame(held, next);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, held.buffer().get(0));
+        assertTrue(held.tryRetain());
+        held.release();
+        held.release();
+        next.release();
+
+        cache.clear();
+        assertEquals(2, cache.getEvictionCount());
+        // 两个 slab 都已回到 arena
+        FrameArena.Slab reused = arena.acquire(next.size());
+        assertTrue(reused == held || reused == next);
+        reused.release();
+    }
+
+    @Test
+    public void overflowEvictsOldestVariant() {
+        YuvVariantCache cache = new YuvVariantCache(new FrameArena(FrameArena.DEFAULT_BUDGET_BYTES));
+        YuvVariantCache.Renderer renderer = (dst, scratch) -> { };
+        FrameArena.Slab first = cache.acquire(7, 16, 16, 0, renderer);
+        first.release();
+        for (int i = 1; i <= YuvVariantCache.MAX_VARIANTS; i++) {
+            cache.acquire(7, 16 + 2 * i, 16, 0, renderer).release();
+        }
+        assertEquals(1, cache.getEvictionCount());
+        FrameArena.Slab again = cache.acquire(7, 16, 16, 0, renderer);
+        assertEquals(YuvVariantCache.MAX_VARIANTS + 2, cache.getMissCount());
+        FrameArena.Slab last = cache.acquire(7, 16 + 2 * YuvVariantCache.MAX_VARIANTS, 16, 0, renderer);
+        assertSame(last, cache.acquire(7, 16 + 2 * YuvVariantCache.MAX_VARIANTS, 16, 0, renderer));
+        again.release();
+        last.release();
+        last.release();
+    }
+}
@@ -0,0 +1,259 @@
+package io.github.zensu357.camswap.codec;
+
+import android.media.MediaCodec;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CodecDriverTest {
+
+    private static final long FRAME_US = 33_333L;
+
+    /** count 个样本，PTS 按 30fps 递增 */
+    private static final class SampleFeeder implements InputFeeder {
+        private final int count;
+        private int position;
+
+        SampleFeeder(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int readSample(ByteBuffer buffer) {
+            if (position >= count) {
+                return -1;
+            }
+            buffer.putInt(position);
+            return 4;
+        }
+
+        @Override
+        public long getSampleTimeUs() {
+            return position * FRAME_US;
+        }
+
+        @Override
+        public void advance() {
+            position++;
+        }
+
+        @Override
+        public void seekToStart() {
+            position = 0;
+        }
+    }
+
+    private static class RecordingSink implements OutputSink {
+        final FakeCodec codec;
+        final List<Long> pts = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> latencyNs = Collections.synchronizedList(new ArrayList<>());
+        int loopsWanted;
+
+        RecordingSink(FakeCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public void onOutputBuffer(CodecPort port, int index, int offset, int size, long presentationTimeUs,
+                int flags) {
+            latencyNs.add(codec.latencyNs(index));
+            pts.add(presentationTimeUs);
+            port.releaseOutputBuffer(index, false);
+        }
+
+        @Override
+        public boolean onEndOfStream() {
+            return loopsWanted-- > 0;
+        }
+    }
+
+    private static CodecDriver run(FakeCodec codec, InputFeeder feeder, OutputSink sink) {
+        CodecDriver driver = new CodecDriver(codec, feeder, sink);
+        codec.start(driver);
+        return driver;
+    }
+
+    @Test
+    public void decodesEverySampleInOrderThenEnds() throws Exception {
+        FakeCodec codec = new FakeCodec(4, 500, 0, true);
+        RecordingSink sink = new RecordingSink(codec);
+        try {
+            CodecDriver driver = run(codec, new SampleFeeder(30), sink);
+            assertTrue(driver.awaitEnd(5000));
+            assertNull(driver.getError());
+            assertEquals(30, driver.getInputCount());
+            assertEquals(30, driver.getOutputCount());
+        } finally {
+            codec.shutdown();
+        }
+        assertEquals(30, sink.pts.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i * FRAME_US, (long) sink.pts.get(i));
+        }
+    }
+
+    @Test
+    public void sinkCanLoopWithFlush() throws Exception {
+        FakeCodec codec = new FakeCodec(4, 300, 2_000, true);
+        RecordingSink sink = new RecordingSink(codec);
+        sink.loopsWanted = 2;
+        CodecDriver driver;
+        try {
+            driver = run(codec, new SampleFeeder(20), sink);
+            assertTrue(driver.awaitEnd(5000));
+        } finally {
+            codec.shutdown();
+        }
+        assertNull(driver.getError());
+        assertEquals(2, driver.getLoopCount());
+        assertEquals(60, sink.pts.size());
+        for (int i = 0; i < 60; i++) {
+            assertEquals((i % 20) * FRAME_US, (long) sink.pts.get(i));
+        }
+    }
+
+    @Test
+    public void sinkFailureEndsWithError() throws Exception {
+        FakeCodec codec = new FakeCodec(2, 200, 0, true);
+        CodecDriver driver;
+        try {
+            driver = run(codec, new SampleFeeder(10), (port, index, offset, size, pts, flags) -> {
+                throw new IllegalStateException("sink");
+            });
+            assertTrue(driver.awaitEnd(5000));
+        } finally {
+            codec.shutdown();
+        }
+        assertNotNull(driver.getError());
+        assertEquals(1, driver.getOutputCount());
+    }
+
+    @Test
+    public void stopIgnoresLaterCallbacks() throws Exception {
+        FakeCodec codec = new FakeCodec(4, 2_000, 0, true);
+        RecordingSink sink = new RecordingSink(codec);
+        CodecDriver driver;
+        try {
+            driver = run(codec, new SampleFeeder(1000), sink);
+            Thread.sleep(30);
+            driver.stop();
+            assertTrue(driver.isEnded());
+            // 已在执行中的回调允许完成
+            Thread.sleep(10);
+            int seen = sink.pts.size();
+            Thread.sleep(30);
+            assertEquals(seen, sink.pts.size());
+            assertFalse(driver.getInputCount() >= 1000);
+        } finally {
+            codec.shutdown();
+        }
+    }
+
+    /**
+     * 旧实现的轮询循环（dequeueInputBuffer / dequeueOutputBuffer 各 10ms 超时）与回调驱动对比：
+     * 输出从产出到交给 sink 的延迟、线程数与唤醒次数。
+     */
+    @Test
+    public void callbackDriverVersusTimeoutPolling() throws Exception {
+        int frames = 120;
+        long decodeUs = 8_000;
+        long holdUs = 8_000;
+        int baseThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        // 旧：单线程轮询
+        FakeCodec polled = new FakeCodec(4, decodeUs, holdUs, false);
+        List<Long> pollLatency = new ArrayList<>();
+        int pollWakeups = 0;
+        int pollThreads;
+        polled.start();
+        try {
+            SampleFeeder feeder = new SampleFeeder(frames);
+            boolean inputDone = false;
+            int peakThreads = 0;
+            while (true) {
+                pollWakeups++;
+                if (!inputDone) {
+                    int in = polled.dequeueInputBuffer(10_000);
+                    if (in >= 0) {
+                        ByteBuffer buffer = polled.getInputBuffer(in);
+                        buffer.clear();
+                        int size = feeder.readSample(buffer);
+                        if (size < 0) {
+                            polled.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            polled.queueInputBuffer(in, 0, size, feeder.getSampleTimeUs(), 0);
+                            feeder.advance();
+                        }
+                    }
+                }
+                FakeCodec.Output out = polled.dequeueOutputBuffer(10_000);
+                if (out != null) {
+                    if (out.size > 0) {
+                        pollLatency.add(polled.latencyNs(out.index));
+                    }
+                    polled.releaseOutputBuffer(out.index, false);
+                    if ((out.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                }
+                peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+            }
+            pollThreads = peakThreads - baseThreads;
+        } finally {
+            polled.shutdown();
+        }
+
+        // 新：回调驱动，调用线程挂起等待
+        FakeCodec async = new FakeCodec(4, decodeUs, holdUs, true);
+        RecordingSink sink = new RecordingSink(async);
+        int asyncThreads;
+        try {
+            CodecDriver driver = run(async, new SampleFeeder(frames), sink);
+            Thread.sleep(20);
+            asyncThreads = ManagementFactory.getThreadMXBean().getThreadCount() - baseThreads;
+            assertTrue(driver.awaitEnd(10_000));
+            assertNull(driver.getError());
+        } finally {
+            async.shutdown();
+        }
+
+        assertEquals(frames, pollLatency.size());
+        assertEquals(frames, sink.latencyNs.size());
+        double pollMean = meanMs(pollLatency);
+        double asyncMean = meanMs(sink.latencyNs);
+        System.out.printf("[CodecDriver] %d frames: polling mean %.2fms max %.2fms, %d wakeups, +%d threads;"
+                        + " callback mean %.2fms max %.2fms, %d callbacks, +%d threads%n",
+                frames, pollMean, maxMs(pollLatency), pollWakeups, pollThreads,
+                asyncMean, maxMs(sink.latencyNs), async.getCallbackCount(), asyncThreads);
+        // 延迟对比受调度抖动影响，只断言回调路径本身足够快；数字见输出
+        assertTrue("async=" + asyncMean, asyncMean < 2.0);
+    }
+
+    private static double meanMs(List<Long> values) {
+        long sum = 0;
+        for (long v : values) {
+            sum += v;
+        }
+        return sum / 1e6 / values.size();
+    }
+
+    private static double maxMs(List<Long> values) {
+        long max = 0;
+        for (long v : values) {
+            max = Math.max(max, v);
+        }
+        return max / 1e6;
+    }
+}
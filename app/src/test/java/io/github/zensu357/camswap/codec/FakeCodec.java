@@ -0,0 +1,200 @@
+package io.github.zensu357.camswap.codec;
+
+import android.media.Image;
+import android.media.MediaCodec;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模拟硬件编解码器的时序：每帧串行耗时约 decodeUs 产出，输入 buffer 在产出后还要保留约 inputHoldUs 才归还
+ * （真实解码器会持有码流做参考），两者都带随机抖动。
+ * <p>
+ * 异步模式下事件投递到单线程 executor（相当于回调 Handler）并调用 {@link CodecDriver}；
+ * 同步模式下事件进入队列，供旧的 dequeue 轮询循环读取，用于对比。
+ */
+final class FakeCodec implements CodecPort {
+
+    static final class Output {
+        final int index;
+        final int size;
+        final long ptsUs;
+        final int flags;
+
+        Output(int index, int size, long ptsUs, int flags) {
+            this.index = index;
+            this.size = size;
+            this.ptsUs = ptsUs;
+            this.flags = flags;
+        }
+    }
+
+    private final int inputCount;
+    private final long decodeUs;
+    private final long inputHoldUs;
+    private final ByteBuffer[] inputs;
+    private final ScheduledExecutorService hardware;
+    private final ExecutorService callbackThread;
+    private final LinkedBlockingQueue<Integer> freeInputs = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<Output> outputs = new LinkedBlockingQueue<>();
+    /** 输出 index → 产出时刻，用于计算投递延迟 */
+    private final ConcurrentHashMap<Integer, Long> producedAtNs = new ConcurrentHashMap<>();
+    private final AtomicInteger outputIndex = new AtomicInteger();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicInteger callbackCount = new AtomicInteger();
+    private volatile CodecDriver driver;
+    private final java.util.Random random = new java.util.Random(1);
+    private long busyUntilNs;
+
+    FakeCodec(int inputCount, long decodeUs, long inputHoldUs, boolean async) {
+        this.inputCount = inputCount;
+        this.decodeUs = decodeUs;
+        this.inputHoldUs = inputHoldUs;
+        this.inputs = new ByteBuffer[inputCount];
+        for (int i = 0; i < inputCount; i++) {
+            inputs[i] = ByteBuffer.allocate(64);
+        }
+        this.hardware = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "fake-hw"));
+        this.callbackThread = async ? Executors.newSingleThreadExecutor(r -> new Thread(r, "fake-cb")) : null;
+    }
+
+    /** 异步模式：绑定驱动并像 start() 一样通知所有输入 buffer */
+    void start(CodecDriver driver) {
+        this.driver = driver;
+        offerAllInputs();
+    }
+
+    /** 同步模式 */
+    void start() {
+        offerAllInputs();
+    }
+
+    private void offerAllInputs() {
+        for (int i = 0; i < inputCount; i++) {
+            inputAvailable(i);
+        }
+    }
+
+    private void inputAvailable(int index) {
+        if (callbackThread == null) {
+            freeInputs.add(index);
+        } else {
+            int gen = generation.get();
+            callbackThread.execute(() -> {
+                // 与 AsyncCodec 的 flush 屏障一致：flush 前排队的回调丢弃
+                if (generation.get() != gen) {
+                    return;
+                }
+                callbackCount.incrementAndGet();
+                driver.onInputBufferAvailable(index);
+            });
+        }
+    }
+
+    private void outputAvailable(Output out) {
+        producedAtNs.put(out.index, System.nanoTime());
+        if (callbackThread == null) {
+            outputs.add(out);
+        } else {
+            int gen = generation.get();
+            callbackThread.execute(() -> {
+                if (generation.get() != gen) {
+                    return;
+                }
+                callbackCount.incrementAndGet();
+                try {
+                    driver.onOutputBufferAvailable(out.index, 0, out.size, out.ptsUs, out.flags);
+                } catch (RuntimeException e) {
+                    driver.onError(e);
+                }
+            });
+        }
+    }
+
+    int dequeueInputBuffer(long timeoutUs) throws InterruptedException {
+        Integer index = freeInputs.poll(timeoutUs, TimeUnit.MICROSECONDS);
+        return index == null ? MediaCodec.INFO_TRY_AGAIN_LATER : index;
+    }
+
+    Output dequeueOutputBuffer(long timeoutUs) throws InterruptedException {
+        return outputs.poll(timeoutUs, TimeUnit.MICROSECONDS);
+    }
+
+    /** 输出从产出到被取走的时长 */
+    long latencyNs(int index) {
+        Long produced = producedAtNs.get(index);
+        return produced == null ? 0 : System.nanoTime() - produced;
+    }
+
+    int getCallbackCount() {
+        return callbackCount.get();
+    }
+
+    void shutdown() {
+        hardware.shutdownNow();
+        if (callbackThread != null) {
+            callbackThread.shutdownNow();
+        }
+    }
+
+    @Override
+    public ByteBuffer getInputBuffer(int index) {
+        return inputs[index];
+    }
+
+    @Override
+    public synchronized void queueInputBuffer(int index, int offset, int size, long presentationTimeUs, int flags) {
+        final int gen = generation.get();
+        long now = System.nanoTime();
+        // 每帧耗时与输入持有时长在 [0.5x, 1.5x] 内抖动
+        busyUntilNs = Math.max(busyUntilNs, now) + jitter(decodeUs) * 1000L;
+        long outDelay = busyUntilNs - now;
+        int outIndex = outputIndex.getAndIncrement();
+        Output out = new Output(outIndex, size, presentationTimeUs, flags);
+        hardware.schedule(() -> {
+            if (generation.get() == gen) {
+                outputAvailable(out);
+            }
+        }, outDelay, TimeUnit.NANOSECONDS);
+        hardware.schedule(() -> {
+            if (generation.get() == gen) {
+                inputAvailable(index);
+            }
+        }, outDelay + jitter(inputHoldUs) * 1000L, TimeUnit.NANOSECONDS);
+    }
+
+    private long jitter(long us) {
+        return us / 2 + (long) (random.nextDouble() * us);
+    }
+
+    @Override
+    public ByteBuffer getOutputBuffer(int index) {
+        return null;
+    }
+
+    @Override
+    public Image getOutputImage(int index) {
+        return null;
+    }
+
+    @Override
+    public void releaseOutputBuffer(int index, boolean render) {
+        producedAtNs.remove(index);
+    }
+
+    @Override
+    public synchronized void flushAndResume() {
+        generation.incrementAndGet();
+        busyUntilNs = 0;
+        freeInputs.clear();
+        outputs.clear();
+        producedAtNs.clear();
+        offerAllInputs();
+    }
+}
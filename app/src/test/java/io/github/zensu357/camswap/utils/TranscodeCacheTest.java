@@ -0,0 +1,183 @@
+package io.github.zensu357.camswap.utils;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TranscodeCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockedStatic<Log> logMock;
+
+    @Before
+    public void setUp() {
+        logMock = Mockito.mockStatic(Log.class);
+    }
+
+    @After
+    public void tearDown() {
+        logMock.close();
+    }
+
+    /** 假转码器：输出 width 字节，可指定失败 */
+    private static final class FakeTranscoder implements TranscodeCache.Transcoder {
+        int calls;
+        boolean fail;
+
+        @Override
+        public boolean transcode(File source, TranscodeCache.Target target, File output) {
+            calls++;
+            if (fail) {
+                return false;
+            }
+            try (FileOutputStream out = new FileOutputStream(output)) {
+                out.write(new byte[target.width]);
+            } catch (IOException e) {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private File source(String name, int size) throws IOException {
+        File file = temporaryFolder.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+        return file;
+    }
+
+    @Test
+    public void targetRejectsInvalidParameters() {
+        assertNull(TranscodeCache.Target.of(0, 480, 0, 30));
+        assertNull(TranscodeCache.Target.of(641, 480, 0, 30));
+        assertNull(TranscodeCache.Target.of(640, 480, 45, 30));
+        assertNull(TranscodeCache.Target.of(8192, 480, 0, 30));
+        TranscodeCache.Target target = TranscodeCache.Target.of(640, 480, -90, 500);
+        assertNotNull(target);
+        assertEquals(270, target.rotation);
+        assertEquals(TranscodeCache.MAX_FPS, target.fps);
+        assertEquals(target, TranscodeCache.Target.of(640, 480, 270, 120));
+    }
+
+    @Test
+    public void requestGeneratesVariantOnce() throws Exception {
+        File dir = temporaryFolder.newFolder("cache");
+        FakeTranscoder transcoder = new FakeTranscoder();
+        TranscodeCache cache = new TranscodeCache(dir, 1 << 20, transcoder, Runnable::run);
+        File source = source("a.mp4", 100);
+        TranscodeCache.Target target = TranscodeCache.Target.of(640, 480, 90, 30);
+
+        assertNull(cache.find(source, target));
+        assertTrue(cache.request(source, target));
+        assertFalse(cache.request(source, target));
+        assertEquals(1, transcoder.calls);
+
+        File variant = cache.find(source, target);
+        assertNotNull(variant);
+        assertEquals(640, variant.length());
+        // 其他参数或其他源视频不会命中
+        assertNull(cache.find(source, TranscodeCache.Target.of(640, 480, 0, 30)));
+        assertNull(cache.find(source("b.mp4", 100), target));
+    }
+
+    @Test
+    public void pendingRequestIsNotQueuedTwice() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        FakeTranscoder transcoder = new FakeTranscoder();
+        TranscodeCache cache = new TranscodeCache(temporaryFolder.newFolder("cache"), 1 << 20, transcoder,
+                queued::add);
+        File source = source("a.mp4", 100);
+        TranscodeCache.Target target = TranscodeCache.Target.of(640, 480, 0, 0);
+
+        assertTrue(cache.request(source, target));
+        assertFalse(cache.request(source, target));
+        assertEquals(1, queued.size());
+        assertNull(cache.find(source, target));
+        queued.get(0).run();
+        assertNotNull(cache.find(source, target));
+    }
+
+    @Test
+    public void failedTargetIsNotRetriedUntilSourceChanges() throws Exception {
+        File dir = temporaryFolder.newFolder("cache");
+        FakeTranscoder transcoder = new FakeTranscoder();
+        transcoder.fail = true;
+        TranscodeCache cache = new TranscodeCache(dir, 1 << 20, transcoder, Runnable::run);
+        File source = source("a.mp4", 100);
+        TranscodeCache.Target target = TranscodeCache.Target.of(640, 480, 0, 0);
+
+        assertTrue(cache.request(source, target));
+        assertFalse(cache.request(source, target));
+        assertEquals(1, transcoder.calls);
+        assertEquals(0, dir.list().length);
+
+        // 源视频被替换：名称相同但大小不同，视为新的源
+        try (FileOutputStream out = new FileOutputStream(source)) {
+            out.write(new byte[200]);
+        }
+        transcoder.fail = false;
+        assertTrue(cache.request(source, target));
+        assertNotNull(cache.find(source, target));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() throws Exception {
+        File dir = temporaryFolder.newFolder("cache");
+        TranscodeCache cache = new TranscodeCache(dir, 2000, new FakeTranscoder(), Runnable::run);
+        File source = source("a.mp4", 100);
+        TranscodeCache.Target first = TranscodeCache.Target.of(800, 600, 0, 0);
+        TranscodeCache.Target second = TranscodeCache.Target.of(640, 480, 0, 0);
+        TranscodeCache.Target third = TranscodeCache.Target.of(720, 480, 0, 0);
+
+        cache.request(source, first);
+        cache.request(source, second);
+        // 访问 first，使 second 成为最久未用
+        assertNotNull(cache.find(source, first));
+        cache.request(source, third);
+
+        assertEquals(2, cache.getVariantCount());
+        assertEquals(800 + 720, cache.getTotalBytes());
+        assertNotNull(cache.find(source, first));
+        assertNull(cache.find(source, second));
+        assertNotNull(cache.find(source, third));
+        assertEquals(2, dir.list().length);
+    }
+
+    @Test
+    public void reloadsIndexFromDirectory() throws Exception {
+        File dir = temporaryFolder.newFolder("cache");
+        File source = source("a.mp4", 100);
+        TranscodeCache.Target target = TranscodeCache.Target.of(640, 480, 0, 0);
+        new TranscodeCache(dir, 1 << 20, new FakeTranscoder(), Runnable::run).request(source, target);
+        // 上次中断留下的临时文件在加载时清理
+        new File(dir, "stale.mp4.tmp").createNewFile();
+
+        FakeTranscoder transcoder = new FakeTranscoder();
+        TranscodeCache reopened = new TranscodeCache(dir, 1 << 20, transcoder, Runnable::run);
+        assertNotNull(reopened.find(source, target));
+        assertFalse(reopened.request(source, target));
+        assertEquals(0, transcoder.calls);
+        assertFalse(new File(dir, "stale.mp4.tmp").exists());
+        assertEquals(640, reopened.getTotalBytes());
+    }
+}
@@ -12,10 +12,13 @@ import org.mockito.Mockito;
 import java.io.File;
 
 import io.github.zensu357.camswap.ConfigManager;
+import io.github.zensu357.camswap.MediaSourceDescriptor;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class VideoManagerTest {
     @Rule
@@ -131,6 +134,41 @@ public class VideoManagerTest {
         }
     }
 
+    @Test
+    public void getCurrentMediaSource_imageReplaceModeYieldsStillSource() throws Exception {
+        try (MockedStatic<Log> logMock = Mockito.mockStatic(Log.class)) {
+            File dir = temporaryFolder.newFolder("still");
+            File image = temporaryFolder.newFile("still/photo.jpg");
+            temporaryFolder.newFile("still/clip.mp4");
+            configureVideoManager(dir, configFromJson("{\"selected_video\":\"clip.mp4\","
+                    + "\"selected_image\":\"photo.jpg\",\"replace_mode\":\"image\"}"));
+
+            assertTrue(VideoManager.isStillMode());
+            MediaSourceDescriptor source = VideoManager.getCurrentMediaSource();
+            assertTrue(source.isStill());
+            assertTrue(source.isValid());
+            assertEquals(image.getAbsolutePath(), source.localPath);
+        }
+    }
+
+    @Test
+    public void getCurrentMediaSource_stillModeNeedsSelectedImageAndLocalSource() throws Exception {
+        try (MockedStatic<Log> logMock = Mockito.mockStatic(Log.class)) {
+            File dir = temporaryFolder.newFolder("modes");
+            temporaryFolder.newFile("modes/photo.jpg");
+
+            configureVideoManager(dir, configFromJson("{\"replace_mode\":\"image\"}"));
+            assertFalse(VideoManager.isStillMode());
+            assertFalse(VideoManager.getCurrentMediaSource().isStill());
+
+            configureVideoManager(dir, configFromJson("{\"selected_image\":\"photo.jpg\","
+                    + "\"replace_mode\":\"image\",\"media_source_type\":\"stream\","
+                    + "\"stream_url\":\"rtsp://host/live\"}"));
+            assertFalse(VideoManager.isStillMode());
+            assertTrue(VideoManager.getCurrentMediaSource().isStream());
+        }
+    }
+
     private void configureVideoManager(File dir, ConfigManager configManager) {
         VideoManager.video_path = dir.getAbsolutePath() + File.separator;
         VideoManager.current_video_path = null;
@@ -0,0 +1,56 @@
+package io.github.zensu357.camswap.yuv;
+
+/**
+ * 原 VideoToFrames.cropAndScaleNV21 的浮点实现，仅作为测试和基准的参照。
+ */
+final class FloatNv21Scaler {
+
+    private FloatNv21Scaler() {
+    }
+
+    static void cropAndScaleNv21(byte[] src, int srcW, int srcH,
+            int cropX, int cropY, int cropW, int cropH, byte[] dst, int dstW, int dstH) {
+        for (int y = 0; y < dstH; y++) {
+            float sy = cropY + y * (float) cropH / dstH;
+            int y0 = (int) sy;
+            int y1 = Math.min(y0 + 1, cropY + cropH - 1);
+            float dy = sy - y0;
+            float dy1 = 1.0f - dy;
+
+            int dstRowOffset = y * dstW;
+            int srcRowOffset0 = y0 * srcW;
+            int srcRowOffset1 = y1 * srcW;
+
+            for (int x = 0; x < dstW; x++) {
+                float sx = cropX + x * (float) cropW / dstW;
+                int x0 = (int) sx;
+                int x1 = Math.min(x0 + 1, cropX + cropW - 1);
+                float dx = sx - x0;
+                float dx1 = 1.0f - dx;
+
+                int p00 = src[srcRowOffset0 + x0] & 0xFF;
+                int p01 = src[srcRowOffset0 + x1] & 0xFF;
+                int p10 = src[srcRowOffset1 + x0] & 0xFF;
+                int p11 = src[srcRowOffset1 + x1] & 0xFF;
+
+                float val = (p00 * dx1 + p01 * dx) * dy1 + (p10 * dx1 + p11 * dx) * dy;
+                dst[dstRowOffset + x] = (byte) (int) val;
+            }
+        }
+
+        int scaleXFp = (cropW << 16) / dstW;
+        int scaleYFp = (cropH << 16) / dstH;
+        int srcUVStart = srcW * srcH;
+        int dstUVStart = dstW * dstH;
+        for (int y = 0; y < dstH / 2; y++) {
+            int sy = (cropY / 2) + ((y * scaleYFp) >> 16);
+            int srcRowOffset = srcUVStart + sy * srcW;
+            int dstRowOffset = dstUVStart + y * dstW;
+            for (int x = 0; x < dstW / 2; x++) {
+                int srcColOffset = ((cropX / 2) + ((x * scaleXFp) >> 16)) * 2;
+                dst[dstRowOffset + x * 2] = src[srcRowOffset + srcColOffset];
+                dst[dstRowOffset + x * 2 + 1] = src[srcRowOffset + srcColOffset + 1];
+            }
+        }
+    }
+}
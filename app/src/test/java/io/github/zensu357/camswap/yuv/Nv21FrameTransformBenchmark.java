@@ -0,0 +1,101 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static io.github.zensu357.camswap.yuv.YuvTransformTest.random;
+
+/**
+ * 融合变换 vs 旧的三段式（逐像素取平面 → 整帧旋转 → 裁剪缩放）。
+ * 输出到 stdout，不做耗时断言：JVM 上的数字只用于相对比较。
+ */
+public class Nv21FrameTransformBenchmark {
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+    private static final int DST_W = 640;
+    private static final int DST_H = 480;
+
+    @Test
+    public void fusedVersusThreeStage() {
+        int[][] sources = { { 1280, 720 }, { 1920, 1080 } };
+        for (int[] s : sources) {
+            for (int rotation : new int[] { 90, 270 }) {
+                run(s[0], s[1], rotation);
+            }
+        }
+    }
+
+    private static void run(int w, int h, int rotation) {
+        // 模拟解码器输出：Y 带行填充，UV 为 pixelStride=2 的半平面
+        int stride = (w + 63) & ~63;
+        byte[] y = random(stride * h, 1);
+        byte[] uv = random(stride * h / 2, 2);
+
+        YuvPlanes planes = new YuvPlanes();
+        Nv21FrameTransform transform = new Nv21FrameTransform();
+        byte[] fusedOut = new byte[YuvConvert.frameSize(DST_W, DST_H)];
+        byte[] stagedY = new byte[y.length];
+        byte[] stagedUv = new byte[uv.length];
+
+        long threeStage = 0;
+        long fused = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            byte[] nv21 = gatherNv21(y, uv, stride, w, h);
+            byte[] rotated = new byte[nv21.length];
+            YuvRotate.rotateNv21(nv21, w, h, rotation, rotated);
+            int rw = h;
+            int rh = w;
+            int[] crop = new int[4];
+            YuvScale.centerCrop(rw, rh, DST_W, DST_H, crop);
+            byte[] scaled = new byte[YuvConvert.frameSize(DST_W, DST_H)];
+            FloatNv21Scaler.cropAndScaleNv21(rotated, rw, rh, crop[0], crop[1], crop[2], crop[3], scaled, DST_W, DST_H);
+            long t1 = System.nanoTime();
+
+            // 融合路径：每平面一次 bulk 拷贝（对应 YuvPlanes.copyFrom）+ 单遍变换
+            System.arraycopy(y, 0, stagedY, 0, y.length);
+            System.arraycopy(uv, 0, stagedUv, 0, uv.length);
+            planes.width = w;
+            planes.height = h;
+            planes.y = stagedY;
+            planes.yRowStride = stride;
+            planes.v = stagedUv;
+            planes.vOffset = 0;
+            planes.u = stagedUv;
+            planes.uOffset = 1;
+            planes.uvRowStride = stride;
+            planes.uvPixelStride = 2;
+            transform.configure(planes, rotation, DST_W, DST_H);
+            transform.apply(planes, fusedOut);
+            long t2 = System.nanoTime();
+
+            if (i >= WARMUP) {
+                threeStage += t1 - t0;
+                fused += t2 - t1;
+            }
+        }
+        double a = threeStage / 1e6 / ITERATIONS;
+        double b = fused / 1e6 / ITERATIONS;
+        System.out.println(String.format(Locale.US,
+                "[Nv21FrameTransform] %dx%d rot=%d -> %dx%d: three-stage %.2f ms, fused %.2f ms (%.1fx)",
+                w, h, rotation, DST_W, DST_H, a, b, a / b));
+    }
+
+    /** 与旧 getDataFromImage 相同的逐像素收集方式 */
+    private static byte[] gatherNv21(byte[] y, byte[] uv, int stride, int w, int h) {
+        byte[] out = new byte[YuvConvert.frameSize(w, h)];
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(y, row * stride, out, row * w, w);
+        }
+        int d = w * h;
+        for (int row = 0; row < h / 2; row++) {
+            int s = row * stride;
+            for (int col = 0; col < w / 2; col++) {
+                out[d++] = uv[s + col * 2];
+                out[d++] = uv[s + col * 2 + 1];
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import static io.github.zensu357.camswap.yuv.YuvTransformTest.random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Nv21FrameTransformTest {
+
+    @Test
+    public void rotationOnly_matchesRotateNv21Exactly() {
+        int w = 16;
+        int h = 10;
+        byte[] src = random(YuvConvert.frameSize(w, h), 7);
+        Nv21FrameTransform transform = new Nv21FrameTransform();
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+        for (int rotation : new int[] { 0, 90, 180, 270 }) {
+            transform.configure(planes, rotation, 0, 0);
+            byte[] fused = new byte[transform.getOutputSize()];
+            transform.apply(planes, fused);
+
+            byte[] expected = new byte[src.length];
+            YuvRotate.rotateNv21(src, w, h, rotation, expected);
+            assertArrayEquals("rotation " + rotation, expected, fused);
+        }
+    }
+
+    @Test
+    public void rotateCropScale_matchesThreeStagePath() {
+        int w = 64;
+        int h = 36;
+        byte[] src = smoothFrame(w, h);
+        Nv21FrameTransform transform = new Nv21FrameTransform();
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+        int[][] targets = { { 24, 32 }, { 40, 30 }, { 100, 60 } };
+        for (int rotation : new int[] { 0, 90, 180, 270 }) {
+            for (int[] t : targets) {
+                transform.configure(planes, rotation, t[0], t[1]);
+                assertEquals(t[0], transform.getOutputWidth());
+                assertEquals(t[1], transform.getOutputHeight());
+                byte[] fused = new byte[transform.getOutputSize()];
+                transform.apply(planes, fused);
+                byte[] expected = threeStage(src, w, h, rotation, t[0], t[1]);
+                assertClose("rot " + rotation + " -> " + t[0] + "x" + t[1], expected, fused, t[0] * t[1], 2);
+            }
+        }
+    }
+
+    @Test
+    public void stridedSemiPlanarSource_sameAsPacked() {
+        int w = 12;
+        int h = 8;
+        byte[] packed = random(YuvConvert.frameSize(w, h), 11);
+        int stride = 16;
+        // 模拟硬解输出：带行填充的 Y，以及 pixelStride=2 的独立 U/V 缓冲
+        byte[] y = new byte[stride * h];
+        byte[] uv = new byte[stride * h / 2];
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(packed, row * w, y, row * stride, w);
+        }
+        for (int row = 0; row < h / 2; row++) {
+            System.arraycopy(packed, w * h + row * w, uv, row * stride, w);
+        }
+        YuvPlanes strided = new YuvPlanes();
+        strided.width = w;
+        strided.height = h;
+        strided.y = y;
+        strided.yRowStride = stride;
+        strided.v = uv;
+        strided.vOffset = 0;
+        strided.u = uv;
+        strided.uOffset = 1;
+        strided.uvRowStride = stride;
+        strided.uvPixelStride = 2;
+
+        Nv21FrameTransform a = new Nv21FrameTransform();
+        Nv21FrameTransform b = new Nv21FrameTransform();
+        YuvPlanes plain = new YuvPlanes().wrapNv21(packed, w, h);
+        a.configure(plain, 90, 6, 8);
+        b.configure(strided, 90, 6, 8);
+        byte[] expected = new byte[a.getOutputSize()];
+        byte[] actual = new byte[b.getOutputSize()];
+        a.apply(plain, expected);
+        b.apply(strided, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void configure_rebuildsOnlyWhenParametersChange() {
+        byte[] src = new byte[YuvConvert.frameSize(8, 4)];
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, 8, 4);
+        Nv21FrameTransform transform = new Nv21FrameTransform();
+        assertTrue(transform.configure(planes, 90, 4, 4));
+        assertFalse(transform.configure(planes, 90, 4, 4));
+        assertTrue(transform.configure(planes, 270, 4, 4));
+        assertTrue(transform.configure(planes, 270, 2, 2));
+        assertEquals(2, transform.getOutputWidth());
+    }
+
+    /** 旧实现：先整帧旋转到新数组，再裁剪缩放到另一个新数组 */
+    static byte[] threeStage(byte[] src, int w, int h, int rotation, int dstW, int dstH) {
+        byte[] rotated = new byte[src.length];
+        YuvRotate.rotateNv21(src, w, h, rotation, rotated);
+        boolean swap = YuvRotate.swapsDimensions(rotation);
+        int rw = swap ? h : w;
+        int rh = swap ? w : h;
+        if (rw == dstW && rh == dstH) {
+            return rotated;
+        }
+        int[] crop = new int[4];
+        YuvScale.centerCrop(rw, rh, dstW, dstH, crop);
+        byte[] out = new byte[YuvConvert.frameSize(dstW, dstH)];
+        FloatNv21Scaler.cropAndScaleNv21(rotated, rw, rh, crop[0], crop[1], crop[2], crop[3], out, dstW, dstH);
+        return out;
+    }
+
+    static byte[] smoothFrame(int w, int h) {
+        byte[] out = new byte[YuvConvert.frameSize(w, h)];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                out[y * w + x] = (byte) ((x * 255 / w + y * 3) & 0xFF);
+            }
+        }
+        for (int i = w * h; i < out.length; i++) {
+            out[i] = (byte) (i * 7);
+        }
+        return out;
+    }
+
+    private static void assertClose(String msg, byte[] expected, byte[] actual, int lumaSize, int tolerance) {
+        assertEquals(msg, expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            int diff = Math.abs((expected[i] & 0xFF) - (actual[i] & 0xFF));
+            int allowed = i < lumaSize ? tolerance : 0;
+            if (diff > allowed) {
+                throw new AssertionError(msg + " @" + i + " expected " + (expected[i] & 0xFF)
+                        + " but was " + (actual[i] & 0xFF));
+            }
+        }
+    }
+}
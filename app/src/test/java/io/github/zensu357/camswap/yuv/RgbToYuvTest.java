@@ -0,0 +1,70 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import static io.github.zensu357.camswap.yuv.YuvTransformTest.bytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RgbToYuvTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int GREEN = 0xFF00FF00;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+
+    @Test
+    public void bt601ReferenceColors() {
+        assertYuv(RED, 82, 90, 240);
+        assertYuv(GREEN, 144, 54, 34);
+        assertYuv(BLUE, 41, 240, 110);
+        assertYuv(WHITE, 235, 128, 128);
+        assertYuv(BLACK, 16, 128, 128);
+    }
+
+    @Test
+    public void argbToI420_samplesTopLeftOfEachBlock() {
+        int[] argb = { RED, GREEN, BLUE, WHITE };
+        byte[] y = new byte[4];
+        byte[] u = new byte[1];
+        byte[] v = new byte[1];
+        RgbToYuv.argbToI420(argb, 0, 2, 2, 2, y, u, v);
+        assertArrayEquals(bytes(82, 144, 41, 235), y);
+        assertArrayEquals(bytes(90), u);
+        assertArrayEquals(bytes(240), v);
+    }
+
+    @Test
+    public void argbToNv21AndNv12_interleaveOrder() {
+        int[] argb = { RED, GREEN, BLUE, WHITE };
+        byte[] nv21 = new byte[6];
+        byte[] nv12 = new byte[6];
+        RgbToYuv.argbToNv21(argb, 0, 2, 2, 2, nv21);
+        RgbToYuv.argbToNv12(argb, 0, 2, 2, 2, nv12);
+        assertArrayEquals(bytes(82, 144, 41, 235, 240, 90), nv21);
+        assertArrayEquals(bytes(82, 144, 41, 235, 90, 240), nv12);
+    }
+
+    @Test
+    public void argbToI420_honoursOffsetAndStride() {
+        // 3 列宽的缓冲区，只取右侧 2x2
+        int[] argb = { BLACK, WHITE, RED, BLACK, GREEN, BLUE };
+        byte[] y = new byte[4];
+        byte[] u = new byte[1];
+        byte[] v = new byte[1];
+        RgbToYuv.argbToI420(argb, 1, 3, 2, 2, y, u, v);
+        assertArrayEquals(bytes(235, 82, 144, 41), y);
+        assertEquals(128, u[0] & 0xFF);
+        assertEquals(128, v[0] & 0xFF);
+    }
+
+    private static void assertYuv(int argb, int y, int u, int v) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        assertEquals(y, RgbToYuv.y(r, g, b));
+        assertEquals(u, RgbToYuv.u(r, g, b));
+        assertEquals(v, RgbToYuv.v(r, g, b));
+    }
+}
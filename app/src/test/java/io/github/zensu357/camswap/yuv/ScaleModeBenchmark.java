@@ -0,0 +1,55 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * 浮点双线性（旧实现）与各缩放方式的耗时对比，结果输出到 stdout。
+ */
+public class ScaleModeBenchmark {
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 15;
+
+    @Test
+    public void scalerModes() {
+        run(1920, 1080, 1280, 720);
+        run(3840, 2160, 640, 480);
+    }
+
+    private static void run(int w, int h, int dstW, int dstH) {
+        byte[] src = ScaleModeTest.naturalFrame(w, h, 1);
+        int[] crop = new int[4];
+        YuvScale.centerCrop(w, h, dstW, dstH, crop);
+        byte[] dst = new byte[YuvConvert.frameSize(dstW, dstH)];
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+
+        long floatNs = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            FloatNv21Scaler.cropAndScaleNv21(src, w, h, crop[0], crop[1], crop[2], crop[3], dst, dstW, dstH);
+            if (i >= WARMUP) {
+                floatNs += System.nanoTime() - t0;
+            }
+        }
+        StringBuilder sb = new StringBuilder(String.format(Locale.US,
+                "[ScaleMode] %dx%d -> %dx%d (auto=%s): float %.2f ms", w, h, dstW, dstH,
+                ScaleMode.forRatio(crop[2], crop[3], dstW, dstH), floatNs / 1e6 / ITERATIONS));
+        for (ScaleMode mode : ScaleMode.values()) {
+            Nv21FrameTransform transform = new Nv21FrameTransform();
+            transform.setLumaMode(mode);
+            transform.configure(planes, 0, dstW, dstH);
+            long ns = 0;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                long t0 = System.nanoTime();
+                transform.apply(planes, dst);
+                if (i >= WARMUP) {
+                    ns += System.nanoTime() - t0;
+                }
+            }
+            sb.append(String.format(Locale.US, ", %s %.2f ms", mode.name().toLowerCase(Locale.US),
+                    ns / 1e6 / ITERATIONS));
+        }
+        System.out.println(sb);
+    }
+}
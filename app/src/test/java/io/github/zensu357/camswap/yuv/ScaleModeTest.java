@@ -0,0 +1,155 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScaleModeTest {
+
+    @Test
+    public void forRatio_picksAreaAboveTwoTimes() {
+        assertEquals(ScaleMode.AREA, ScaleMode.forRatio(2880, 2160, 640, 480));
+        assertEquals(ScaleMode.BILINEAR, ScaleMode.forRatio(1920, 1080, 1280, 720));
+        assertEquals(ScaleMode.BILINEAR, ScaleMode.forRatio(1280, 960, 640, 480));
+        assertEquals(ScaleMode.BILINEAR, ScaleMode.forRatio(640, 480, 1920, 1440));
+    }
+
+    @Test
+    public void bilinear_tracksFloatImplementation() {
+        int w = 320;
+        int h = 240;
+        byte[] src = naturalFrame(w, h, 5);
+        int[][] targets = { { 214, 160 }, { 426, 320 }, { 200, 150 }, { 160, 120 } };
+        for (int[] t : targets) {
+            byte[] fixed = transform(src, w, h, t[0], t[1], ScaleMode.BILINEAR);
+            byte[] reference = floatScale(src, w, h, t[0], t[1]);
+            double psnr = lumaPsnr(reference, fixed, t[0] * t[1]);
+            assertTrue(t[0] + "x" + t[1] + " psnr=" + psnr, psnr > 45);
+        }
+    }
+
+    @Test
+    public void area_staysCloseToFloatOnSmoothContent() {
+        int w = 1280;
+        int h = 960;
+        byte[] src = naturalFrame(w, h, 6);
+        byte[] area = transform(src, w, h, 320, 240, ScaleMode.AREA);
+        byte[] reference = floatScale(src, w, h, 320, 240);
+        double psnr = lumaPsnr(reference, area, 320 * 240);
+        assertTrue("psnr=" + psnr, psnr > 30);
+    }
+
+    @Test
+    public void area_beatsFloatBilinearOnFineDetail() {
+        int w = 2560;
+        int h = 1920;
+        int dstW = 640;
+        int dstH = 480;
+        byte[] src = new byte[YuvConvert.frameSize(w, h)];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                // 周期 3 像素的细条纹叠加缓慢渐变：点采样会产生明显混叠
+                double stripes = ((x + y) % 3 == 0) ? 90 : -45;
+                src[y * w + x] = (byte) clamp(128 + stripes + 30 * Math.sin(x / 200.0));
+            }
+        }
+        byte[] ideal = new byte[dstW * dstH];
+        for (int y = 0; y < dstH; y++) {
+            for (int x = 0; x < dstW; x++) {
+                int sum = 0;
+                for (int yy = 0; yy < 4; yy++) {
+                    for (int xx = 0; xx < 4; xx++) {
+                        sum += src[(y * 4 + yy) * w + x * 4 + xx] & 0xFF;
+                    }
+                }
+                ideal[y * dstW + x] = (byte) Math.round(sum / 16.0);
+            }
+        }
+
+        Nv21FrameTransform auto = new Nv21FrameTransform();
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+        auto.configure(planes, 0, dstW, dstH);
+        assertEquals(ScaleMode.AREA, auto.getLumaMode());
+        byte[] area = new byte[auto.getOutputSize()];
+        auto.apply(planes, area);
+
+        byte[] floatOut = floatScale(src, w, h, dstW, dstH);
+        double areaPsnr = lumaPsnr(ideal, area, dstW * dstH);
+        double floatPsnr = lumaPsnr(ideal, floatOut, dstW * dstH);
+        assertTrue("area=" + areaPsnr + " float=" + floatPsnr, areaPsnr > 45);
+        assertTrue("area=" + areaPsnr + " float=" + floatPsnr, areaPsnr > floatPsnr + 10);
+    }
+
+    @Test
+    public void area_withRotationMatchesRotateThenArea() {
+        int w = 96;
+        int h = 64;
+        byte[] src = naturalFrame(w, h, 9);
+        for (int rotation : new int[] { 90, 180, 270 }) {
+            Nv21FrameTransform fused = new Nv21FrameTransform();
+            fused.setLumaMode(ScaleMode.AREA);
+            YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+            fused.configure(planes, rotation, 20, 30);
+            byte[] a = new byte[fused.getOutputSize()];
+            fused.apply(planes, a);
+
+            byte[] rotated = new byte[src.length];
+            YuvRotate.rotateNv21(src, w, h, rotation, rotated);
+            boolean swap = YuvRotate.swapsDimensions(rotation);
+            byte[] b = transform(rotated, swap ? h : w, swap ? w : h, 20, 30, ScaleMode.AREA);
+            assertEquals("rotation " + rotation, Double.POSITIVE_INFINITY, lumaPsnr(a, b, a.length), 0);
+        }
+    }
+
+    static byte[] transform(byte[] src, int w, int h, int dstW, int dstH, ScaleMode mode) {
+        Nv21FrameTransform transform = new Nv21FrameTransform();
+        transform.setLumaMode(mode);
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+        transform.configure(planes, 0, dstW, dstH);
+        byte[] dst = new byte[transform.getOutputSize()];
+        transform.apply(planes, dst);
+        return dst;
+    }
+
+    static byte[] floatScale(byte[] src, int w, int h, int dstW, int dstH) {
+        int[] crop = new int[4];
+        YuvScale.centerCrop(w, h, dstW, dstH, crop);
+        byte[] dst = new byte[YuvConvert.frameSize(dstW, dstH)];
+        FloatNv21Scaler.cropAndScaleNv21(src, w, h, crop[0], crop[1], crop[2], crop[3], dst, dstW, dstH);
+        return dst;
+    }
+
+    /** 平滑渐变 + 少量纹理 + 噪声，近似真实视频帧 */
+    static byte[] naturalFrame(int w, int h, long seed) {
+        Random random = new Random(seed);
+        byte[] out = new byte[YuvConvert.frameSize(w, h)];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double v = 128 + 60 * Math.sin(x / 23.0) * Math.cos(y / 31.0) + 20 * Math.sin((x + y) / 7.0)
+                        + random.nextGaussian() * 2;
+                out[y * w + x] = (byte) clamp(v);
+            }
+        }
+        for (int i = w * h; i < out.length; i++) {
+            out[i] = (byte) (128 + (i % 17));
+        }
+        return out;
+    }
+
+    static double lumaPsnr(byte[] a, byte[] b, int count) {
+        double mse = 0;
+        for (int i = 0; i < count; i++) {
+            int d = (a[i] & 0xFF) - (b[i] & 0xFF);
+            mse += d * d;
+        }
+        mse /= count;
+        return mse == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255.0 * 255.0 / mse);
+    }
+
+    private static int clamp(double v) {
+        return (int) Math.max(0, Math.min(255, Math.round(v)));
+    }
+}
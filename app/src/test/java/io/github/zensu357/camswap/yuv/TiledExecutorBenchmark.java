@@ -0,0 +1,70 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static io.github.zensu357.camswap.yuv.YuvTransformTest.random;
+
+/**
+ * 1080p 帧在 1/2/4/8 个线程下的加速比，结果输出到 stdout。
+ * 加速比受运行机器核数限制，超过核数的线程数不会再有收益。
+ */
+public class TiledExecutorBenchmark {
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+    private static final int[] WORKERS = { 1, 2, 4, 8 };
+
+    @Test
+    public void workerScaling() {
+        int w = 1920;
+        int h = 1080;
+        byte[] nv21 = random(YuvConvert.frameSize(w, h), 1);
+        YuvPlanes planes = new YuvPlanes().wrapNv21(nv21, w, h);
+        int[] argb = new int[w * h];
+        Random random = new Random(2);
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = random.nextInt();
+        }
+        byte[] yOut = new byte[w * h];
+        byte[] uOut = new byte[YuvConvert.chromaSize(w, h)];
+        byte[] vOut = new byte[YuvConvert.chromaSize(w, h)];
+
+        double baseTransform = 0;
+        double baseRgb = 0;
+        System.out.println("[TiledExecutor] cpus=" + Runtime.getRuntime().availableProcessors());
+        for (int workers : WORKERS) {
+            TiledExecutor executor = new TiledExecutor(workers);
+            Nv21FrameTransform transform = new Nv21FrameTransform();
+            transform.setExecutor(executor);
+            transform.configure(planes, 90, 1440, 1920);
+            byte[] dst = new byte[transform.getOutputSize()];
+
+            long transformNs = 0;
+            long rgbNs = 0;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                long t0 = System.nanoTime();
+                transform.apply(planes, dst);
+                long t1 = System.nanoTime();
+                executor.run(h, 2, (long) w * h,
+                        (start, end) -> RgbToYuv.argbToI420Rows(argb, 0, w, w, start, end, yOut, uOut, vOut));
+                long t2 = System.nanoTime();
+                if (i >= WARMUP) {
+                    transformNs += t1 - t0;
+                    rgbNs += t2 - t1;
+                }
+            }
+            double transformMs = transformNs / 1e6 / ITERATIONS;
+            double rgbMs = rgbNs / 1e6 / ITERATIONS;
+            if (workers == 1) {
+                baseTransform = transformMs;
+                baseRgb = rgbMs;
+            }
+            System.out.println(String.format(Locale.US,
+                    "[TiledExecutor] workers=%d: rotate+scale 1080p->1440x1920 %.2f ms (%.2fx), "
+                            + "argb->I420 1080p %.2f ms (%.2fx)",
+                    workers, transformMs, baseTransform / transformMs, rgbMs, baseRgb / rgbMs));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static io.github.zensu357.camswap.yuv.YuvTransformTest.random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TiledExecutorTest {
+
+    @Test
+    public void everyRowRunsExactlyOnceWithAlignedBands() {
+        TiledExecutor executor = new TiledExecutor(4);
+        int rows = 1082;
+        AtomicIntegerArray hits = new AtomicIntegerArray(rows);
+        executor.run(rows, 2, Long.MAX_VALUE, (start, end) -> {
+            assertEquals(0, start % 2);
+            for (int r = start; r < end; r++) {
+                hits.incrementAndGet(r);
+            }
+        });
+        for (int r = 0; r < rows; r++) {
+            assertEquals("row " + r, 1, hits.get(r));
+        }
+    }
+
+    @Test
+    public void smallFramesStayOnCallerThread() {
+        TiledExecutor executor = new TiledExecutor(4);
+        Thread caller = Thread.currentThread();
+        executor.run(480, 2, 640 * 480, (start, end) -> {
+            assertEquals(0, start);
+            assertEquals(480, end);
+            assertTrue(Thread.currentThread() == caller);
+        });
+        assertFalse(new TiledExecutor(1).isParallel());
+    }
+
+    @Test
+    public void bandFailureIsRethrown() {
+        TiledExecutor executor = new TiledExecutor(4);
+        try {
+            executor.run(1080, 2, Long.MAX_VALUE, (start, end) -> {
+                if (start > 0) {
+                    throw new IllegalStateException("band " + start);
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // 失败后实例仍可复用
+        AtomicIntegerArray hits = new AtomicIntegerArray(1);
+        executor.run(1080, 2, Long.MAX_VALUE, (start, end) -> hits.addAndGet(0, end - start));
+        assertEquals(1080, hits.get(0));
+    }
+
+    @Test
+    public void parallelTransformMatchesSequential() {
+        int w = 1920;
+        int h = 1080;
+        byte[] src = random(YuvConvert.frameSize(w, h), 3);
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+        int[][] targets = { { 0, 0 }, { 1440, 1920 }, { 480, 640 } };
+        for (int[] t : targets) {
+            Nv21FrameTransform seq = new Nv21FrameTransform();
+            Nv21FrameTransform par = new Nv21FrameTransform();
+            par.setExecutor(new TiledExecutor(4));
+            seq.configure(planes, 90, t[0], t[1]);
+            par.configure(planes, 90, t[0], t[1]);
+            byte[] a = new byte[seq.getOutputSize()];
+            byte[] b = new byte[par.getOutputSize()];
+            seq.apply(planes, a);
+            par.apply(planes, b);
+            assertArrayEquals(t[0] + "x" + t[1], a, b);
+        }
+    }
+
+    @Test
+    public void parallelArgbToI420MatchesSequential() {
+        int w = 1920;
+        int h = 1080;
+        int[] argb = new int[w * h];
+        Random random = new Random(4);
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = random.nextInt();
+        }
+        int c = YuvConvert.chromaSize(w, h);
+        byte[] y1 = new byte[w * h];
+        byte[] u1 = new byte[c];
+        byte[] v1 = new byte[c];
+        RgbToYuv.argbToI420(argb, 0, w, w, h, y1, u1, v1);
+
+        byte[] y2 = new byte[w * h];
+        byte[] u2 = new byte[c];
+        byte[] v2 = new byte[c];
+        new TiledExecutor(4).run(h, 2, (long) w * h,
+                (start, end) -> RgbToYuv.argbToI420Rows(argb, 0, w, w, start, end, y2, u2, v2));
+        assertArrayEquals(y1, y2);
+        assertArrayEquals(u1, u2);
+        assertArrayEquals(v1, v2);
+    }
+}
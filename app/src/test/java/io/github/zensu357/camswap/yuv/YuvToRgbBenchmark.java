@@ -0,0 +1,71 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+
+/**
+ * renderNV21ToSurface 的每帧成本：旧路径 NV21 → JPEG(90) → 解码，新路径查表直转 ARGB。
+ * JVM 上没有 YuvImage/BitmapFactory，旧路径用 ImageIO 的 JPEG 编解码近似（编码前的 YUV→RGB 也计入）。
+ * 输出到 stdout，不做耗时断言。
+ */
+public class YuvToRgbBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void jpegRoundTripVersusLookupTable() throws Exception {
+        int[][] sizes = { { 1280, 720 }, { 1080, 1920 } };
+        for (int[] size : sizes) {
+            run(size[0], size[1]);
+        }
+    }
+
+    private static void run(int w, int h) throws Exception {
+        byte[] nv21 = ScaleModeTest.naturalFrame(w, h, 1);
+        int[] argb = new int[w * h];
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(0.9f);
+
+        long jpegNs = 0;
+        long lutNs = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            YuvToRgb.nv21ToArgb(nv21, w, h, argb);
+            image.setRGB(0, 0, w, h, argb, 0, w);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+            stream.close();
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+            decoded.getRGB(0, 0, w, h, argb, 0, w);
+            long t1 = System.nanoTime();
+            YuvToRgb.nv21ToArgb(nv21, w, h, argb);
+            long t2 = System.nanoTime();
+            if (i >= WARMUP) {
+                jpegNs += t1 - t0;
+                lutNs += t2 - t1;
+            }
+        }
+        writer.dispose();
+        double jpegMs = jpegNs / 1e6 / ITERATIONS;
+        double lutMs = lutNs / 1e6 / ITERATIONS;
+        System.out.println(String.format(Locale.US,
+                "[YuvToRgb] %dx%d: jpeg round trip %.2f ms/frame, lookup table %.2f ms/frame (%.1fx)",
+                w, h, jpegMs, lutMs, jpegMs / lutMs));
+    }
+}
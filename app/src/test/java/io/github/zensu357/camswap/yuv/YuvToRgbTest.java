@@ -0,0 +1,72 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import static io.github.zensu357.camswap.yuv.YuvTransformTest.random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class YuvToRgbTest {
+
+    @Test
+    public void limitedRangeEndpoints() {
+        assertEquals(0xFF000000, convertSolid(16, 128, 128));
+        assertEquals(0xFFFFFFFF, convertSolid(235, 128, 128));
+        // 超出 limited range 的输入被 clamp
+        assertEquals(0xFF000000, convertSolid(0, 128, 128));
+        assertEquals(0xFFFFFFFF, convertSolid(255, 128, 128));
+    }
+
+    @Test
+    public void roundTripsRgbToYuvWithinQuantisation() {
+        for (int r = 0; r < 256; r += 17) {
+            for (int g = 0; g < 256; g += 17) {
+                for (int b = 0; b < 256; b += 17) {
+                    int argb = convertSolid(RgbToYuv.y(r, g, b), RgbToYuv.u(r, g, b), RgbToYuv.v(r, g, b));
+                    assertClose(r, (argb >> 16) & 0xff, argb);
+                    assertClose(g, (argb >> 8) & 0xff, argb);
+                    assertClose(b, argb & 0xff, argb);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void chromaIsSharedPer2x2Block() {
+        // 4x2：左块 V/U 为红色，右块为蓝色
+        byte[] nv21 = { 82, 82, 41, 41, 82, 82, 41, 41, (byte) 240, 90, 110, (byte) 240 };
+        int[] argb = new int[8];
+        YuvToRgb.nv21ToArgb(nv21, 4, 2, argb);
+        for (int row = 0; row < 2; row++) {
+            assertTrue(Integer.toHexString(argb[row * 4]), ((argb[row * 4] >> 16) & 0xff) > 250);
+            assertEquals(argb[row * 4], argb[row * 4 + 1]);
+            assertTrue(Integer.toHexString(argb[row * 4 + 2]), (argb[row * 4 + 2] & 0xff) > 250);
+            assertEquals(argb[row * 4 + 2], argb[row * 4 + 3]);
+        }
+    }
+
+    @Test
+    public void rowBandsMatchWholeFrame() {
+        int w = 64;
+        int h = 48;
+        byte[] nv21 = random(YuvConvert.frameSize(w, h), 8);
+        int[] whole = new int[w * h];
+        YuvToRgb.nv21ToArgb(nv21, w, h, whole);
+        int[] banded = new int[w * h];
+        YuvToRgb.nv21ToArgbRows(nv21, w, h, 0, 18, banded);
+        YuvToRgb.nv21ToArgbRows(nv21, w, h, 18, h, banded);
+        assertArrayEquals(whole, banded);
+    }
+
+    private static int convertSolid(int y, int u, int v) {
+        byte[] nv21 = { (byte) y, (byte) y, (byte) y, (byte) y, (byte) v, (byte) u };
+        int[] argb = new int[4];
+        YuvToRgb.nv21ToArgb(nv21, 2, 2, argb);
+        return argb[0];
+    }
+
+    private static void assertClose(int expected, int actual, int argb) {
+        assertTrue(expected + " vs " + actual + " in " + Integer.toHexString(argb), Math.abs(expected - actual) <= 3);
+    }
+}
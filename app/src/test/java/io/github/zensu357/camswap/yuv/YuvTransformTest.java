@@ -0,0 +1,381 @@
+package io.github.zensu357.camswap.yuv;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class YuvTransformTest {
+
+    // 4x2 NV21：Y 0..7，VU 对 (10,11) (12,13)
+    private static final byte[] NV21_4X2 = bytes(0, 1, 2, 3, 4, 5, 6, 7, 10, 11, 12, 13);
+
+    @Test
+    public void rotateNv21_90() {
+        byte[] dst = new byte[NV21_4X2.length];
+        YuvRotate.rotateNv21(NV21_4X2, 4, 2, 90, dst);
+        assertArrayEquals(bytes(4, 0, 5, 1, 6, 2, 7, 3, 10, 11, 12, 13), dst);
+    }
+
+    @Test
+    public void rotateNv21_180() {
+        byte[] dst = new byte[NV21_4X2.length];
+        YuvRotate.rotateNv21(NV21_4X2, 4, 2, 180, dst);
+        assertArrayEquals(bytes(7, 6, 5, 4, 3, 2, 1, 0, 12, 13, 10, 11), dst);
+    }
+
+    @Test
+    public void rotateNv21_270() {
+        byte[] dst = new byte[NV21_4X2.length];
+        YuvRotate.rotateNv21(NV21_4X2, 4, 2, 270, dst);
+        assertArrayEquals(bytes(3, 7, 2, 6, 1, 5, 0, 4, 12, 13, 10, 11), dst);
+    }
+
+    @Test
+    public void rotateNv21_fourQuarterTurnsIsIdentity() {
+        int w = 8;
+        int h = 6;
+        byte[] src = random(YuvConvert.frameSize(w, h), 1);
+        byte[] a = src.clone();
+        byte[] b = new byte[src.length];
+        for (int i = 0; i < 4; i++) {
+            boolean swapped = (i & 1) == 1;
+            YuvRotate.rotateNv21(a, swapped ? h : w, swapped ? w : h, 90, b);
+            byte[] t = a;
+            a = b;
+            b = t;
+        }
+        assertArrayEquals(src, a);
+    }
+
+    @Test
+    public void rotateI420_90MatchesNv21Path() {
+        int w = 8;
+        int h = 4;
+        byte[] nv21 = random(YuvConvert.frameSize(w, h), 2);
+        int c = YuvConvert.chromaSize(w, h);
+        byte[] y = new byte[w * h];
+        byte[] u = new byte[c];
+        byte[] v = new byte[c];
+        YuvConvert.nv21ToI420(nv21, w, h, y, u, v);
+
+        byte[] ry = new byte[w * h];
+        byte[] ru = new byte[c];
+        byte[] rv = new byte[c];
+        YuvRotate.rotateI420(y, u, v, w, h, 90, ry, ru, rv);
+        byte[] fromI420 = new byte[nv21.length];
+        YuvConvert.i420ToNv21(ry, ru, rv, h, w, fromI420);
+
+        byte[] fromNv21 = new byte[nv21.length];
+        YuvRotate.rotateNv21(nv21, w, h, 90, fromNv21);
+        assertArrayEquals(fromNv21, fromI420);
+    }
+
+    @Test
+    public void normalizeRotation() {
+        assertEquals(270, YuvRotate.normalize(-90));
+        assertEquals(0, YuvRotate.normalize(360));
+        assertEquals(90, YuvRotate.normalize(450));
+        assertEquals(0, YuvRotate.normalize(45));
+    }
+
+    @Test
+    public void layoutConversionsRoundTrip() {
+        int w = 6;
+        int h = 4;
+        int c = YuvConvert.chromaSize(w, h);
+        byte[] nv21 = random(YuvConvert.frameSize(w, h), 3);
+        byte[] y = new byte[w * h];
+        byte[] u = new byte[c];
+        byte[] v = new byte[c];
+        YuvConvert.nv21ToI420(nv21, w, h, y, u, v);
+        // NV21 色度以 V 开头
+        assertEquals(nv21[w * h], v[0]);
+        assertEquals(nv21[w * h + 1], u[0]);
+
+        byte[] nv12 = new byte[nv21.length];
+        YuvConvert.i420ToNv12(y, u, v, w, h, nv12);
+        byte[] swapped = new byte[nv21.length];
+        YuvConvert.swapUv(nv12, w, h, swapped);
+        assertArrayEquals(nv21, swapped);
+
+        byte[] yv12 = new byte[nv21.length];
+        YuvConvert.i420ToYv12(y, u, v, w, h, yv12);
+        byte[] y2 = new byte[w * h];
+        byte[] u2 = new byte[c];
+        byte[] v2 = new byte[c];
+        YuvConvert.yv12ToI420(yv12, w, h, y2, u2, v2);
+        YuvConvert.nv12ToI420(nv12, w, h, y, u, v);
+        assertArrayEquals(y, y2);
+        assertArrayEquals(u, u2);
+        assertArrayEquals(v, v2);
+
+        YuvConvert.swapUv(nv12, w, h, nv12);
+        assertArrayEquals(nv21, nv12);
+    }
+
+    @Test
+    public void centerCrop_alignsToEvenAndKeepsAspect() {
+        int[] crop = new int[4];
+        YuvScale.centerCrop(1920, 1080, 640, 480, crop);
+        assertArrayEquals(new int[] { 240, 0, 1440, 1080 }, crop);
+        YuvScale.centerCrop(720, 1280, 480, 640, crop);
+        assertArrayEquals(new int[] { 0, 160, 720, 960 }, crop);
+        YuvScale.centerCrop(1280, 720, 640, 360, crop);
+        assertArrayEquals(new int[] { 0, 0, 1280, 720 }, crop);
+    }
+
+    @Test
+    public void scaleNv21_halfSizePicksEvenSamples() {
+        byte[] src = new byte[YuvConvert.frameSize(4, 4)];
+        for (int i = 0; i < 16; i++) {
+            src[i] = (byte) i;
+        }
+        for (int i = 0; i < 8; i++) {
+            src[16 + i] = (byte) (100 + i);
+        }
+        assertArrayEquals(bytes(0, 2, 8, 10, 100, 101), scaleNv21(src, 4, 4, 2, 2));
+    }
+
+    @Test
+    public void scaleNv21_bilinearUpscale() {
+        byte[] src = bytes(0, 100, 100, 200, 50, 60);
+        byte[] dst = scaleNv21(src, 2, 2, 4, 4);
+        byte[] expectedY = bytes(
+                0, 50, 100, 100,
+                50, 100, 150, 150,
+                100, 150, 200, 200,
+                100, 150, 200, 200);
+        byte[] y = new byte[16];
+        System.arraycopy(dst, 0, y, 0, 16);
+        assertArrayEquals(expectedY, y);
+        assertArrayEquals(bytes(50, 60, 50, 60, 50, 60, 50, 60), Arrays.copyOfRange(dst, 16, 24));
+    }
+
+    @Test
+    public void cropNv21_copiesRegion() {
+        byte[] src = new byte[YuvConvert.frameSize(4, 4)];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = (byte) i;
+        }
+        byte[] dst = new byte[YuvConvert.frameSize(2, 2)];
+        YuvScale.cropNv21(src, 4, 4, 2, 2, 2, 2, dst);
+        assertArrayEquals(bytes(10, 11, 14, 15, 22, 23), dst);
+    }
+
+    @Test
+    public void scaleI420Nearest_downscale() {
+        byte[] y = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            y[i] = (byte) i;
+        }
+        byte[] u = bytes(1, 2, 3, 4);
+        byte[] v = bytes(5, 6, 7, 8);
+        byte[] dy = new byte[4];
+        byte[] du = new byte[1];
+        byte[] dv = new byte[1];
+        YuvScale.scaleI420Nearest(y, u, v, 4, 4, dy, du, dv, 2, 2);
+        assertArrayEquals(bytes(0, 2, 8, 10), dy);
+        assertArrayEquals(bytes(1), du);
+        assertArrayEquals(bytes(5), dv);
+    }
+
+    @Test
+    public void scaleI420Nearest_directBufferMatchesArrays() {
+        int[][] sizes = { { 64, 48, 32, 24 }, { 64, 48, 100, 76 }, { 30, 20, 30, 20 } };
+        for (int[] size : sizes) {
+            int srcW = size[0];
+            int srcH = size[1];
+            int dstW = size[2];
+            int dstH = size[3];
+            int srcY = srcW * srcH;
+            int srcC = YuvConvert.chromaSize(srcW, srcH);
+            byte[] src = random(srcY + 2 * srcC, srcW);
+            int dstY = dstW * dstH;
+            int dstC = YuvConvert.chromaSize(dstW, dstH);
+            byte[] y = new byte[dstY];
+            byte[] u = new byte[dstC];
+            byte[] v = new byte[dstC];
+            YuvScale.scaleI420Nearest(Arrays.copyOfRange(src, 0, srcY), Arrays.copyOfRange(src, srcY, srcY + srcC),
+                    Arrays.copyOfRange(src, srcY + srcC, src.length), srcW, srcH, y, u, v, dstW, dstH);
+            byte[] expected = new byte[dstY + 2 * dstC];
+            System.arraycopy(y, 0, expected, 0, dstY);
+            System.arraycopy(u, 0, expected, dstY, dstC);
+            System.arraycopy(v, 0, expected, dstY + dstC, dstC);
+
+            ByteBuffer in = ByteBuffer.allocateDirect(src.length);
+            in.put(src).rewind();
+            ByteBuffer out = ByteBuffer.allocateDirect(expected.length);
+            YuvScale.scaleI420Nearest(in, srcW, srcH, out, dstW, dstH, new byte[srcW], new byte[dstW]);
+            assertEquals(0, in.position());
+            assertEquals(0, out.position());
+            byte[] actual = new byte[expected.length];
+            out.get(actual);
+            assertArrayEquals(dstW + "x" + dstH, expected, actual);
+        }
+    }
+
+    @Test
+    public void packI420FromStridedSemiPlanar() {
+        // 4x2，行跨度 6：Y 每行后两字节是填充，UV 交错（NV12）
+        int w = 4, h = 2, stride = 6;
+        ByteBuffer y = ByteBuffer.wrap(bytes(0, 1, 2, 3, 99, 99, 4, 5, 6, 7, 99, 99));
+        ByteBuffer uv = ByteBuffer.wrap(bytes(20, 30, 21, 31, 99, 99));
+        ByteBuffer v = ByteBuffer.wrap(uv.array(), 1, 5).slice();
+        ByteBuffer out = ByteBuffer.allocateDirect(YuvConvert.frameSize(w, h));
+        YuvConvert.packI420(y, stride, 1, uv, v, stride, 2, w, h, out, new byte[stride]);
+
+        assertEquals(0, out.position());
+        byte[] actual = new byte[out.capacity()];
+        out.get(actual);
+        assertArrayEquals(bytes(0, 1, 2, 3, 4, 5, 6, 7, 20, 21, 30, 31), actual);
+        assertEquals(0, y.position());
+        assertEquals(y.capacity(), y.limit());
+    }
+
+    /** 8x4 帧，行跨度 10；按 layout 把参考 NV21 的色度写成交错（共享一块内存）或两个独立平面 */
+    private static ByteBuffer[] stridedPlanes(byte[] nv21, int layout) {
+        int w = 8, h = 4, stride = 10, cw = w / 2, ch = h / 2;
+        byte[] y = new byte[stride * h];
+        for (int r = 0; r < h; r++) {
+            System.arraycopy(nv21, r * w, y, r * stride, w);
+        }
+        if (layout == YuvConvert.CHROMA_PLANAR) {
+            byte[] u = new byte[stride * ch];
+            byte[] v = new byte[stride * ch];
+            for (int r = 0; r < ch; r++) {
+                for (int c = 0; c < cw; c++) {
+                    v[r * stride + c] = nv21[w * h + r * w + 2 * c];
+                    u[r * stride + c] = nv21[w * h + r * w + 2 * c + 1];
+                }
+            }
+            return new ByteBuffer[] { ByteBuffer.wrap(y), ByteBuffer.wrap(u), ByteBuffer.wrap(v) };
+        }
+        byte[] chroma = new byte[stride * ch];
+        for (int r = 0; r < ch; r++) {
+            for (int c = 0; c < cw; c++) {
+                byte v = nv21[w * h + r * w + 2 * c];
+                byte u = nv21[w * h + r * w + 2 * c + 1];
+                chroma[r * stride + 2 * c] = layout == YuvConvert.CHROMA_NV21 ? v : u;
+                chroma[r * stride + 2 * c + 1] = layout == YuvConvert.CHROMA_NV21 ? u : v;
+            }
+        }
+        // 与 Image 平面一致：每个视图都少了另一平面最后一个样本
+        int len = stride * (ch - 1) + w - 1;
+        ByteBuffer first = ByteBuffer.wrap(chroma, 0, len).slice();
+        ByteBuffer second = ByteBuffer.wrap(chroma, 1, len).slice();
+        return layout == YuvConvert.CHROMA_NV21
+                ? new ByteBuffer[] { ByteBuffer.wrap(y), second, first }
+                : new ByteBuffer[] { ByteBuffer.wrap(y), first, second };
+    }
+
+    @Test
+    public void packNv21DetectsChromaLayout() {
+        int w = 8, h = 4, stride = 10;
+        byte[] nv21 = random(YuvConvert.frameSize(w, h), 11);
+        for (int layout : new int[] { YuvConvert.CHROMA_PLANAR, YuvConvert.CHROMA_NV12, YuvConvert.CHROMA_NV21 }) {
+            ByteBuffer[] p = stridedPlanes(nv21, layout);
+            int pixelStride = layout == YuvConvert.CHROMA_PLANAR ? 1 : 2;
+            assertEquals(layout, YuvConvert.chromaLayout(p[1], p[2], stride, pixelStride, w, h));
+            byte[] out = new byte[nv21.length];
+            YuvConvert.packNv21(p[0], stride, p[1], p[2], stride, pixelStride, layout, w, h, out, new byte[stride]);
+            assertArrayEquals("layout " + layout, nv21, out);
+            // 交错色度按独立平面逐样本读取，结果相同
+            YuvConvert.packNv21(p[0], stride, p[1], p[2], stride, pixelStride, YuvConvert.CHROMA_PLANAR,
+                    w, h, out, new byte[stride]);
+            assertArrayEquals("planar fallback " + layout, nv21, out);
+            assertEquals(p[1].capacity(), p[1].limit());
+        }
+    }
+
+    @Test
+    public void flatChromaLayoutIsAmbiguous() {
+        int w = 8, h = 4;
+        byte[] nv21 = random(YuvConvert.frameSize(w, h), 12);
+        Arrays.fill(nv21, w * h, nv21.length, (byte) 128);
+        ByteBuffer[] p = stridedPlanes(nv21, YuvConvert.CHROMA_NV12);
+        assertEquals(YuvConvert.CHROMA_PLANAR, YuvConvert.chromaLayout(p[1], p[2], 10, 2, w, h));
+    }
+
+    @Test
+    public void unpackI420IntoStridedImagePlanes() {
+        int w = 8, h = 4, stride = 10;
+        byte[] nv21 = random(YuvConvert.frameSize(w, h), 13);
+        int cSize = YuvConvert.chromaSize(w, h);
+        byte[] sy = new byte[w * h];
+        byte[] su = new byte[cSize];
+        byte[] sv = new byte[cSize];
+        YuvConvert.nv21ToI420(nv21, w, h, sy, su, sv);
+        for (int layout : new int[] { YuvConvert.CHROMA_PLANAR, YuvConvert.CHROMA_NV12, YuvConvert.CHROMA_NV21 }) {
+            ByteBuffer[] dst = stridedPlanes(new byte[nv21.length], layout);
+            int pixelStride = layout == YuvConvert.CHROMA_PLANAR ? 1 : 2;
+            assertEquals(layout, YuvConvert.probeChromaLayout(dst[1], dst[2]));
+            YuvConvert.unpackI420(ByteBuffer.wrap(sy), ByteBuffer.wrap(su), ByteBuffer.wrap(sv), w, h,
+                    dst[0], stride, dst[1], dst[2], stride, pixelStride, layout, new byte[2 * w]);
+            byte[] out = new byte[nv21.length];
+            YuvConvert.packNv21(dst[0], stride, dst[1], dst[2], stride, pixelStride, YuvConvert.CHROMA_PLANAR,
+                    w, h, out, new byte[stride]);
+            assertArrayEquals("layout " + layout, nv21, out);
+        }
+    }
+
+    @Test
+    public void rotateScaleI420MatchesRotateThenScale() {
+        int w = 8, h = 6;
+        byte[] src = random(YuvConvert.frameSize(w, h), 7);
+        int ySize = w * h;
+        int cSize = YuvConvert.chromaSize(w, h);
+        YuvRotate.Scratch scratch = new YuvRotate.Scratch();
+        for (int rotation : new int[] { 0, 90, 180, 270 }) {
+            int rw = YuvRotate.swapsDimensions(rotation) ? h : w;
+            int rh = YuvRotate.swapsDimensions(rotation) ? w : h;
+            byte[] ry = new byte[ySize];
+            byte[] ru = new byte[cSize];
+            byte[] rv = new byte[cSize];
+            YuvRotate.rotateI420(Arrays.copyOfRange(src, 0, ySize), Arrays.copyOfRange(src, ySize, ySize + cSize),
+                    Arrays.copyOfRange(src, ySize + cSize, src.length), w, h, rotation, ry, ru, rv);
+            byte[] rotated = new byte[src.length];
+            YuvConvert.i420ToPacked(ry, ru, rv, rw, rh, rotated);
+
+            for (int[] size : new int[][] { { rw, rh }, { 4, 4 }, { 12, 10 }, { 4, 4 } }) {
+                ByteBuffer expected = ByteBuffer.allocate(YuvConvert.frameSize(size[0], size[1]));
+                YuvScale.scaleI420Nearest(ByteBuffer.wrap(rotated), rw, rh, expected, size[0], size[1],
+                        new byte[rw], new byte[size[0]]);
+                ByteBuffer actual = ByteBuffer.allocateDirect(expected.capacity());
+                // 一份暂存跨旋转、跨尺寸复用：几何变化时下标表须重算
+                YuvRotate.rotateScaleI420(ByteBuffer.wrap(src), w, h, rotation, actual, size[0], size[1], scratch);
+                assertEquals(0, actual.position());
+                byte[] out = new byte[actual.capacity()];
+                actual.get(out);
+                assertArrayEquals(rotation + "° " + size[0] + "x" + size[1], expected.array(), out);
+            }
+        }
+    }
+
+    static byte[] scaleNv21(byte[] src, int w, int h, int dstW, int dstH) {
+        Nv21FrameTransform transform = new Nv21FrameTransform();
+        YuvPlanes planes = new YuvPlanes().wrapNv21(src, w, h);
+        transform.configure(planes, 0, dstW, dstH);
+        byte[] dst = new byte[transform.getOutputSize()];
+        transform.apply(planes, dst);
+        return dst;
+    }
+
+    static byte[] bytes(int... values) {
+        byte[] out = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = (byte) values[i];
+        }
+        return out;
+    }
+
+    static byte[] random(int size, long seed) {
+        byte[] out = new byte[size];
+        new Random(seed).nextBytes(out);
+        return out;
+    }
+}